@@ -1,6 +1,15 @@
 package klondike;
 
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import klondike.analysis.Deals;
+import klondike.analysis.SolvabilityIndex;
+import klondike.analysis.SolveResult;
+import klondike.analysis.Variant;
 import klondike.controller.KlondikeController;
 import klondike.controller.KlondikeTextualController;
 import klondike.model.hw02.KlondikeCard;
@@ -14,10 +23,25 @@ public final class Klondike {
   /**
    *    * Launches a Klondike Solitaire game with the chosen variant and parameters.
    *
-   * @param args command-line arguments: [variant] [numPiles] [numDraw]
+   * @param args command-line arguments: [variant] [numPiles] [numDraw], optionally
+   *     followed by a deal number, or by {@code winnable <index file>} to deal a random
+   *     deal that a solvability sweep has proven winnable
    * @throws IllegalArgumentException if no or invalid game type is provided
    */
   public static void main(String[] args) {
+    play(args, new InputStreamReader(System.in), System.out, new PrintWriter(System.err, true));
+  }
+
+  /**
+   * Plays one game as {@link #main} does, on the given streams.
+   *
+   * @param args the command-line arguments accepted by {@link #main}
+   * @param in the player's input
+   * @param out where the game is written
+   * @param err where errors that end the game are reported
+   * @throws IllegalArgumentException if no or invalid game type is provided
+   */
+  static void play(String[] args, Readable in, Appendable out, PrintWriter err) {
     if (args.length == 0) {
       throw new IllegalArgumentException("You must specify a game type: basic or whitehead");
 
@@ -58,23 +82,59 @@ public final class Klondike {
       }
     }
     KlondikeModel<KlondikeCard> model = KlondikeCreator.create(gameType);
-    KlondikeController controller = new KlondikeTextualController(
-        new InputStreamReader(System.in), System.out);
+    List<KlondikeCard> deck = model.createNewDeck();
+    if (args.length > 3) {
+      deck = Deals.deck(chooseDeal(args, gameType, numPiles, numDraw));
+    }
+    KlondikeController controller = new KlondikeTextualController(in, out);
 
     try {
-      controller.playGame(model, model.createNewDeck(), false, numPiles, numDraw);
+      controller.playGame(model, deck, false, numPiles, numDraw);
     } catch (IllegalStateException e) {
-      System.err.println("Game error: " + e.getMessage());
+      err.println("Game error: " + e.getMessage());
     } catch (Exception e) {
-      System.err.println("An unexpected error occurred");
-      e.printStackTrace();
+      err.println("An unexpected error occurred");
+      e.printStackTrace(err);
     }
 
 
   }
 
-
-
+  /**
+   * Picks the deal number requested by the optional trailing arguments.
+   *
+   * @param args the command-line arguments, with at least four entries
+   * @param gameType the chosen variant
+   * @param numPiles the number of piles
+   * @param numDraw the number of draw cards
+   * @return the deal number to play
+   * @throws IllegalArgumentException if the arguments or index do not fit the game
+   */
+  private static long chooseDeal(String[] args, KlondikeCreator.GameType gameType,
+                                 int numPiles, int numDraw) {
+    if (!args[3].equalsIgnoreCase("winnable")) {
+      try {
+        return Long.parseLong(args[3]);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid deal number: " + args[3]);
+      }
+    }
+    if (args.length < 5) {
+      throw new IllegalArgumentException("winnable requires a solvability index file");
+    }
+    try (SolvabilityIndex index = SolvabilityIndex.open(Path.of(args[4]))) {
+      if (index.variant() != Variant.valueOf(gameType.name())
+          || index.numPiles() != numPiles || index.numDraw() != numDraw) {
+        throw new IllegalArgumentException("Index was built for "
+            + index.variant() + " " + index.numPiles() + " " + index.numDraw());
+      }
+      long seed = index.randomSeed(SolveResult.Status.SOLVED, new Random());
+      if (seed < 0) {
+        throw new IllegalArgumentException("Index contains no winnable deals");
+      }
+      return seed;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Cannot read index " + args[4], e);
+    }
+  }
 }
-
-
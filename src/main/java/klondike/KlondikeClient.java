@@ -0,0 +1,63 @@
+package klondike;
+
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * A thin terminal client for {@link KlondikeDaemon}. It sends its arguments as the
+ * game's header line, then copies standard input to the daemon and the daemon's
+ * output to standard output until the game ends. It loads no game classes, so it
+ * starts in a fraction of the time a full {@link Klondike} launch takes.
+ */
+public final class KlondikeClient {
+  private KlondikeClient() {
+  }
+
+  /**
+   * Connects to the daemon and plays one game.
+   *
+   * @param args the arguments {@link Klondike#main} would take; the socket file is
+   *     read from the {@code klondike.socket} system property, defaulting to
+   *     {@link KlondikeDaemon#DEFAULT_SOCKET}
+   * @throws IOException if the daemon cannot be reached
+   */
+  public static void main(String[] args) throws IOException {
+    String socket = System.getProperty("klondike.socket");
+    Path path = socket == null ? KlondikeDaemon.DEFAULT_SOCKET : Path.of(socket);
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(path))) {
+      byte[] header = (String.join(" ", args) + "\n").getBytes(StandardCharsets.UTF_8);
+      writeFully(channel, header, 0, header.length);
+      Thread input = new Thread(() -> {
+        byte[] buffer = new byte[1024];
+        try {
+          for (int n = System.in.read(buffer); n >= 0; n = System.in.read(buffer)) {
+            writeFully(channel, buffer, 0, n);
+          }
+          channel.shutdownOutput();
+        } catch (IOException e) {
+          // the daemon closed the connection first
+        }
+      }, "klondike-client-input");
+      input.setDaemon(true);
+      input.start();
+      ByteBuffer output = ByteBuffer.allocate(8192);
+      while (channel.read(output) >= 0) {
+        System.out.write(output.array(), 0, output.position());
+        System.out.flush();
+        output.clear();
+      }
+    }
+  }
+
+  private static void writeFully(SocketChannel channel, byte[] bytes, int offset, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
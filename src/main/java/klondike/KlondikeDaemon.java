@@ -0,0 +1,124 @@
+package klondike;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A resident game server that saves the JVM startup and JIT warm-up of launching
+ * {@link Klondike} once per game. At boot it plays scripted games through the model,
+ * controller and view until their hot paths are compiled, then serves games over a
+ * Unix-domain socket, one thread per connection.
+ *
+ * <p>A client sends one line holding the arguments {@link Klondike#main} would take,
+ * then the game's commands; the daemon answers with the game's output and closes
+ * the connection when the game ends. {@link KlondikeClient} is such a client.
+ */
+public final class KlondikeDaemon {
+  /** The socket used when none is given. */
+  public static final Path DEFAULT_SOCKET =
+      Path.of(System.getProperty("java.io.tmpdir"), "klondike.sock");
+
+  private static final int WARMUP_GAMES = 2_000;
+  private static final String WARMUP_COMMANDS =
+      "mpp 1 1 2 md 1 mpf 1 1 mdf 1 dd dd dd auto mpp 7 1 3 md 4 mpf 2 1 mdf 2 dd auto ";
+
+  private KlondikeDaemon() {
+  }
+
+  /**
+   * Plays scripted games of both variants through the full launcher path, writing
+   * to a discarding output, so the JIT compiles the code real games run.
+   *
+   * @param games the number of games per variant
+   */
+  public static void warmUp(int games) {
+    PrintWriter err = new PrintWriter(Writer.nullWriter());
+    Appendable out = Writer.nullWriter();
+    String script = WARMUP_COMMANDS.repeat(8) + "q";
+    for (int g = 0; g < games; g++) {
+      for (String variant : new String[] {"basic", "whitehead"}) {
+        Klondike.play(new String[] {variant, "7", String.valueOf(1 + g % 3),
+            String.valueOf(g)}, new StringReader(script), out, err);
+      }
+    }
+  }
+
+  /**
+   * Serves games on a socket until the process is stopped. A stale socket file left
+   * by an earlier daemon is replaced.
+   *
+   * @param socket the socket file
+   * @throws IOException if the socket cannot be bound
+   */
+  public static void serve(Path socket) throws IOException {
+    Files.deleteIfExists(socket);
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          Files.deleteIfExists(socket);
+        } catch (IOException e) {
+          // the file is left behind and replaced by the next daemon
+        }
+      }));
+      System.out.println("ready " + socket);
+      for (int served = 0; ; served++) {
+        SocketChannel client = server.accept();
+        new Thread(() -> serveGame(client), "klondike-game-" + served).start();
+      }
+    }
+  }
+
+  /**
+   * Plays one game on a connection. Output is buffered and flushed whenever the game
+   * waits for input, so each command's answer goes out in one write.
+   */
+  private static void serveGame(SocketChannel client) {
+    try (client;
+         Writer writer = Channels.newWriter(client, StandardCharsets.UTF_8)) {
+      BufferedReader reader = new BufferedReader(
+          Channels.newReader(client, StandardCharsets.UTF_8));
+      String header = reader.readLine();
+      PrintWriter err = new PrintWriter(writer);
+      Readable in = target -> {
+        writer.flush();
+        return reader.read(target);
+      };
+      try {
+        Klondike.play(header == null ? new String[0] : header.trim().split("\\s+"), in,
+            writer, err);
+      } catch (IllegalArgumentException e) {
+        err.println("Error: " + e.getMessage());
+      }
+      err.flush();
+    } catch (IOException e) {
+      // the client went away; nothing is left to report to
+    }
+  }
+
+  /**
+   * Warms up and serves games.
+   *
+   * @param args optionally the socket file and the number of warm-up games per variant
+   * @throws IOException if the socket cannot be bound
+   */
+  public static void main(String[] args) throws IOException {
+    Path socket = args.length > 0 ? Path.of(args[0]) : DEFAULT_SOCKET;
+    int games = args.length > 1 ? Integer.parseInt(args[1]) : WARMUP_GAMES;
+    long start = System.nanoTime();
+    warmUp(games);
+    System.out.printf("warmed up in %.2f s%n", (System.nanoTime() - start) / 1e9);
+    serve(socket);
+  }
+}
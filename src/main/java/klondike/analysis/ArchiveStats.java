@@ -0,0 +1,355 @@
+package klondike.analysis;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mergeable statistics over a sequence of recorded games: win rate and average
+ * moves per variant and layout, a score histogram, and per-player wins and streaks.
+ * Two accumulators over consecutive stretches of an archive merge into the
+ * accumulator of the whole stretch, so chunks can be counted in parallel.
+ * Memory grows with the number of players and layouts, not with the number of
+ * games.
+ */
+public final class ArchiveStats {
+  private static final int VERSION = 1;
+  private static final int CACHE_SLOTS = 64;
+
+  private final Map<String, long[]> layouts = new HashMap<>();
+  private final Map<String, Player> players = new HashMap<>();
+  private long[] histogram = new long[53];
+  private long games;
+  private long wins;
+  private long offset;
+  private final String[] cachedVariant = new String[CACHE_SLOTS];
+  private final int[] cachedShape = new int[CACHE_SLOTS];
+  private final long[][] cachedLayout = new long[CACHE_SLOTS][];
+
+  /**
+   * Per-player counts. A streak is a run of consecutive wins. The leading and
+   * trailing streaks of a stretch are kept so that a streak crossing the border
+   * between two stretches is joined when they merge.
+   */
+  private static final class Player {
+    private long games;
+    private long wins;
+    private long leading;
+    private long trailing;
+    private long best;
+
+    private boolean allWins() {
+      return wins == games;
+    }
+  }
+
+  /**
+   * Counts one game.
+   *
+   * @param player the player's name
+   * @param variant the variant name, e.g. {@code basic}
+   * @param numPiles the number of cascades
+   * @param numDraw the number of draw cards
+   * @param moves the number of moves played
+   * @param score the final score
+   * @param cards the number of cards in the deck; the game was won if the score equals it
+   */
+  public void add(String player, String variant, int numPiles, int numDraw, int moves,
+                  int score, int cards) {
+    boolean won = score == cards;
+    long[] layout = layout(variant, numPiles, numDraw);
+    layout[0]++;
+    layout[1] += won ? 1 : 0;
+    layout[2] += moves;
+    if (score >= histogram.length) {
+      histogram = Arrays.copyOf(histogram, score + 1);
+    }
+    histogram[Math.max(0, score)]++;
+    games++;
+    wins += won ? 1 : 0;
+    Player p = players.computeIfAbsent(player, k -> new Player());
+    boolean unbroken = p.allWins();
+    p.games++;
+    if (won) {
+      p.wins++;
+      p.trailing++;
+      if (unbroken) {
+        p.leading++;
+      }
+      p.best = Math.max(p.best, p.trailing);
+    } else {
+      p.trailing = 0;
+    }
+  }
+
+  /**
+   * Adds the counts of a later stretch of games to this one. The other accumulator
+   * must cover the games directly after this one's, for streaks to join correctly.
+   * The larger of the two offsets is kept.
+   *
+   * @param later the accumulator of the following games
+   */
+  public void merge(ArchiveStats later) {
+    later.layouts.forEach((key, counts) -> {
+      long[] mine = layouts.computeIfAbsent(key, k -> new long[3]);
+      for (int i = 0; i < mine.length; i++) {
+        mine[i] += counts[i];
+      }
+    });
+    if (later.histogram.length > histogram.length) {
+      histogram = Arrays.copyOf(histogram, later.histogram.length);
+    }
+    for (int s = 0; s < later.histogram.length; s++) {
+      histogram[s] += later.histogram[s];
+    }
+    games += later.games;
+    wins += later.wins;
+    offset = Math.max(offset, later.offset);
+    later.players.forEach((name, next) -> {
+      Player p = players.get(name);
+      if (p == null) {
+        p = new Player();
+        players.put(name, p);
+      }
+      p.best = Math.max(Math.max(p.best, next.best), p.trailing + next.leading);
+      if (p.allWins()) {
+        p.leading += next.leading;
+      }
+      p.trailing = next.allWins() ? p.trailing + next.trailing : next.trailing;
+      p.games += next.games;
+      p.wins += next.wins;
+    });
+  }
+
+  /**
+   * Returns the number of archive bytes these statistics cover.
+   *
+   * @return the offset of the first byte not yet counted
+   */
+  public long offset() {
+    return offset;
+  }
+
+  /**
+   * Sets the number of archive bytes these statistics cover.
+   *
+   * @param offset the offset of the first byte not yet counted
+   */
+  public void setOffset(long offset) {
+    this.offset = offset;
+  }
+
+  /**
+   * Returns the number of games counted.
+   *
+   * @return the game count
+   */
+  public long games() {
+    return games;
+  }
+
+  /**
+   * Returns the number of games won.
+   *
+   * @return the win count
+   */
+  public long wins() {
+    return wins;
+  }
+
+  /**
+   * Returns the win rate of one variant and layout.
+   *
+   * @param variant the variant name
+   * @param numPiles the number of cascades
+   * @param numDraw the number of draw cards
+   * @return the fraction of games won, or 0 if none were played
+   */
+  public double winRate(String variant, int numPiles, int numDraw) {
+    long[] layout = layouts.get(layoutKey(variant, numPiles, numDraw));
+    return layout == null ? 0 : (double) layout[1] / layout[0];
+  }
+
+  /**
+   * Returns the average number of moves per game of one variant and layout.
+   *
+   * @param variant the variant name
+   * @param numPiles the number of cascades
+   * @param numDraw the number of draw cards
+   * @return the average moves, or 0 if none were played
+   */
+  public double averageMoves(String variant, int numPiles, int numDraw) {
+    long[] layout = layouts.get(layoutKey(variant, numPiles, numDraw));
+    return layout == null ? 0 : (double) layout[2] / layout[0];
+  }
+
+  /**
+   * Returns how many games ended with each score.
+   *
+   * @return a new array whose element {@code s} counts games with score {@code s}
+   */
+  public long[] scoreHistogram() {
+    return histogram.clone();
+  }
+
+  /**
+   * Returns a player's longest run of consecutive wins.
+   *
+   * @param player the player's name
+   * @return the longest streak, or 0 for an unknown player
+   */
+  public long bestStreak(String player) {
+    Player p = players.get(player);
+    return p == null ? 0 : p.best;
+  }
+
+  /**
+   * Returns a player's run of wins ending with their latest game.
+   *
+   * @param player the player's name
+   * @return the current streak, or 0 for an unknown player
+   */
+  public long currentStreak(String player) {
+    Player p = players.get(player);
+    return p == null ? 0 : p.trailing;
+  }
+
+  /**
+   * Returns the players with the most wins, ties broken by name.
+   *
+   * @param limit the most players to return
+   * @return the player names, best first
+   */
+  public List<String> leaderboard(int limit) {
+    List<String> names = new ArrayList<>(players.keySet());
+    names.sort(Comparator.comparingLong((String n) -> -players.get(n).wins)
+        .thenComparing(Comparator.naturalOrder()));
+    return names.subList(0, Math.min(limit, names.size()));
+  }
+
+  /**
+   * Renders a summary of every layout and the top of the leaderboard.
+   *
+   * @param top the number of leaderboard entries to show
+   * @return a multi-line report
+   */
+  public String report(int top) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%d games, %d won (%.1f%%)%n", games, wins,
+        games == 0 ? 0 : 100.0 * wins / games));
+    List<String> keys = new ArrayList<>(layouts.keySet());
+    keys.sort(Comparator.naturalOrder());
+    for (String key : keys) {
+      long[] layout = layouts.get(key);
+      sb.append(String.format("  %-16s %10d games %6.1f%% won %8.1f moves%n", key,
+          layout[0], 100.0 * layout[1] / layout[0], (double) layout[2] / layout[0]));
+    }
+    for (String name : leaderboard(top)) {
+      Player p = players.get(name);
+      sb.append(String.format("  %-16s %10d wins %6d best streak %6d current%n", name,
+          p.wins, p.best, p.trailing));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Writes these statistics, including the offset, so a later run can continue from
+   * where this one stopped.
+   *
+   * @param out the stream to write to
+   * @throws IOException if writing fails
+   */
+  public void write(DataOutputStream out) throws IOException {
+    out.writeInt(VERSION);
+    out.writeLong(offset);
+    out.writeLong(games);
+    out.writeLong(wins);
+    out.writeInt(histogram.length);
+    for (long count : histogram) {
+      out.writeLong(count);
+    }
+    out.writeInt(layouts.size());
+    for (Map.Entry<String, long[]> e : layouts.entrySet()) {
+      out.writeUTF(e.getKey());
+      for (long count : e.getValue()) {
+        out.writeLong(count);
+      }
+    }
+    out.writeInt(players.size());
+    for (Map.Entry<String, Player> e : players.entrySet()) {
+      Player p = e.getValue();
+      out.writeUTF(e.getKey());
+      out.writeLong(p.games);
+      out.writeLong(p.wins);
+      out.writeLong(p.leading);
+      out.writeLong(p.trailing);
+      out.writeLong(p.best);
+    }
+  }
+
+  /**
+   * Reads statistics written by {@link #write}.
+   *
+   * @param in the stream to read from
+   * @return the statistics
+   * @throws IOException if reading fails or the data has an unknown version
+   */
+  public static ArchiveStats read(DataInputStream in) throws IOException {
+    if (in.readInt() != VERSION) {
+      throw new IOException("Unknown statistics version");
+    }
+    ArchiveStats stats = new ArchiveStats();
+    stats.offset = in.readLong();
+    stats.games = in.readLong();
+    stats.wins = in.readLong();
+    stats.histogram = new long[in.readInt()];
+    for (int s = 0; s < stats.histogram.length; s++) {
+      stats.histogram[s] = in.readLong();
+    }
+    for (int n = in.readInt(); n > 0; n--) {
+      String key = in.readUTF();
+      long[] layout = new long[3];
+      for (int i = 0; i < layout.length; i++) {
+        layout[i] = in.readLong();
+      }
+      stats.layouts.put(key, layout);
+    }
+    for (int n = in.readInt(); n > 0; n--) {
+      String name = in.readUTF();
+      Player p = new Player();
+      p.games = in.readLong();
+      p.wins = in.readLong();
+      p.leading = in.readLong();
+      p.trailing = in.readLong();
+      p.best = in.readLong();
+      stats.players.put(name, p);
+    }
+    return stats;
+  }
+
+  /**
+   * Returns the counts of a layout, going through a small cache so that the map
+   * key is only built the first time a layout is seen in a slot.
+   */
+  private long[] layout(String variant, int numPiles, int numDraw) {
+    int shape = numPiles << 16 | numDraw & 0xFFFF;
+    int slot = (variant.hashCode() * 31 + shape) & (CACHE_SLOTS - 1);
+    if (cachedShape[slot] != shape || !variant.equals(cachedVariant[slot])) {
+      cachedVariant[slot] = variant;
+      cachedShape[slot] = shape;
+      cachedLayout[slot] = layouts.computeIfAbsent(layoutKey(variant, numPiles, numDraw),
+          k -> new long[3]);
+    }
+    return cachedLayout[slot];
+  }
+
+  private static String layoutKey(String variant, int numPiles, int numDraw) {
+    return variant + " " + numPiles + " " + numDraw;
+  }
+}
@@ -0,0 +1,377 @@
+package klondike.analysis;
+
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * A beam search for bulk analysis, where a deal must never stall a batch. Each step
+ * expands every position of the current layer, scores each child, and keeps only the
+ * {@code width} best children as the next layer, so work and memory per step are
+ * fixed by the width. A search stops at the first win, when a layer has no new
+ * children, after {@code maxDepth} layers, or at its time limit. It cannot prove a
+ * deal unsolvable: a search that ends without a win reports {@link
+ * SolveResult.Status#TIMEOUT}, and {@link #bestLine()} gives the line to the best
+ * scoring position it reached.
+ *
+ * <p>Safe foundation moves are played at once, as in {@link Solver}; discards are
+ * never tried, since they strand a stock card. Positions are remembered by {@link
+ * Board#canonicalHash64()} so the beam does not fill with transpositions of one
+ * position. Memory is two layers of {@code width} boards plus, for each kept
+ * position, its hash and the moves leading to it from its parent, so a search holds
+ * at most {@code width * maxDepth} positions' worth of bookkeeping.
+ *
+ * <p>A solver reuses its storage between runs but is not thread safe.
+ */
+public final class BeamSolver {
+  /** Default number of positions kept per layer. */
+  public static final int DEFAULT_WIDTH = 64;
+  /** Default number of layers before giving up. */
+  public static final int DEFAULT_MAX_DEPTH = 300;
+  /** Default time limit per deal, in milliseconds. */
+  public static final long DEFAULT_TIME_LIMIT_MILLIS = 2_000;
+
+  private static final int CLOCK_INTERVAL = 1 << 10;
+
+  private final int width;
+  private final int maxDepth;
+  private final long timeLimitNanos;
+  private final ToIntFunction<Board> scorer;
+  private final SolverStats stats;
+  private final LongHashSet visited;
+  private final int[] moves = new int[Board.MAX_MOVES];
+  private final int[] heapScore;
+  private final int[] heapParent;
+  private final int[] heapMove;
+  private final long[] order;
+  private Board[] layer = new Board[0];
+  private Board[] nextLayer = new Board[0];
+  private int[] layerNode;
+  private int[] nextNode;
+  private Board scratch;
+  private int[] nodeParent = new int[1024];
+  private int[] nodeStart = new int[1024];
+  private int[] nodeLength = new int[1024];
+  private int[] arena = new int[4096];
+  private int nodeCount;
+  private int arenaSize;
+  private int heapSize;
+  private int bestNode;
+  private int bestScore;
+  private long nodes;
+  private long lookups;
+  private long hits;
+  private int best;
+  private int layers;
+
+  /**
+   * Creates a solver with the given width and the default depth and time limits.
+   *
+   * @param width the number of positions kept per layer
+   * @throws IllegalArgumentException if the width is not positive
+   */
+  public BeamSolver(int width) {
+    this(width, DEFAULT_MAX_DEPTH, DEFAULT_TIME_LIMIT_MILLIS, null, null);
+  }
+
+  /**
+   * Creates a solver.
+   *
+   * @param width the number of positions kept per layer
+   * @param maxDepth the number of layers before giving up
+   * @param timeLimitMillis the time limit per search in milliseconds
+   * @param scorer the position score, higher being more promising, or null for
+   *     {@link #score}
+   * @param stats the counters to report to; may be null
+   * @throws IllegalArgumentException if a limit or the width is not positive
+   */
+  public BeamSolver(int width, int maxDepth, long timeLimitMillis, ToIntFunction<Board> scorer,
+                    SolverStats stats) {
+    if (width < 1 || maxDepth < 1 || timeLimitMillis < 1) {
+      throw new IllegalArgumentException("Width and limits must be positive");
+    }
+    this.width = width;
+    this.maxDepth = maxDepth;
+    this.timeLimitNanos = timeLimitMillis * 1_000_000;
+    this.scorer = scorer == null ? BeamSolver::score : scorer;
+    this.stats = stats;
+    this.visited = new LongHashSet(width * 4);
+    this.heapScore = new int[width];
+    this.heapParent = new int[width];
+    this.heapMove = new int[width];
+    this.order = new long[width];
+    this.layerNode = new int[width];
+    this.nextNode = new int[width];
+  }
+
+  /**
+   * The default position score: cards on the foundations count most, then face-down
+   * cards still to uncover, then empty cascades, then how accessible the stock is,
+   * that is how few cards are left in it and whether its front card can be played.
+   * Cascades holding a card above a lower card of its suit count against the score,
+   * since each needs a move that makes no progress.
+   *
+   * @param board the position
+   * @return the score, higher being more promising
+   */
+  public static int score(Board board) {
+    int score = 100 * board.foundationCount() - 20 * board.faceDownCount();
+    for (int p = 0; p < board.numPiles(); p++) {
+      if (board.height(p) == 0) {
+        score += 15;
+      }
+    }
+    score -= 10 * (OptimalSolver.lowerBound(board) - board.totalCards()
+        + board.foundationCount());
+    int stock = board.stockSize() - board.stockPos();
+    score -= 2 * stock;
+    if (stock > 0) {
+      int card = board.stockCard(board.stockPos());
+      boolean playable = board.foundation(Cards.suit(card)) + 1 == Cards.value(card);
+      for (int p = 0; p < board.numPiles() && !playable; p++) {
+        playable = board.canPlace(card, p);
+      }
+      score += playable ? 5 : 0;
+    }
+    return score;
+  }
+
+  /**
+   * Searches for a winning line from the given position.
+   *
+   * @param start a fully known position; it is not modified
+   * @return {@link SolveResult.Status#SOLVED} with the line found, or {@link
+   *     SolveResult.Status#TIMEOUT} if the search ended without a win
+   */
+  public SolveResult solve(Board start) {
+    SolveResult result = search(start);
+    if (stats != null) {
+      stats.add(nodes, lookups, hits, layers, layers, best);
+      stats.finished(result.status());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the line to the best scoring position the last search reached, which is
+   * the winning line if it found one.
+   *
+   * @return the encoded moves in order
+   */
+  public int[] bestLine() {
+    return line(bestNode);
+  }
+
+  private SolveResult search(Board start) {
+    long deadline = System.nanoTime() + timeLimitNanos;
+    ensureBoards(start);
+    visited.clear();
+    nodeCount = 0;
+    arenaSize = 0;
+    nodes = 0;
+    lookups = 0;
+    hits = 0;
+    layers = 0;
+    Board root = layer[0];
+    root.copyFrom(start);
+    int rootStart = arenaSize;
+    int safe = playSafe(root);
+    int rootNode = addNode(-1, rootStart, safe);
+    bestNode = rootNode;
+    bestScore = scorer.applyAsInt(root);
+    best = root.foundationCount();
+    if (root.isWon()) {
+      return solved(rootNode, null, 0);
+    }
+    visited.add(root.canonicalHash64());
+    layerNode[0] = rootNode;
+    int size = 1;
+    for (layers = 0; layers < maxDepth && size > 0; layers++) {
+      heapSize = 0;
+      for (int i = 0; i < size; i++) {
+        Board parent = layer[i];
+        int n = parent.generateMoves(moves);
+        for (int m = 0; m < n; m++) {
+          int move = moves[m];
+          if (Moves.kind(move) == Moves.DISCARD || Solver.isPointless(parent, move)) {
+            continue;
+          }
+          scratch.copyFrom(parent);
+          scratch.apply(move);
+          int mark = arenaSize;
+          playSafe(scratch);
+          arenaSize = mark;
+          if (scratch.isWon()) {
+            return solved(layerNode[i], parent, move);
+          }
+          lookups++;
+          if (visited.contains(scratch.canonicalHash64())) {
+            hits++;
+            continue;
+          }
+          if ((++nodes & CLOCK_INTERVAL - 1) == 0 && System.nanoTime() > deadline) {
+            return new SolveResult(SolveResult.Status.TIMEOUT, new int[0], nodes);
+          }
+          offer(scorer.applyAsInt(scratch), i, move);
+        }
+      }
+      size = advance();
+      if (System.nanoTime() > deadline) {
+        break;
+      }
+    }
+    return new SolveResult(SolveResult.Status.TIMEOUT, new int[0], nodes);
+  }
+
+  /**
+   * Keeps a child among the best {@code width} of this layer, in a min-heap on score.
+   */
+  private void offer(int score, int parent, int move) {
+    if (heapSize < width) {
+      int i = heapSize++;
+      while (i > 0 && heapScore[(i - 1) / 2] > score) {
+        int up = (i - 1) / 2;
+        set(i, heapScore[up], heapParent[up], heapMove[up]);
+        i = up;
+      }
+      set(i, score, parent, move);
+    } else if (score > heapScore[0]) {
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= heapSize) {
+          break;
+        }
+        if (child + 1 < heapSize && heapScore[child + 1] < heapScore[child]) {
+          child++;
+        }
+        if (heapScore[child] >= score) {
+          break;
+        }
+        set(i, heapScore[child], heapParent[child], heapMove[child]);
+        i = child;
+      }
+      set(i, score, parent, move);
+    }
+  }
+
+  private void set(int i, int score, int parent, int move) {
+    heapScore[i] = score;
+    heapParent[i] = parent;
+    heapMove[i] = move;
+  }
+
+  /**
+   * Builds the next layer from the kept children, best first, skipping positions
+   * already reached, and swaps it in.
+   *
+   * @return the size of the new layer
+   */
+  private int advance() {
+    for (int i = 0; i < heapSize; i++) {
+      order[i] = (long) heapScore[i] << 32 | i;
+    }
+    Arrays.sort(order, 0, heapSize);
+    int size = 0;
+    for (int k = heapSize - 1; k >= 0; k--) {
+      int e = (int) order[k];
+      Board child = nextLayer[size];
+      child.copyFrom(layer[heapParent[e]]);
+      child.apply(heapMove[e]);
+      int start = arenaSize;
+      push(heapMove[e]);
+      int length = 1 + playSafe(child);
+      if (!visited.add(child.canonicalHash64())) {
+        arenaSize = start;
+        continue;
+      }
+      int node = addNode(layerNode[heapParent[e]], start, length);
+      nextNode[size++] = node;
+      best = Math.max(best, child.foundationCount());
+      if (heapScore[e] > bestScore) {
+        bestScore = heapScore[e];
+        bestNode = node;
+      }
+    }
+    Board[] boards = layer;
+    layer = nextLayer;
+    nextLayer = boards;
+    int[] ids = layerNode;
+    layerNode = nextNode;
+    nextNode = ids;
+    return size;
+  }
+
+  private SolveResult solved(int parentNode, Board parent, int move) {
+    bestNode = parentNode;
+    if (parent != null) {
+      scratch.copyFrom(parent);
+      scratch.apply(move);
+      int start = arenaSize;
+      push(move);
+      int length = 1 + playSafe(scratch);
+      bestNode = addNode(parentNode, start, length);
+    }
+    best = (parent == null ? layer[0] : scratch).foundationCount();
+    return new SolveResult(SolveResult.Status.SOLVED, line(bestNode), nodes);
+  }
+
+  /**
+   * Returns the moves from the start to a node, gathered backwards along its parents.
+   */
+  private int[] line(int node) {
+    int end = 0;
+    for (int n = node; n >= 0; n = nodeParent[n]) {
+      end += nodeLength[n];
+    }
+    int[] line = new int[end];
+    for (int n = node; n >= 0; n = nodeParent[n]) {
+      end -= nodeLength[n];
+      System.arraycopy(arena, nodeStart[n], line, end, nodeLength[n]);
+    }
+    return line;
+  }
+
+  private int playSafe(Board board) {
+    int count = 0;
+    for (int move = board.safeFoundationMove(); move >= 0; move = board.safeFoundationMove()) {
+      board.apply(move);
+      push(move);
+      count++;
+    }
+    return count;
+  }
+
+  private void push(int move) {
+    if (arenaSize == arena.length) {
+      arena = Arrays.copyOf(arena, arena.length * 2);
+    }
+    arena[arenaSize++] = move;
+  }
+
+  private int addNode(int parent, int start, int length) {
+    if (nodeCount == nodeParent.length) {
+      int size = nodeCount * 2;
+      nodeParent = Arrays.copyOf(nodeParent, size);
+      nodeStart = Arrays.copyOf(nodeStart, size);
+      nodeLength = Arrays.copyOf(nodeLength, size);
+    }
+    nodeParent[nodeCount] = parent;
+    nodeStart[nodeCount] = start;
+    nodeLength[nodeCount] = length;
+    return nodeCount++;
+  }
+
+  private void ensureBoards(Board shape) {
+    if (scratch != null && scratch.numPiles() == shape.numPiles()
+        && scratch.variant() == shape.variant() && scratch.numDraw() == shape.numDraw()) {
+      return;
+    }
+    layer = new Board[width];
+    nextLayer = new Board[width];
+    for (int i = 0; i < width; i++) {
+      layer[i] = new Board(shape);
+      nextLayer[i] = new Board(shape);
+    }
+    scratch = new Board(shape);
+  }
+}
@@ -0,0 +1,604 @@
+package klondike.analysis;
+
+import java.util.Arrays;
+import klondike.model.hw02.KlondikeRules;
+
+/**
+ * A compact, mutable Klondike position used for search and simulation.
+ * Cards are stored as byte ids (see {@link Cards}), moves as ints (see {@link Moves}),
+ * and foundations are kept per suit, since foundation slots are interchangeable.
+ * The stock is one array: cards before {@code stockPos} are the discard pile and
+ * cards from {@code stockPos} on are the draw pile, which matches how the models
+ * recycle discards back into the draw pile in order.
+ */
+public final class Board {
+  /** Upper bound on the number of moves {@link #generateMoves} can produce. */
+  public static final int MAX_MOVES = 2048;
+
+  private final Variant variant;
+  private final KlondikeRules rules;
+  private final int numPiles;
+  private final int numDraw;
+  private final byte[][] piles;
+  private final int[] heights;
+  private final int[] faceDown;
+  private final int[] foundations;
+  private final byte[] stock;
+  private final long[] pileHashes;
+  private int stockSize;
+  private int stockPos;
+  private int totalCards;
+
+  /**
+   * Creates an empty board with the given shape, to be filled by the caller.
+   *
+   * @param variant the rules to play by
+   * @param numPiles the number of cascades
+   * @param numDraw the number of visible draw cards
+   */
+  public Board(Variant variant, int numPiles, int numDraw) {
+    if (variant == null || numPiles < 1 || numDraw < 1) {
+      throw new IllegalArgumentException("Invalid board shape");
+    }
+    this.variant = variant;
+    this.rules = variant.rules();
+    this.numPiles = numPiles;
+    this.numDraw = numDraw;
+    this.piles = new byte[numPiles][Cards.DECK_SIZE];
+    this.heights = new int[numPiles];
+    this.faceDown = new int[numPiles];
+    this.foundations = new int[4];
+    this.stock = new byte[Cards.DECK_SIZE];
+    this.pileHashes = new long[numPiles];
+  }
+
+  /**
+   * Creates a deep copy of another board.
+   *
+   * @param other the board to copy
+   */
+  public Board(Board other) {
+    this(other.variant, other.numPiles, other.numDraw);
+    copyFrom(other);
+  }
+
+  /**
+   * Deals a new game from a deck of card ids exactly as the models do: row by row
+   * into the cascade triangle, the rest into the draw pile.
+   *
+   * @param variant the rules to play by
+   * @param deck the card ids in deal order
+   * @param numPiles the number of cascades
+   * @param numDraw the number of visible draw cards
+   * @return the dealt board
+   * @throws IllegalArgumentException if the deck cannot fill the cascades
+   */
+  public static Board deal(Variant variant, int[] deck, int numPiles, int numDraw) {
+    Board board = new Board(variant, numPiles, numDraw);
+    if (deck.length < numPiles * (numPiles + 1) / 2 || deck.length > Cards.DECK_SIZE) {
+      throw new IllegalArgumentException("Deck does not fit " + numPiles + " piles");
+    }
+    int index = 0;
+    for (int row = 0; row < numPiles; row++) {
+      for (int pile = row; pile < numPiles; pile++) {
+        board.piles[pile][board.heights[pile]++] = (byte) deck[index++];
+      }
+    }
+    for (int pile = 0; pile < numPiles; pile++) {
+      board.faceDown[pile] = variant.dealFaceUp() ? 0 : board.heights[pile] - 1;
+    }
+    while (index < deck.length) {
+      board.stock[board.stockSize++] = (byte) deck[index++];
+    }
+    board.totalCards = deck.length;
+    return board;
+  }
+
+  /**
+   * Overwrites this board with the contents of another board of the same shape,
+   * reusing this board's storage.
+   *
+   * @param other the board to copy
+   * @throws IllegalArgumentException if the shapes differ
+   */
+  public void copyFrom(Board other) {
+    if (other.numPiles != numPiles || other.variant != variant || other.numDraw != numDraw) {
+      throw new IllegalArgumentException("Board shapes differ");
+    }
+    for (int p = 0; p < numPiles; p++) {
+      System.arraycopy(other.piles[p], 0, piles[p], 0, other.heights[p]);
+    }
+    System.arraycopy(other.heights, 0, heights, 0, numPiles);
+    System.arraycopy(other.faceDown, 0, faceDown, 0, numPiles);
+    System.arraycopy(other.foundations, 0, foundations, 0, foundations.length);
+    System.arraycopy(other.stock, 0, stock, 0, other.stockSize);
+    stockSize = other.stockSize;
+    stockPos = other.stockPos;
+    totalCards = other.totalCards;
+  }
+
+  /**
+   * Places a card on top of a cascade while building a position.
+   *
+   * @param pile the cascade
+   * @param card the card id, or {@link Cards#UNKNOWN}
+   * @param faceUp whether the card is face up; face-down cards must come first
+   */
+  public void pushCard(int pile, int card, boolean faceUp) {
+    if (!faceUp) {
+      faceDown[pile]++;
+    }
+    piles[pile][heights[pile]++] = (byte) card;
+    totalCards++;
+  }
+
+  /**
+   * Appends a card to the draw pile while building a position.
+   *
+   * @param card the card id, or {@link Cards#UNKNOWN}
+   */
+  public void pushStock(int card) {
+    stock[stockSize++] = (byte) card;
+    totalCards++;
+  }
+
+  /**
+   * Sets how many cards of a suit are on the foundations while building a position.
+   *
+   * @param suit the suit index
+   * @param count the number of cards, Ace upwards
+   */
+  public void setFoundation(int suit, int count) {
+    totalCards += count - foundations[suit];
+    foundations[suit] = count;
+  }
+
+  /**
+   * Replaces every {@link Cards#UNKNOWN} placeholder, cascades first and then the
+   * stock, with the next card of the given pool.
+   *
+   * @param pool the card ids to fill in, in order
+   * @return the number of placeholders filled
+   */
+  public int fillUnknown(byte[] pool) {
+    int next = 0;
+    for (int p = 0; p < numPiles; p++) {
+      byte[] cards = piles[p];
+      for (int i = 0; i < heights[p]; i++) {
+        if (cards[i] == Cards.UNKNOWN) {
+          cards[i] = pool[next++];
+        }
+      }
+    }
+    for (int i = 0; i < stockSize; i++) {
+      if (stock[i] == Cards.UNKNOWN) {
+        stock[i] = pool[next++];
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Writes every legal move in this position to the buffer, foundation moves first.
+   *
+   * @param out a buffer of at least {@link #MAX_MOVES} entries
+   * @return the number of moves written
+   */
+  public int generateMoves(int[] out) {
+    int n = 0;
+    for (int p = 0; p < numPiles; p++) {
+      int h = heights[p];
+      if (h > faceDown[p] && canFound(piles[p][h - 1])) {
+        out[n++] = Moves.encode(Moves.PILE_TO_FOUNDATION, p, 1, Cards.suit(piles[p][h - 1]));
+      }
+    }
+    boolean drawAvailable = stockPos < stockSize;
+    if (drawAvailable && canFound(stock[stockPos])) {
+      out[n++] = Moves.encode(Moves.DRAW_TO_FOUNDATION, 0, 1, Cards.suit(stock[stockPos]));
+    }
+    for (int src = 0; src < numPiles; src++) {
+      int h = heights[src];
+      for (int start = runStart(src); start < h; start++) {
+        int card = piles[src][start];
+        for (int dest = 0; dest < numPiles; dest++) {
+          if (dest != src && canPlace(card, dest)) {
+            out[n++] = Moves.encode(Moves.PILE, src, h - start, dest);
+          }
+        }
+      }
+    }
+    if (drawAvailable) {
+      for (int dest = 0; dest < numPiles; dest++) {
+        if (canPlace(stock[stockPos], dest)) {
+          out[n++] = Moves.encode(Moves.DRAW, 0, 1, dest);
+        }
+      }
+    }
+    if (stockSize > 0) {
+      out[n++] = Moves.encode(Moves.DISCARD, 0, 0, 0);
+    }
+    return n;
+  }
+
+  /**
+   * Returns a foundation move that can never hurt: a cascade top or draw card that
+   * no card still in play could need to be built on. That holds for Aces and Twos,
+   * and otherwise once every card of the building color one rank lower is already
+   * on the foundations.
+   *
+   * @return an encoded safe foundation move, or -1 if there is none
+   */
+  public int safeFoundationMove() {
+    for (int p = 0; p < numPiles; p++) {
+      int h = heights[p];
+      if (h > faceDown[p] && isSafe(piles[p][h - 1])) {
+        return Moves.encode(Moves.PILE_TO_FOUNDATION, p, 1, Cards.suit(piles[p][h - 1]));
+      }
+    }
+    if (stockPos < stockSize && isSafe(stock[stockPos])) {
+      return Moves.encode(Moves.DRAW_TO_FOUNDATION, 0, 1, Cards.suit(stock[stockPos]));
+    }
+    return -1;
+  }
+
+  private boolean isSafe(int card) {
+    if (!canFound(card)) {
+      return false;
+    }
+    long onFoundations = 0;
+    for (int suit = 0; suit < foundations.length; suit++) {
+      onFoundations |= ((1L << foundations[suit]) - 1) << suit * Cards.RANKS;
+    }
+    return rules.isSafeToFound(card, onFoundations);
+  }
+
+  /**
+   * Returns whether the given move is legal in this position.
+   *
+   * @param move the encoded move
+   * @return true if the move may be applied
+   */
+  public boolean isLegal(int move) {
+    int src = Moves.src(move);
+    int dest = Moves.dest(move);
+    return switch (Moves.kind(move)) {
+      case Moves.PILE -> src < numPiles && dest < numPiles && src != dest
+          && Moves.count(move) >= 1 && heights[src] - Moves.count(move) >= runStart(src)
+          && canPlace(piles[src][heights[src] - Moves.count(move)], dest);
+      case Moves.DRAW -> stockPos < stockSize && dest < numPiles
+          && canPlace(stock[stockPos], dest);
+      case Moves.PILE_TO_FOUNDATION -> src < numPiles && heights[src] > faceDown[src]
+          && Cards.suit(piles[src][heights[src] - 1]) == dest
+          && canFound(piles[src][heights[src] - 1]);
+      case Moves.DRAW_TO_FOUNDATION -> stockPos < stockSize
+          && Cards.suit(stock[stockPos]) == dest && canFound(stock[stockPos]);
+      case Moves.DISCARD -> stockSize > 0;
+      default -> false;
+    };
+  }
+
+  /**
+   * Applies a move that {@link #isLegal} accepts, flipping any newly exposed
+   * face-down card.
+   *
+   * @param move the encoded move
+   */
+  public void apply(int move) {
+    int src = Moves.src(move);
+    int dest = Moves.dest(move);
+    switch (Moves.kind(move)) {
+      case Moves.PILE -> {
+        int count = Moves.count(move);
+        System.arraycopy(piles[src], heights[src] - count, piles[dest], heights[dest], count);
+        heights[src] -= count;
+        heights[dest] += count;
+        flip(src);
+      }
+      case Moves.DRAW -> piles[dest][heights[dest]++] = takeDraw();
+      case Moves.PILE_TO_FOUNDATION -> {
+        heights[src]--;
+        foundations[dest]++;
+        flip(src);
+      }
+      case Moves.DRAW_TO_FOUNDATION -> {
+        takeDraw();
+        foundations[dest]++;
+      }
+      case Moves.DISCARD -> {
+        if (stockPos == stockSize) {
+          stockPos = 0;
+        }
+        stockPos++;
+      }
+      default -> throw new IllegalArgumentException("Unknown move kind");
+    }
+  }
+
+  /**
+   * Returns whether the given card may be placed on top of the given cascade.
+   * Unknown cards can neither be placed nor be built on.
+   *
+   * @param card the card id
+   * @param pile the destination cascade
+   * @return true if the build rules allow it
+   */
+  public boolean canPlace(int card, int pile) {
+    if (card == Cards.UNKNOWN) {
+      return false;
+    }
+    int h = heights[pile];
+    if (h == 0) {
+      return rules.canStack(card, KlondikeRules.EMPTY);
+    }
+    int top = piles[pile][h - 1];
+    return top != Cards.UNKNOWN && rules.canStack(card, top);
+  }
+
+  /**
+   * Returns the lowest index of the face-up run that may be moved as a unit from
+   * the top of a cascade. Equals the height when the cascade is empty.
+   *
+   * @param pile the cascade
+   * @return the index of the deepest movable card
+   */
+  public int runStart(int pile) {
+    int h = heights[pile];
+    if (h == 0) {
+      return 0;
+    }
+    byte[] cards = piles[pile];
+    int i = h - 1;
+    while (i > faceDown[pile] && continuesRun(cards[i - 1], cards[i])) {
+      i--;
+    }
+    return i;
+  }
+
+  private boolean continuesRun(int lower, int upper) {
+    return lower != Cards.UNKNOWN && upper != Cards.UNKNOWN
+        && rules.continuesRun(lower, upper);
+  }
+
+  private boolean canFound(int card) {
+    return card != Cards.UNKNOWN && Cards.value(card) == foundations[Cards.suit(card)] + 1;
+  }
+
+  private byte takeDraw() {
+    byte card = stock[stockPos];
+    System.arraycopy(stock, stockPos + 1, stock, stockPos, stockSize - stockPos - 1);
+    stockSize--;
+    return card;
+  }
+
+  private void flip(int pile) {
+    if (heights[pile] > 0 && faceDown[pile] >= heights[pile]) {
+      faceDown[pile] = heights[pile] - 1;
+    }
+  }
+
+  /**
+   * Returns whether the first stock card can never be drawn again. The models
+   * recycle the discard pile by dealing its first card straight back to the
+   * discard pile, so once that card has been discarded it is out of reach and
+   * the game can no longer be won.
+   *
+   * @return true if a stock card is stranded
+   */
+  public boolean hasStrandedStockCard() {
+    return stockPos > 0 && stockSize > 0;
+  }
+
+  /**
+   * Returns whether every card is on the foundations.
+   *
+   * @return true if the game is won
+   */
+  public boolean isWon() {
+    return foundationCount() == totalCards;
+  }
+
+  /**
+   * Returns the number of cards on all foundations.
+   *
+   * @return the foundation card count
+   */
+  public int foundationCount() {
+    return foundations[0] + foundations[1] + foundations[2] + foundations[3];
+  }
+
+  /**
+   * Returns the number of face-down cards in all cascades.
+   *
+   * @return the face-down card count
+   */
+  public int faceDownCount() {
+    int sum = 0;
+    for (int p = 0; p < numPiles; p++) {
+      sum += faceDown[p];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the rules this board plays by.
+   *
+   * @return the variant
+   */
+  public Variant variant() {
+    return variant;
+  }
+
+  /**
+   * Returns the number of cascades.
+   *
+   * @return the number of piles
+   */
+  public int numPiles() {
+    return numPiles;
+  }
+
+  /**
+   * Returns the number of visible draw cards.
+   *
+   * @return the draw count
+   */
+  public int numDraw() {
+    return numDraw;
+  }
+
+  /**
+   * Returns the height of a cascade.
+   *
+   * @param pile the cascade
+   * @return its number of cards
+   */
+  public int height(int pile) {
+    return heights[pile];
+  }
+
+  /**
+   * Returns the number of face-down cards at the bottom of a cascade.
+   *
+   * @param pile the cascade
+   * @return its face-down count
+   */
+  public int faceDown(int pile) {
+    return faceDown[pile];
+  }
+
+  /**
+   * Returns the card id at a position in a cascade.
+   *
+   * @param pile the cascade
+   * @param index the position, 0 at the bottom
+   * @return the card id, or {@link Cards#UNKNOWN}
+   */
+  public int card(int pile, int index) {
+    return piles[pile][index];
+  }
+
+  /**
+   * Returns how many cards of a suit are on the foundations.
+   *
+   * @param suit the suit index
+   * @return the foundation height
+   */
+  public int foundation(int suit) {
+    return foundations[suit];
+  }
+
+  /**
+   * Returns the number of cards in the draw and discard piles together.
+   *
+   * @return the stock size
+   */
+  public int stockSize() {
+    return stockSize;
+  }
+
+  /**
+   * Returns the index of the first draw card in the stock; earlier cards are discarded.
+   *
+   * @return the draw position
+   */
+  public int stockPos() {
+    return stockPos;
+  }
+
+  /**
+   * Returns the card id at a position in the stock.
+   *
+   * @param index the stock position
+   * @return the card id, or {@link Cards#UNKNOWN}
+   */
+  public int stockCard(int index) {
+    return stock[index];
+  }
+
+  /**
+   * Returns the total number of cards in play on this board.
+   *
+   * @return the card count
+   */
+  public int totalCards() {
+    return totalCards;
+  }
+
+  /**
+   * Returns a 64-bit hash of the exact layout, suitable as a cache key.
+   *
+   * @return the position hash
+   */
+  public long hash64() {
+    long h = mix(variant.ordinal() * 31L + numPiles * 7L + numDraw);
+    for (int p = 0; p < numPiles; p++) {
+      h = mix(h ^ (heights[p] << 8 | faceDown[p]));
+      for (int i = 0; i < heights[p]; i++) {
+        h = mix(h ^ piles[p][i]);
+      }
+    }
+    for (int foundation : foundations) {
+      h = mix(h ^ foundation);
+    }
+    h = mix(h ^ ((long) stockSize << 8 | stockPos));
+    for (int i = 0; i < stockSize; i++) {
+      h = mix(h ^ stock[i]);
+    }
+    return h;
+  }
+
+  /**
+   * Returns a 64-bit hash that is the same for every board that differs from this one
+   * only in the order of its cascades. Cascade indices do not affect the rules, so
+   * such boards are strategically identical; foundations are already kept per suit,
+   * and all empty cascades hash alike. Use this as a key for results that do not
+   * name a cascade, such as values and proofs, but not for stored moves.
+   *
+   * @return the canonical position hash
+   */
+  public long canonicalHash64() {
+    for (int p = 0; p < numPiles; p++) {
+      long h = mix(heights[p] << 8 | faceDown[p]);
+      for (int i = 0; i < heights[p]; i++) {
+        h = mix(h ^ piles[p][i]);
+      }
+      pileHashes[p] = h;
+    }
+    Arrays.sort(pileHashes);
+    long h = mix(variant.ordinal() * 31L + numPiles * 7L + numDraw);
+    for (long pile : pileHashes) {
+      h = mix(h ^ pile);
+    }
+    for (int foundation : foundations) {
+      h = mix(h ^ foundation);
+    }
+    h = mix(h ^ ((long) stockSize << 8 | stockPos));
+    for (int i = 0; i < stockSize; i++) {
+      h = mix(h ^ stock[i]);
+    }
+    return h;
+  }
+
+  private static long mix(long z) {
+    z = (z + 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(variant).append(" foundations=").append(Arrays.toString(foundations))
+        .append(" stock=").append(stockPos).append('/').append(stockSize).append('\n');
+    for (int p = 0; p < numPiles; p++) {
+      sb.append(p + 1).append(':');
+      for (int i = 0; i < heights[p]; i++) {
+        int card = piles[p][i];
+        sb.append(' ').append(i < faceDown[p] ? "?" : "")
+            .append(card == Cards.UNKNOWN ? "#" : Cards.toCard(card).toString());
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+}
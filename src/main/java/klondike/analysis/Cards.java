@@ -0,0 +1,74 @@
+package klondike.analysis;
+
+import klondike.model.hw02.CardImpl;
+import klondike.model.hw02.KlondikeCard;
+
+/**
+ * Helpers for the compact integer card ids used by the analysis code.
+ * A card id is {@code suit.ordinal() * 13 + (value - 1)}, so the 52 cards of a
+ * standard deck map onto 0..51 and the suit and rank can be recovered with one
+ * division.
+ */
+public final class Cards {
+  /** Number of distinct card ids in a standard deck. */
+  public static final int DECK_SIZE = 52;
+  /** Number of ranks in each suit. */
+  public static final int RANKS = 13;
+  /** Placeholder for a card whose identity is not known to the observer. */
+  public static final byte UNKNOWN = (byte) DECK_SIZE;
+
+  private static final KlondikeCard.Suit[] SUITS = KlondikeCard.Suit.values();
+
+  private Cards() {
+  }
+
+  /**
+   * Returns the id of the given card.
+   *
+   * @param card the card to encode
+   * @return the card id in 0..51
+   */
+  public static int id(KlondikeCard card) {
+    return card.getSuit().ordinal() * RANKS + card.getValue() - 1;
+  }
+
+  /**
+   * Returns the suit index (ordinal of {@link KlondikeCard.Suit}) of a card id.
+   *
+   * @param id the card id
+   * @return the suit index
+   */
+  public static int suit(int id) {
+    return id / RANKS;
+  }
+
+  /**
+   * Returns the rank (1 = Ace .. 13 = King) of a card id.
+   *
+   * @param id the card id
+   * @return the rank
+   */
+  public static int value(int id) {
+    return id % RANKS + 1;
+  }
+
+  /**
+   * Returns whether a card id denotes a red card.
+   *
+   * @param id the card id
+   * @return true for hearts and diamonds
+   */
+  public static boolean isRed(int id) {
+    return SUITS[id / RANKS].isRed();
+  }
+
+  /**
+   * Builds the card object for a card id.
+   *
+   * @param id the card id
+   * @return a new card with that suit and value
+   */
+  public static KlondikeCard toCard(int id) {
+    return new CardImpl(SUITS[id / RANKS], id % RANKS + 1);
+  }
+}
@@ -0,0 +1,44 @@
+package klondike.analysis;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.KlondikeCard;
+
+/**
+ * Numbered deals: deal number {@code n} is the standard deck in
+ * {@link BasicKlondike#createNewDeck()} order shuffled by {@code new Random(n)}, so a
+ * deal number reproduces the same game in every variant and on every machine.
+ */
+public final class Deals {
+  private Deals() {
+  }
+
+  /**
+   * Returns the deck for a deal number, to be dealt without shuffling.
+   *
+   * @param seed the deal number
+   * @return a new shuffled deck
+   */
+  public static List<KlondikeCard> deck(long seed) {
+    List<KlondikeCard> deck = new BasicKlondike().createNewDeck();
+    Collections.shuffle(deck, new Random(seed));
+    return deck;
+  }
+
+  /**
+   * Returns the card ids of the deck for a deal number, in deal order.
+   *
+   * @param seed the deal number
+   * @return the card ids
+   */
+  public static int[] ids(long seed) {
+    List<KlondikeCard> deck = deck(seed);
+    int[] ids = new int[deck.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = Cards.id(deck.get(i));
+    }
+    return ids;
+  }
+}
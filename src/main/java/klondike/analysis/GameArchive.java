@@ -0,0 +1,302 @@
+package klondike.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An append-only archive of finished games and the streaming aggregator that turns
+ * it into {@link ArchiveStats}. Each game is one UTF-8 line of seven space-separated
+ * fields: player, variant, numPiles, numDraw, moves, score and deck size.
+ *
+ * <p>The aggregator splits the archive into byte ranges that are scanned in
+ * parallel, each through a small buffer, and merges the per-range statistics in
+ * file order, so memory does not depend on the archive's size. A range owns the
+ * lines that start inside it. Only complete lines are counted, so a game still
+ * being appended is picked up by the next update.
+ */
+public final class GameArchive {
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final int BUFFER_BYTES = 1 << 16;
+  private static final int FIELDS = 7;
+
+  private GameArchive() {
+  }
+
+  /**
+   * Formats one game as an archive line, without the line break.
+   *
+   * @param player the player's name, which may not contain whitespace
+   * @param variant the variant name
+   * @param numPiles the number of cascades
+   * @param numDraw the number of draw cards
+   * @param moves the number of moves played
+   * @param score the final score
+   * @param cards the number of cards in the deck
+   * @return the line
+   * @throws IllegalArgumentException if a name is empty or contains whitespace
+   */
+  public static String format(String player, String variant, int numPiles, int numDraw,
+                              int moves, int score, int cards) {
+    if (!isWord(player) || !isWord(variant)) {
+      throw new IllegalArgumentException("Names must be non-empty and contain no spaces");
+    }
+    return player + " " + variant + " " + numPiles + " " + numDraw + " " + moves + " "
+        + score + " " + cards;
+  }
+
+  /**
+   * Appends one game to an archive, creating the file if needed.
+   *
+   * @param archive the archive file
+   * @param player the player's name, which may not contain whitespace
+   * @param variant the variant name
+   * @param numPiles the number of cascades
+   * @param numDraw the number of draw cards
+   * @param moves the number of moves played
+   * @param score the final score
+   * @param cards the number of cards in the deck
+   * @throws IOException if writing fails
+   */
+  public static void append(Path archive, String player, String variant, int numPiles,
+                            int numDraw, int moves, int score, int cards) throws IOException {
+    String line = format(player, variant, numPiles, numDraw, moves, score, cards) + "\n";
+    Files.writeString(archive, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Counts every complete game from a byte offset to the end of an archive.
+   *
+   * @param archive the archive file
+   * @param from the offset of a line start, usually a previous run's {@link
+   *     ArchiveStats#offset()}
+   * @param threads the number of scanning threads
+   * @return statistics whose offset is the end of the last complete line
+   * @throws IOException if reading fails or a line is malformed
+   * @throws IllegalArgumentException if the thread count is not positive
+   */
+  public static ArchiveStats aggregate(Path archive, long from, int threads)
+      throws IOException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Thread count must be positive");
+    }
+    long size = Files.size(archive);
+    if (from > size) {
+      throw new IOException("Archive is shorter than the counted offset " + from);
+    }
+    int chunks = (int) Math.max(1,
+        Math.min((long) threads * CHUNKS_PER_THREAD, size - from));
+    ArchiveStats[] results = new ArchiveStats[chunks];
+    IOException[] failure = new IOException[1];
+    AtomicInteger next = new AtomicInteger();
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < Math.min(threads, chunks); t++) {
+      Thread worker = new Thread(() -> {
+        for (int c = next.getAndIncrement(); c < chunks; c = next.getAndIncrement()) {
+          long start = from + (size - from) * c / chunks;
+          long end = from + (size - from) * (c + 1) / chunks;
+          try {
+            results[c] = scan(archive, from, start, end);
+          } catch (IOException e) {
+            synchronized (failure) {
+              failure[0] = e;
+            }
+            return;
+          }
+        }
+      }, "klondike-archive-" + t);
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Aggregation interrupted", e);
+      }
+    }
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+    ArchiveStats total = new ArchiveStats();
+    total.setOffset(from);
+    for (ArchiveStats chunk : results) {
+      total.merge(chunk);
+    }
+    return total;
+  }
+
+  /**
+   * Brings saved statistics up to date with an archive: loads them from the state
+   * file if it exists, counts only the games appended since, and saves the result.
+   *
+   * @param archive the archive file
+   * @param state the file holding the statistics between runs
+   * @param threads the number of scanning threads
+   * @return the up-to-date statistics
+   * @throws IOException if reading or writing fails or a line is malformed
+   */
+  public static ArchiveStats update(Path archive, Path state, int threads)
+      throws IOException {
+    ArchiveStats stats = new ArchiveStats();
+    if (Files.exists(state)) {
+      try (DataInputStream in = new DataInputStream(
+          new BufferedInputStream(Files.newInputStream(state)))) {
+        stats = ArchiveStats.read(in);
+      }
+    }
+    stats.merge(aggregate(archive, stats.offset(), threads));
+    Path temp = state.resolveSibling(state.getFileName() + ".tmp");
+    try (OutputStream file = Files.newOutputStream(temp);
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+      stats.write(out);
+    }
+    Files.move(temp, state, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    return stats;
+  }
+
+  /**
+   * Counts the complete lines that start in {@code [start, end)}. A range that does
+   * not begin at {@code from} first skips the rest of the line it begins in. The
+   * offset stays 0 unless a line is counted, so empty ranges do not move it.
+   */
+  private static ArchiveStats scan(Path archive, long from, long start, long end)
+      throws IOException {
+    ArchiveStats stats = new ArchiveStats();
+    Names names = new Names();
+    int[] fields = new int[FIELDS];
+    try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+      boolean skipping = start > from;
+      long base = skipping ? start - 1 : start;
+      channel.position(base);
+      byte[] buf = new byte[BUFFER_BYTES];
+      int filled = 0;
+      int lineStart = 0;
+      int i = 0;
+      while (base + lineStart < end || skipping) {
+        if (i == filled) {
+          if (lineStart == 0 && filled == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+          }
+          System.arraycopy(buf, lineStart, buf, 0, filled - lineStart);
+          base += lineStart;
+          filled -= lineStart;
+          i -= lineStart;
+          lineStart = 0;
+          int read = channel.read(ByteBuffer.wrap(buf, filled, buf.length - filled));
+          if (read < 0) {
+            break;
+          }
+          filled += read;
+          continue;
+        }
+        if (buf[i++] != '\n') {
+          continue;
+        }
+        if (skipping) {
+          skipping = false;
+        } else if (i - 1 > lineStart) {
+          parse(buf, lineStart, i - 1, base + lineStart, fields, names, stats);
+        }
+        lineStart = i;
+        stats.setOffset(base + lineStart);
+      }
+    }
+    return stats;
+  }
+
+  private static void parse(byte[] buf, int start, int end, long pos, int[] fields,
+                            Names names, ArchiveStats stats) throws IOException {
+    int field = 0;
+    for (int i = start; i < end && field < FIELDS; i++) {
+      if (buf[i] != ' ' && (i == start || buf[i - 1] == ' ')) {
+        fields[field++] = i;
+      }
+    }
+    if (field < FIELDS) {
+      throw new IOException("Malformed archive line at byte " + pos);
+    }
+    String player = names.get(buf, fields[0], end);
+    String variant = names.get(buf, fields[1], end);
+    for (int f = 2; f < FIELDS; f++) {
+      int value = 0;
+      for (int i = fields[f]; i < end && buf[i] != ' '; i++) {
+        int digit = buf[i] - '0';
+        if (digit < 0 || digit > 9) {
+          throw new IOException("Malformed archive line at byte " + pos);
+        }
+        value = value * 10 + digit;
+      }
+      fields[f] = value;
+    }
+    stats.add(player, variant, fields[2], fields[3], fields[4], fields[5], fields[6]);
+  }
+
+  /**
+   * A small cache from the bytes of a name to its string, so a name that recurs
+   * is decoded once rather than on every line. Colliding names replace each other.
+   */
+  private static final class Names {
+    private static final int SLOTS = 4096;
+
+    private final byte[][] keys = new byte[SLOTS][];
+    private final String[] values = new String[SLOTS];
+
+    private String get(byte[] buf, int start, int limit) {
+      int end = start;
+      int hash = 0;
+      while (end < limit && buf[end] != ' ') {
+        hash = hash * 31 + buf[end++];
+      }
+      int slot = (hash ^ hash >>> 16) & (SLOTS - 1);
+      byte[] key = keys[slot];
+      if (key == null || !Arrays.equals(key, 0, key.length, buf, start, end)) {
+        keys[slot] = Arrays.copyOfRange(buf, start, end);
+        values[slot] = new String(buf, start, end - start, StandardCharsets.UTF_8);
+      }
+      return values[slot];
+    }
+  }
+
+  private static boolean isWord(String s) {
+    return s != null && !s.isEmpty() && s.chars().noneMatch(Character::isWhitespace);
+  }
+
+  /**
+   * Updates the statistics of an archive from the command line and prints them.
+   *
+   * @param args the archive file, and optionally the state file (default: the
+   *     archive's name plus {@code .stats}) and the thread count
+   * @throws IOException if reading or writing fails or a line is malformed
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      throw new IllegalArgumentException("Usage: GameArchive archiveFile [stateFile] [threads]");
+    }
+    Path archive = Path.of(args[0]);
+    Path state = args.length > 1 ? Path.of(args[1])
+        : archive.resolveSibling(archive.getFileName() + ".stats");
+    int threads = args.length > 2 ? Integer.parseInt(args[2])
+        : Runtime.getRuntime().availableProcessors();
+    long start = System.nanoTime();
+    ArchiveStats stats = update(archive, state, threads);
+    System.out.print(stats.report(10));
+    System.out.printf("updated in %.2f s%n", (System.nanoTime() - start) / 1e9);
+  }
+}
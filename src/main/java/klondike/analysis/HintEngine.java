@@ -0,0 +1,267 @@
+package klondike.analysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeModel;
+
+/**
+ * Suggests a next move for a game in progress. The search is an iterative-deepening
+ * depth-first search over the visible position that runs on its own thread and is
+ * cut off at a deadline, answering with the best move of the deepest finished
+ * iteration. Hidden cards are treated as opaque, so uncovering one ends a line.
+ * Searched positions stay in a cache between calls, so a hint for the position
+ * after following the previous hint starts from work already done.
+ */
+public final class HintEngine implements AutoCloseable {
+  /** Default deadline for one hint, in milliseconds. */
+  public static final long DEFAULT_DEADLINE_MILLIS = 50;
+
+  private static final int NO_MOVE = -1;
+  private static final int MAX_DEPTH = 64;
+  private static final int CACHE_SIZE = 1 << 16;
+  private static final int CHECK_INTERVAL = 1024;
+
+  private final long deadlineMillis;
+  private final ExecutorService worker;
+  private final Map<Long, Entry> cache;
+  private final int[][] moveStack = new int[MAX_DEPTH + 1][];
+  private final Board[] boardStack = new Board[MAX_DEPTH + 1];
+  private long deadline;
+  private int nodes;
+  private boolean timedOut;
+
+  /**
+   * Creates a hint engine answering within {@link #DEFAULT_DEADLINE_MILLIS}.
+   */
+  public HintEngine() {
+    this(DEFAULT_DEADLINE_MILLIS);
+  }
+
+  /**
+   * Creates a hint engine answering within the given deadline.
+   *
+   * @param deadlineMillis the maximum time to spend on one hint
+   * @throws IllegalArgumentException if the deadline is not positive
+   */
+  public HintEngine(long deadlineMillis) {
+    if (deadlineMillis <= 0) {
+      throw new IllegalArgumentException("Deadline must be positive");
+    }
+    this.deadlineMillis = deadlineMillis;
+    this.worker = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "klondike-hint");
+      t.setDaemon(true);
+      return t;
+    });
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+        return size() > CACHE_SIZE;
+      }
+    };
+  }
+
+  /**
+   * Suggests the next move for the model's current position, as the controller
+   * command that plays it.
+   *
+   * @param model a started model; it is only read, on the calling thread
+   * @return a command such as {@code "mpp 2 1 5"}, or null if there is no move
+   *     or the model's cards cannot be analysed
+   */
+  @SuppressWarnings("unchecked")
+  public String suggest(KlondikeModel<?> model) {
+    KlondikeModel<? extends KlondikeCard> klondike = (KlondikeModel<? extends KlondikeCard>) model;
+    Observation observation;
+    try {
+      observation = Observation.of(klondike);
+    } catch (ClassCastException | IllegalArgumentException e) {
+      return null;
+    }
+    int move = bestMove(observation.board());
+    return move == NO_MOVE ? null : toCommand(move, klondike);
+  }
+
+  /**
+   * Returns the best move found for a position within the deadline.
+   *
+   * @param position the position to search; it is not modified
+   * @return the encoded move, or -1 if the position has no legal move
+   */
+  public int bestMove(Board position) {
+    Board root = new Board(position);
+    long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+    AtomicInteger best = new AtomicInteger(NO_MOVE);
+    Future<?> search = worker.submit(() -> search(root, due, best));
+    try {
+      search.get(Math.max(0, due - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      // answer with whatever the last finished iteration found
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return best.get();
+  }
+
+  private void search(Board root, long due, AtomicInteger best) {
+    deadline = due;
+    nodes = 0;
+    timedOut = false;
+    int[] moves = moves(0);
+    int count = root.generateMoves(moves);
+    if (count == 0) {
+      return;
+    }
+    best.set(moves[0]);
+    Board child = child(0, root);
+    for (int depth = 1; depth <= MAX_DEPTH && !timedOut; depth++) {
+      int iterationBest = NO_MOVE;
+      int bestValue = Integer.MIN_VALUE;
+      Entry rootEntry = cache.get(root.hash64());
+      if (rootEntry != null && rootEntry.move != NO_MOVE) {
+        promote(moves, count, rootEntry.move);
+      }
+      for (int i = 0; i < count && !timedOut; i++) {
+        child.copyFrom(root);
+        child.apply(moves[i]);
+        int value = value(child, depth - 1, 1);
+        if (value > bestValue) {
+          bestValue = value;
+          iterationBest = moves[i];
+        }
+      }
+      if (!timedOut) {
+        best.set(iterationBest);
+        cache.put(root.hash64(), new Entry(depth, bestValue, iterationBest));
+      }
+    }
+  }
+
+  private int value(Board board, int depth, int ply) {
+    int stand = evaluate(board);
+    if (depth == 0 || board.isWon() || tick()) {
+      return stand;
+    }
+    long key = board.hash64();
+    Entry entry = cache.get(key);
+    if (entry != null && entry.depth >= depth) {
+      return entry.value;
+    }
+    int[] moves = moves(ply);
+    int count = board.generateMoves(moves);
+    if (entry != null && entry.move != NO_MOVE) {
+      promote(moves, count, entry.move);
+    }
+    int bestValue = stand;
+    int bestMove = NO_MOVE;
+    Board child = child(ply, board);
+    for (int i = 0; i < count && !timedOut; i++) {
+      child.copyFrom(board);
+      child.apply(moves[i]);
+      int value = value(child, depth - 1, ply + 1) - 1;
+      if (value > bestValue) {
+        bestValue = value;
+        bestMove = moves[i];
+      }
+    }
+    if (!timedOut) {
+      cache.put(key, new Entry(depth, bestValue, bestMove));
+    }
+    return bestValue;
+  }
+
+  /**
+   * Scores a position: foundation cards count most, then uncovered cards, then
+   * empty cascades and a smaller stock.
+   */
+  private static int evaluate(Board board) {
+    if (board.isWon()) {
+      return 1 << 20;
+    }
+    int empty = 0;
+    for (int p = 0; p < board.numPiles(); p++) {
+      if (board.height(p) == 0) {
+        empty++;
+      }
+    }
+    return 100 * board.foundationCount() - 40 * board.faceDownCount()
+        + 10 * empty - board.stockSize();
+  }
+
+  // Search buffers are reused across nodes and calls, one per ply.
+  private int[] moves(int ply) {
+    if (moveStack[ply] == null) {
+      moveStack[ply] = new int[Board.MAX_MOVES];
+    }
+    return moveStack[ply];
+  }
+
+  private Board child(int ply, Board parent) {
+    Board board = boardStack[ply];
+    if (board == null || board.numPiles() != parent.numPiles()
+        || board.variant() != parent.variant() || board.numDraw() != parent.numDraw()) {
+      board = new Board(parent);
+      boardStack[ply] = board;
+    }
+    return board;
+  }
+
+  private boolean tick() {
+    if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+      timedOut = true;
+    }
+    return timedOut;
+  }
+
+  private static void promote(int[] moves, int count, int move) {
+    for (int i = 0; i < count; i++) {
+      if (moves[i] == move) {
+        System.arraycopy(moves, 0, moves, 1, i);
+        moves[0] = move;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Translates an encoded move into the 1-based controller command for the given
+   * model, resolving foundation suits to the model's foundation slots.
+   */
+  private static String toCommand(int move, KlondikeModel<? extends KlondikeCard> model) {
+    return switch (Moves.kind(move)) {
+      case Moves.PILE_TO_FOUNDATION -> "mpf " + (Moves.src(move) + 1) + " "
+          + (Moves.foundationSlot(model, Moves.dest(move)) + 1);
+      case Moves.DRAW_TO_FOUNDATION -> "mdf "
+          + (Moves.foundationSlot(model, Moves.dest(move)) + 1);
+      default -> Moves.toString(move);
+    };
+  }
+
+  @Override
+  public void close() {
+    worker.shutdownNow();
+  }
+
+  /**
+   * A cached search result: the depth it was searched to, its value and best move.
+   */
+  private static final class Entry {
+    private final int depth;
+    private final int value;
+    private final int move;
+
+    Entry(int depth, int value, int move) {
+      this.depth = depth;
+      this.value = value;
+      this.move = move;
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package klondike.analysis;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * An open-addressed set of non-zero longs, used to remember visited position hashes
+ * without boxing. Grows by doubling when half full.
+ */
+final class LongHashSet {
+  private long[] slots;
+  private int size;
+
+  /**
+   * Creates a set sized for roughly the given number of entries.
+   *
+   * @param expected the expected number of entries
+   */
+  LongHashSet(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+    slots = new long[capacity];
+  }
+
+  /**
+   * Adds a value.
+   *
+   * @param key the value; zero is stored as one, since zero marks an empty slot
+   * @return true if the value was not already present
+   */
+  boolean add(long key) {
+    long value = key == 0 ? 1 : key;
+    if (size * 2 >= slots.length) {
+      grow();
+    }
+    int mask = slots.length - 1;
+    int i = (int) (value ^ value >>> 32) & mask;
+    while (slots[i] != 0) {
+      if (slots[i] == value) {
+        return false;
+      }
+      i = i + 1 & mask;
+    }
+    slots[i] = value;
+    size++;
+    return true;
+  }
+
+  /**
+   * Returns whether a value is in the set.
+   *
+   * @param key the value; zero stands for one, as in {@link #add}
+   * @return true if the value is present
+   */
+  boolean contains(long key) {
+    long value = key == 0 ? 1 : key;
+    int mask = slots.length - 1;
+    int i = (int) (value ^ value >>> 32) & mask;
+    while (slots[i] != 0) {
+      if (slots[i] == value) {
+        return true;
+      }
+      i = i + 1 & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of values in the set.
+   *
+   * @return the size
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the memory held by the set's slots.
+   *
+   * @return the slot array size in bytes
+   */
+  long bytes() {
+    return slots.length * 8L;
+  }
+
+  /**
+   * Passes every value in the set to the given action, in no particular order.
+   *
+   * @param action the action to run for each value
+   */
+  void forEach(LongConsumer action) {
+    for (long value : slots) {
+      if (value != 0) {
+        action.accept(value);
+      }
+    }
+  }
+
+  /**
+   * Removes every value, keeping the current capacity.
+   */
+  void clear() {
+    Arrays.fill(slots, 0);
+    size = 0;
+  }
+
+  private void grow() {
+    long[] old = slots;
+    slots = new long[old.length * 2];
+    size = 0;
+    for (long value : old) {
+      if (value != 0) {
+        add(value);
+      }
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package klondike.analysis;
+
+import klondike.model.hw02.BatchMovable;
+import klondike.model.hw02.CardIdReadable;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeModel;
+
+/**
+ * Encoding of moves as single ints, so move lists can be kept in primitive arrays.
+ * Bits 24..31 hold the kind, 16..23 the source, 8..15 the card count and 0..7
+ * the destination, as in {@link BatchMovable}, except that foundation destinations
+ * are suit indices rather than foundation slots.
+ */
+public final class Moves {
+  /** Moves a run of cards between cascades. */
+  public static final int PILE = BatchMovable.PILE;
+  /** Moves the top draw card onto a cascade. */
+  public static final int DRAW = BatchMovable.DRAW;
+  /** Moves the top card of a cascade to its suit's foundation. */
+  public static final int PILE_TO_FOUNDATION = BatchMovable.PILE_TO_FOUNDATION;
+  /** Moves the top draw card to its suit's foundation. */
+  public static final int DRAW_TO_FOUNDATION = BatchMovable.DRAW_TO_FOUNDATION;
+  /** Discards the top draw card, recycling the stock if needed. */
+  public static final int DISCARD = BatchMovable.DISCARD;
+
+  private Moves() {
+  }
+
+  /**
+   * Encodes a move.
+   *
+   * @param kind one of the kind constants in this class
+   * @param src the source cascade, or 0 when unused
+   * @param count the number of cards moved, or 0 when unused
+   * @param dest the destination cascade or foundation suit, or 0 when unused
+   * @return the encoded move
+   */
+  public static int encode(int kind, int src, int count, int dest) {
+    return BatchMovable.encode(kind, src, count, dest);
+  }
+
+  /**
+   * Returns the kind of an encoded move.
+   *
+   * @param move the encoded move
+   * @return the kind
+   */
+  public static int kind(int move) {
+    return move >>> 24;
+  }
+
+  /**
+   * Returns the source cascade of an encoded move.
+   *
+   * @param move the encoded move
+   * @return the source
+   */
+  public static int src(int move) {
+    return move >>> 16 & 0xFF;
+  }
+
+  /**
+   * Returns the number of cards moved by an encoded move.
+   *
+   * @param move the encoded move
+   * @return the count
+   */
+  public static int count(int move) {
+    return move >>> 8 & 0xFF;
+  }
+
+  /**
+   * Returns the destination of an encoded move.
+   *
+   * @param move the encoded move
+   * @return the destination cascade or foundation suit
+   */
+  public static int dest(int move) {
+    return move & 0xFF;
+  }
+
+  /**
+   * Renders a move as the 1-based controller command that would play it, with
+   * foundation destinations written as the suit name.
+   *
+   * @param move the encoded move
+   * @return a human-readable description
+   */
+  public static String toString(int move) {
+    return switch (kind(move)) {
+      case PILE -> "mpp " + (src(move) + 1) + " " + count(move) + " " + (dest(move) + 1);
+      case DRAW -> "md " + (dest(move) + 1);
+      case PILE_TO_FOUNDATION -> "mpf " + (src(move) + 1) + " " + suitName(dest(move));
+      case DRAW_TO_FOUNDATION -> "mdf " + suitName(dest(move));
+      case DISCARD -> "dd";
+      default -> "?";
+    };
+  }
+
+  /**
+   * Plays an encoded move on a model, resolving foundation suits to the model's
+   * foundation slots.
+   *
+   * @param model the started model to play on
+   * @param move the encoded move
+   * @throws IllegalArgumentException if the model rejects the move's arguments
+   * @throws IllegalStateException if the model rejects the move
+   */
+  public static void play(KlondikeModel<? extends KlondikeCard> model, int move) {
+    switch (kind(move)) {
+      case PILE -> model.movePile(src(move), count(move), dest(move));
+      case DRAW -> model.moveDraw(dest(move));
+      case PILE_TO_FOUNDATION -> model.moveToFoundation(src(move),
+          foundationSlot(model, dest(move)));
+      case DRAW_TO_FOUNDATION -> model.moveDrawToFoundation(foundationSlot(model, dest(move)));
+      case DISCARD -> model.discardDraw();
+      default -> throw new IllegalArgumentException("Unknown move kind");
+    }
+  }
+
+  /**
+   * Returns the model foundation slot that holds the given suit, or the first
+   * empty slot if that suit has not been started.
+   *
+   * @param model the started model
+   * @param suit the suit index
+   * @return the 0-based foundation slot, or -1 if there is none
+   */
+  public static int foundationSlot(KlondikeModel<? extends KlondikeCard> model, int suit) {
+    CardIdReadable ids = model instanceof CardIdReadable ? (CardIdReadable) model : null;
+    int empty = -1;
+    for (int f = 0; f < model.getNumFoundations(); f++) {
+      int top;
+      if (ids != null) {
+        top = ids.foundationTopId(f);
+      } else {
+        KlondikeCard card = model.getCardAt(f);
+        top = card == null ? CardIdReadable.NO_CARD : Cards.id(card);
+      }
+      if (top == CardIdReadable.NO_CARD) {
+        empty = empty < 0 ? f : empty;
+      } else if (Cards.suit(top) == suit) {
+        return f;
+      }
+    }
+    return empty;
+  }
+
+  private static String suitName(int suit) {
+    return KlondikeCard.Suit.values()[suit].getSymbol();
+  }
+}
@@ -0,0 +1,188 @@
+package klondike.analysis;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import klondike.model.hw02.CardIdReadable;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeModel;
+
+/**
+ * What a player can see of a running game: a {@link Board} whose hidden cards are
+ * {@link Cards#UNKNOWN} placeholders, plus the pool of cards those placeholders
+ * may be. Hidden cards are the face-down cascade cards and every stock card
+ * beyond the visible draw cards; the discard pile is folded into the draw pile
+ * behind the visible cards, since the models do not expose its order. Reduced
+ * decks, which hold the same low ranks of every suit, are observed as such: the
+ * deck size comes from the cards actually in play, and only ranks in the deck are
+ * in the pool.
+ * Instances are immutable once built and may be sampled from many threads.
+ */
+public final class Observation {
+  private final Board template;
+  private final byte[] unknown;
+  private final long key;
+
+  private Observation(Board template, byte[] unknown) {
+    this.template = template;
+    this.unknown = unknown;
+    this.key = template.canonicalHash64();
+  }
+
+  /**
+   * Reads the visible state of a started model.
+   *
+   * @param model the model to observe
+   * @return the observation
+   * @throws IllegalStateException if the game has not been started
+   * @throws IllegalArgumentException if the game is not played with one deck of
+   *     equal suits, a standard or reduced one
+   */
+  public static Observation of(KlondikeModel<? extends KlondikeCard> model) {
+    if (model.getNumFoundations() != Cards.DECK_SIZE / Cards.RANKS) {
+      throw new IllegalArgumentException("Analysis needs a single-deck game");
+    }
+    CardIdReadable ids = model instanceof CardIdReadable ? (CardIdReadable) model : null;
+    Board board = new Board(Variant.of(model), model.getNumPiles(), model.getNumDraw());
+    boolean[] seen = new boolean[Cards.DECK_SIZE];
+    for (int f = 0; f < model.getNumFoundations(); f++) {
+      int top = ids != null ? ids.foundationTopId(f) : foundationTopId(model, f);
+      if (top != CardIdReadable.NO_CARD) {
+        int suit = Cards.suit(top);
+        board.setFoundation(suit, Cards.value(top));
+        for (int v = 0; v < Cards.value(top); v++) {
+          seen[suit * Cards.RANKS + v] = true;
+        }
+      }
+    }
+    int inCascades = 0;
+    int hidden = 0;
+    byte[] cells = new byte[Cards.DECK_SIZE];
+    for (int p = 0; p < board.numPiles(); p++) {
+      int h = ids != null ? ids.copyPile(p, cells) : copyPile(model, p, cells);
+      for (int i = 0; i < h; i++) {
+        if (cells[i] == CardIdReadable.HIDDEN) {
+          hidden++;
+          board.pushCard(p, Cards.UNKNOWN, false);
+        } else {
+          seen[cells[i]] = true;
+          board.pushCard(p, cells[i], true);
+        }
+      }
+      inCascades += h;
+    }
+    int stockSize = ids != null ? ids.stockSize()
+        : model.createNewDeck().size() - inCascades - board.foundationCount();
+    int deckSize = inCascades + board.foundationCount() + stockSize;
+    int ranks = deckSize / (Cards.DECK_SIZE / Cards.RANKS);
+    if (deckSize % (Cards.DECK_SIZE / Cards.RANKS) != 0 || ranks > Cards.RANKS) {
+      throw new IllegalArgumentException("Analysis needs a single-deck game");
+    }
+    byte[] draw = new byte[model.getNumDraw()];
+    int shown = ids != null ? ids.copyDrawCards(draw) : copyDrawCards(model, draw);
+    for (int i = 0; i < shown; i++) {
+      seen[draw[i]] = true;
+      board.pushStock(draw[i]);
+      stockSize--;
+    }
+    for (int i = 0; i < stockSize; i++) {
+      board.pushStock(Cards.UNKNOWN);
+    }
+    hidden += Math.max(0, stockSize);
+    byte[] pool = new byte[Cards.DECK_SIZE];
+    int n = 0;
+    for (int id = 0; id < Cards.DECK_SIZE; id++) {
+      if (!seen[id] && Cards.value(id) <= ranks) {
+        pool[n++] = (byte) id;
+      }
+    }
+    if (n != hidden) {
+      throw new IllegalArgumentException("Analysis needs a single-deck game");
+    }
+    byte[] unknown = new byte[n];
+    System.arraycopy(pool, 0, unknown, 0, n);
+    return new Observation(board, unknown);
+  }
+
+  /**
+   * Reads a foundation's top card id through the object getters, for models that
+   * are not {@link CardIdReadable}.
+   */
+  private static int foundationTopId(KlondikeModel<? extends KlondikeCard> model, int f) {
+    KlondikeCard top = model.getCardAt(f);
+    return top == null ? CardIdReadable.NO_CARD : Cards.id(top);
+  }
+
+  /**
+   * Reads a cascade's card ids through the object getters, as {@link
+   * CardIdReadable#copyPile} does.
+   */
+  private static int copyPile(KlondikeModel<? extends KlondikeCard> model, int p,
+                              byte[] out) {
+    int h = model.getPileHeight(p);
+    for (int i = 0; i < h; i++) {
+      out[i] = model.isCardVisible(p, i) ? (byte) Cards.id(model.getCardAt(p, i))
+          : CardIdReadable.HIDDEN;
+    }
+    return h;
+  }
+
+  /**
+   * Reads the visible draw card ids through the object getters, as {@link
+   * CardIdReadable#copyDrawCards} does.
+   */
+  private static int copyDrawCards(KlondikeModel<? extends KlondikeCard> model, byte[] out) {
+    List<? extends KlondikeCard> draw = model.getDrawCards();
+    for (int i = 0; i < draw.size(); i++) {
+      out[i] = (byte) Cards.id(draw.get(i));
+    }
+    return draw.size();
+  }
+
+  /**
+   * Writes into {@code into} a fully known position consistent with this
+   * observation, choosing the hidden cards uniformly at random.
+   *
+   * @param rnd the random source
+   * @param into a board of the same shape to overwrite
+   * @param scratch a buffer of at least {@link #unknownCount()} bytes
+   */
+  public void sample(SplittableRandom rnd, Board into, byte[] scratch) {
+    into.copyFrom(template);
+    System.arraycopy(unknown, 0, scratch, 0, unknown.length);
+    for (int i = unknown.length - 1; i > 0; i--) {
+      int j = rnd.nextInt(i + 1);
+      byte tmp = scratch[i];
+      scratch[i] = scratch[j];
+      scratch[j] = tmp;
+    }
+    into.fillUnknown(scratch);
+  }
+
+  /**
+   * Returns the observed board, with placeholders for hidden cards. Callers must
+   * not modify it.
+   *
+   * @return the template board
+   */
+  public Board board() {
+    return template;
+  }
+
+  /**
+   * Returns the number of hidden cards.
+   *
+   * @return the unknown card count
+   */
+  public int unknownCount() {
+    return unknown.length;
+  }
+
+  /**
+   * Returns a 64-bit key identifying this observation.
+   *
+   * @return the observation key
+   */
+  public long key() {
+    return key;
+  }
+}
@@ -0,0 +1,295 @@
+package klondike.analysis;
+
+import java.util.Arrays;
+
+/**
+ * A solver that finds a shortest winning line, counted in model moves, by
+ * iterative-deepening A* (IDA*). Each iteration is a depth-first search that cuts
+ * every line whose length so far plus {@link #lowerBound} exceeds a threshold, and
+ * the next threshold is the smallest value that was cut, so the first solution
+ * found is a shortest one. The search keeps one position per depth, so its memory
+ * is linear in the solution length apart from a fixed-size transposition table.
+ *
+ * <p>Three prunings keep the result optimal. Safe foundation moves (see {@link
+ * Board#safeFoundationMove()}) are played at once: a line that founds such a card
+ * later can found it first instead, dropping any move that only carried it, so it
+ * is never longer. Positions with a stranded stock card are dead. A position met
+ * again within one iteration with at least as many moves played is skipped, since
+ * its earlier visit had at least as much room. The table is keyed by {@link
+ * Board#canonicalHash64()} and overwrites on collision, which only loses pruning.
+ *
+ * <p>A solver reuses its storage between runs but is not thread safe.
+ */
+public final class OptimalSolver {
+  /** Default number of positions to expand, over all iterations, before giving up. */
+  public static final long DEFAULT_NODE_LIMIT = 5_000_000;
+  /** Default number of transposition table entries. */
+  public static final int DEFAULT_TABLE_ENTRIES = 1 << 20;
+
+  private static final int NOT_FOUND = Integer.MAX_VALUE;
+
+  private final long nodeLimit;
+  private final long[] keys;
+  private final short[] costs;
+  private final SolverStats stats;
+  private Board[] boards = new Board[64];
+  private int[][] moves = new int[64][];
+  private int[] path = new int[256];
+  private long nodes;
+  private long lookups;
+  private long hits;
+  private long reportedNodes;
+  private long reportedLookups;
+  private long reportedHits;
+  private int deepest;
+  private int best;
+  private int threshold;
+  private int next;
+  private int found;
+  private boolean timedOut;
+
+  /**
+   * Creates a solver with the default node limit and table size.
+   */
+  public OptimalSolver() {
+    this(DEFAULT_NODE_LIMIT, DEFAULT_TABLE_ENTRIES, null);
+  }
+
+  /**
+   * Creates a solver that gives up after expanding the given number of positions.
+   *
+   * @param nodeLimit the maximum number of positions to expand over all iterations
+   * @param tableEntries the transposition table size, rounded down to a power of two
+   * @param stats the counters to report to; may be null
+   * @throws IllegalArgumentException if the limit or table size is not positive
+   */
+  public OptimalSolver(long nodeLimit, int tableEntries, SolverStats stats) {
+    if (nodeLimit < 1 || tableEntries < 1) {
+      throw new IllegalArgumentException("Node limit and table size must be positive");
+    }
+    this.nodeLimit = nodeLimit;
+    int size = Integer.highestOneBit(tableEntries);
+    this.keys = new long[size];
+    this.costs = new short[size];
+    this.stats = stats;
+    if (stats != null) {
+      stats.tableBytes(size * (long) (Long.BYTES + Short.BYTES));
+    }
+  }
+
+  /**
+   * Returns a lower bound on the number of moves still needed to win: one foundation
+   * move per card not on the foundations, plus the moves some cards must make before
+   * they can be founded. A cascade holding a card above a lower card of its own suit
+   * needs at least one move to another cascade, and moves out of different cascades
+   * are different moves. A draw pile card ahead of a lower card of its own suit
+   * needs its own move to a cascade, since the draw pile is played from the front.
+   *
+   * @param board a fully known position with no stranded stock card
+   * @return a lower bound on the length of any winning line
+   */
+  public static int lowerBound(Board board) {
+    int bound = board.totalCards() - board.foundationCount();
+    for (int p = 0; p < board.numPiles(); p++) {
+      long below = 0;
+      for (int i = 0; i < board.height(p); i++) {
+        int card = board.card(p, i);
+        if ((below & lower(card)) != 0) {
+          bound++;
+          break;
+        }
+        below |= bit(card);
+      }
+    }
+    long behind = 0;
+    for (int i = board.stockSize() - 1; i >= board.stockPos(); i--) {
+      int card = board.stockCard(i);
+      if ((behind & lower(card)) != 0) {
+        bound++;
+      }
+      behind |= bit(card);
+    }
+    return bound;
+  }
+
+  /**
+   * Returns a card's bit in a set of cards with 16 bits per suit, bit {@code value}
+   * of its suit.
+   */
+  private static long bit(int card) {
+    return 1L << Cards.value(card) << Cards.suit(card) * 16;
+  }
+
+  /**
+   * Returns the set of the lower cards of a card's suit.
+   */
+  private static long lower(int card) {
+    return (1L << Cards.value(card)) - 1 << Cards.suit(card) * 16;
+  }
+
+  /**
+   * Searches for a shortest winning line from the given position.
+   *
+   * @param start a fully known position; it is not modified
+   * @return {@link SolveResult.Status#SOLVED} with a shortest line, {@link
+   *     SolveResult.Status#UNSOLVABLE} if no line wins, or {@link
+   *     SolveResult.Status#TIMEOUT} at the node limit
+   */
+  public SolveResult solve(Board start) {
+    SolveResult result = search(start);
+    if (stats != null) {
+      report(0);
+      stats.finished(result.status());
+    }
+    return result;
+  }
+
+  private SolveResult search(Board start) {
+    nodes = 0;
+    lookups = 0;
+    hits = 0;
+    reportedNodes = 0;
+    reportedLookups = 0;
+    reportedHits = 0;
+    deepest = 0;
+    timedOut = false;
+    Board root = board(0, start);
+    root.copyFrom(start);
+    int length = playSafe(root, 0);
+    best = root.foundationCount();
+    if (root.hasStrandedStockCard() && !root.isWon()) {
+      return new SolveResult(SolveResult.Status.UNSOLVABLE, new int[0], nodes);
+    }
+    threshold = length + lowerBound(root);
+    while (true) {
+      Arrays.fill(keys, 0);
+      next = NOT_FOUND;
+      found = -1;
+      if (expand(0, length)) {
+        return new SolveResult(SolveResult.Status.SOLVED, Arrays.copyOf(path, found), nodes);
+      }
+      if (timedOut) {
+        return new SolveResult(SolveResult.Status.TIMEOUT, new int[0], nodes);
+      }
+      if (next == NOT_FOUND) {
+        return new SolveResult(SolveResult.Status.UNSOLVABLE, new int[0], nodes);
+      }
+      threshold = next;
+    }
+  }
+
+  /**
+   * Searches below the position at the given depth, whose line so far is the first
+   * {@code length} entries of the path.
+   *
+   * @return true if a winning line within the threshold was found
+   */
+  private boolean expand(int frame, int length) {
+    Board board = boards[frame];
+    int cost = length + lowerBound(board);
+    if (cost > threshold) {
+      next = Math.min(next, cost);
+      return false;
+    }
+    if (board.isWon()) {
+      found = length;
+      return true;
+    }
+    if (!remember(board.canonicalHash64(), length)) {
+      return false;
+    }
+    if (++nodes >= nodeLimit) {
+      timedOut = true;
+      return false;
+    }
+    deepest = Math.max(deepest, frame);
+    if (stats != null && (nodes & SolverStats.REPORT_INTERVAL - 1) == 0) {
+      report(frame);
+    }
+    int[] list = moveBuffer(frame);
+    int n = board.generateMoves(list);
+    for (int i = 0; i < n; i++) {
+      int move = list[i];
+      if (Moves.kind(move) == Moves.DISCARD || Solver.isPointless(board, move)) {
+        continue;
+      }
+      Board child = board(frame + 1, board);
+      child.copyFrom(board);
+      child.apply(move);
+      ensurePath(length + 1);
+      path[length] = move;
+      int childLength = playSafe(child, length + 1);
+      best = Math.max(best, child.foundationCount());
+      if (expand(frame + 1, childLength)) {
+        return true;
+      }
+      if (timedOut) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Records that a position was reached after the given number of moves in this
+   * iteration.
+   *
+   * @return false if it was already reached in no more moves, so it can be skipped
+   */
+  private boolean remember(long key, int length) {
+    long value = key == 0 ? 1 : key;
+    int slot = (int) (value ^ value >>> 32) & keys.length - 1;
+    lookups++;
+    if (keys[slot] == value && costs[slot] <= length) {
+      hits++;
+      return false;
+    }
+    keys[slot] = value;
+    costs[slot] = (short) length;
+    return true;
+  }
+
+  private int playSafe(Board board, int length) {
+    for (int move = board.safeFoundationMove(); move >= 0; move = board.safeFoundationMove()) {
+      board.apply(move);
+      ensurePath(length + 1);
+      path[length++] = move;
+    }
+    return length;
+  }
+
+  private void report(int depth) {
+    stats.add(nodes - reportedNodes, lookups - reportedLookups, hits - reportedHits, depth,
+        deepest, best);
+    reportedNodes = nodes;
+    reportedLookups = lookups;
+    reportedHits = hits;
+  }
+
+  private Board board(int frame, Board shape) {
+    if (frame >= boards.length) {
+      boards = Arrays.copyOf(boards, boards.length * 2);
+      moves = Arrays.copyOf(moves, boards.length);
+    }
+    Board board = boards[frame];
+    if (board == null || board.numPiles() != shape.numPiles()
+        || board.variant() != shape.variant() || board.numDraw() != shape.numDraw()) {
+      board = new Board(shape);
+      boards[frame] = board;
+    }
+    return board;
+  }
+
+  private int[] moveBuffer(int frame) {
+    if (moves[frame] == null) {
+      moves[frame] = new int[Board.MAX_MOVES];
+    }
+    return moves[frame];
+  }
+
+  private void ensurePath(int length) {
+    if (length > path.length) {
+      path = Arrays.copyOf(path, Math.max(path.length * 2, length));
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package klondike.analysis;
+
+import java.util.SplittableRandom;
+
+/**
+ * A fast randomized playout policy. Foundation moves are always taken first; otherwise
+ * the policy prefers moves that uncover a face-down card, empty a cascade onto another
+ * card, or play the draw card, and falls back to cycling the stock. A playout ends
+ * when the game is won, no moves remain, or too many moves pass without progress.
+ */
+final class Playout {
+  private static final int MAX_STEPS = 2000;
+
+  private final int[] moves = new int[Board.MAX_MOVES];
+  private final int[] productive = new int[Board.MAX_MOVES];
+
+  /**
+   * Plays the given board out to the end, modifying it.
+   *
+   * @param board the fully known board to play
+   * @param rnd the random source
+   * @return true if the playout won the game
+   */
+  boolean run(Board board, SplittableRandom rnd) {
+    int idle = 0;
+    for (int step = 0; step < MAX_STEPS && !board.isWon(); step++) {
+      int n = board.generateMoves(moves);
+      if (n == 0 || idle > 4 * board.stockSize() + 4 * board.numPiles() + 8) {
+        return false;
+      }
+      int move = choose(board, n, rnd);
+      int progress = board.foundationCount() - board.faceDownCount();
+      board.apply(move);
+      idle = board.foundationCount() - board.faceDownCount() > progress ? 0 : idle + 1;
+    }
+    return board.isWon();
+  }
+
+  private int choose(Board board, int n, SplittableRandom rnd) {
+    int kind = Moves.kind(moves[0]);
+    if (kind == Moves.PILE_TO_FOUNDATION || kind == Moves.DRAW_TO_FOUNDATION) {
+      return moves[0];
+    }
+    int good = 0;
+    int discard = -1;
+    for (int i = 0; i < n; i++) {
+      int move = moves[i];
+      switch (Moves.kind(move)) {
+        case Moves.PILE -> {
+          int src = Moves.src(move);
+          int start = board.height(src) - Moves.count(move);
+          if (start > 0 && start == board.faceDown(src)) {
+            productive[good++] = move;
+          }
+        }
+        case Moves.DRAW -> productive[good++] = move;
+        case Moves.DISCARD -> discard = move;
+        default -> {
+        }
+      }
+    }
+    if (good > 0 && (discard < 0 || rnd.nextInt(4) != 0)) {
+      return productive[rnd.nextInt(good)];
+    }
+    if (discard >= 0 && rnd.nextInt(8) != 0) {
+      return discard;
+    }
+    return moves[rnd.nextInt(n)];
+  }
+}
@@ -0,0 +1,297 @@
+package klondike.analysis;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import klondike.model.hw02.KlondikeRules;
+
+/**
+ * Builds deals that are known to be winnable by playing a game backwards, from all
+ * cards on the foundations to a fresh deal, so no solver is needed. Every backward
+ * step undoes one legal forward move: a card leaves its foundation for a cascade top
+ * or the front of the stock, a run goes back to the cascade it came from, or a
+ * cascade top goes back to the front of the stock. Read forwards, the recorded steps
+ * are a winning line that never discards.
+ *
+ * <p>Each cascade fills its deal slots from the bottom up. A card put in the next
+ * free slot is part of the deal; in Basic, the card below it is the one its removal
+ * turned face up, so only a cascade's top slot is ever face up. Cards laid above the
+ * filled slots are loose and must leave again, by an undone draw or run move, before
+ * the cascade can fill further. The walk succeeds when the foundations are empty, every
+ * cascade holds exactly its dealt cards and the stock holds the rest. It picks its
+ * steps at random, favouring those that fill slots, and restarts if it reaches a
+ * position with no step back or runs past its step limit.
+ *
+ * <p>A generator reuses its storage between deals but is not thread safe; give each
+ * thread its own.
+ */
+public final class ReverseDealGenerator {
+  /** Default number of backward steps before a walk is abandoned. */
+  public static final int DEFAULT_MAX_STEPS = 1_000;
+
+  private static final int FILL = 0;
+  private static final int TO_STOCK = 1;
+  private static final int BUILD = 2;
+  private static final int UNDRAW = 3;
+  private static final int UNMOVE = 4;
+  private static final int UNMOVE_FILL = 5;
+  private static final int[] WEIGHTS = {8, 3, 2, 3, 1, 8};
+
+  private final Variant variant;
+  private final KlondikeRules rules;
+  private final int numPiles;
+  private final int numDraw;
+  private final int maxSteps;
+  private final SplittableRandom random;
+  private final byte[][] piles;
+  private final int[] heights;
+  private final int[] fixed;
+  private final int[] foundations = new int[4];
+  private final byte[] stock = new byte[Cards.DECK_SIZE];
+  private final int stockCapacity;
+  private final int[][] options = new int[WEIGHTS.length][];
+  private final int[] optionCounts = new int[WEIGHTS.length];
+  private int stockSize;
+  private int[] steps;
+  private int stepCount;
+  private long walks;
+
+  /**
+   * Creates a generator with the default step limit.
+   *
+   * @param variant the rules the deals are won under
+   * @param numPiles the number of cascades
+   * @param numDraw the number of visible draw cards
+   * @param seed the seed of the random walks
+   * @throws IllegalArgumentException if the cascades do not fit in a deck or the
+   *     draw count is not positive
+   */
+  public ReverseDealGenerator(Variant variant, int numPiles, int numDraw, long seed) {
+    this(variant, numPiles, numDraw, seed, DEFAULT_MAX_STEPS);
+  }
+
+  /**
+   * Creates a generator.
+   *
+   * @param variant the rules the deals are won under
+   * @param numPiles the number of cascades
+   * @param numDraw the number of visible draw cards
+   * @param seed the seed of the random walks
+   * @param maxSteps the number of backward steps before a walk is abandoned
+   * @throws IllegalArgumentException if the cascades do not fit in a deck or a count
+   *     is not positive
+   */
+  public ReverseDealGenerator(Variant variant, int numPiles, int numDraw, long seed,
+                              int maxSteps) {
+    if (numPiles < 1 || numPiles * (numPiles + 1) / 2 > Cards.DECK_SIZE) {
+      throw new IllegalArgumentException("Cannot deal " + numPiles + " piles");
+    }
+    if (numDraw < 1 || maxSteps < 1) {
+      throw new IllegalArgumentException("Draw count and step limit must be positive");
+    }
+    this.variant = variant;
+    this.rules = variant.rules();
+    this.numPiles = numPiles;
+    this.numDraw = numDraw;
+    this.maxSteps = maxSteps;
+    this.random = new SplittableRandom(seed);
+    this.piles = new byte[numPiles][Cards.DECK_SIZE];
+    this.heights = new int[numPiles];
+    this.fixed = new int[numPiles];
+    this.stockCapacity = Cards.DECK_SIZE - numPiles * (numPiles + 1) / 2;
+    this.steps = new int[maxSteps];
+    int runs = numPiles * Cards.RANKS * numPiles;
+    int[] sizes = {4 * numPiles, 4, 4 * numPiles, numPiles, runs, runs};
+    for (int kind = 0; kind < options.length; kind++) {
+      options[kind] = new int[sizes[kind]];
+    }
+  }
+
+  /**
+   * Builds the next winnable deal.
+   *
+   * @return a deal with its winning line
+   */
+  public WinnableDeal next() {
+    do {
+      walks++;
+    } while (!walk());
+    int[] deck = new int[Cards.DECK_SIZE];
+    int index = 0;
+    for (int row = 0; row < numPiles; row++) {
+      for (int pile = row; pile < numPiles; pile++) {
+        deck[index++] = piles[pile][row];
+      }
+    }
+    for (int i = stockSize - 1; i >= 0; i--) {
+      deck[index++] = stock[i];
+    }
+    int[] solution = new int[stepCount];
+    for (int i = 0; i < stepCount; i++) {
+      solution[i] = steps[stepCount - 1 - i];
+    }
+    return new WinnableDeal(variant, numPiles, numDraw, deck, solution);
+  }
+
+  /**
+   * Returns how many walks were started, including abandoned ones, so callers can
+   * see how often a walk succeeds.
+   *
+   * @return the number of walks since this generator was created
+   */
+  public long walks() {
+    return walks;
+  }
+
+  /**
+   * Walks back from the won position once.
+   *
+   * @return true if the walk reached a deal
+   */
+  private boolean walk() {
+    Arrays.fill(heights, 0);
+    Arrays.fill(fixed, 0);
+    Arrays.fill(foundations, Cards.RANKS);
+    stockSize = 0;
+    stepCount = 0;
+    int remaining = Cards.DECK_SIZE;
+    while (remaining > 0) {
+      if (stepCount == maxSteps) {
+        return false;
+      }
+      int kind = pickKind();
+      if (kind < 0) {
+        return false;
+      }
+      remaining -= play(kind, options[kind][random.nextInt(optionCounts[kind])]);
+    }
+    return true;
+  }
+
+  /**
+   * Lists every backward step by kind and picks a kind at random by weight among
+   * those with a step.
+   *
+   * @return the kind, or -1 if no step is possible
+   */
+  private int pickKind() {
+    Arrays.fill(optionCounts, 0);
+    for (int suit = 0; suit < foundations.length; suit++) {
+      if (foundations[suit] == 0) {
+        continue;
+      }
+      int card = suit * Cards.RANKS + foundations[suit] - 1;
+      if (stockSize < stockCapacity) {
+        add(TO_STOCK, suit);
+      }
+      for (int p = 0; p < numPiles; p++) {
+        if (canFill(p)) {
+          add(FILL, suit << 8 | p);
+        } else if (rules.canStack(card, top(p))) {
+          add(BUILD, suit << 8 | p);
+        }
+      }
+    }
+    for (int dest = 0; dest < numPiles; dest++) {
+      int h = heights[dest];
+      for (int count = 1; h - count >= fixed[dest]; count++) {
+        int bottom = piles[dest][h - count];
+        if (count > 1 && !rules.continuesRun(bottom, piles[dest][h - count + 1])) {
+          break;
+        }
+        int beneath = h - count == 0 ? KlondikeRules.EMPTY : piles[dest][h - count - 1];
+        if (!rules.canStack(bottom, beneath)) {
+          continue;
+        }
+        if (count == 1 && stockSize < stockCapacity) {
+          add(UNDRAW, dest);
+        }
+        for (int src = 0; src < numPiles; src++) {
+          if (src != dest) {
+            add(canFill(src) ? UNMOVE_FILL : UNMOVE, dest << 16 | count << 8 | src);
+          }
+        }
+      }
+    }
+    int total = 0;
+    for (int kind = 0; kind < WEIGHTS.length; kind++) {
+      total += optionCounts[kind] > 0 ? WEIGHTS[kind] : 0;
+    }
+    if (total == 0) {
+      return -1;
+    }
+    int roll = random.nextInt(total);
+    for (int kind = 0; ; kind++) {
+      roll -= optionCounts[kind] > 0 ? WEIGHTS[kind] : 0;
+      if (roll < 0) {
+        return kind;
+      }
+    }
+  }
+
+  private void add(int kind, int option) {
+    options[kind][optionCounts[kind]++] = option;
+  }
+
+  /**
+   * Returns whether the next card laid on a cascade would fill its next deal slot.
+   */
+  private boolean canFill(int pile) {
+    return heights[pile] == fixed[pile] && fixed[pile] <= pile;
+  }
+
+  private int top(int pile) {
+    return heights[pile] == 0 ? KlondikeRules.EMPTY : piles[pile][heights[pile] - 1];
+  }
+
+  /**
+   * Takes one backward step and records the forward move it undoes.
+   *
+   * @return how many cards the step settled in the deal, less those it loosened
+   */
+  private int play(int kind, int option) {
+    switch (kind) {
+      case FILL, BUILD -> {
+        int suit = option >>> 8;
+        int pile = option & 0xFF;
+        boolean fill = kind == FILL;
+        fixed[pile] += fill ? 1 : 0;
+        piles[pile][heights[pile]++] = (byte) unfound(suit);
+        record(Moves.encode(Moves.PILE_TO_FOUNDATION, pile, 1, suit));
+        return fill ? 1 : 0;
+      }
+      case TO_STOCK -> {
+        int suit = option;
+        stock[stockSize++] = (byte) unfound(suit);
+        record(Moves.encode(Moves.DRAW_TO_FOUNDATION, 0, 1, suit));
+        return 1;
+      }
+      case UNDRAW -> {
+        int pile = option;
+        stock[stockSize++] = piles[pile][--heights[pile]];
+        record(Moves.encode(Moves.DRAW, 0, 1, pile));
+        return 1;
+      }
+      default -> {
+        int dest = option >>> 16;
+        int count = option >>> 8 & 0xFF;
+        int src = option & 0xFF;
+        boolean fill = kind == UNMOVE_FILL;
+        fixed[src] += fill ? 1 : 0;
+        System.arraycopy(piles[dest], heights[dest] - count, piles[src], heights[src], count);
+        heights[dest] -= count;
+        heights[src] += count;
+        record(Moves.encode(Moves.PILE, src, count, dest));
+        return fill ? 1 : 0;
+      }
+    }
+  }
+
+  private int unfound(int suit) {
+    foundations[suit]--;
+    return suit * Cards.RANKS + foundations[suit];
+  }
+
+  private void record(int move) {
+    steps[stepCount++] = move;
+  }
+}
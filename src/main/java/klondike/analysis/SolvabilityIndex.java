@@ -0,0 +1,282 @@
+package klondike.analysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * A memory-mapped file holding one fixed-width solver result per deal number in a
+ * contiguous range, for one variant and game shape. Looking up a deal is a single
+ * offset computation. Records that have not been written yet read as pending,
+ * which is what lets an interrupted sweep resume where it stopped.
+ *
+ * <p>Layout: a 64-byte header (magic, version, variant, piles, draw, first seed,
+ * count) followed by 8-byte records of status, unused byte, solution length
+ * (unsigned short) and nodes searched (unsigned int, saturating). Different
+ * threads may write different records concurrently.
+ */
+public final class SolvabilityIndex implements AutoCloseable {
+  private static final int MAGIC = 0x4B534958;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 64;
+  private static final int RECORD_BYTES = 8;
+  private static final byte PENDING = 0;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final Variant variant;
+  private final int numPiles;
+  private final int numDraw;
+  private final long firstSeed;
+  private final long count;
+
+  private SolvabilityIndex(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (!isHeader(buffer, buffer.capacity())) {
+      channel.close();
+      throw new IOException("Not a solvability index");
+    }
+    this.channel = channel;
+    this.buffer = buffer;
+    this.variant = Variant.values()[buffer.getInt(8)];
+    this.numPiles = buffer.getInt(12);
+    this.numDraw = buffer.getInt(16);
+    this.firstSeed = buffer.getLong(24);
+    this.count = buffer.getLong(32);
+  }
+
+  /**
+   * Opens the index at the given path for writing, creating it if it does not exist.
+   * An existing index must describe the same variant, shape and seed range.
+   *
+   * @param path the index file
+   * @param variant the variant the deals are solved under
+   * @param numPiles the number of cascades
+   * @param numDraw the number of visible draw cards
+   * @param firstSeed the first deal number in the index
+   * @param count the number of deal numbers in the index
+   * @return the open index
+   * @throws IOException if the file cannot be created or mapped, or an existing file
+   *     is not an index or does not match; an existing file is checked before it
+   *     is mapped at the new size
+   */
+  public static SolvabilityIndex create(Path path, Variant variant, int numPiles, int numDraw,
+                                        long firstSeed, long count) throws IOException {
+    if (count < 1 || count > (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES) {
+      throw new IllegalArgumentException("Seed count out of range: " + count);
+    }
+    boolean exists = Files.exists(path);
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (exists) {
+      long existing = channel.size();
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+          Math.min(existing, HEADER_BYTES));
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      if (!isHeader(header, existing)) {
+        channel.close();
+        throw new IOException("Not a solvability index: " + path);
+      }
+      if (header.getInt(8) != variant.ordinal() || header.getInt(12) != numPiles
+          || header.getInt(16) != numDraw || header.getLong(24) != firstSeed
+          || header.getLong(32) != count) {
+        channel.close();
+        throw new IOException("Existing index " + path + " describes a different sweep");
+      }
+    }
+    long size = HEADER_BYTES + count * RECORD_BYTES;
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (!exists) {
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, VERSION);
+      buffer.putInt(8, variant.ordinal());
+      buffer.putInt(12, numPiles);
+      buffer.putInt(16, numDraw);
+      buffer.putLong(24, firstSeed);
+      buffer.putLong(32, count);
+    }
+    return new SolvabilityIndex(channel, buffer);
+  }
+
+  /**
+   * Opens an existing index for lookups only.
+   *
+   * @param path the index file
+   * @return the open index
+   * @throws IOException if the file cannot be read, is not an index or is shorter
+   *     than its header declares
+   */
+  public static SolvabilityIndex open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    return new SolvabilityIndex(channel, buffer);
+  }
+
+  /**
+   * Stores the result for a deal number.
+   *
+   * @param seed the deal number
+   * @param result the solver result
+   * @throws IllegalArgumentException if the deal number is outside the index
+   */
+  public void record(long seed, SolveResult result) {
+    int at = offset(seed);
+    buffer.putInt(at + 4, (int) Math.min(result.nodes(), 0xFFFFFFFFL));
+    buffer.putShort(at + 2, (short) Math.min(result.length(), 0xFFFF));
+    buffer.put(at, (byte) (result.status().ordinal() + 1));
+  }
+
+  /**
+   * Returns whether a deal number has a stored result.
+   *
+   * @param seed the deal number
+   * @return true if the deal has been solved, refuted or timed out
+   */
+  public boolean isDone(long seed) {
+    return buffer.get(offset(seed)) != PENDING;
+  }
+
+  /**
+   * Returns the stored status of a deal number.
+   *
+   * @param seed the deal number
+   * @return the status, or null if the deal is still pending
+   */
+  public SolveResult.Status status(long seed) {
+    byte code = buffer.get(offset(seed));
+    return code == PENDING ? null : SolveResult.Status.values()[code - 1];
+  }
+
+  /**
+   * Returns the stored solution length of a deal number.
+   *
+   * @param seed the deal number
+   * @return the number of moves in the stored solution, 0 unless solved
+   */
+  public int solutionLength(long seed) {
+    return Short.toUnsignedInt(buffer.getShort(offset(seed) + 2));
+  }
+
+  /**
+   * Returns the number of positions searched for a deal number.
+   *
+   * @param seed the deal number
+   * @return the node count, saturated at 2^32 - 1
+   */
+  public long nodes(long seed) {
+    return Integer.toUnsignedLong(buffer.getInt(offset(seed) + 4));
+  }
+
+  /**
+   * Picks a random deal number with the given status, probing random records first
+   * and falling back to a scan from a random starting point.
+   *
+   * @param status the wanted status
+   * @param rnd the random source
+   * @return a matching deal number, or -1 if the index holds none
+   */
+  public long randomSeed(SolveResult.Status status, Random rnd) {
+    for (int probe = 0; probe < 64; probe++) {
+      long seed = firstSeed + (long) (rnd.nextDouble() * count);
+      if (status(seed) == status) {
+        return seed;
+      }
+    }
+    long start = (long) (rnd.nextDouble() * count);
+    for (long i = 0; i < count; i++) {
+      long seed = firstSeed + (start + i) % count;
+      if (status(seed) == status) {
+        return seed;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the variant the deals were solved under.
+   *
+   * @return the variant
+   */
+  public Variant variant() {
+    return variant;
+  }
+
+  /**
+   * Returns the number of cascades the deals were solved with.
+   *
+   * @return the number of piles
+   */
+  public int numPiles() {
+    return numPiles;
+  }
+
+  /**
+   * Returns the number of visible draw cards the deals were solved with.
+   *
+   * @return the draw count
+   */
+  public int numDraw() {
+    return numDraw;
+  }
+
+  /**
+   * Returns the first deal number in the index.
+   *
+   * @return the first seed
+   */
+  public long firstSeed() {
+    return firstSeed;
+  }
+
+  /**
+   * Returns the number of deal numbers in the index.
+   *
+   * @return the seed count
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Writes any modified records through to the file.
+   */
+  public void force() {
+    if (!buffer.isReadOnly()) {
+      buffer.force();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    force();
+    channel.close();
+  }
+
+  /**
+   * Checks that a header names a known variant and that the file holds every
+   * record it declares, before any field is trusted.
+   */
+  private static boolean isHeader(ByteBuffer header, long size) {
+    if (size < HEADER_BYTES || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+      return false;
+    }
+    int variant = header.getInt(8);
+    long count = header.getLong(32);
+    return variant >= 0 && variant < Variant.values().length
+        && count >= 1 && count <= (size - HEADER_BYTES) / RECORD_BYTES;
+  }
+
+  private int offset(long seed) {
+    if (seed < firstSeed || seed - firstSeed >= count) {
+      throw new IllegalArgumentException("Deal " + seed + " is not in this index");
+    }
+    return (int) (HEADER_BYTES + (seed - firstSeed) * RECORD_BYTES);
+  }
+}
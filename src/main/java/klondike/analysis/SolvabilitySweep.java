@@ -0,0 +1,148 @@
+package klondike.analysis;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.ObjectName;
+
+/**
+ * Offline pipeline that solves every pending deal number of a {@link SolvabilityIndex}
+ * in parallel, writing each result as soon as it is known. Running it again on the
+ * same file only solves the deals that are still pending.
+ */
+public final class SolvabilitySweep {
+  private static final int FLUSH_INTERVAL = 10_000;
+  private static final int TABLE_MEGABYTES = 256;
+  private static final long PROGRESS_MILLIS = 10_000;
+
+  private SolvabilitySweep() {
+  }
+
+  /**
+   * Solves every pending deal in the index.
+   *
+   * @param index the index to fill
+   * @param threads the number of solver threads
+   * @param nodeLimit the node limit per deal, after which it is recorded as a timeout
+   * @return the number of deals solved by this run
+   * @throws IllegalArgumentException if the thread count is not positive
+   */
+  public static long run(SolvabilityIndex index, int threads, long nodeLimit) {
+    return run(index, threads, nodeLimit, null);
+  }
+
+  /**
+   * Solves every pending deal in the index, sharing a transposition table between
+   * the solver threads.
+   *
+   * @param index the index to fill
+   * @param threads the number of solver threads
+   * @param nodeLimit the node limit per deal, after which it is recorded as a timeout
+   * @param table the shared table, or null to search without one
+   * @return the number of deals solved by this run
+   * @throws IllegalArgumentException if the thread count is not positive
+   */
+  public static long run(SolvabilityIndex index, int threads, long nodeLimit,
+                         TranspositionTable table) {
+    return run(index, threads, nodeLimit, table, null);
+  }
+
+  /**
+   * Solves every pending deal in the index, with every solver thread reporting to
+   * the given statistics.
+   *
+   * @param index the index to fill
+   * @param threads the number of solver threads
+   * @param nodeLimit the node limit per deal, after which it is recorded as a timeout
+   * @param table the shared table, or null to search without one
+   * @param stats the counters the solvers report to, or null
+   * @return the number of deals solved by this run
+   * @throws IllegalArgumentException if the thread count is not positive
+   */
+  public static long run(SolvabilityIndex index, int threads, long nodeLimit,
+                         TranspositionTable table, SolverStats stats) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Thread count must be positive");
+    }
+    AtomicLong next = new AtomicLong();
+    AtomicLong done = new AtomicLong();
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      Thread worker = new Thread(() -> {
+        Solver solver = new Solver(nodeLimit, table, true, stats);
+        for (long i = next.getAndIncrement(); i < index.count(); i = next.getAndIncrement()) {
+          long seed = index.firstSeed() + i;
+          if (index.isDone(seed)) {
+            continue;
+          }
+          Board deal = Board.deal(index.variant(), Deals.ids(seed),
+              index.numPiles(), index.numDraw());
+          index.record(seed, solver.solve(deal));
+          if (done.incrementAndGet() % FLUSH_INTERVAL == 0) {
+            index.force();
+          }
+        }
+      }, "klondike-sweep-" + t);
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Sweep interrupted", e);
+      }
+    }
+    index.force();
+    return done.get();
+  }
+
+  /**
+   * Runs a sweep from the command line, publishing the solvers' counters over JMX
+   * and printing a progress line to standard error every {@value #PROGRESS_MILLIS}
+   * ms, then prints a summary and the final {@link SolverStats#report()}.
+   *
+   * @param args variant, numPiles, numDraw, first seed, seed count, index file,
+   *     and optionally the thread count, node limit and transposition table file
+   * @throws IOException if the index cannot be opened
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 6) {
+      throw new IllegalArgumentException("Usage: SolvabilitySweep variant numPiles numDraw "
+          + "firstSeed count indexFile [threads] [nodeLimit] [tableFile]");
+    }
+    Variant variant = Variant.valueOf(args[0].toUpperCase());
+    int threads = args.length > 6 ? Integer.parseInt(args[6])
+        : Runtime.getRuntime().availableProcessors();
+    long nodeLimit = args.length > 7 ? Long.parseLong(args[7]) : Solver.DEFAULT_NODE_LIMIT;
+    try (SolvabilityIndex index = SolvabilityIndex.create(Path.of(args[5]), variant,
+        Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+        Long.parseLong(args[3]), Long.parseLong(args[4]));
+         TranspositionTable table = args.length > 8
+             ? TranspositionTable.create(Path.of(args[8]), TABLE_MEGABYTES) : null) {
+      long start = System.nanoTime();
+      SolverStats stats = new SolverStats();
+      ObjectName name = stats.register("sweep-" + ProcessHandle.current().pid());
+      long solved;
+      SolverProgress progress = new SolverProgress(stats, System.err, PROGRESS_MILLIS);
+      try {
+        solved = run(index, threads, nodeLimit, table, stats);
+      } finally {
+        progress.close();
+        SolverStats.unregister(name);
+      }
+      long[] byStatus = new long[SolveResult.Status.values().length];
+      for (long seed = index.firstSeed(); seed < index.firstSeed() + index.count(); seed++) {
+        byStatus[index.status(seed).ordinal()]++;
+      }
+      System.out.printf("solved %d deals in %.1f s%n", solved, (System.nanoTime() - start) / 1e9);
+      for (SolveResult.Status status : SolveResult.Status.values()) {
+        System.out.printf("%-10s %d%n", status, byStatus[status.ordinal()]);
+      }
+      System.out.print(stats.report());
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package klondike.analysis;
+
+/**
+ * The outcome of a solver run: whether the deal was solved, proven unsolvable or
+ * abandoned at the node limit, with the winning line and the search effort.
+ */
+public final class SolveResult {
+  /**
+   * How a solver run ended.
+   */
+  public enum Status {
+    SOLVED, UNSOLVABLE, TIMEOUT
+  }
+
+  private final Status status;
+  private final int[] solution;
+  private final long nodes;
+
+  /**
+   * Creates a solver result.
+   *
+   * @param status how the run ended
+   * @param solution the winning moves in order, empty unless solved
+   * @param nodes the number of positions expanded
+   */
+  public SolveResult(Status status, int[] solution, long nodes) {
+    this.status = status;
+    this.solution = solution.clone();
+    this.nodes = nodes;
+  }
+
+  /**
+   * Returns how the run ended.
+   *
+   * @return the status
+   */
+  public Status status() {
+    return status;
+  }
+
+  /**
+   * Returns the winning line as encoded moves (see {@link Moves}).
+   *
+   * @return a copy of the solution, empty unless solved
+   */
+  public int[] solution() {
+    return solution.clone();
+  }
+
+  /**
+   * Returns the number of moves in the winning line.
+   *
+   * @return the solution length
+   */
+  public int length() {
+    return solution.length;
+  }
+
+  /**
+   * Returns the number of positions the solver expanded.
+   *
+   * @return the node count
+   */
+  public long nodes() {
+    return nodes;
+  }
+
+  @Override
+  public String toString() {
+    return status + " in " + solution.length + " moves, " + nodes + " nodes";
+  }
+}
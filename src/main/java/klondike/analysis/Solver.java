@@ -0,0 +1,398 @@
+package klondike.analysis;
+
+import java.util.Arrays;
+
+/**
+ * A depth-first solver for fully known positions. Safe foundation moves (see
+ * {@link Board#safeFoundationMove()}) are played as soon as they appear, every
+ * other legal move is tried in a fixed preference order, and positions already
+ * seen or with a stranded stock card are skipped, so a search that runs out of
+ * moves has proven the position unsolvable. The search is iterative, so very long
+ * lines cannot overflow the call stack. A solver reuses its storage between runs
+ * but is not thread safe.
+ *
+ * <p>By default positions are remembered by {@link Board#canonicalHash64()}, so a
+ * position reached again with its cascades in another order counts as seen.
+ *
+ * <p>A solver may be given a {@link TranspositionTable}. Every position on a found
+ * solution is then stored as a win with the move that continues it, and after a
+ * search proves the start unsolvable every position it visited is stored as a loss.
+ * Wins are keyed by {@link Board#hash64()}, since their moves name cascades, and
+ * losses by the key the solver remembers positions with.
+ * Later searches, in this or another process, stop at a stored loss and finish a
+ * stored win by following the recorded moves.
+ *
+ * <p>A solver may also report its progress to a {@link SolverStats}, which several
+ * solvers may share.
+ */
+public final class Solver {
+  /** Default number of positions to expand before giving up. */
+  public static final long DEFAULT_NODE_LIMIT = 250_000;
+
+  private static final int MAX_FOLLOW = 4096;
+
+  private final long nodeLimit;
+  private final TranspositionTable table;
+  private final boolean canonical;
+  private final SolverStats stats;
+  private final LongHashSet visited = new LongHashSet(1 << 16);
+  private final int[] scratch = new int[Board.MAX_MOVES];
+  private Board[] boards = new Board[64];
+  private int[] frameMoves = new int[64];
+  private int[] frameCount = new int[64];
+  private int[] frameNext = new int[64];
+  private int[] framePath = new int[64];
+  private int[] moveStack = new int[4096];
+  private int[] path = new int[256];
+  private Board replay;
+  private long nodes;
+  private long lookups;
+  private long hits;
+  private int deepest;
+  private int best;
+  private long reportedNodes;
+  private long reportedLookups;
+  private long reportedHits;
+  private long reportedBytes;
+
+  /**
+   * Creates a solver with the default node limit.
+   */
+  public Solver() {
+    this(DEFAULT_NODE_LIMIT);
+  }
+
+  /**
+   * Creates a solver that gives up after expanding the given number of positions.
+   *
+   * @param nodeLimit the maximum number of positions to expand
+   * @throws IllegalArgumentException if the limit is not positive
+   */
+  public Solver(long nodeLimit) {
+    this(nodeLimit, null);
+  }
+
+  /**
+   * Creates a solver that gives up after expanding the given number of positions and
+   * shares results through a transposition table.
+   *
+   * @param nodeLimit the maximum number of positions to expand
+   * @param table the table to consult, and to fill unless it is read-only; may be null
+   * @throws IllegalArgumentException if the limit is not positive
+   */
+  public Solver(long nodeLimit, TranspositionTable table) {
+    this(nodeLimit, table, true);
+  }
+
+  /**
+   * Creates a solver, choosing whether positions that differ only in cascade order
+   * are treated as the same position.
+   *
+   * @param nodeLimit the maximum number of positions to expand
+   * @param table the table to consult, and to fill unless it is read-only; may be null
+   * @param canonical true to key positions by {@link Board#canonicalHash64()}, false
+   *     to key them by {@link Board#hash64()}
+   * @throws IllegalArgumentException if the limit is not positive
+   */
+  public Solver(long nodeLimit, TranspositionTable table, boolean canonical) {
+    this(nodeLimit, table, canonical, null);
+  }
+
+  /**
+   * Creates a solver that reports its progress.
+   *
+   * @param nodeLimit the maximum number of positions to expand
+   * @param table the table to consult, and to fill unless it is read-only; may be null
+   * @param canonical true to key positions by {@link Board#canonicalHash64()}, false
+   *     to key them by {@link Board#hash64()}
+   * @param stats the counters to report to; may be null
+   * @throws IllegalArgumentException if the limit is not positive
+   */
+  public Solver(long nodeLimit, TranspositionTable table, boolean canonical,
+                SolverStats stats) {
+    if (nodeLimit < 1) {
+      throw new IllegalArgumentException("Node limit must be positive");
+    }
+    this.nodeLimit = nodeLimit;
+    this.table = table;
+    this.canonical = canonical;
+    this.stats = stats;
+    if (stats != null && table != null) {
+      stats.tableBytes(table.bytes());
+    }
+  }
+
+  /**
+   * Searches for a winning line from the given position.
+   *
+   * @param start a fully known position; it is not modified
+   * @return the result of the search
+   */
+  public SolveResult solve(Board start) {
+    SolveResult result = search(start);
+    if (stats != null) {
+      report(0);
+      stats.finished(result.status());
+    }
+    if (table != null && !table.isReadOnly()) {
+      if (result.status() == SolveResult.Status.SOLVED) {
+        Board board = replay(start);
+        for (int move : result.solution()) {
+          table.store(board.hash64(), move, 1, TranspositionTable.MAX_DEPTH,
+              TranspositionTable.EXACT);
+          board.apply(move);
+        }
+      } else if (result.status() == SolveResult.Status.UNSOLVABLE) {
+        visited.forEach(hash -> table.store(hash, 0, -1, TranspositionTable.MAX_DEPTH,
+            TranspositionTable.EXACT));
+      }
+    }
+    return result;
+  }
+
+  private SolveResult search(Board start) {
+    visited.clear();
+    nodes = 0;
+    lookups = 0;
+    hits = 0;
+    deepest = 0;
+    reportedNodes = 0;
+    reportedLookups = 0;
+    reportedHits = 0;
+    Board root = board(0, start);
+    root.copyFrom(start);
+    int length = playSafe(root, 0);
+    best = root.foundationCount();
+    if (root.isWon()) {
+      return solved(length);
+    }
+    int rootKnown = known(root);
+    if (rootKnown > 0) {
+      int end = follow(root, length);
+      if (end >= 0) {
+        return solved(end);
+      }
+    } else if (rootKnown < 0) {
+      return new SolveResult(SolveResult.Status.UNSOLVABLE, new int[0], nodes);
+    }
+    visited.add(key(root));
+    push(0, root, length, 0);
+
+    int top = 0;
+    while (top >= 0) {
+      if (frameNext[top] == frameCount[top]) {
+        top--;
+        continue;
+      }
+      int move = moveStack[frameMoves[top] + frameNext[top]++];
+      Board parent = boards[top];
+      if (isPointless(parent, move)) {
+        continue;
+      }
+      Board child = board(top + 1, parent);
+      child.copyFrom(parent);
+      child.apply(move);
+      length = framePath[top];
+      ensurePath(length + 1);
+      path[length] = move;
+      length = playSafe(child, length + 1);
+      best = Math.max(best, child.foundationCount());
+      if (child.isWon()) {
+        return solved(length);
+      }
+      if (child.hasStrandedStockCard()) {
+        continue;
+      }
+      int known = known(child);
+      if (known > 0) {
+        int end = follow(child, length);
+        if (end >= 0) {
+          return solved(end);
+        }
+      }
+      if (known < 0) {
+        continue;
+      }
+      lookups++;
+      if (!visited.add(key(child))) {
+        hits++;
+        continue;
+      }
+      if (++nodes >= nodeLimit) {
+        return new SolveResult(SolveResult.Status.TIMEOUT, new int[0], nodes);
+      }
+      top++;
+      deepest = Math.max(deepest, top);
+      if (stats != null && (nodes & SolverStats.REPORT_INTERVAL - 1) == 0) {
+        report(top);
+      }
+      push(top, child, length, frameMoves[top - 1] + frameCount[top - 1]);
+    }
+    return new SolveResult(SolveResult.Status.UNSOLVABLE, new int[0], nodes);
+  }
+
+  /**
+   * Opens a search frame for a position, storing its ordered moves on the shared
+   * move stack starting at the given offset.
+   */
+  private void push(int frame, Board board, int length, int offset) {
+    int n = board.generateMoves(scratch);
+    order(board, scratch, n);
+    if (offset + n > moveStack.length) {
+      moveStack = Arrays.copyOf(moveStack, Math.max(moveStack.length * 2, offset + n));
+    }
+    System.arraycopy(scratch, 0, moveStack, offset, n);
+    frameMoves[frame] = offset;
+    frameCount[frame] = n;
+    frameNext[frame] = 0;
+    framePath[frame] = length;
+  }
+
+  /**
+   * Returns 1 if the table records the position as a win, -1 if as a loss, else 0.
+   */
+  private int known(Board board) {
+    if (table == null) {
+      return 0;
+    }
+    lookups++;
+    long win = table.probe(board.hash64());
+    if (TranspositionTable.bound(win) == TranspositionTable.EXACT
+        && TranspositionTable.value(win) > 0) {
+      hits++;
+      return 1;
+    }
+    long loss = table.probe(key(board));
+    if (TranspositionTable.bound(loss) == TranspositionTable.EXACT
+        && TranspositionTable.value(loss) < 0) {
+      hits++;
+      return -1;
+    }
+    return 0;
+  }
+
+  /**
+   * Passes the counts since the last report, and the growth of the visited set, to
+   * the statistics.
+   */
+  private void report(int depth) {
+    stats.add(nodes - reportedNodes, lookups - reportedLookups, hits - reportedHits, depth,
+        deepest, best);
+    reportedNodes = nodes;
+    reportedLookups = lookups;
+    reportedHits = hits;
+    long bytes = visited.bytes();
+    stats.visitedBytes(bytes - reportedBytes);
+    reportedBytes = bytes;
+  }
+
+  private long key(Board board) {
+    return canonical ? board.canonicalHash64() : board.hash64();
+  }
+
+  /**
+   * Extends the path by following the winning moves recorded in the table.
+   *
+   * @return the new path length, or -1 if the recorded line does not reach a win
+   */
+  private int follow(Board from, int length) {
+    Board board = replay(from);
+    for (int step = 0; step < MAX_FOLLOW && !board.isWon(); step++) {
+      long entry = table.probe(board.hash64());
+      int move = TranspositionTable.move(entry);
+      if (TranspositionTable.value(entry) <= 0 || !board.isLegal(move)) {
+        return -1;
+      }
+      board.apply(move);
+      ensurePath(length + 1);
+      path[length++] = move;
+    }
+    return board.isWon() ? length : -1;
+  }
+
+  private Board replay(Board from) {
+    if (replay == null || replay.numPiles() != from.numPiles()
+        || replay.variant() != from.variant() || replay.numDraw() != from.numDraw()) {
+      replay = new Board(from);
+    } else {
+      replay.copyFrom(from);
+    }
+    return replay;
+  }
+
+  private int playSafe(Board board, int length) {
+    for (int move = board.safeFoundationMove(); move >= 0; move = board.safeFoundationMove()) {
+      board.apply(move);
+      ensurePath(length + 1);
+      path[length++] = move;
+    }
+    return length;
+  }
+
+  /**
+   * Moving a whole cascade onto an empty cascade only renumbers the piles.
+   */
+  static boolean isPointless(Board board, int move) {
+    return Moves.kind(move) == Moves.PILE
+        && Moves.count(move) == board.height(Moves.src(move))
+        && board.height(Moves.dest(move)) == 0;
+  }
+
+  /**
+   * Sorts moves so that the most promising are tried first: foundation moves, moves
+   * uncovering a face-down card, draw moves, other cascade moves, then discards.
+   */
+  private static void order(Board board, int[] moves, int n) {
+    for (int i = 1; i < n; i++) {
+      int move = moves[i];
+      int rank = rank(board, move);
+      int j = i - 1;
+      while (j >= 0 && rank(board, moves[j]) < rank) {
+        moves[j + 1] = moves[j];
+        j--;
+      }
+      moves[j + 1] = move;
+    }
+  }
+
+  private static int rank(Board board, int move) {
+    return switch (Moves.kind(move)) {
+      case Moves.PILE_TO_FOUNDATION, Moves.DRAW_TO_FOUNDATION -> 4;
+      case Moves.PILE -> {
+        int src = Moves.src(move);
+        int start = board.height(src) - Moves.count(move);
+        yield start > 0 && start == board.faceDown(src) ? 3 : 1;
+      }
+      case Moves.DRAW -> 2;
+      default -> 0;
+    };
+  }
+
+  private SolveResult solved(int length) {
+    return new SolveResult(SolveResult.Status.SOLVED, Arrays.copyOf(path, length), nodes);
+  }
+
+  private Board board(int frame, Board shape) {
+    if (frame >= boards.length) {
+      int size = boards.length * 2;
+      boards = Arrays.copyOf(boards, size);
+      frameMoves = Arrays.copyOf(frameMoves, size);
+      frameCount = Arrays.copyOf(frameCount, size);
+      frameNext = Arrays.copyOf(frameNext, size);
+      framePath = Arrays.copyOf(framePath, size);
+    }
+    Board board = boards[frame];
+    if (board == null || board.numPiles() != shape.numPiles()
+        || board.variant() != shape.variant() || board.numDraw() != shape.numDraw()) {
+      board = new Board(shape);
+      boards[frame] = board;
+    }
+    return board;
+  }
+
+  private void ensurePath(int length) {
+    if (length > path.length) {
+      path = Arrays.copyOf(path, Math.max(path.length * 2, length));
+    }
+  }
+}
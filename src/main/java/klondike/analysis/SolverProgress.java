@@ -0,0 +1,77 @@
+package klondike.analysis;
+
+import java.io.IOException;
+
+/**
+ * Prints a {@link SolverStats#progressLine} at a fixed interval from a daemon
+ * thread until closed, with the expansion rate measured over the last interval so
+ * that a search slowing down shows at once. Writing stops quietly if the output
+ * fails.
+ */
+public final class SolverProgress implements AutoCloseable {
+  private final SolverStats stats;
+  private final Appendable out;
+  private final long intervalMillis;
+  private final Thread thread;
+
+  /**
+   * Starts printing progress lines.
+   *
+   * @param stats the counters to print
+   * @param out where to write the lines
+   * @param intervalMillis the time between lines in milliseconds
+   * @throws IllegalArgumentException if the interval is not positive or an argument
+   *     is null
+   */
+  public SolverProgress(SolverStats stats, Appendable out, long intervalMillis) {
+    if (stats == null || out == null) {
+      throw new IllegalArgumentException("Statistics and output cannot be null");
+    }
+    if (intervalMillis < 1) {
+      throw new IllegalArgumentException("Interval must be positive");
+    }
+    this.stats = stats;
+    this.out = out;
+    this.intervalMillis = intervalMillis;
+    this.thread = new Thread(this::run, "klondike-solver-progress");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void run() {
+    long lastNodes = stats.getNodesExpanded();
+    long lastTime = System.nanoTime();
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        Thread.sleep(intervalMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+      long nodes = stats.getNodesExpanded();
+      long time = System.nanoTime();
+      double rate = (nodes - lastNodes) * 1e9 / Math.max(1, time - lastTime);
+      lastNodes = nodes;
+      lastTime = time;
+      try {
+        synchronized (out) {
+          out.append(stats.progressLine(rate)).append('\n');
+        }
+      } catch (IOException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Stops printing and waits for the printing thread to end.
+   */
+  @Override
+  public void close() {
+    thread.interrupt();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package klondike.analysis;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Live counters of one or more running {@link Solver}s, for watching long searches:
+ * nodes expanded and their rate, transposition lookups and hits, the search depth,
+ * the best foundation count reached and the memory held by the tables. Any number
+ * of solver threads may report into one instance. Solvers count locally and report
+ * every {@link #REPORT_INTERVAL} nodes and when a search ends, so the counters lag
+ * a running search by at most that many nodes and cost the search nothing between
+ * reports.
+ *
+ * <p>The counters can be published over JMX with {@link #register}, printed
+ * periodically with {@link SolverProgress}, and summarised at the end with {@link
+ * #report()}.
+ */
+public final class SolverStats implements SolverStatsMXBean {
+  /** Number of nodes a solver expands between reports. */
+  public static final int REPORT_INTERVAL = 1 << 12;
+
+  private final long started = System.nanoTime();
+  private final LongAdder nodes = new LongAdder();
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder visitedBytes = new LongAdder();
+  private final LongAdder solved = new LongAdder();
+  private final LongAdder unsolvable = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final AtomicInteger maxDepth = new AtomicInteger();
+  private final AtomicInteger bestFoundations = new AtomicInteger();
+  private volatile int depth;
+  private volatile long tableBytes;
+
+  /**
+   * Adds a solver's counts since its last report.
+   *
+   * @param expanded the nodes expanded
+   * @param looked the positions looked up
+   * @param found the lookups that hit
+   * @param currentDepth the solver's search depth now
+   * @param bestDepth the deepest depth since the last report
+   * @param best the best foundation count since the last report
+   */
+  void add(long expanded, long looked, long found, int currentDepth, int bestDepth,
+           int best) {
+    nodes.add(expanded);
+    lookups.add(looked);
+    hits.add(found);
+    depth = currentDepth;
+    maxDepth.accumulateAndGet(bestDepth, Math::max);
+    bestFoundations.accumulateAndGet(best, Math::max);
+  }
+
+  /**
+   * Records a change in the memory held by a solver's visited set.
+   *
+   * @param delta the change in bytes
+   */
+  void visitedBytes(long delta) {
+    visitedBytes.add(delta);
+  }
+
+  /**
+   * Records the size of the transposition table the solvers share.
+   *
+   * @param bytes the table size in bytes
+   */
+  void tableBytes(long bytes) {
+    tableBytes = bytes;
+  }
+
+  /**
+   * Counts a finished search.
+   *
+   * @param status how it ended
+   */
+  void finished(SolveResult.Status status) {
+    switch (status) {
+      case SOLVED -> solved.increment();
+      case UNSOLVABLE -> unsolvable.increment();
+      default -> timeouts.increment();
+    }
+  }
+
+  @Override
+  public long getNodesExpanded() {
+    return nodes.sum();
+  }
+
+  @Override
+  public double getNodesPerSecond() {
+    long elapsed = System.nanoTime() - started;
+    return elapsed > 0 ? nodes.sum() * 1e9 / elapsed : 0;
+  }
+
+  @Override
+  public long getTranspositionLookups() {
+    return lookups.sum();
+  }
+
+  @Override
+  public double getTranspositionHitRate() {
+    long looked = lookups.sum();
+    return looked == 0 ? 0 : (double) hits.sum() / looked;
+  }
+
+  @Override
+  public int getCurrentDepth() {
+    return depth;
+  }
+
+  @Override
+  public int getMaxDepth() {
+    return maxDepth.get();
+  }
+
+  @Override
+  public int getBestFoundationCount() {
+    return bestFoundations.get();
+  }
+
+  @Override
+  public long getTableMemoryBytes() {
+    return visitedBytes.sum() + tableBytes;
+  }
+
+  @Override
+  public long getSolved() {
+    return solved.sum();
+  }
+
+  @Override
+  public long getUnsolvable() {
+    return unsolvable.sum();
+  }
+
+  @Override
+  public long getTimeouts() {
+    return timeouts.sum();
+  }
+
+  /**
+   * Publishes these counters on the platform MBean server under the name
+   * {@code klondike:type=Solver,name=<name>}.
+   *
+   * @param name the name telling this search apart from others in the process
+   * @return the name the counters are registered under
+   * @throws IllegalArgumentException if the name is not a valid JMX key value
+   * @throws IllegalStateException if the name is taken or registration fails
+   */
+  public ObjectName register(String name) {
+    try {
+      ObjectName objectName = new ObjectName("klondike:type=Solver,name=" + name);
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+      return objectName;
+    } catch (MalformedObjectNameException e) {
+      throw new IllegalArgumentException("Invalid solver name: " + name, e);
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register solver statistics " + name, e);
+    }
+  }
+
+  /**
+   * Removes counters published by {@link #register}, if they are still registered.
+   *
+   * @param objectName the name returned by {@link #register}
+   */
+  public static void unregister(ObjectName objectName) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot unregister " + objectName, e);
+    }
+  }
+
+  /**
+   * Returns a one-line summary for periodic progress output.
+   *
+   * @param recentRate the expansion rate over the last interval, in nodes per second
+   * @return the progress line, without a line terminator
+   */
+  public String progressLine(double recentRate) {
+    return String.format("nodes %,d (%,.0f/s) depth %d/%d best %d tt-hits %.1f%% "
+            + "tables %.1f MB solved %d unsolvable %d timeout %d", getNodesExpanded(),
+        recentRate, getCurrentDepth(), getMaxDepth(), getBestFoundationCount(),
+        getTranspositionHitRate() * 100, getTableMemoryBytes() / 1048576.0, getSolved(),
+        getUnsolvable(), getTimeouts());
+  }
+
+  /**
+   * Returns every counter by a stable key, in a fixed order, for reports that are
+   * read by other programs.
+   *
+   * @return a new map from counter name to value
+   */
+  public Map<String, Number> snapshot() {
+    Map<String, Number> values = new LinkedHashMap<>();
+    values.put("elapsedMillis", (System.nanoTime() - started) / 1_000_000);
+    values.put("nodesExpanded", getNodesExpanded());
+    values.put("nodesPerSecond", Math.round(getNodesPerSecond()));
+    values.put("transpositionLookups", getTranspositionLookups());
+    values.put("transpositionHits", hits.sum());
+    values.put("transpositionHitRate", getTranspositionHitRate());
+    values.put("maxDepth", getMaxDepth());
+    values.put("bestFoundationCount", getBestFoundationCount());
+    values.put("tableMemoryBytes", getTableMemoryBytes());
+    values.put("solved", getSolved());
+    values.put("unsolvable", getUnsolvable());
+    values.put("timeouts", getTimeouts());
+    return values;
+  }
+
+  /**
+   * Returns the final report: one {@code key=value} line per entry of {@link
+   * #snapshot()}.
+   *
+   * @return the report, each line ending in a newline
+   */
+  public String report() {
+    StringBuilder out = new StringBuilder();
+    snapshot().forEach((key, value) -> out.append(key).append('=').append(value)
+        .append('\n'));
+    return out.toString();
+  }
+}
@@ -0,0 +1,86 @@
+package klondike.analysis;
+
+/**
+ * The management interface of {@link SolverStats}, through which JMX clients such
+ * as JConsole read a running search's counters.
+ */
+public interface SolverStatsMXBean {
+  /**
+   * Returns the number of positions expanded by every solver reporting here.
+   *
+   * @return the node count
+   */
+  long getNodesExpanded();
+
+  /**
+   * Returns the average expansion rate since the statistics were created.
+   *
+   * @return nodes per second
+   */
+  double getNodesPerSecond();
+
+  /**
+   * Returns how many positions were looked up in the visited set or transposition
+   * table.
+   *
+   * @return the lookup count
+   */
+  long getTranspositionLookups();
+
+  /**
+   * Returns the share of lookups that found the position already seen or stored.
+   *
+   * @return the hit rate between 0 and 1, or 0 before the first lookup
+   */
+  double getTranspositionHitRate();
+
+  /**
+   * Returns the search depth most recently reported by a solver.
+   *
+   * @return the depth in search frames
+   */
+  int getCurrentDepth();
+
+  /**
+   * Returns the deepest search depth reported.
+   *
+   * @return the maximum depth in search frames
+   */
+  int getMaxDepth();
+
+  /**
+   * Returns the most cards any explored position had on the foundations.
+   *
+   * @return the best foundation count
+   */
+  int getBestFoundationCount();
+
+  /**
+   * Returns the memory held by the solvers' visited sets and the transposition
+   * table.
+   *
+   * @return the size in bytes
+   */
+  long getTableMemoryBytes();
+
+  /**
+   * Returns the number of searches that found a solution.
+   *
+   * @return the solved count
+   */
+  long getSolved();
+
+  /**
+   * Returns the number of searches that proved their deal unsolvable.
+   *
+   * @return the unsolvable count
+   */
+  long getUnsolvable();
+
+  /**
+   * Returns the number of searches that stopped at the node limit.
+   *
+   * @return the timeout count
+   */
+  long getTimeouts();
+}
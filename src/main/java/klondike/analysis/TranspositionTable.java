@@ -0,0 +1,266 @@
+package klondike.analysis;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A fixed-size transposition table stored in a memory-mapped file, keyed by
+ * {@link Board#hash64()}, so search results survive between runs and can be read
+ * by other processes mapping the same file.
+ *
+ * <p>Layout: a 64-byte header (magic, version, bucket count, generation) followed by
+ * 64-byte buckets of four 16-byte slots. A slot holds the key xor-ed with its data
+ * word, then the data word itself: best move (32 bits), value (16 bits), depth
+ * (8 bits), bound (2 bits) and generation (6 bits). A torn or concurrent write makes
+ * the two words disagree, which a probe treats as a miss, so writers never lock.
+ *
+ * <p>A store reuses the slot already holding the key, else an empty slot, else the
+ * slot whose depth is lowest once older generations are discounted. Every writable
+ * open starts a new generation, so entries from earlier runs give way first.
+ */
+public final class TranspositionTable implements AutoCloseable {
+  /** Bound of an entry whose value is exact. */
+  public static final int EXACT = 1;
+  /** Bound of an entry whose true value is at least the stored value. */
+  public static final int LOWER = 2;
+  /** Bound of an entry whose true value is at most the stored value. */
+  public static final int UPPER = 3;
+  /** Largest depth an entry can record. */
+  public static final int MAX_DEPTH = 255;
+
+  private static final int MAGIC = 0x4B545454;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 64;
+  private static final int BUCKET_BYTES = 64;
+  private static final int SLOT_BYTES = 16;
+  private static final int SLOTS_PER_BUCKET = BUCKET_BYTES / SLOT_BYTES;
+  private static final int GENERATIONS = 64;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int buckets;
+  private final int generation;
+
+  private TranspositionTable(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.capacity() < HEADER_BYTES) {
+      channel.close();
+      throw new IOException("Not a transposition table");
+    }
+    int count = buffer.getInt(8);
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+        || Integer.bitCount(count) != 1
+        || HEADER_BYTES + (long) count * BUCKET_BYTES > buffer.capacity()) {
+      channel.close();
+      throw new IOException("Not a transposition table");
+    }
+    this.channel = channel;
+    this.buffer = buffer;
+    this.buckets = count;
+    if (buffer.isReadOnly()) {
+      this.generation = buffer.getInt(12);
+    } else {
+      this.generation = (buffer.getInt(12) + 1) % GENERATIONS;
+      buffer.putInt(12, generation);
+    }
+  }
+
+  /**
+   * Opens the table at the given path for reading and writing, creating it if it
+   * does not exist. An existing table keeps its own size.
+   *
+   * @param path the table file
+   * @param megabytes the size of a new table, rounded down to a power of two buckets
+   * @return the open table
+   * @throws IOException if the file cannot be created, mapped or is not a table
+   * @throws IllegalArgumentException if the size is not between 1 and 1024 megabytes
+   */
+  public static TranspositionTable create(Path path, int megabytes) throws IOException {
+    if (megabytes < 1 || megabytes > 1024) {
+      throw new IllegalArgumentException("Table size must be 1 to 1024 megabytes");
+    }
+    boolean exists = Files.exists(path) && Files.size(path) > 0;
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    int count = Integer.highestOneBit(megabytes * (1 << 20) / BUCKET_BYTES);
+    long size = exists ? channel.size() : HEADER_BYTES + (long) count * BUCKET_BYTES;
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (!exists) {
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, VERSION);
+      buffer.putInt(8, count);
+    }
+    return new TranspositionTable(channel, buffer);
+  }
+
+  /**
+   * Opens an existing table for probing only. Any number of processes may do this
+   * while another process writes to the same file.
+   *
+   * @param path the table file
+   * @return the open table
+   * @throws IOException if the file cannot be read or is not a table
+   */
+  public static TranspositionTable open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    if (channel.size() < HEADER_BYTES) {
+      channel.close();
+      throw new IOException("Not a transposition table: " + path);
+    }
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    return new TranspositionTable(channel, buffer);
+  }
+
+  /**
+   * Looks up a position.
+   *
+   * @param key the position hash
+   * @return the packed entry, to be read with {@link #move}, {@link #value},
+   *     {@link #depth} and {@link #bound}, or 0 if the position is not stored
+   */
+  public long probe(long key) {
+    int base = bucket(key);
+    for (int s = 0; s < SLOTS_PER_BUCKET; s++) {
+      int at = base + s * SLOT_BYTES;
+      long data = buffer.getLong(at + 8);
+      if (data != 0 && (buffer.getLong(at) ^ data) == key) {
+        return data;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Stores a position, replacing an existing entry as described in the class comment.
+   *
+   * @param key the position hash
+   * @param move the best move found, or 0
+   * @param value the score, which must fit in a short
+   * @param depth the depth the result is valid for, at most {@link #MAX_DEPTH}
+   * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+   * @throws IllegalStateException if the table was opened read-only
+   * @throws IllegalArgumentException if the value, depth or bound is out of range
+   */
+  public void store(long key, int move, int value, int depth, int bound) {
+    if (buffer.isReadOnly()) {
+      throw new IllegalStateException("Transposition table is read-only");
+    }
+    if (value != (short) value || depth < 0 || depth > MAX_DEPTH
+        || bound < EXACT || bound > UPPER) {
+      throw new IllegalArgumentException("Entry out of range");
+    }
+    long data = (long) move << 32 | (value & 0xFFFFL) << 16 | depth << 8
+        | bound << 6 | generation;
+    int base = bucket(key);
+    int victim = base;
+    int worst = Integer.MAX_VALUE;
+    for (int s = 0; s < SLOTS_PER_BUCKET; s++) {
+      int at = base + s * SLOT_BYTES;
+      long old = buffer.getLong(at + 8);
+      if (old == 0 || (buffer.getLong(at) ^ old) == key) {
+        victim = at;
+        break;
+      }
+      int age = (generation - (int) (old & GENERATIONS - 1) + GENERATIONS) % GENERATIONS;
+      int score = depth(old) - 8 * age;
+      if (score < worst) {
+        worst = score;
+        victim = at;
+      }
+    }
+    buffer.putLong(victim + 8, data);
+    buffer.putLong(victim, key ^ data);
+  }
+
+  /**
+   * Returns the best move of a packed entry.
+   *
+   * @param entry an entry returned by {@link #probe}
+   * @return the encoded move
+   */
+  public static int move(long entry) {
+    return (int) (entry >>> 32);
+  }
+
+  /**
+   * Returns the value of a packed entry.
+   *
+   * @param entry an entry returned by {@link #probe}
+   * @return the stored score
+   */
+  public static int value(long entry) {
+    return (short) (entry >>> 16);
+  }
+
+  /**
+   * Returns the depth of a packed entry.
+   *
+   * @param entry an entry returned by {@link #probe}
+   * @return the stored depth
+   */
+  public static int depth(long entry) {
+    return (int) (entry >>> 8) & 0xFF;
+  }
+
+  /**
+   * Returns the bound of a packed entry.
+   *
+   * @param entry an entry returned by {@link #probe}
+   * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}, or 0 for a miss
+   */
+  public static int bound(long entry) {
+    return (int) (entry >>> 6) & 3;
+  }
+
+  /**
+   * Returns whether stores are rejected because the table was opened read-only.
+   *
+   * @return true if the table is read-only
+   */
+  public boolean isReadOnly() {
+    return buffer.isReadOnly();
+  }
+
+  /**
+   * Returns the number of entries the table can hold.
+   *
+   * @return the slot count
+   */
+  public long capacity() {
+    return (long) buckets * SLOTS_PER_BUCKET;
+  }
+
+  /**
+   * Returns the size of the table's entries, which is the memory it maps.
+   *
+   * @return the entry area size in bytes
+   */
+  public long bytes() {
+    return (long) buckets * BUCKET_BYTES;
+  }
+
+  /**
+   * Writes any modified entries through to the file.
+   */
+  public void force() {
+    if (!buffer.isReadOnly()) {
+      buffer.force();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    force();
+    channel.close();
+  }
+
+  private int bucket(long key) {
+    return HEADER_BYTES + ((int) (key ^ key >>> 32) & buckets - 1) * BUCKET_BYTES;
+  }
+}
@@ -0,0 +1,75 @@
+package klondike.analysis;
+
+import klondike.model.hw02.KlondikeModel;
+import klondike.model.hw02.KlondikeRules;
+import klondike.model.hw04.WhiteheadKlondike;
+
+/**
+ * The Klondike variants the analysis code knows, each backed by the same
+ * {@link KlondikeRules} descriptor its model plays by.
+ */
+public enum Variant {
+  BASIC(KlondikeRules.BASIC),
+  WHITEHEAD(KlondikeRules.WHITEHEAD);
+
+  private final KlondikeRules rules;
+
+  Variant(KlondikeRules rules) {
+    this.rules = rules;
+  }
+
+  /**
+   * Returns the rule descriptor, with its precomputed placement tables.
+   *
+   * @return the rules
+   */
+  public KlondikeRules rules() {
+    return rules;
+  }
+
+  /**
+   * Returns whether builds must alternate colors (otherwise they must match colors).
+   *
+   * @return true if builds alternate colors
+   */
+  public boolean alternatingColors() {
+    return rules.alternatingColors();
+  }
+
+  /**
+   * Returns whether only a King may be placed on an empty cascade.
+   *
+   * @return true if empty cascades only accept Kings
+   */
+  public boolean kingOnlyOnEmpty() {
+    return rules.kingOnlyOnEmpty();
+  }
+
+  /**
+   * Returns whether a run of several cards must be a single suit to move together.
+   *
+   * @return true if multi-card moves require a suited run
+   */
+  public boolean suitedRuns() {
+    return rules.suitedRuns();
+  }
+
+  /**
+   * Returns whether every cascade card is dealt face up.
+   *
+   * @return true if the deal is fully face up
+   */
+  public boolean dealFaceUp() {
+    return rules.dealFaceUp();
+  }
+
+  /**
+   * Returns the variant whose rules the given model plays by.
+   *
+   * @param model the model to classify
+   * @return the matching variant
+   */
+  public static Variant of(KlondikeModel<?> model) {
+    return model instanceof WhiteheadKlondike ? WHITEHEAD : BASIC;
+  }
+}
@@ -0,0 +1,99 @@
+package klondike.analysis;
+
+/**
+ * The result of a win-probability estimate: the observed win rate over a number of
+ * playouts with a 95% Wilson score confidence interval.
+ */
+public final class WinEstimate {
+  private static final double Z = 1.96;
+
+  private final long wins;
+  private final long playouts;
+  private final double lower;
+  private final double upper;
+
+  /**
+   * Creates an estimate from raw playout counts.
+   *
+   * @param wins the number of won playouts
+   * @param playouts the total number of playouts
+   */
+  public WinEstimate(long wins, long playouts) {
+    if (wins < 0 || playouts < wins) {
+      throw new IllegalArgumentException("Invalid playout counts");
+    }
+    this.wins = wins;
+    this.playouts = playouts;
+    if (playouts == 0) {
+      this.lower = 0;
+      this.upper = 1;
+    } else {
+      double p = (double) wins / playouts;
+      double z2n = Z * Z / playouts;
+      double center = (p + z2n / 2) / (1 + z2n);
+      double spread = Z * Math.sqrt(p * (1 - p) / playouts + z2n / (4 * playouts)) / (1 + z2n);
+      this.lower = wins == 0 ? 0 : Math.max(0, center - spread);
+      this.upper = wins == playouts ? 1 : Math.min(1, center + spread);
+    }
+  }
+
+  /**
+   * Returns the estimated probability of winning.
+   *
+   * @return the win rate, or 0 if no playouts ran
+   */
+  public double probability() {
+    return playouts == 0 ? 0 : (double) wins / playouts;
+  }
+
+  /**
+   * Returns the lower end of the 95% confidence interval.
+   *
+   * @return the lower bound
+   */
+  public double lower() {
+    return lower;
+  }
+
+  /**
+   * Returns the upper end of the 95% confidence interval.
+   *
+   * @return the upper bound
+   */
+  public double upper() {
+    return upper;
+  }
+
+  /**
+   * Returns half the width of the confidence interval.
+   *
+   * @return the half width
+   */
+  public double halfWidth() {
+    return (upper - lower) / 2;
+  }
+
+  /**
+   * Returns the number of won playouts.
+   *
+   * @return the win count
+   */
+  public long wins() {
+    return wins;
+  }
+
+  /**
+   * Returns the number of playouts the estimate is based on.
+   *
+   * @return the playout count
+   */
+  public long playouts() {
+    return playouts;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%.3f [%.3f, %.3f] over %d playouts",
+        probability(), lower, upper, playouts);
+  }
+}
@@ -0,0 +1,208 @@
+package klondike.analysis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeModel;
+
+/**
+ * Estimates the probability that a game in progress can still be won, by running
+ * randomized playouts from positions sampled consistently with what is visible.
+ * Playouts run in parallel on a fixed pool of worker threads and stop as soon as
+ * the confidence interval is narrow enough or the caller's time budget runs out.
+ * Playout counts are cached per observed position, so asking again about the same
+ * position refines the previous answer rather than starting over.
+ */
+public final class WinProbabilityEstimator implements AutoCloseable {
+  /** Default target half width of the confidence interval. */
+  public static final double DEFAULT_HALF_WIDTH = 0.02;
+
+  private static final int MIN_PLAYOUTS = 100;
+  private static final int BATCH = 16;
+  private static final int CACHE_SIZE = 4096;
+
+  private final ExecutorService workers;
+  private final int parallelism;
+  private final SplittableRandom seeds;
+  private final Map<Long, long[]> cache;
+
+  /**
+   * Creates an estimator using one worker per available processor.
+   */
+  public WinProbabilityEstimator() {
+    this(Runtime.getRuntime().availableProcessors(), System.nanoTime());
+  }
+
+  /**
+   * Creates an estimator with the given number of workers and random seed.
+   *
+   * @param parallelism the number of worker threads
+   * @param seed the seed from which every worker's random source is derived
+   */
+  public WinProbabilityEstimator(int parallelism, long seed) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+    this.parallelism = parallelism;
+    this.seeds = new SplittableRandom(seed);
+    this.workers = Executors.newFixedThreadPool(parallelism, r -> {
+      Thread t = new Thread(r, "klondike-playout");
+      t.setDaemon(true);
+      return t;
+    });
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+        return size() > CACHE_SIZE;
+      }
+    };
+  }
+
+  /**
+   * Estimates the win probability of the model's current position with the
+   * default precision target.
+   *
+   * @param model a started model; it is only read, on the calling thread
+   * @param budgetMillis the maximum time to spend
+   * @return the estimate
+   */
+  public WinEstimate estimate(KlondikeModel<? extends KlondikeCard> model, long budgetMillis) {
+    return estimate(model, budgetMillis, DEFAULT_HALF_WIDTH);
+  }
+
+  /**
+   * Estimates the win probability of the model's current position.
+   *
+   * @param model a started model; it is only read, on the calling thread
+   * @param budgetMillis the maximum time to spend
+   * @param halfWidth stop early once the 95% interval is at most this wide either side
+   * @return the estimate
+   * @throws IllegalArgumentException if the budget or precision is not positive
+   */
+  public WinEstimate estimate(KlondikeModel<? extends KlondikeCard> model,
+                              long budgetMillis, double halfWidth) {
+    if (budgetMillis <= 0 || halfWidth <= 0) {
+      throw new IllegalArgumentException("Budget and precision must be positive");
+    }
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    return estimate(Observation.of(model), deadline, halfWidth);
+  }
+
+  /**
+   * Estimates the win probability of an observed position.
+   *
+   * @param observation the position to evaluate
+   * @param deadline the {@link System#nanoTime()} by which to answer
+   * @param halfWidth stop early once the 95% interval is at most this wide either side
+   * @return the estimate
+   */
+  public WinEstimate estimate(Observation observation, long deadline, double halfWidth) {
+    long[] cached;
+    synchronized (cache) {
+      cached = cache.get(observation.key());
+    }
+    AtomicLong counts = new AtomicLong(cached == null ? 0 : pack(cached[0], cached[1]));
+    AtomicBoolean stop = new AtomicBoolean(
+        converged(wins(counts.get()), total(counts.get()), halfWidth));
+
+    List<Future<?>> running = new ArrayList<>();
+    if (!stop.get()) {
+      for (int i = 0; i < parallelism; i++) {
+        SplittableRandom rnd;
+        synchronized (seeds) {
+          rnd = seeds.split();
+        }
+        running.add(workers.submit(
+            () -> work(observation, rnd, deadline, halfWidth, counts, stop)));
+      }
+    }
+    for (Future<?> future : running) {
+      try {
+        future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        stop.set(true);
+      } catch (InterruptedException e) {
+        stop.set(true);
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        stop.set(true);
+        throw new IllegalStateException("Playout failed", e.getCause());
+      }
+    }
+    stop.set(true);
+
+    long packed = counts.get();
+    long w = wins(packed);
+    long n = total(packed);
+    synchronized (cache) {
+      long[] entry = cache.computeIfAbsent(observation.key(), k -> new long[2]);
+      if (n > entry[1]) {
+        entry[0] = w;
+        entry[1] = n;
+      }
+    }
+    return new WinEstimate(w, n);
+  }
+
+  private void work(Observation observation, SplittableRandom rnd, long deadline,
+                    double halfWidth, AtomicLong counts, AtomicBoolean stop) {
+    Board board = new Board(observation.board());
+    byte[] scratch = new byte[observation.unknownCount()];
+    Playout playout = new Playout();
+    while (!stop.get() && System.nanoTime() < deadline) {
+      int won = 0;
+      for (int i = 0; i < BATCH; i++) {
+        observation.sample(rnd, board, scratch);
+        if (playout.run(board, rnd)) {
+          won++;
+        }
+      }
+      long packed = counts.addAndGet(pack(won, BATCH));
+      if (converged(wins(packed), total(packed), halfWidth)) {
+        stop.set(true);
+      }
+    }
+  }
+
+  private static boolean converged(long wins, long total, double halfWidth) {
+    return total >= MIN_PLAYOUTS && new WinEstimate(wins, total).halfWidth() <= halfWidth;
+  }
+
+  // Wins and playouts share one atomic word so readers never see a torn pair.
+  private static long pack(long wins, long total) {
+    return wins << 32 | total;
+  }
+
+  private static long wins(long packed) {
+    return packed >>> 32;
+  }
+
+  private static long total(long packed) {
+    return packed & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Forgets every cached playout count.
+   */
+  public void clearCache() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  @Override
+  public void close() {
+    workers.shutdownNow();
+  }
+}
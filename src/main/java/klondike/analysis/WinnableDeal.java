@@ -0,0 +1,111 @@
+package klondike.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import klondike.model.hw02.KlondikeCard;
+
+/**
+ * A deal known to be winnable, as built by {@link ReverseDealGenerator}: the deck in
+ * deal order for {@code startGame(deck, false, numPiles, numDraw)} and a line of
+ * moves that wins it without discarding.
+ */
+public final class WinnableDeal {
+  private final Variant variant;
+  private final int numPiles;
+  private final int numDraw;
+  private final int[] deck;
+  private final int[] solution;
+
+  /**
+   * Creates a deal. The arrays are copied.
+   *
+   * @param variant the rules the solution follows
+   * @param numPiles the number of cascades
+   * @param numDraw the number of visible draw cards
+   * @param deck the card ids in deal order
+   * @param solution the encoded moves that win the deal
+   */
+  public WinnableDeal(Variant variant, int numPiles, int numDraw, int[] deck,
+                      int[] solution) {
+    this.variant = variant;
+    this.numPiles = numPiles;
+    this.numDraw = numDraw;
+    this.deck = deck.clone();
+    this.solution = solution.clone();
+  }
+
+  /**
+   * Returns the rules the solution follows.
+   *
+   * @return the variant
+   */
+  public Variant variant() {
+    return variant;
+  }
+
+  /**
+   * Returns the number of cascades to deal.
+   *
+   * @return the number of cascades
+   */
+  public int numPiles() {
+    return numPiles;
+  }
+
+  /**
+   * Returns the number of visible draw cards.
+   *
+   * @return the number of draw cards
+   */
+  public int numDraw() {
+    return numDraw;
+  }
+
+  /**
+   * Returns the card ids in deal order.
+   *
+   * @return a copy of the deck
+   */
+  public int[] ids() {
+    return deck.clone();
+  }
+
+  /**
+   * Builds the deck as cards, ready for {@code startGame(deck, false, numPiles(),
+   * numDraw())}.
+   *
+   * @return a new list of cards in deal order
+   */
+  public List<KlondikeCard> deck() {
+    List<KlondikeCard> cards = new ArrayList<>(deck.length);
+    for (int id : deck) {
+      cards.add(Cards.toCard(id));
+    }
+    return cards;
+  }
+
+  /**
+   * Returns the winning line, in the encoding of {@link Moves}.
+   *
+   * @return a copy of the moves, first move first
+   */
+  public int[] solution() {
+    return solution.clone();
+  }
+
+  /**
+   * Deals this deck onto a new analysis board.
+   *
+   * @return the starting position
+   */
+  public Board board() {
+    return Board.deal(variant, deck, numPiles, numDraw);
+  }
+
+  @Override
+  public String toString() {
+    return variant + " " + numPiles + " piles, draw " + numDraw + ", " + solution.length
+        + "-move solution: " + Arrays.toString(deck);
+  }
+}
@@ -1,10 +1,15 @@
 package klondike.controller;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
+import klondike.analysis.HintEngine;
+import klondike.model.hw02.AutoCompletable;
+import klondike.model.hw02.BatchMovable;
 import klondike.model.hw02.Card;
 import klondike.model.hw02.KlondikeModel;
+import klondike.model.hw02.TryMovable;
 import klondike.view.KlondikeTextualView;
 
 /**
@@ -12,11 +17,15 @@ import klondike.view.KlondikeTextualView;
  * This controller reads user input from a Readable source,
  * writes game output to an  Appendable, and interacts with a
  * KlondikeModel to play the game. It follows a command-based input format
- * allowing the user to move cards, discard draws, or quit the game
+ * allowing the user to move cards, auto-complete foundations, discard draws, ask for
+ * a hint, or quit the game. A line starting with {@code batch} lists several moves
+ * that are played together or not at all.
  */
 public class KlondikeTextualController implements KlondikeController {
   private final Readable rd;
   private final Appendable ap;
+  private HintEngine hints;
+  private boolean ownsHints;
 
   /**
    * Constructs a KlondikeTextualController that uses
@@ -33,6 +42,23 @@ public class KlondikeTextualController implements KlondikeController {
     this.ap = ap;
   }
 
+  /**
+   * Constructs a KlondikeTextualController that answers {@code hint} commands
+   * with the given engine instead of a default one. The caller keeps ownership of
+   * the engine and closes it.
+   *
+   * @param rd the readable input source
+   * @param ap the appendable output destination
+   * @param hints the engine used to suggest moves
+   */
+  public KlondikeTextualController(Readable rd, Appendable ap, HintEngine hints) {
+    this(rd, ap);
+    if (hints == null) {
+      throw new IllegalArgumentException("Null arguments not allowed.");
+    }
+    this.hints = hints;
+  }
+
 
   @Override
   public <C extends Card> void playGame(KlondikeModel<C> model, List<C> deck, boolean shuffle,
@@ -94,6 +120,12 @@ public class KlondikeTextualController implements KlondikeController {
 
     } catch (IOException e) {
       throw new IllegalStateException("Transmission failed");
+    } finally {
+      if (ownsHints) {
+        hints.close();
+        hints = null;
+        ownsHints = false;
+      }
     }
 
   }
@@ -139,31 +171,60 @@ public class KlondikeTextualController implements KlondikeController {
                                                   KlondikeModel<C> m, KlondikeTextualView view)
       throws IOException {
     try {
+      TryMovable moves = m instanceof TryMovable ? (TryMovable) m : null;
       switch (cmd) {
         case "mpp" -> {
           int src = nextInt(scan, m, view);
           int num = nextInt(scan, m, view);
           int dest = nextInt(scan, m, view);
+          if (moves != null) {
+            return played(moves.tryMovePile(src - 1, num, dest - 1));
+          }
           m.movePile(src - 1, num, dest - 1);
         }
         case "md" -> {
           int pile = nextInt(scan, m, view);
+          if (moves != null) {
+            return played(moves.tryMoveDraw(pile - 1));
+          }
           m.moveDraw(pile - 1);
         }
         case "mpf" -> {
           int src = nextInt(scan, m, view);
           int fnd = nextInt(scan, m, view);
+          if (moves != null) {
+            return played(moves.tryMoveToFoundation(src - 1, fnd - 1));
+          }
           m.moveToFoundation(src - 1, fnd - 1);
         }
         case "mdf" -> {
           int fnd = nextInt(scan, m, view);
+          if (moves != null) {
+            return played(moves.tryMoveDrawToFoundation(fnd - 1));
+          }
           m.moveDrawToFoundation(fnd - 1);
         }
-        case "dd" -> m.discardDraw();
-        default -> {
-          ap.append("Invalid move. Play again. Unknown command\n");
+        case "dd" -> {
+          if (moves != null) {
+            return played(moves.tryDiscardDraw());
+          }
+          m.discardDraw();
+        }
+        case "auto" -> {
+          if (!(m instanceof AutoCompletable) || ((AutoCompletable) m).autoComplete() == 0) {
+            return rejected("No cards can be safely moved to foundations");
+          }
+        }
+        case "hint" -> {
+          showHint(m);
           return false;
         }
+        case "batch" -> {
+          return playBatch(scan.hasNextLine() ? scan.nextLine() : "", m);
+        }
+        default -> {
+          return rejected("Unknown command");
+        }
       }
       return true;
     } catch (IllegalStateException e) {
@@ -186,6 +247,128 @@ public class KlondikeTextualController implements KlondikeController {
       return false;
     }
   }
+
+  /**
+   * Plays the move commands on the rest of a {@code batch} line as one atomic batch,
+   * so either all of them are made or, if one is illegal, none are.
+   *
+   * @param line the commands following {@code batch}, e.g. {@code "mpp 7 1 1 md 3 dd"}
+   * @param m the model to play on
+   * @return whether the moves were made
+   * @throws IOException if writing output fails
+   */
+  private boolean playBatch(String line, KlondikeModel<?> m) throws IOException {
+    if (!(m instanceof BatchMovable)) {
+      return rejected("Batch moves are not supported by this game");
+    }
+    int[] moves = parseBatch(line);
+    if (moves == null) {
+      return false;
+    }
+    int failed = ((BatchMovable) m).applyMoves(moves);
+    if (failed >= 0) {
+      return rejected("Batch move " + (failed + 1) + " is illegal, no moves were made");
+    }
+    return true;
+  }
+
+  /**
+   * Reports a move's result code, writing why it was rejected if it was.
+   *
+   * @param result the result code of a {@link TryMovable} move
+   * @return whether the move was made
+   * @throws IOException if writing output fails
+   */
+  private boolean played(int result) throws IOException {
+    return result == TryMovable.OK || rejected(TryMovable.describe(result));
+  }
+
+  /**
+   * Writes that a command was rejected and why.
+   *
+   * @param reason the reason
+   * @return false, as no move was made
+   * @throws IOException if writing output fails
+   */
+  private boolean rejected(String reason) throws IOException {
+    ap.append("Invalid move. Play again. ").append(reason).append("\n");
+    return false;
+  }
+
+  /**
+   * Encodes the move commands on a line, converting 1-based numbers to 0-based. A
+   * malformed line is reported as rejected rather than thrown.
+   *
+   * @param line the move commands
+   * @return the encoded moves, or null if the line is empty or malformed
+   * @throws IOException if writing output fails
+   */
+  private int[] parseBatch(String line) throws IOException {
+    Scanner tokens = new Scanner(line);
+    int[] moves = new int[line.length() / 2 + 1];
+    int[] args = new int[3];
+    int count = 0;
+    while (tokens.hasNext()) {
+      String cmd = tokens.next();
+      int arity = switch (cmd) {
+        case "mpp" -> 3;
+        case "mpf" -> 2;
+        case "md", "mdf" -> 1;
+        case "dd" -> 0;
+        default -> -1;
+      };
+      if (arity < 0) {
+        rejected("Unknown batch command " + cmd);
+        return null;
+      }
+      for (int i = 0; i < arity; i++) {
+        if (!tokens.hasNextInt()) {
+          rejected("Batch commands need number arguments");
+          return null;
+        }
+        args[i] = tokens.nextInt();
+        if (args[i] < 1 || args[i] > 255) {
+          rejected("Batch argument out of range: " + args[i]);
+          return null;
+        }
+      }
+      moves[count++] = switch (cmd) {
+        case "mpp" -> BatchMovable.encode(BatchMovable.PILE, args[0] - 1, args[1], args[2] - 1);
+        case "md" -> BatchMovable.encode(BatchMovable.DRAW, 0, 0, args[0] - 1);
+        case "mpf" ->
+            BatchMovable.encode(BatchMovable.PILE_TO_FOUNDATION, args[0] - 1, 0, args[1] - 1);
+        case "mdf" -> BatchMovable.encode(BatchMovable.DRAW_TO_FOUNDATION, 0, 0, args[0] - 1);
+        default -> BatchMovable.encode(BatchMovable.DISCARD, 0, 0, 0);
+      };
+    }
+    if (count == 0) {
+      rejected("Empty batch");
+      return null;
+    }
+    return Arrays.copyOf(moves, count);
+  }
+
+  /**
+   * Writes a suggested next move. The search runs on the hint engine's own thread
+   * and is bounded by its deadline, so this returns promptly. Without an injected
+   * engine one is created here and closed when the game ends.
+   *
+   * @param m the model to suggest a move for
+   * @throws IOException if writing output fails
+   */
+  private void showHint(KlondikeModel<?> m) throws IOException {
+    if (hints == null) {
+      hints = new HintEngine();
+      ownsHints = true;
+    }
+    String hint = hints.suggest(m);
+    if (hint == null) {
+      ap.append("No hint available\n");
+    } else {
+      ap.append("Hint: ").append(hint).append("\n");
+    }
+  }
+
   /**
    * Reads the next integer input from the user, retrying as needed until a valid
    * integer is entered or a quit command is detected.
@@ -211,4 +394,4 @@ public class KlondikeTextualController implements KlondikeController {
     }
     throw new IllegalStateException("no input");
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package klondike.model.hw02;
+
+/**
+ * A Klondike model that can play every safe foundation move in one operation.
+ * A move to a foundation is safe when no card still in play could ever need to
+ * be built on the moved card, so making it can never lose a winnable game.
+ */
+public interface AutoCompletable {
+  /**
+   * Repeatedly moves safe cards from the tops of the cascades and from the draw
+   * pile to the foundations, until no safe move remains.
+   *
+   * @return the number of cards moved
+   * @throws IllegalStateException if the game hasn't been started yet
+   */
+  int autoComplete() throws IllegalStateException;
+}
@@ -1,29 +1,28 @@
 package klondike.model.hw02;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
-import java.util.Set;
 
 /**
  * Basic implementation of the KlondikeModel Interface. Creates a 52 card deck
  * and provides core functionality of Klondike solitaire game
  */
-public class BasicKlondike implements KlondikeModel<KlondikeCard> {
-  private List<CascadePile> cascades;
-  private List<List<KlondikeCard>> foundations;
-  private List<KlondikeCard> drawPile;
-  private List<KlondikeCard> discardPile;
+public class BasicKlondike implements Resettable, AutoCompletable, BatchMovable, TryMovable,
+    CardIdReadable, SnapshotPublisher<KlondikeCard>, GameEventSource {
+  private final KlondikeEngine engine;
+  private final Random random = new Random();
   private boolean started;
   private int numDraw;
+  private volatile BoardSnapshot<KlondikeCard> published;
+  private boolean publishing;
+  private long version;
 
   /**
    * Creates an empty game model that must be started with startGame().
    */
   public BasicKlondike() {
+    this.engine = new KlondikeEngine(KlondikeRules.BASIC);
     this.started = false;
   }
 
@@ -40,6 +39,11 @@ public class BasicKlondike implements KlondikeModel<KlondikeCard> {
 
   @Override
   public void startGame(List<KlondikeCard> deck, boolean shuffle, int numPiles, int numDraw) {
+    reset(deck, shuffle, numPiles, numDraw);
+  }
+
+  @Override
+  public void reset(List<KlondikeCard> deck, boolean shuffle, int numPiles, int numDraw) {
     if (deck == null) {
       throw new IllegalArgumentException("Deck cannot be null");
     }
@@ -54,350 +58,373 @@ public class BasicKlondike implements KlondikeModel<KlondikeCard> {
       throw new IllegalArgumentException("Not enough cards to deal cascades");
     }
 
-    List<KlondikeCard> copy = new ArrayList<>(deck);
-    if (shuffle) {
-      Collections.shuffle(copy, new Random());
-    }
+    engine.deal(deck, numPiles, shuffle ? random : null);
+    this.numDraw = numDraw;
+    this.started = true;
+    publish();
+  }
 
-    cascades = new ArrayList<>();
-    foundations = new ArrayList<>();
-    for (int i = 0; i < 4; i++) {
-      foundations.add(new ArrayList<>());
-    }
-    drawPile = new ArrayList<>();
-    discardPile = new ArrayList<>();
+  @Override
+  public void reset(DealTemplate deal) {
+    engine.deal(deal);
+    numDraw = deal.numDraw();
+    started = true;
+    publish();
+  }
 
-    int index = 0;
+  @Override
+  public DealTemplate captureDeal() {
+    checkStarted();
+    return DealTemplate.capture(engine, numDraw);
+  }
 
-    for (int i = 0; i < numPiles; i++) {
-      cascades.add(new CascadePileImpl());
+  @Override
+  public void movePile(int srcPile, int numCards, int destPile) {
+    int result = tryMovePile(srcPile, numCards, destPile);
+    if (result != OK) {
+      throw new IllegalStateException("Invalid move from pile " + srcPile + " to " + destPile
+          + ": " + TryMovable.describe(result));
     }
+  }
 
-    for (int r = 0; r < numPiles; r++) {
-      for (int p = r; p < numPiles; p++) {
-        if (index >= copy.size()) {
-          throw new IllegalArgumentException("Not enough cards for cascade setup");
-        }
-        cascades.get(p).addCard(copy.get(index));
-        index++;
-      }
+  @Override
+  public void moveDraw(int destPile) {
+    int result = tryMoveDraw(destPile);
+    if (result != OK) {
+      throw new IllegalStateException("Invalid move from draw to pile " + destPile
+          + ": " + TryMovable.describe(result));
     }
+  }
 
-    while (index < copy.size()) {
-      drawPile.add(copy.get(index));
-      index++;
+  @Override
+  public void moveToFoundation(int srcPile, int foundationPile) {
+    int result = tryMoveToFoundation(srcPile, foundationPile);
+    if (result == NO_SUCH_PILE || result == NO_SUCH_FOUNDATION) {
+      throw new IllegalArgumentException("Invalid pile index");
+    }
+    if (result != OK) {
+      throw new IllegalStateException("Invalid move to foundation: "
+          + TryMovable.describe(result));
     }
-
-    this.numDraw = numDraw;
-    this.started = true;
   }
 
   @Override
-  public void movePile(int srcPile, int numCards, int destPile) {
-    checkStarted();
-    if (!canMovePile(srcPile, numCards, destPile)) {
-      throw new IllegalStateException("Invalid move from pile " + srcPile + " to " + destPile);
+  public void moveDrawToFoundation(int foundationPile) {
+    int result = tryMoveDrawToFoundation(foundationPile);
+    if (result != OK) {
+      throw new IllegalStateException("Invalid move from draw to foundation: "
+          + TryMovable.describe(result));
     }
-    CascadePile source = cascades.get(srcPile);
-    CascadePile destination = cascades.get(destPile);
-    source.moveTo(destination, numCards);
   }
 
-  /**
-   * Checks if moving the given number of cards from one cascade pile to another is valid.
-   */
-  private boolean canMovePile(int srcPile, int numCards, int destPile) {
-    if (srcPile < 0 || srcPile >= cascades.size()
-        || destPile < 0 || destPile >= cascades.size()
-        || srcPile == destPile) {
-      return false;
+  @Override
+  public void discardDraw() {
+    int result = tryDiscardDraw();
+    if (result != OK) {
+      throw new IllegalStateException(TryMovable.describe(result));
     }
+  }
 
-    CascadePile source = cascades.get(srcPile);
-    CascadePile destination = cascades.get(destPile);
+  @Override
+  public int canMovePile(int srcPile, int numCards, int destPile) {
+    return started ? engine.checkMovePile(srcPile, numCards, destPile) : NOT_STARTED;
+  }
 
-    if (numCards <= 0 || numCards > source.size()) {
-      return false;
-    }
+  @Override
+  public int canMoveDraw(int destPile) {
+    return started ? engine.checkMoveDraw(destPile) : NOT_STARTED;
+  }
 
-    if (!isCardVisible(srcPile, source.size() - numCards)) {
-      return false;
-    }
+  @Override
+  public int canMoveToFoundation(int srcPile, int foundationPile) {
+    return started ? engine.checkMoveToFoundation(srcPile, foundationPile) : NOT_STARTED;
+  }
 
-    KlondikeCard cardToMove = source.getCard(source.size() - numCards);
-    return destination.canAdd(cardToMove);
+  @Override
+  public int canMoveDrawToFoundation(int foundationPile) {
+    return started ? engine.checkMoveDrawToFoundation(foundationPile) : NOT_STARTED;
   }
 
   @Override
-  public void moveDraw(int destPile) {
-    checkStarted();
-    if (!canMoveDraw(destPile)) {
-      throw new IllegalStateException("Invalid move from draw to pile " + destPile);
-    }
-    KlondikeCard cardToMove = drawPile.remove(0);
-    cascades.get(destPile).addCard(cardToMove);
+  public int canDiscardDraw() {
+    return started ? engine.checkDiscardDraw() : NOT_STARTED;
   }
 
-  private boolean canMoveDraw(int destPile) {
-    if (drawPile.isEmpty() || destPile < 0 || destPile >= cascades.size()) {
-      return false;
+  @Override
+  public int tryMovePile(int srcPile, int numCards, int destPile) {
+    int result = canMovePile(srcPile, numCards, destPile);
+    if (result == OK) {
+      engine.movePile(srcPile, numCards, destPile);
+      publish();
     }
-    return cascades.get(destPile).canAdd(drawPile.get(0));
+    return result;
   }
 
-  private boolean canMoveToFoundation(int srcPile, int foundationPile) {
-    if (srcPile < 0 || srcPile >= cascades.size()
-        || foundationPile < 0 || foundationPile >= foundations.size()) {
-      throw new IllegalArgumentException("Invalid pile index");
+  @Override
+  public int tryMoveDraw(int destPile) {
+    int result = canMoveDraw(destPile);
+    if (result == OK) {
+      engine.moveDraw(destPile);
+      publish();
     }
+    return result;
+  }
 
-    CascadePile source = cascades.get(srcPile);
-    List<KlondikeCard> foundation = foundations.get(foundationPile);
-
-    if (source.isEmpty()) {
-      return false;
+  @Override
+  public int tryMoveToFoundation(int srcPile, int foundationPile) {
+    int result = canMoveToFoundation(srcPile, foundationPile);
+    if (result == OK) {
+      engine.moveToFoundation(srcPile, foundationPile);
+      publish();
     }
+    return result;
+  }
 
-    KlondikeCard cardToMove = source.peek();
+  @Override
+  public int tryMoveDrawToFoundation(int foundationPile) {
+    int result = canMoveDrawToFoundation(foundationPile);
+    if (result == OK) {
+      engine.moveDrawToFoundation(foundationPile);
+      publish();
+    }
+    return result;
+  }
 
-    if (foundation.isEmpty()) {
-      return cardToMove.getValue() == 1;
-    } else {
-      KlondikeCard topCard = foundation.get(foundation.size() - 1);
-      return cardToMove.getSuit() == topCard.getSuit()
-          && cardToMove.getValue() == topCard.getValue() + 1;
+  @Override
+  public int tryDiscardDraw() {
+    int result = canDiscardDraw();
+    if (result == OK) {
+      engine.discardDraw();
+      publish();
     }
+    return result;
   }
 
   @Override
-  public void moveToFoundation(int srcPile, int foundationPile) {
+  public int applyMoves(int[] encodedMoves) {
     checkStarted();
-    if (!canMoveToFoundation(srcPile, foundationPile)) {
-      throw new IllegalStateException("Invalid move to foundation");
+    if (encodedMoves == null) {
+      throw new IllegalArgumentException("Moves cannot be null");
+    }
+    int failed = engine.applyMoves(encodedMoves);
+    if (failed < 0) {
+      publish();
     }
+    return failed;
+  }
 
-    CascadePile source = cascades.get(srcPile);
-    KlondikeCard cardToMove = source.peek();
-    foundations.get(foundationPile).add(cardToMove);
-    source.removeLast();
+  @Override
+  public void addListener(GameListener listener) {
+    engine.addListener(listener);
   }
 
   @Override
-  public void moveDrawToFoundation(int foundationPile) {
-    checkStarted();
-    if (!canMoveDrawToFoundation(foundationPile)) {
-      throw new IllegalStateException("Invalid move from draw to foundation");
-    }
-    KlondikeCard card = drawPile.remove(0);
-    foundations.get(foundationPile).add(card);
+  public void removeListener(GameListener listener) {
+    engine.removeListener(listener);
+  }
+
+  @Override
+  public void setPublishing(boolean publishing) {
+    this.publishing = publishing;
+    publish();
+  }
+
+  @Override
+  public BoardSnapshot<KlondikeCard> snapshot() {
+    return published;
   }
 
-  private boolean canMoveDrawToFoundation(int foundationPile) {
-    if (drawPile.isEmpty() || foundationPile < 0 || foundationPile >= foundations.size()) {
-      return false;
+  /**
+   * Swaps in a snapshot of the current board if publishing is on.
+   */
+  private void publish() {
+    if (publishing && started) {
+      published = BoardSnapshot.capture(engine, numDraw, isGameOver(), ++version);
     }
-    return canAddToFoundation(drawPile.get(0), foundationPile);
   }
 
+  /**
+   * Moves every card that is safe to move onto the foundations. A card is safe
+   * once both opposite-color cards one rank lower are on the foundations, since
+   * those are the only cards that could be built on it.
+   *
+   * @return the number of cards moved
+   */
   @Override
-  public void discardDraw() {
+  public int autoComplete() {
     checkStarted();
-
-    if (drawPile.isEmpty()) {
-      if (discardPile.isEmpty()) {
-        throw new IllegalStateException("No cards to discard or recycle.");
-      }
-      drawPile.addAll(discardPile);
-      discardPile.clear();
+    int moved = engine.autoComplete();
+    if (moved > 0) {
+      publish();
     }
-    discardPile.add(drawPile.remove(0));
+    return moved;
   }
 
   @Override
   public int getNumRows() {
     checkStarted();
-    int max = 0;
-    for (CascadePile pile : cascades) {
-      max = Math.max(max, pile.size());
-    }
-    return max;
+    return engine.numRows();
   }
 
   @Override
   public int getNumPiles() {
     checkStarted();
-    return cascades == null ? 0 : cascades.size();
+    return engine.numPiles();
   }
 
   @Override
   public int getPileHeight(int pileNum) {
     checkStarted();
-    return cascades.get(pileNum).size();
+    if (pileNum < 0 || pileNum >= engine.numPiles()) {
+      throw new IndexOutOfBoundsException("Invalid pile number: " + pileNum);
+    }
+    return engine.height(pileNum);
   }
 
   @Override
   public boolean isCardVisible(int pileNum, int card) {
     checkStarted();
-    if (pileNum < 0 || pileNum >= cascades.size()) {
+    if (pileNum < 0 || pileNum >= engine.numPiles()) {
       throw new IllegalArgumentException("Invalid pile number: " + pileNum);
     }
-    CascadePile pile = cascades.get(pileNum);
-    if (card < 0 || card >= pile.size()) {
+    if (card < 0 || card >= engine.height(pileNum)) {
       throw new IllegalArgumentException("Invalid card number: " + card);
     }
-    return pile.isVisible(card);
+    return card >= engine.visibleFrom(pileNum);
   }
 
   @Override
   public KlondikeCard getCardAt(int pileNum, int card) {
     checkStarted();
-    if (pileNum < 0 || pileNum >= cascades.size()) {
+    if (pileNum < 0 || pileNum >= engine.numPiles()) {
       throw new IllegalArgumentException("Invalid pile number: " + pileNum);
     }
-    CascadePile pile = cascades.get(pileNum);
-    if (card < 0 || card >= pile.size()) {
+    if (card < 0 || card >= engine.height(pileNum)) {
       throw new IllegalArgumentException("Invalid card number: " + card);
     }
     if (!isCardVisible(pileNum, card)) {
       throw new IllegalArgumentException("Cannot get card at this position, card is not visible");
     }
-    return pile.getCard(card);
+    return engine.card(pileNum, card);
   }
 
   @Override
   public KlondikeCard getCardAt(int foundationPile) {
     checkStarted();
-    if (foundationPile < 0 || foundationPile >= foundations.size()) {
+    if (foundationPile < 0 || foundationPile >= engine.numFoundations()) {
       throw new IllegalArgumentException("Invalid foundation pile number: " + foundationPile);
     }
-    List<KlondikeCard> pile = foundations.get(foundationPile);
-    return pile.isEmpty() ? null : pile.get(pile.size() - 1);
+    return engine.foundationTop(foundationPile);
   }
 
   @Override
-  public int getNumFoundations() {
+  public int cardIdAt(int pileNum, int card) {
     checkStarted();
-    return 4;
+    if (pileNum < 0 || pileNum >= engine.numPiles()) {
+      throw new IllegalArgumentException("Invalid pile number: " + pileNum);
+    }
+    if (card < 0 || card >= engine.height(pileNum)) {
+      throw new IllegalArgumentException("Invalid card number: " + card);
+    }
+    return card < engine.visibleFrom(pileNum) ? HIDDEN : engine.cardId(pileNum, card);
   }
 
   @Override
-  public int getNumDraw() {
+  public int foundationTopId(int foundationPile) {
     checkStarted();
-    return numDraw;
+    if (foundationPile < 0 || foundationPile >= engine.numFoundations()) {
+      throw new IllegalArgumentException("Invalid foundation pile number: " + foundationPile);
+    }
+    return engine.foundationTopId(foundationPile);
   }
 
   @Override
-  public List<KlondikeCard> getDrawCards() {
+  public int drawCardId(int index) {
     checkStarted();
-    return new ArrayList<>(drawPile.subList(0, Math.min(numDraw, drawPile.size())));
+    return engine.drawCardId(index, numDraw);
   }
 
   @Override
-  public boolean isGameOver() {
+  public int runLength(int pileNum) {
     checkStarted();
-    boolean allFoundationsComplete = true;
-    for (List<KlondikeCard> pile : foundations) {
-      if (pile.size() < 13) {
-        allFoundationsComplete = false;
-        break;
-      }
-    }
-    if (allFoundationsComplete) {
-      return true;
+    if (pileNum < 0 || pileNum >= engine.numPiles()) {
+      throw new IllegalArgumentException("Invalid pile number: " + pileNum);
     }
-    for (CascadePile pile : cascades) {
-      if (!pile.isEmpty()) {
-        KlondikeCard topCard = pile.peek();
-        for (int f = 0; f < foundations.size(); f++) {
-          if (canAddToFoundation(topCard, f)) {
-            return false;
-          }
-        }
-      }
+    return engine.runLength(pileNum);
+  }
+
+  @Override
+  public int copyPile(int pileNum, byte[] out) {
+    checkStarted();
+    if (pileNum < 0 || pileNum >= engine.numPiles()) {
+      throw new IllegalArgumentException("Invalid pile number: " + pileNum);
     }
-    if (!drawPile.isEmpty()) {
-      KlondikeCard drawCard = drawPile.get(0);
-      for (int f = 0; f < foundations.size(); f++) {
-        if (canAddToFoundation(drawCard, f)) {
-          return false;
-        }
-      }
-      for (CascadePile cascade : cascades) {
-        if (cascade.canAdd(drawCard)) {
-          return false;
-        }
-      }
+    if (out.length < engine.height(pileNum)) {
+      throw new IllegalArgumentException("Array too short for pile " + pileNum);
     }
-    return drawPile.isEmpty() && discardPile.isEmpty();
+    return engine.copyPile(pileNum, out, (byte) HIDDEN);
   }
 
   @Override
-  public int getScore() {
+  public int copyDrawCards(byte[] out) {
     checkStarted();
-    int score = 0;
-    for (List<KlondikeCard> pile : foundations) {
-      score += pile.size();
+    if (out.length < Math.min(numDraw, engine.drawSize())) {
+      throw new IllegalArgumentException("Array too short for the draw cards");
     }
-    return score;
+    return engine.copyDrawCards(numDraw, out);
   }
 
-  /**
-   * Checks if the game has been started.  If not throws an illegal state exception.
-   */
-  private void checkStarted() {
-    if (!started) {
-      throw new IllegalStateException("Game not started.");
-    }
+  @Override
+  public int stockSize() {
+    checkStarted();
+    return engine.drawSize() + engine.discardSize();
   }
 
-  /**
-   * checks if the deck is valid. Meaning it contains one of every card
-   *
-   * @param deck List of KlondikeCard that has all the cards.
-   *
-   * @return true if is valid else false
-   */
+  @Override
+  public int getNumFoundations() {
+    checkStarted();
+    return engine.numFoundations();
+  }
 
-  private boolean isValidDeck(List<KlondikeCard> deck) {
-    if (deck == null || deck.isEmpty()) {
-      return false;
-    }
+  @Override
+  public int getNumDraw() {
+    checkStarted();
+    return numDraw;
+  }
 
-    Set<KlondikeCard> uniqueCards = new HashSet<>();
-    for (KlondikeCard card : deck) {
-      if (card.getValue() < 1 || card.getValue() > 13) {
-        return false;
-      }
-      if (!uniqueCards.add(card)) {
-        return false;
-      }
+  @Override
+  public List<KlondikeCard> getDrawCards() {
+    checkStarted();
+    return engine.drawCards(numDraw);
+  }
+
+  @Override
+  public boolean isGameOver() {
+    checkStarted();
+    if (engine.foundationCount() == engine.cardCount()) {
+      return true;
     }
+    return !engine.canFoundAnyTop() && engine.drawSize() == 0 && engine.discardSize() == 0;
+  }
 
-    return uniqueCards.size() == 52;
+  @Override
+  public int getScore() {
+    checkStarted();
+    return engine.foundationCount();
   }
 
   /**
-   * Determines if the given card can be added to specified foundation.
-   *
-   * @param card the klondikeCard to check.
-   *
-   * @param foundationPile the index of the foundation pile
-   *
-   * @return true if card can be added to the foundation pile else false
+   * Checks if the game has been started.  If not throws an illegal state exception.
    */
-
-  private boolean canAddToFoundation(KlondikeCard card, int foundationPile) {
-    List<KlondikeCard> pile = foundations.get(foundationPile);
-    if (pile.isEmpty()) {
-      return card.getValue() == 1; // Ace
+  private void checkStarted() {
+    if (!started) {
+      throw new IllegalStateException("Game not started.");
     }
-    KlondikeCard top = pile.get(pile.size() - 1);
-    return top.getSuit() == card.getSuit() && card.getValue() == top.getValue() + 1;
   }
 
   /**
    * Validates the given deck is a proper klondike deck. That it doesn't contain duplicates
-   * and that each suit is present
+   * and that it is made of equal-length runs of one suit starting at Ace
    *
    * @param deck the list of Klodike Card Objects to validate
    * @throws IllegalArgumentException if deck is null,empty, has duplicates, or lacks an ace
@@ -416,27 +443,23 @@ public class BasicKlondike implements KlondikeModel<KlondikeCard> {
       }
     }
 
-    // Group by suit
-    Map<KlondikeCard.Suit, List<Integer>> bySuit = new java.util.HashMap<>();
-    for (KlondikeCard card : deck) {
-      bySuit.computeIfAbsent(card.getSuit(), k -> new ArrayList<>()).add(card.getValue());
-    }
-
-    // Each suit must contain an Ace (value 1)
-    for (Map.Entry<KlondikeCard.Suit, List<Integer>> entry : bySuit.entrySet()) {
-      List<Integer> values = entry.getValue();
-
-      // Remove duplicates and sort
-      Set<Integer> uniqueValues = new HashSet<>(values);
-      List<Integer> sortedValues = new ArrayList<>(uniqueValues);
-      Collections.sort(sortedValues);
-
-      // Check if Ace exists
-      if (!uniqueValues.contains(1)) {
-        throw new IllegalArgumentException("Invalid deck: suit "
-            + entry.getKey() + " has no valid run");
+    // Each suit present must contain an Ace (value 1)
+    int present = 0;
+    int withAce = 0;
+    for (int i = 0; i < deck.size(); i++) {
+      KlondikeCard card = deck.get(i);
+      present |= 1 << card.getSuit().ordinal();
+      if (card.getValue() == 1) {
+        withAce |= 1 << card.getSuit().ordinal();
       }
     }
+    int missing = present & ~withAce;
+    if (missing != 0) {
+      throw new IllegalArgumentException("Invalid deck: suit "
+          + KlondikeCard.Suit.values()[Integer.numberOfTrailingZeros(missing)]
+          + " has no valid run");
+    }
+    engine.checkRuns(deck);
   }
 
 }
@@ -0,0 +1,45 @@
+package klondike.model.hw02;
+
+/**
+ * A Klondike model that can play a whole sequence of moves as one all-or-nothing
+ * operation. Moves are encoded as single ints: bits 24..31 hold the kind, 16..23 the
+ * source cascade, 8..15 the card count and 0..7 the destination cascade or
+ * foundation, all 0-based.
+ */
+public interface BatchMovable {
+  /** Moves a run of cards between cascades. */
+  int PILE = 1;
+  /** Moves the first draw card onto a cascade. */
+  int DRAW = 2;
+  /** Moves the top card of a cascade onto a foundation. */
+  int PILE_TO_FOUNDATION = 3;
+  /** Moves the first draw card onto a foundation. */
+  int DRAW_TO_FOUNDATION = 4;
+  /** Discards the first draw card, recycling the discard pile if needed. */
+  int DISCARD = 5;
+
+  /**
+   * Encodes a move.
+   *
+   * @param kind one of the kind constants in this interface
+   * @param src the source cascade, or 0 when unused
+   * @param count the number of cards moved, or 0 when unused
+   * @param dest the destination cascade or foundation, or 0 when unused
+   * @return the encoded move
+   */
+  static int encode(int kind, int src, int count, int dest) {
+    return kind << 24 | (src & 0xFF) << 16 | (count & 0xFF) << 8 | dest & 0xFF;
+  }
+
+  /**
+   * Validates and plays the given moves in order. If any move is illegal, every
+   * move before it is undone and the game is left exactly as it was.
+   *
+   * @param encodedMoves the moves to play, encoded with {@link #encode}
+   * @return -1 if every move was played, otherwise the index of the first illegal
+   *     move
+   * @throws IllegalArgumentException if the array is null
+   * @throws IllegalStateException if the game hasn't been started yet
+   */
+  int applyMoves(int[] encodedMoves) throws IllegalStateException;
+}
@@ -0,0 +1,256 @@
+package klondike.model.hw02;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable copy of everything a player can see of a game at one moment. All
+ * fields are final and never change after construction, so a snapshot may be read
+ * from any number of threads without locking. Cascade cards are kept in one flat
+ * array indexed by pile offsets; face-down cards are not copied.
+ *
+ * @param <C> the type of card
+ */
+public final class BoardSnapshot<C extends Card> {
+  private final long version;
+  private final Card[] cascades;
+  private final int[] pileStart;
+  private final int[] visibleFrom;
+  private final int numRows;
+  private final Card[] foundations;
+  private final List<C> draw;
+  private final int numDraw;
+  private final int score;
+  private final boolean gameOver;
+
+  private BoardSnapshot(long version, Card[] cascades, int[] pileStart, int[] visibleFrom,
+                        Card[] foundations, List<C> draw, int numDraw, int score,
+                        boolean gameOver) {
+    this.version = version;
+    this.cascades = cascades;
+    this.pileStart = pileStart;
+    this.visibleFrom = visibleFrom;
+    int rows = 0;
+    for (int p = 0; p + 1 < pileStart.length; p++) {
+      rows = Math.max(rows, pileStart[p + 1] - pileStart[p]);
+    }
+    this.numRows = rows;
+    this.foundations = foundations;
+    this.draw = draw;
+    this.numDraw = numDraw;
+    this.score = score;
+    this.gameOver = gameOver;
+  }
+
+  /**
+   * Copies the visible state of a started game from its engine.
+   *
+   * @param engine the engine holding the game
+   * @param numDraw the number of draw cards shown
+   * @param gameOver whether the game is over
+   * @param version the number of this snapshot in its model's sequence
+   * @return the snapshot
+   */
+  public static BoardSnapshot<KlondikeCard> capture(KlondikeEngine engine, int numDraw,
+                                                    boolean gameOver, long version) {
+    int numPiles = engine.numPiles();
+    int[] pileStart = new int[numPiles + 1];
+    int[] visibleFrom = new int[numPiles];
+    for (int p = 0; p < numPiles; p++) {
+      pileStart[p + 1] = pileStart[p] + engine.height(p);
+      visibleFrom[p] = Math.max(0, engine.visibleFrom(p));
+    }
+    Card[] cascades = new Card[pileStart[numPiles]];
+    for (int p = 0; p < numPiles; p++) {
+      for (int i = visibleFrom[p]; i < engine.height(p); i++) {
+        cascades[pileStart[p] + i] = engine.card(p, i);
+      }
+    }
+    Card[] foundations = new Card[engine.numFoundations()];
+    for (int f = 0; f < foundations.length; f++) {
+      foundations[f] = engine.foundationTop(f);
+    }
+    return new BoardSnapshot<>(version, cascades, pileStart, visibleFrom, foundations,
+        Collections.unmodifiableList(engine.drawCards(numDraw)), numDraw,
+        engine.foundationCount(), gameOver);
+  }
+
+  /**
+   * Copies the visible state of a started game through its public getters, for
+   * models that do not publish snapshots themselves.
+   *
+   * @param model the started model
+   * @param <C> the type of card
+   * @return the snapshot, with version 0
+   * @throws IllegalStateException if the game hasn't been started yet
+   */
+  public static <C extends Card> BoardSnapshot<C> of(KlondikeModel<C> model) {
+    int numPiles = model.getNumPiles();
+    int[] pileStart = new int[numPiles + 1];
+    int[] visibleFrom = new int[numPiles];
+    for (int p = 0; p < numPiles; p++) {
+      int height = model.getPileHeight(p);
+      pileStart[p + 1] = pileStart[p] + height;
+      visibleFrom[p] = height;
+      while (visibleFrom[p] > 0 && model.isCardVisible(p, visibleFrom[p] - 1)) {
+        visibleFrom[p]--;
+      }
+    }
+    Card[] cascades = new Card[pileStart[numPiles]];
+    for (int p = 0; p < numPiles; p++) {
+      for (int i = visibleFrom[p]; i < pileStart[p + 1] - pileStart[p]; i++) {
+        cascades[pileStart[p] + i] = model.getCardAt(p, i);
+      }
+    }
+    Card[] foundations = new Card[model.getNumFoundations()];
+    for (int f = 0; f < foundations.length; f++) {
+      foundations[f] = model.getCardAt(f);
+    }
+    return new BoardSnapshot<>(0, cascades, pileStart, visibleFrom, foundations,
+        Collections.unmodifiableList(new ArrayList<>(model.getDrawCards())),
+        model.getNumDraw(), model.getScore(), model.isGameOver());
+  }
+
+  /**
+   * Returns this snapshot's number in its model's sequence; later snapshots of the
+   * same game have larger numbers.
+   *
+   * @return the version
+   */
+  public long version() {
+    return version;
+  }
+
+  /**
+   * Returns the number of cascades.
+   *
+   * @return the number of piles
+   */
+  public int getNumPiles() {
+    return visibleFrom.length;
+  }
+
+  /**
+   * Returns the height of the tallest cascade.
+   *
+   * @return the number of rows
+   */
+  public int getNumRows() {
+    return numRows;
+  }
+
+  /**
+   * Returns the number of cards in a cascade.
+   *
+   * @param pile the 0-based cascade index
+   * @return the height
+   * @throws IllegalArgumentException if the pile index is invalid
+   */
+  public int getPileHeight(int pile) {
+    checkPile(pile);
+    return pileStart[pile + 1] - pileStart[pile];
+  }
+
+  /**
+   * Returns whether a cascade card is face up.
+   *
+   * @param pile the 0-based cascade index
+   * @param card the 0-based card index, 0 being the deepest
+   * @return true if the card is visible
+   * @throws IllegalArgumentException if either index is invalid
+   */
+  public boolean isCardVisible(int pile, int card) {
+    checkCard(pile, card);
+    return card >= visibleFrom[pile];
+  }
+
+  /**
+   * Returns a face-up cascade card.
+   *
+   * @param pile the 0-based cascade index
+   * @param card the 0-based card index, 0 being the deepest
+   * @return the card
+   * @throws IllegalArgumentException if either index is invalid or the card is face down
+   */
+  @SuppressWarnings("unchecked")
+  public C getCardAt(int pile, int card) {
+    if (!isCardVisible(pile, card)) {
+      throw new IllegalArgumentException("Card is not visible");
+    }
+    return (C) cascades[pileStart[pile] + card];
+  }
+
+  /**
+   * Returns the top card of a foundation.
+   *
+   * @param foundation the 0-based foundation index
+   * @return the top card, or null if the foundation is empty
+   * @throws IllegalArgumentException if the foundation index is invalid
+   */
+  @SuppressWarnings("unchecked")
+  public C getCardAt(int foundation) {
+    if (foundation < 0 || foundation >= foundations.length) {
+      throw new IllegalArgumentException("Invalid foundation pile number: " + foundation);
+    }
+    return (C) foundations[foundation];
+  }
+
+  /**
+   * Returns the number of foundations.
+   *
+   * @return the foundation count
+   */
+  public int getNumFoundations() {
+    return foundations.length;
+  }
+
+  /**
+   * Returns the visible draw cards.
+   *
+   * @return an unmodifiable list of up to {@link #getNumDraw()} cards
+   */
+  public List<C> getDrawCards() {
+    return draw;
+  }
+
+  /**
+   * Returns the most draw cards shown at once.
+   *
+   * @return the number of draw cards
+   */
+  public int getNumDraw() {
+    return numDraw;
+  }
+
+  /**
+   * Returns the score, the number of cards on the foundations.
+   *
+   * @return the score
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Returns whether the game was over when the snapshot was taken.
+   *
+   * @return true if no more moves could be made
+   */
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  private void checkPile(int pile) {
+    if (pile < 0 || pile >= visibleFrom.length) {
+      throw new IllegalArgumentException("Invalid pile number: " + pile);
+    }
+  }
+
+  private void checkCard(int pile, int card) {
+    checkPile(pile);
+    if (card < 0 || card >= pileStart[pile + 1] - pileStart[pile]) {
+      throw new IllegalArgumentException("Invalid card number: " + card);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package klondike.model.hw02;
+
+/**
+ * A Klondike model whose visible board can be read as primitive card ids, without
+ * creating card objects or lists, for analysis code that reads the whole board
+ * often. A card id is {@code suit.ordinal() * 13 + (value - 1)}, as in {@link
+ * KlondikeRules#cardId}, so ids fit in a byte. Face-down cards read as {@link
+ * #HIDDEN}; like the object getters, these accessors never reveal them.
+ */
+public interface CardIdReadable {
+  /** Stands for an empty foundation or a missing draw card. */
+  int NO_CARD = -1;
+  /** Stands for a face-down cascade card. */
+  int HIDDEN = -2;
+
+  /**
+   * Returns the id of a cascade card.
+   *
+   * @param pileNum the cascade, 0-based
+   * @param card the card index, 0 being the deepest
+   * @return the card id, or {@link #HIDDEN} if the card is face down
+   * @throws IllegalStateException if the game has not been started
+   * @throws IllegalArgumentException if an index is out of range
+   */
+  int cardIdAt(int pileNum, int card);
+
+  /**
+   * Returns the id of a foundation's top card.
+   *
+   * @param foundationPile the foundation, 0-based
+   * @return the card id, or {@link #NO_CARD} if the foundation is empty
+   * @throws IllegalStateException if the game has not been started
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  int foundationTopId(int foundationPile);
+
+  /**
+   * Returns the id of a visible draw card, as listed by {@link
+   * KlondikeModel#getDrawCards}.
+   *
+   * @param index the card's position among the visible draw cards, 0-based
+   * @return the card id, or {@link #NO_CARD} if fewer cards are visible
+   * @throws IllegalStateException if the game has not been started
+   */
+  int drawCardId(int index);
+
+  /**
+   * Returns how many cards at the top of a cascade may move together: the visible
+   * cards that form one run. Moving any number of them from 1 to this length breaks
+   * no run rule, so only the destination remains to be checked.
+   *
+   * @param pileNum the cascade, 0-based
+   * @return the length of the top run, 0 for an empty cascade
+   * @throws IllegalStateException if the game has not been started
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  int runLength(int pileNum);
+
+  /**
+   * Copies the ids of a cascade's cards, deepest first, with {@link #HIDDEN} for
+   * face-down cards.
+   *
+   * @param pileNum the cascade, 0-based
+   * @param out the array to fill from index 0
+   * @return the number of cards copied, which is the cascade's height
+   * @throws IllegalStateException if the game has not been started
+   * @throws IllegalArgumentException if the index is out of range or the array is
+   *     shorter than the cascade
+   */
+  int copyPile(int pileNum, byte[] out);
+
+  /**
+   * Copies the ids of the visible draw cards, in the order of {@link
+   * KlondikeModel#getDrawCards}.
+   *
+   * @param out the array to fill from index 0, of at least {@link
+   *     KlondikeModel#getNumDraw} elements
+   * @return the number of cards copied
+   * @throws IllegalStateException if the game has not been started
+   * @throws IllegalArgumentException if the array is too short
+   */
+  int copyDrawCards(byte[] out);
+
+  /**
+   * Returns how many cards are left in the stock: the draw pile, visible cards
+   * included, and the discard pile. Like a physical stock, its size is public even
+   * though most of its cards are not.
+   *
+   * @return the number of cards in the draw and discard piles
+   * @throws IllegalStateException if the game has not been started
+   */
+  int stockSize();
+}
@@ -0,0 +1,78 @@
+package klondike.model.hw02;
+
+/**
+ * An immutable copy of a game position, usually a fresh deal, that models of the
+ * same variant can start from with {@link Resettable#reset(DealTemplate)}. The deck
+ * is validated and dealt once, when the template is captured; each start from it
+ * only copies the board. The captured position is never played on, so one template
+ * may be shared by any number of threads without locking.
+ */
+public final class DealTemplate {
+  private final KlondikeEngine engine;
+  private final int numDraw;
+
+  private DealTemplate(KlondikeEngine engine, int numDraw) {
+    this.engine = engine;
+    this.numDraw = numDraw;
+  }
+
+  /**
+   * Copies the game held by an engine.
+   *
+   * @param engine the engine holding a started game
+   * @param numDraw the number of draw cards shown
+   * @return the template
+   */
+  public static DealTemplate capture(KlondikeEngine engine, int numDraw) {
+    return new DealTemplate(engine.copy(), numDraw);
+  }
+
+  /**
+   * Returns the rules the position was played under.
+   *
+   * @return the rules
+   */
+  public KlondikeRules rules() {
+    return engine.rules();
+  }
+
+  /**
+   * Returns the number of cascades.
+   *
+   * @return the number of cascades
+   */
+  public int numPiles() {
+    return engine.numPiles();
+  }
+
+  /**
+   * Returns the number of draw cards shown.
+   *
+   * @return the number of draw cards
+   */
+  public int numDraw() {
+    return numDraw;
+  }
+
+  /**
+   * Returns the number of cards on the foundations in the captured position.
+   *
+   * @return the score a game started from this template begins with
+   */
+  public int score() {
+    return engine.foundationCount();
+  }
+
+  /**
+   * Returns the number of cards in play.
+   *
+   * @return the deck size
+   */
+  public int cardCount() {
+    return engine.cardCount();
+  }
+
+  KlondikeEngine engine() {
+    return engine;
+  }
+}
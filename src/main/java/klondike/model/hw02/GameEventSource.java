@@ -0,0 +1,23 @@
+package klondike.model.hw02;
+
+/**
+ * A Klondike model that reports its changes to registered {@link GameListener}s.
+ * Listeners are called on the thread that changes the game, in registration order.
+ */
+public interface GameEventSource {
+  /**
+   * Registers a listener. Registering the same listener twice makes it receive
+   * every event twice.
+   *
+   * @param listener the listener to add
+   * @throws IllegalArgumentException if the listener is null
+   */
+  void addListener(GameListener listener);
+
+  /**
+   * Unregisters one registration of a listener, if it is registered.
+   *
+   * @param listener the listener to remove
+   */
+  void removeListener(GameListener listener);
+}
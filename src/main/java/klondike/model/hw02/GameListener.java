@@ -0,0 +1,70 @@
+package klondike.model.hw02;
+
+/**
+ * Receives the changes a Klondike game goes through, one small event per change,
+ * so views, recorders and remote clients can follow a game without re-reading the
+ * whole board. Events carry only primitives and existing cards, so dispatching them
+ * never allocates. Every method does nothing by default. Piles, cards and
+ * foundations are 0-based, as in {@link KlondikeModel}.
+ */
+public interface GameListener {
+  /** Source index that stands for the draw pile in {@link #cardFounded}. */
+  int DRAW = -1;
+
+  /**
+   * Called after a new game has been dealt. Listeners should re-read the board.
+   */
+  default void gameStarted() {
+  }
+
+  /**
+   * Called after the top cards of one cascade moved onto another.
+   *
+   * @param src the source cascade
+   * @param numCards the number of cards moved
+   * @param dest the destination cascade
+   */
+  default void pileMoved(int src, int numCards, int dest) {
+  }
+
+  /**
+   * Called after the first draw card moved onto a cascade.
+   *
+   * @param dest the destination cascade
+   */
+  default void drawMoved(int dest) {
+  }
+
+  /**
+   * Called after a card moved onto a foundation.
+   *
+   * @param src the source cascade, or {@link #DRAW}
+   * @param foundation the foundation
+   * @param card the card, now the foundation's top card
+   */
+  default void cardFounded(int src, int foundation, KlondikeCard card) {
+  }
+
+  /**
+   * Called after a face-down cascade card was turned face up.
+   *
+   * @param pile the cascade
+   * @param index the card's index, 0 being the deepest
+   * @param card the card
+   */
+  default void cardFlipped(int pile, int index, KlondikeCard card) {
+  }
+
+  /**
+   * Called after the first draw card moved to the discard pile.
+   */
+  default void drawDiscarded() {
+  }
+
+  /**
+   * Called after the discard pile was turned back into the draw pile. A discard
+   * event always follows.
+   */
+  default void stockRecycled() {
+  }
+}
@@ -0,0 +1,1129 @@
+package klondike.model.hw02;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The shared game state and move logic behind the Klondike models, parameterised by
+ * a {@link KlondikeRules} descriptor. Cards are kept as their position in the dealt
+ * deck, with each position's card id looked up once at deal time, so every legality
+ * check is a few array reads and a table lookup.
+ *
+ * <p>Decks may hold any number of equal-length suit runs starting at Ace, so reduced
+ * decks and multi-deck games work alike, with one foundation per Ace. Every move
+ * costs the same whatever the deck size: the draw pile is read from a moving head
+ * and recycling swaps it with the discard pile, and each foundation sits in a list
+ * keyed by its top card, so the foundation accepting a card is found directly.
+ * The cascades are fixed-size segments of one preallocated array, each long enough
+ * for the whole deck, so moving a run of any length is one {@code arraycopy} and
+ * two height updates.
+ *
+ * <p>Move methods assume the matching {@code checkX} has returned {@link
+ * TryMovable#OK}; the models turn other results into the codes or exceptions they
+ * report. Each change is reported to the registered {@link GameListener}s; the
+ * listeners sit in an array that is replaced on registration, so dispatch is a
+ * plain loop that allocates nothing.
+ */
+public final class KlondikeEngine {
+  private static final int RANKS = 13;
+  private static final long ACES = 1L | 1L << RANKS | 1L << 2 * RANKS | 1L << 3 * RANKS;
+  private static final GameListener[] NO_LISTENERS = new GameListener[0];
+
+  private final KlondikeRules rules;
+  private final int[] copies = new int[KlondikeRules.DECK_SIZE];
+  private final int[] founded = new int[KlondikeRules.DECK_SIZE];
+  private final int[] topHead = new int[KlondikeRules.DECK_SIZE];
+  private final int[] topCount = new int[KlondikeRules.DECK_SIZE + 1];
+  private final int[] runCounts = new int[KlondikeRules.DECK_SIZE];
+  private KlondikeCard[] cards;
+  private int[] ids;
+  private int size;
+  private int[] cells;
+  private int[] runs;
+  private int stride;
+  private int[] heights;
+  private int[] faceDown;
+  private int numPiles;
+  private int[] draw;
+  private int drawPos;
+  private int drawEnd;
+  private int[] discard;
+  private int discardEnd;
+  private int[] foundationTop = new int[0];
+  private int[] foundationSize = new int[0];
+  private int[] topNext = new int[0];
+  private int[] topPrev = new int[0];
+  private int numFoundations;
+  private int firstEmpty;
+  private long tops;
+  private long foundable;
+  private int foundationCount;
+  private long complete;
+  private KlondikeEngine checkpoint;
+  private boolean sharedDeal;
+  private GameListener[] listeners = NO_LISTENERS;
+
+  /**
+   * Creates an engine for the given rules. It holds no cards until {@link #deal}.
+   *
+   * @param rules the rules to play by
+   */
+  public KlondikeEngine(KlondikeRules rules) {
+    if (rules == null) {
+      throw new IllegalArgumentException("Rules cannot be null");
+    }
+    this.rules = rules;
+  }
+
+  /**
+   * Deals the deck in order: one more card to each remaining cascade per row,
+   * starting at the first cascade, then the rest into the draw pile. The engine's
+   * arrays are reused whenever they are large enough, so dealing the same shape
+   * again allocates nothing.
+   *
+   * @param deck the cards in dealing order
+   * @param numPiles the number of cascades
+   * @throws IllegalArgumentException if the deck cannot fill the cascades or holds a
+   *     card whose value is not 1 to 13
+   */
+  public void deal(List<? extends KlondikeCard> deck, int numPiles) {
+    deal(deck, numPiles, null);
+  }
+
+  /**
+   * Deals the deck as {@link #deal(List, int)} does, after shuffling the engine's
+   * copy of it. The given list is not modified.
+   *
+   * @param deck the cards to deal
+   * @param numPiles the number of cascades
+   * @param random the source of the shuffle, or null to deal in list order
+   * @throws IllegalArgumentException if the deck cannot fill the cascades or holds a
+   *     card whose value is not 1 to 13
+   */
+  public void deal(List<? extends KlondikeCard> deck, int numPiles, Random random) {
+    int size = deck.size();
+    if (numPiles < 1 || numPiles * (numPiles + 1) / 2 > size) {
+      throw new IllegalArgumentException("Not enough cards for cascade setup");
+    }
+    if (cards == null || cards.length < size) {
+      cards = new KlondikeCard[size];
+      ids = new int[size];
+      draw = new int[size];
+      discard = new int[size];
+      cells = null;
+    } else if (sharedDeal) {
+      cards = new KlondikeCard[cards.length];
+      ids = new int[cards.length];
+    }
+    sharedDeal = false;
+    stride = cards.length;
+    if (cells == null || cells.length < numPiles * stride || heights.length < numPiles) {
+      cells = new int[numPiles * stride];
+      runs = new int[numPiles * stride];
+      heights = new int[numPiles];
+      faceDown = new int[numPiles];
+    }
+    for (int i = 0; i < size; i++) {
+      cards[i] = deck.get(i);
+    }
+    if (random != null) {
+      for (int i = size - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        KlondikeCard swap = cards[i];
+        cards[i] = cards[j];
+        cards[j] = swap;
+      }
+    }
+    Arrays.fill(copies, 0);
+    for (int i = 0; i < size; i++) {
+      ids[i] = KlondikeRules.cardId(cards[i]);
+      copies[ids[i]]++;
+    }
+    this.size = size;
+    this.numPiles = numPiles;
+    Arrays.fill(heights, 0);
+    int index = 0;
+    for (int row = 0; row < numPiles; row++) {
+      for (int p = row; p < numPiles; p++) {
+        cells[p * stride + heights[p]++] = index++;
+      }
+    }
+    Arrays.fill(topCount, 0);
+    tops = 0;
+    for (int p = 0; p < numPiles; p++) {
+      faceDown[p] = rules.dealFaceUp() ? 0 : heights[p] - 1;
+      for (int i = 0; i < heights[p]; i++) {
+        linkRun(p, i);
+      }
+      track(p);
+    }
+    drawPos = 0;
+    drawEnd = 0;
+    discardEnd = 0;
+    while (index < size) {
+      draw[drawEnd++] = index++;
+    }
+    resetFoundations();
+    for (GameListener listener : listeners) {
+      listener.gameStarted();
+    }
+  }
+
+  /**
+   * Starts a game from a copy of a template's position instead of dealing a deck:
+   * no card is validated, looked up or linked again, so starting many games of one
+   * deal costs little more than copying the board. The template is only read, so
+   * any number of engines may start from it at once. Listeners hear that a game
+   * started.
+   *
+   * @param deal the position to start from
+   * @throws IllegalArgumentException if the template is null or was captured under
+   *     other rules
+   */
+  public void deal(DealTemplate deal) {
+    if (deal == null) {
+      throw new IllegalArgumentException("Deal cannot be null");
+    }
+    if (deal.rules() != rules) {
+      throw new IllegalArgumentException("Deal was captured under other rules");
+    }
+    copyState(deal.engine(), this);
+    sharedDeal = true;
+    for (GameListener listener : listeners) {
+      listener.gameStarted();
+    }
+  }
+
+  /**
+   * Returns a new engine, without listeners, holding a copy of this engine's game.
+   * Both engines then share the dealt cards, so whichever deals again next takes
+   * fresh arrays for them.
+   */
+  KlondikeEngine copy() {
+    KlondikeEngine copy = new KlondikeEngine(rules);
+    copyState(this, copy);
+    sharedDeal = true;
+    copy.sharedDeal = true;
+    return copy;
+  }
+
+  /**
+   * Registers a listener for this engine's changes.
+   *
+   * @param listener the listener
+   * @throws IllegalArgumentException if the listener is null
+   */
+  public void addListener(GameListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener cannot be null");
+    }
+    GameListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+    grown[listeners.length] = listener;
+    listeners = grown;
+  }
+
+  /**
+   * Unregisters the first registration of a listener, if any.
+   *
+   * @param listener the listener
+   */
+  public void removeListener(GameListener listener) {
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i] == listener) {
+        GameListener[] shrunk = new GameListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, shrunk, 0, i);
+        System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+        listeners = shrunk.length == 0 ? NO_LISTENERS : shrunk;
+        return;
+      }
+    }
+  }
+
+  private void resetFoundations() {
+    numFoundations = 0;
+    complete = 0;
+    for (int id = 0; id < KlondikeRules.DECK_SIZE; id++) {
+      if (id % RANKS == 0) {
+        numFoundations += copies[id];
+      }
+      if (copies[id] == 0) {
+        complete |= 1L << id;
+      }
+    }
+    if (foundationTop.length < numFoundations) {
+      foundationTop = new int[numFoundations];
+      foundationSize = new int[numFoundations];
+      topNext = new int[numFoundations];
+      topPrev = new int[numFoundations];
+    }
+    Arrays.fill(foundationTop, -1);
+    Arrays.fill(foundationSize, 0);
+    Arrays.fill(founded, 0);
+    Arrays.fill(topHead, -1);
+    firstEmpty = 0;
+    foundable = numFoundations > 0 ? ACES : 0;
+    foundationCount = 0;
+  }
+
+  /**
+   * Checks that a deck consists of equal-length runs of single suits starting at
+   * Ace, as {@link KlondikeModel#startGame} requires. Does not change the game. A
+   * suit may appear in any number of runs, so reduced and multi-deck decks are valid.
+   *
+   * @param deck the deck to check
+   * @throws IllegalArgumentException if the deck is empty or not made of such runs
+   */
+  public void checkRuns(List<? extends KlondikeCard> deck) {
+    int[] counts = runCounts;
+    Arrays.fill(counts, 0);
+    int length = 0;
+    for (int i = 0; i < deck.size(); i++) {
+      KlondikeCard card = deck.get(i);
+      counts[KlondikeRules.cardId(card)]++;
+      length = Math.max(length, card.getValue());
+    }
+    int runs = 0;
+    for (int suit = 0; suit * RANKS < KlondikeRules.DECK_SIZE; suit++) {
+      int base = suit * RANKS;
+      runs += counts[base];
+      for (int v = 1; v < length; v++) {
+        if (counts[base + v] != counts[base]) {
+          throw new IllegalArgumentException(
+              "Deck must be equal-length runs of one suit starting at Ace");
+        }
+      }
+    }
+    if (runs == 0) {
+      throw new IllegalArgumentException("Deck must contain at least one Ace");
+    }
+  }
+
+  /**
+   * Returns the rules this engine plays by.
+   *
+   * @return the rules
+   */
+  public KlondikeRules rules() {
+    return rules;
+  }
+
+  /**
+   * Returns the number of cascades.
+   *
+   * @return the number of piles
+   */
+  public int numPiles() {
+    return numPiles;
+  }
+
+  /**
+   * Returns the number of cards in a cascade.
+   *
+   * @param pile the cascade index, which must be valid
+   * @return the height
+   */
+  public int height(int pile) {
+    return heights[pile];
+  }
+
+  /**
+   * Returns the height of the tallest cascade.
+   *
+   * @return the number of rows
+   */
+  public int numRows() {
+    int max = 0;
+    for (int p = 0; p < numPiles; p++) {
+      max = Math.max(max, heights[p]);
+    }
+    return max;
+  }
+
+  /**
+   * Returns a card in a cascade.
+   *
+   * @param pile the cascade index, which must be valid
+   * @param index the card index, 0 being the deepest, which must be valid
+   * @return the card
+   */
+  public KlondikeCard card(int pile, int index) {
+    return cards[cells[pile * stride + index]];
+  }
+
+  /**
+   * Returns the index of the deepest visible card in a cascade, which is the number
+   * of face-down cards below it: 0 when the rules deal face up, otherwise all but the
+   * top card of the deal until cards are taken off and the new top card is turned.
+   *
+   * @param pile the cascade index, which must be valid
+   * @return the first visible index
+   */
+  public int visibleFrom(int pile) {
+    return faceDown[pile];
+  }
+
+  /**
+   * Returns the number of cards at the top of a cascade that may move together: the
+   * visible cards above which each card continues the run of the card below. Any
+   * depth from 1 to this length passes the run checks of {@link #checkMovePile}, so
+   * the legal depths of a cascade need no scan.
+   *
+   * @param pile the cascade index, which must be valid
+   * @return the run length, 0 for an empty cascade
+   */
+  public int runLength(int pile) {
+    int h = heights[pile];
+    return h == 0 ? 0 : runs[pile * stride + h - 1];
+  }
+
+  /**
+   * Returns the number of foundations.
+   *
+   * @return the foundation count
+   */
+  public int numFoundations() {
+    return numFoundations;
+  }
+
+  /**
+   * Returns the number of cards dealt.
+   *
+   * @return the deck size
+   */
+  public int cardCount() {
+    return size;
+  }
+
+  /**
+   * Returns the top card of a foundation.
+   *
+   * @param foundation the foundation index, which must be valid
+   * @return the top card, or null if the foundation is empty
+   */
+  public KlondikeCard foundationTop(int foundation) {
+    int top = foundationTop[foundation];
+    return top < 0 ? null : cards[top];
+  }
+
+  /**
+   * Returns the number of cards on a foundation.
+   *
+   * @param foundation the foundation index, which must be valid
+   * @return the foundation size
+   */
+  public int foundationSize(int foundation) {
+    return foundationSize[foundation];
+  }
+
+  /**
+   * Returns the number of cards on all foundations.
+   *
+   * @return the total foundation size
+   */
+  public int foundationCount() {
+    return foundationCount;
+  }
+
+  /**
+   * Returns the number of cards in the draw pile.
+   *
+   * @return the draw pile size
+   */
+  public int drawSize() {
+    return drawEnd - drawPos;
+  }
+
+  /**
+   * Returns the number of cards in the discard pile.
+   *
+   * @return the discard pile size
+   */
+  public int discardSize() {
+    return discardEnd;
+  }
+
+  /**
+   * Returns the first cards of the draw pile.
+   *
+   * @param count the most cards to return
+   * @return a new list of up to {@code count} draw cards, in draw order
+   */
+  public List<KlondikeCard> drawCards(int count) {
+    int end = Math.min(drawEnd, drawPos + count);
+    List<KlondikeCard> result = new ArrayList<>(end - drawPos);
+    for (int i = drawPos; i < end; i++) {
+      result.add(cards[draw[i]]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the id of a cascade card, whether or not it is visible.
+   *
+   * @param pile the cascade index, which must be valid
+   * @param index the card index, 0 being the deepest, which must be valid
+   * @return the card id
+   */
+  public int cardId(int pile, int index) {
+    return ids[cells[pile * stride + index]];
+  }
+
+  /**
+   * Returns the id of a foundation's top card.
+   *
+   * @param foundation the foundation index, which must be valid
+   * @return the card id, or -1 if the foundation is empty
+   */
+  public int foundationTopId(int foundation) {
+    int top = foundationTop[foundation];
+    return top < 0 ? -1 : ids[top];
+  }
+
+  /**
+   * Returns the id of one of the first draw cards.
+   *
+   * @param index the card's position in the draw pile, 0 being the first
+   * @param count the number of draw cards shown
+   * @return the card id, or -1 if fewer than {@code index + 1} cards are shown
+   */
+  public int drawCardId(int index, int count) {
+    int i = drawPos + index;
+    return index >= 0 && index < count && i < drawEnd ? ids[draw[i]] : -1;
+  }
+
+  /**
+   * Copies the ids of a cascade's cards, deepest first, writing {@code hidden} in
+   * place of the cards below {@link #visibleFrom}.
+   *
+   * @param pile the cascade index, which must be valid
+   * @param out the array to fill, at least as long as the cascade
+   * @param hidden the value standing for a face-down card
+   * @return the cascade's height
+   */
+  public int copyPile(int pile, byte[] out, byte hidden) {
+    int base = pile * stride;
+    int h = heights[pile];
+    int visible = visibleFrom(pile);
+    for (int i = 0; i < h; i++) {
+      out[i] = i < visible ? hidden : (byte) ids[cells[base + i]];
+    }
+    return h;
+  }
+
+  /**
+   * Copies the ids of the first draw cards.
+   *
+   * @param count the number of draw cards shown
+   * @param out the array to fill, at least {@code count} long
+   * @return the number of cards copied
+   */
+  public int copyDrawCards(int count, byte[] out) {
+    int n = Math.min(count, drawEnd - drawPos);
+    for (int i = 0; i < n; i++) {
+      out[i] = (byte) ids[draw[drawPos + i]];
+    }
+    return n;
+  }
+
+  /**
+   * Returns whether the top cards of one cascade may move onto another.
+   *
+   * @param src the source cascade
+   * @param numCards the number of cards to move
+   * @param dest the destination cascade
+   * @return true if the move is legal
+   */
+  public boolean canMovePile(int src, int numCards, int dest) {
+    return checkMovePile(src, numCards, dest) == TryMovable.OK;
+  }
+
+  /**
+   * Checks moving the top cards of one cascade onto another: the indices are valid
+   * and distinct, the moved cards are visible and form one run, and the deepest of
+   * them may be placed on the destination.
+   *
+   * @param src the source cascade
+   * @param numCards the number of cards to move
+   * @param dest the destination cascade
+   * @return {@link TryMovable#OK} or the first rule the move breaks
+   */
+  public int checkMovePile(int src, int numCards, int dest) {
+    if (src < 0 || src >= numPiles || dest < 0 || dest >= numPiles) {
+      return TryMovable.NO_SUCH_PILE;
+    }
+    if (src == dest) {
+      return TryMovable.SAME_PILE;
+    }
+    if (numCards < 1 || numCards > heights[src]) {
+      return TryMovable.BAD_COUNT;
+    }
+    int start = heights[src] - numCards;
+    if (numCards > runLength(src)) {
+      return start < faceDown[src] ? TryMovable.NOT_VISIBLE : TryMovable.NOT_A_RUN;
+    }
+    return canPlace(cells[src * stride + start], dest)
+        ? TryMovable.OK : TryMovable.CANNOT_STACK;
+  }
+
+  /**
+   * Returns whether the first draw card may move onto a cascade.
+   *
+   * @param dest the destination cascade
+   * @return true if the move is legal
+   */
+  public boolean canMoveDraw(int dest) {
+    return checkMoveDraw(dest) == TryMovable.OK;
+  }
+
+  /**
+   * Checks moving the first draw card onto a cascade.
+   *
+   * @param dest the destination cascade
+   * @return {@link TryMovable#OK} or the first rule the move breaks
+   */
+  public int checkMoveDraw(int dest) {
+    if (dest < 0 || dest >= numPiles) {
+      return TryMovable.NO_SUCH_PILE;
+    }
+    if (drawPos == drawEnd) {
+      return TryMovable.NO_DRAW_CARD;
+    }
+    return canPlace(draw[drawPos], dest) ? TryMovable.OK : TryMovable.CANNOT_STACK;
+  }
+
+  /**
+   * Returns whether the top card of a cascade may move onto a foundation.
+   *
+   * @param src the source cascade
+   * @param foundation the destination foundation
+   * @return true if the move is legal
+   */
+  public boolean canMoveToFoundation(int src, int foundation) {
+    return checkMoveToFoundation(src, foundation) == TryMovable.OK;
+  }
+
+  /**
+   * Checks moving the top card of a cascade onto a foundation.
+   *
+   * @param src the source cascade
+   * @param foundation the destination foundation
+   * @return {@link TryMovable#OK} or the first rule the move breaks
+   */
+  public int checkMoveToFoundation(int src, int foundation) {
+    if (src < 0 || src >= numPiles) {
+      return TryMovable.NO_SUCH_PILE;
+    }
+    if (foundation < 0 || foundation >= numFoundations) {
+      return TryMovable.NO_SUCH_FOUNDATION;
+    }
+    if (heights[src] == 0) {
+      return TryMovable.EMPTY_PILE;
+    }
+    return canFound(top(src), foundation)
+        ? TryMovable.OK : TryMovable.CANNOT_FOUND;
+  }
+
+  /**
+   * Returns whether the first draw card may move onto a foundation.
+   *
+   * @param foundation the destination foundation
+   * @return true if the move is legal
+   */
+  public boolean canMoveDrawToFoundation(int foundation) {
+    return checkMoveDrawToFoundation(foundation) == TryMovable.OK;
+  }
+
+  /**
+   * Checks moving the first draw card onto a foundation.
+   *
+   * @param foundation the destination foundation
+   * @return {@link TryMovable#OK} or the first rule the move breaks
+   */
+  public int checkMoveDrawToFoundation(int foundation) {
+    if (foundation < 0 || foundation >= numFoundations) {
+      return TryMovable.NO_SUCH_FOUNDATION;
+    }
+    if (drawPos == drawEnd) {
+      return TryMovable.NO_DRAW_CARD;
+    }
+    return canFound(draw[drawPos], foundation) ? TryMovable.OK : TryMovable.CANNOT_FOUND;
+  }
+
+  /**
+   * Checks discarding the first draw card.
+   *
+   * @return {@link TryMovable#OK}, or {@link TryMovable#NOTHING_TO_DISCARD} if both
+   *     the draw and the discard pile are empty
+   */
+  public int checkDiscardDraw() {
+    return drawPos < drawEnd || discardEnd > 0 ? TryMovable.OK : TryMovable.NOTHING_TO_DISCARD;
+  }
+
+  /**
+   * Returns whether the top card of a cascade could go on any foundation.
+   *
+   * @param src the cascade index, which must be valid
+   * @return true if some foundation accepts the card
+   */
+  public boolean canFoundAnywhere(int src) {
+    return heights[src] > 0 && (foundable >>> ids[top(src)] & 1) != 0;
+  }
+
+  /**
+   * Returns whether the first draw card could go on any foundation.
+   *
+   * @return true if some foundation accepts the card
+   */
+  public boolean canFoundDrawAnywhere() {
+    return drawPos < drawEnd && (foundable >>> ids[draw[drawPos]] & 1) != 0;
+  }
+
+  /**
+   * Returns the cascades' top cards that a card may be placed on, as one AND of the
+   * card's {@link KlondikeRules#placeableOn} mask with the set of tops. Bit {@link
+   * KlondikeRules#EMPTY} is set if the card may go on an empty cascade and one
+   * exists. A zero result proves the card has no cascade move without visiting the
+   * cascades.
+   *
+   * @param id the id of the card to place
+   * @return a mask with bit {@code id} set for each top the card may cover
+   */
+  public long placementTargets(int id) {
+    return rules.placeableOn(id) & tops;
+  }
+
+  /**
+   * Returns the number of empty cascades.
+   *
+   * @return the number of cascades holding no card
+   */
+  public int emptyPiles() {
+    return topCount[KlondikeRules.EMPTY];
+  }
+
+  /**
+   * Returns whether the first draw card may go on some cascade.
+   *
+   * @return true if the draw card has a cascade move
+   */
+  public boolean canMoveDrawAnywhere() {
+    return drawPos < drawEnd && placementTargets(ids[draw[drawPos]]) != 0;
+  }
+
+  /**
+   * Returns whether the top card of some cascade may go on a foundation.
+   *
+   * @return true if some foundation accepts a cascade's top card
+   */
+  public boolean canFoundAnyTop() {
+    return (tops & foundable) != 0;
+  }
+
+  /**
+   * Moves the top cards of one cascade onto another.
+   *
+   * @param src the source cascade
+   * @param numCards the number of cards to move
+   * @param dest the destination cascade
+   */
+  public void movePile(int src, int numCards, int dest) {
+    untrack(src);
+    untrack(dest);
+    System.arraycopy(cells, src * stride + heights[src] - numCards,
+        cells, dest * stride + heights[dest], numCards);
+    heights[src] -= numCards;
+    int first = heights[dest];
+    heights[dest] += numCards;
+    linkRun(dest, first);
+    int base = dest * stride + first;
+    for (int i = 1; i < numCards; i++) {
+      runs[base + i] = runs[base] + i;
+    }
+    track(src);
+    track(dest);
+    for (GameListener listener : listeners) {
+      listener.pileMoved(src, numCards, dest);
+    }
+    flipped(src);
+  }
+
+  /**
+   * Moves the first draw card onto a cascade.
+   *
+   * @param dest the destination cascade
+   */
+  public void moveDraw(int dest) {
+    untrack(dest);
+    cells[dest * stride + heights[dest]] = draw[drawPos++];
+    linkRun(dest, heights[dest]++);
+    track(dest);
+    for (GameListener listener : listeners) {
+      listener.drawMoved(dest);
+    }
+  }
+
+  /**
+   * Moves the top card of a cascade onto a foundation.
+   *
+   * @param src the source cascade
+   * @param foundation the destination foundation
+   */
+  public void moveToFoundation(int src, int foundation) {
+    found(top(src), foundation);
+    untrack(src);
+    heights[src]--;
+    track(src);
+    founded(src, foundation);
+    flipped(src);
+  }
+
+  /**
+   * Moves the first draw card onto a foundation.
+   *
+   * @param foundation the destination foundation
+   */
+  public void moveDrawToFoundation(int foundation) {
+    found(draw[drawPos++], foundation);
+    founded(GameListener.DRAW, foundation);
+  }
+
+  /**
+   * Moves the first draw card to the discard pile, first turning the discard pile
+   * back into the draw pile if the draw pile is empty.
+   *
+   * @return false, changing nothing, if both piles are empty
+   */
+  public boolean discardDraw() {
+    if (drawPos == drawEnd) {
+      if (discardEnd == 0) {
+        return false;
+      }
+      int[] swap = draw;
+      draw = discard;
+      discard = swap;
+      drawPos = 0;
+      drawEnd = discardEnd;
+      discardEnd = 0;
+      for (GameListener listener : listeners) {
+        listener.stockRecycled();
+      }
+    }
+    discard[discardEnd++] = draw[drawPos++];
+    for (GameListener listener : listeners) {
+      listener.drawDiscarded();
+    }
+    return true;
+  }
+
+  /**
+   * Checks and plays a sequence of moves encoded as in {@link BatchMovable}. The
+   * state is copied to a checkpoint first, reusing its arrays, and copied back if a
+   * move is illegal, so a failed batch leaves the game unchanged. Listeners only
+   * hear about a batch once it has succeeded: it is checked silently, then rolled
+   * back and replayed with events.
+   *
+   * @param moves the encoded moves
+   * @return -1 if every move was played, otherwise the index of the first illegal move
+   */
+  public int applyMoves(int[] moves) {
+    if (checkpoint == null) {
+      checkpoint = new KlondikeEngine(rules);
+    }
+    copyState(this, checkpoint);
+    GameListener[] live = listeners;
+    listeners = NO_LISTENERS;
+    for (int i = 0; i < moves.length; i++) {
+      if (!apply(moves[i])) {
+        copyState(checkpoint, this);
+        listeners = live;
+        return i;
+      }
+    }
+    listeners = live;
+    if (live.length > 0) {
+      copyState(checkpoint, this);
+      for (int move : moves) {
+        apply(move);
+      }
+    }
+    return -1;
+  }
+
+  private boolean apply(int move) {
+    int src = move >>> 16 & 0xFF;
+    int count = move >>> 8 & 0xFF;
+    int dest = move & 0xFF;
+    switch (move >>> 24) {
+      case BatchMovable.PILE -> {
+        if (!canMovePile(src, count, dest)) {
+          return false;
+        }
+        movePile(src, count, dest);
+      }
+      case BatchMovable.DRAW -> {
+        if (!canMoveDraw(dest)) {
+          return false;
+        }
+        moveDraw(dest);
+      }
+      case BatchMovable.PILE_TO_FOUNDATION -> {
+        if (!canMoveToFoundation(src, dest)) {
+          return false;
+        }
+        moveToFoundation(src, dest);
+      }
+      case BatchMovable.DRAW_TO_FOUNDATION -> {
+        if (!canMoveDrawToFoundation(dest)) {
+          return false;
+        }
+        moveDrawToFoundation(dest);
+      }
+      case BatchMovable.DISCARD -> {
+        return discardDraw();
+      }
+      default -> {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Copies the game state of one engine into another. The dealt cards never change
+   * during play, so they are shared; everything else is copied into the target's
+   * own arrays, which are only replaced when too small.
+   */
+  private static void copyState(KlondikeEngine from, KlondikeEngine to) {
+    to.cards = from.cards;
+    to.ids = from.ids;
+    to.size = from.size;
+    to.numPiles = from.numPiles;
+    to.stride = from.stride;
+    if (to.cells == null || to.cells.length < from.numPiles * from.stride
+        || to.heights.length < from.numPiles) {
+      to.cells = new int[from.numPiles * from.stride];
+      to.runs = new int[from.numPiles * from.stride];
+      to.heights = new int[from.numPiles];
+      to.faceDown = new int[from.numPiles];
+    }
+    for (int p = 0; p < from.numPiles; p++) {
+      int base = p * from.stride;
+      System.arraycopy(from.cells, base, to.cells, base, from.heights[p]);
+      System.arraycopy(from.runs, base, to.runs, base, from.heights[p]);
+      to.heights[p] = from.heights[p];
+      to.faceDown[p] = from.faceDown[p];
+    }
+    if (to.draw == null || to.draw.length < from.size) {
+      to.draw = new int[from.size];
+      to.discard = new int[from.size];
+    }
+    System.arraycopy(from.draw, 0, to.draw, 0, from.drawEnd);
+    System.arraycopy(from.discard, 0, to.discard, 0, from.discardEnd);
+    to.drawPos = from.drawPos;
+    to.drawEnd = from.drawEnd;
+    to.discardEnd = from.discardEnd;
+    int n = from.numFoundations;
+    if (to.foundationTop.length < n) {
+      to.foundationTop = new int[n];
+      to.foundationSize = new int[n];
+      to.topNext = new int[n];
+      to.topPrev = new int[n];
+    }
+    System.arraycopy(from.foundationTop, 0, to.foundationTop, 0, n);
+    System.arraycopy(from.foundationSize, 0, to.foundationSize, 0, n);
+    System.arraycopy(from.topNext, 0, to.topNext, 0, n);
+    System.arraycopy(from.topPrev, 0, to.topPrev, 0, n);
+    System.arraycopy(from.copies, 0, to.copies, 0, KlondikeRules.DECK_SIZE);
+    System.arraycopy(from.founded, 0, to.founded, 0, KlondikeRules.DECK_SIZE);
+    System.arraycopy(from.topHead, 0, to.topHead, 0, KlondikeRules.DECK_SIZE);
+    System.arraycopy(from.topCount, 0, to.topCount, 0, KlondikeRules.DECK_SIZE + 1);
+    to.tops = from.tops;
+    to.foundable = from.foundable;
+    to.numFoundations = n;
+    to.firstEmpty = from.firstEmpty;
+    to.foundationCount = from.foundationCount;
+    to.complete = from.complete;
+  }
+
+  /**
+   * Repeatedly moves every cascade top and draw card that is safe to move (see
+   * {@link KlondikeRules#isSafeToFound}) onto the foundations.
+   *
+   * @return the number of cards moved
+   */
+  public int autoComplete() {
+    int moved = 0;
+    int before = -1;
+    while (moved != before) {
+      before = moved;
+      for (int p = 0; p < numPiles; p++) {
+        while (heights[p] > 0) {
+          int foundation = autoFound(top(p));
+          if (foundation < 0) {
+            break;
+          }
+          untrack(p);
+          heights[p]--;
+          track(p);
+          moved++;
+          founded(p, foundation);
+          flipped(p);
+        }
+      }
+      while (drawPos < drawEnd) {
+        int foundation = autoFound(draw[drawPos]);
+        if (foundation < 0) {
+          break;
+        }
+        drawPos++;
+        moved++;
+        founded(GameListener.DRAW, foundation);
+      }
+    }
+    return moved;
+  }
+
+  /**
+   * Moves a card to the foundations if that is safe.
+   *
+   * @return the foundation it went to, or -1 if it stayed
+   */
+  private int autoFound(int position) {
+    if (!rules.isSafeToFound(ids[position], complete)) {
+      return -1;
+    }
+    int foundation = foundationFor(position);
+    if (foundation >= 0) {
+      found(position, foundation);
+    }
+    return foundation;
+  }
+
+  private void founded(int src, int foundation) {
+    for (GameListener listener : listeners) {
+      listener.cardFounded(src, foundation, cards[foundationTop[foundation]]);
+    }
+  }
+
+  /**
+   * Turns the card uncovered by taking cards off a cascade face up, if it was face
+   * down, and reports it. A turned card starts a new run.
+   */
+  private void flipped(int pile) {
+    int index = heights[pile] - 1;
+    if (index < 0 || index >= faceDown[pile]) {
+      return;
+    }
+    faceDown[pile] = index;
+    runs[pile * stride + index] = 1;
+    for (GameListener listener : listeners) {
+      listener.cardFlipped(pile, index, cards[cells[pile * stride + index]]);
+    }
+  }
+
+  /**
+   * Sets the run length ending at a cascade card from the card below it: one more
+   * than the lower card's when both are visible and the card continues its run,
+   * otherwise 1.
+   */
+  private void linkRun(int pile, int index) {
+    int i = pile * stride + index;
+    runs[i] = index > faceDown[pile] && rules.continuesRun(ids[cells[i - 1]], ids[cells[i]])
+        ? runs[i - 1] + 1 : 1;
+  }
+
+  /**
+   * Removes a cascade's top card, or {@link KlondikeRules#EMPTY} if it is empty, from
+   * the set of cascade tops before the cascade changes.
+   */
+  private void untrack(int pile) {
+    int key = heights[pile] == 0 ? KlondikeRules.EMPTY : ids[top(pile)];
+    if (--topCount[key] == 0) {
+      tops &= ~(1L << key);
+    }
+  }
+
+  /**
+   * Adds a cascade's top card, or {@link KlondikeRules#EMPTY} if it is empty, to the
+   * set of cascade tops after the cascade changes.
+   */
+  private void track(int pile) {
+    int key = heights[pile] == 0 ? KlondikeRules.EMPTY : ids[top(pile)];
+    topCount[key]++;
+    tops |= 1L << key;
+  }
+
+  /**
+   * Returns the deck position of a non-empty cascade's top card.
+   */
+  private int top(int pile) {
+    return cells[pile * stride + heights[pile] - 1];
+  }
+
+  private boolean canPlace(int position, int dest) {
+    int h = heights[dest];
+    return rules.canStack(ids[position],
+        h == 0 ? KlondikeRules.EMPTY : ids[cells[dest * stride + h - 1]]);
+  }
+
+  private boolean canFound(int position, int foundation) {
+    int top = foundationTop[foundation];
+    int id = ids[position];
+    return top < 0 ? id % RANKS == 0 : id == ids[top] + 1 && id % RANKS != 0;
+  }
+
+  /**
+   * Returns the foundation that accepts a card: the first empty one for an Ace,
+   * otherwise one whose top card is the next lower card of the same suit.
+   */
+  private int foundationFor(int position) {
+    int id = ids[position];
+    if (id % RANKS == 0) {
+      return firstEmpty < numFoundations ? firstEmpty : -1;
+    }
+    return topHead[id - 1];
+  }
+
+  private void found(int position, int foundation) {
+    int id = ids[position];
+    int old = foundationTop[foundation];
+    if (old >= 0) {
+      int next = topNext[foundation];
+      int prev = topPrev[foundation];
+      if (prev >= 0) {
+        topNext[prev] = next;
+      } else {
+        topHead[ids[old]] = next;
+        if (next < 0) {
+          foundable &= ~(1L << ids[old] + 1);
+        }
+      }
+      if (next >= 0) {
+        topPrev[next] = prev;
+      }
+    }
+    foundationTop[foundation] = position;
+    topPrev[foundation] = -1;
+    topNext[foundation] = topHead[id];
+    if (topHead[id] >= 0) {
+      topPrev[topHead[id]] = foundation;
+    }
+    topHead[id] = foundation;
+    if (id % RANKS != RANKS - 1) {
+      foundable |= 1L << id + 1;
+    }
+    while (firstEmpty < numFoundations && foundationTop[firstEmpty] >= 0) {
+      firstEmpty++;
+    }
+    if (firstEmpty == numFoundations) {
+      foundable &= ~ACES;
+    }
+    foundationSize[foundation]++;
+    foundationCount++;
+    if (++founded[id] == copies[id]) {
+      complete |= 1L << id;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package klondike.model.hw02;
+
+/**
+ * A compact description of the rules in which Klondike variants differ, with the
+ * placement rules precomputed into lookup tables. Cards are identified by
+ * {@code suit.ordinal() * 13 + (value - 1)}, so a standard deck maps onto 0..51 and
+ * the set of cards that may go on a given card, or that a card may go on, fits in
+ * one {@code long}, with one spare bit for the empty cascade.
+ */
+public final class KlondikeRules {
+  /** Rules of the standard game. */
+  public static final KlondikeRules BASIC = new KlondikeRules(true, true, false, false);
+  /** Rules of Whitehead: same-color builds, suited runs, anything on an empty pile. */
+  public static final KlondikeRules WHITEHEAD = new KlondikeRules(false, false, true, true);
+
+  /** Number of distinct card ids. */
+  public static final int DECK_SIZE = 52;
+  /** Pseudo card id standing for an empty cascade in {@link #canStack}. */
+  public static final int EMPTY = DECK_SIZE;
+
+  private static final int RANKS = 13;
+
+  private final boolean alternatingColors;
+  private final boolean kingOnlyOnEmpty;
+  private final boolean suitedRuns;
+  private final boolean dealFaceUp;
+  private final long[] stackable = new long[DECK_SIZE + 1];
+  private final long[] placeable = new long[DECK_SIZE];
+  private final long[] runLinks = new long[DECK_SIZE];
+
+  /**
+   * Creates a rule descriptor and builds its lookup tables.
+   *
+   * @param alternatingColors true if builds alternate colors, false if they match
+   * @param kingOnlyOnEmpty true if only a King may be placed on an empty cascade
+   * @param suitedRuns true if several cards may only move together as a suited run
+   * @param dealFaceUp true if every cascade card is visible, false if only the top is
+   */
+  public KlondikeRules(boolean alternatingColors, boolean kingOnlyOnEmpty,
+                       boolean suitedRuns, boolean dealFaceUp) {
+    this.alternatingColors = alternatingColors;
+    this.kingOnlyOnEmpty = kingOnlyOnEmpty;
+    this.suitedRuns = suitedRuns;
+    this.dealFaceUp = dealFaceUp;
+    for (int onto = 0; onto < DECK_SIZE; onto++) {
+      for (int card = 0; card < DECK_SIZE; card++) {
+        if (value(card) != value(onto) - 1) {
+          continue;
+        }
+        if ((isRed(card) != isRed(onto)) == alternatingColors) {
+          stackable[onto] |= 1L << card;
+        }
+        if (suitedRuns ? suit(card) == suit(onto)
+            : (isRed(card) != isRed(onto)) == alternatingColors) {
+          runLinks[onto] |= 1L << card;
+        }
+      }
+      if (!kingOnlyOnEmpty || value(onto) == RANKS) {
+        stackable[EMPTY] |= 1L << onto;
+      }
+    }
+    for (int onto = 0; onto <= EMPTY; onto++) {
+      for (int card = 0; card < DECK_SIZE; card++) {
+        if ((stackable[onto] >>> card & 1) != 0) {
+          placeable[card] |= 1L << onto;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the id of a card.
+   *
+   * @param card the card
+   * @return the card id in 0..51
+   * @throws IllegalArgumentException if the card's value is not 1 to 13
+   */
+  public static int cardId(KlondikeCard card) {
+    if (card.getValue() < 1 || card.getValue() > RANKS) {
+      throw new IllegalArgumentException("Card value must be between 1 and 13");
+    }
+    return card.getSuit().ordinal() * RANKS + card.getValue() - 1;
+  }
+
+  /**
+   * Returns whether a card may be placed on another card, or on an empty cascade.
+   *
+   * @param card the id of the card to place
+   * @param onto the id of the card it would cover, or {@link #EMPTY}
+   * @return true if the build rules allow it
+   */
+  public boolean canStack(int card, int onto) {
+    return (stackable[onto] >>> card & 1) != 0;
+  }
+
+  /**
+   * Returns the set of cards that may be placed on a card, or on an empty cascade.
+   *
+   * @param onto the id of the covered card, or {@link #EMPTY}
+   * @return a mask with bit {@code id} set for each card that may be placed
+   */
+  public long stackableOn(int onto) {
+    return stackable[onto];
+  }
+
+  /**
+   * Returns the set of cards a card may be placed on, with bit {@link #EMPTY} set if
+   * it may go on an empty cascade. ANDed with the set of cascade tops, it gives every
+   * legal destination of the card at once.
+   *
+   * @param card the id of the card to place
+   * @return a mask with bit {@code id} set for each card it may cover
+   */
+  public long placeableOn(int card) {
+    return placeable[card];
+  }
+
+  /**
+   * Returns whether a card lying on another may move together with it.
+   *
+   * @param lower the id of the covered card
+   * @param upper the id of the card on top of it
+   * @return true if the two cards belong to one movable run
+   */
+  public boolean continuesRun(int lower, int upper) {
+    return (runLinks[lower] >>> upper & 1) != 0;
+  }
+
+  /**
+   * Returns whether moving a card to the foundations can never hurt: it is an Ace
+   * or a Two, or every card that could be built on it is already on the foundations.
+   *
+   * @param card the card id
+   * @param onFoundations a mask with bit {@code id} set for each card on a foundation
+   * @return true if the card is safe to move up
+   */
+  public boolean isSafeToFound(int card, long onFoundations) {
+    return value(card) <= 2 || (stackable[card] & ~onFoundations) == 0;
+  }
+
+  /**
+   * Returns whether builds must alternate colors (otherwise they must match colors).
+   *
+   * @return true if builds alternate colors
+   */
+  public boolean alternatingColors() {
+    return alternatingColors;
+  }
+
+  /**
+   * Returns whether only a King may be placed on an empty cascade.
+   *
+   * @return true if empty cascades only accept Kings
+   */
+  public boolean kingOnlyOnEmpty() {
+    return kingOnlyOnEmpty;
+  }
+
+  /**
+   * Returns whether a run of several cards must be a single suit to move together.
+   *
+   * @return true if multi-card moves require a suited run
+   */
+  public boolean suitedRuns() {
+    return suitedRuns;
+  }
+
+  /**
+   * Returns whether every cascade card is dealt face up.
+   *
+   * @return true if the deal is fully face up
+   */
+  public boolean dealFaceUp() {
+    return dealFaceUp;
+  }
+
+  private static int suit(int id) {
+    return id / RANKS;
+  }
+
+  private static int value(int id) {
+    return id % RANKS + 1;
+  }
+
+  private static boolean isRed(int id) {
+    return KlondikeCard.Suit.values()[suit(id)].isRed();
+  }
+}
@@ -0,0 +1,44 @@
+package klondike.model.hw02;
+
+import java.util.List;
+
+/**
+ * A Klondike model that can deal a new game into the storage of its previous one,
+ * so that simulations can play many games on one instance without producing
+ * garbage for each deal.
+ */
+public interface Resettable extends KlondikeModel<KlondikeCard> {
+  /**
+   * Deals a new game exactly as {@link #startGame} would, discarding any game in
+   * progress. Unlike {@code startGame} this may always be called again, and passing
+   * the same deck list each time avoids copying it.
+   *
+   * @param deck the cards to deal; the list is not modified
+   * @param shuffle whether to shuffle the cards before dealing
+   * @param numPiles the number of cascades
+   * @param numDraw the number of visible draw cards
+   * @throws IllegalArgumentException if the deck or the game shape is invalid
+   */
+  void reset(List<KlondikeCard> deck, boolean shuffle, int numPiles, int numDraw)
+      throws IllegalArgumentException;
+
+  /**
+   * Starts a new game from a copy of a captured position, discarding any game in
+   * progress. The template is only read, so many models may start from one template
+   * at once, each then playing its own copy.
+   *
+   * @param deal the position to start from
+   * @throws IllegalArgumentException if the template is null or belongs to another
+   *     variant
+   */
+  void reset(DealTemplate deal) throws IllegalArgumentException;
+
+  /**
+   * Captures the current game as a template for {@link #reset(DealTemplate)}. Later
+   * moves on this model do not change the template.
+   *
+   * @return the template
+   * @throws IllegalStateException if the game has not been started
+   */
+  DealTemplate captureDeal() throws IllegalStateException;
+}
@@ -0,0 +1,28 @@
+package klondike.model.hw02;
+
+/**
+ * A Klondike model that can publish an immutable {@link BoardSnapshot} after every
+ * change, so other threads can render or analyse the game without locking it. The
+ * snapshot is swapped in through a single volatile reference, so a reader always
+ * sees a complete board from one moment of the game.
+ *
+ * @param <C> the type of card
+ */
+public interface SnapshotPublisher<C extends Card> {
+  /**
+   * Turns publishing on or off. Publishing copies the visible board after each
+   * change, so it is off by default to keep play allocation-free. Call this from the
+   * thread that plays the game.
+   *
+   * @param publishing true to publish a snapshot now, if a game is started, and after
+   *     every later change
+   */
+  void setPublishing(boolean publishing);
+
+  /**
+   * Returns the most recently published snapshot. Safe to call from any thread.
+   *
+   * @return the latest snapshot, or null if none has been published
+   */
+  BoardSnapshot<C> snapshot();
+}
@@ -0,0 +1,147 @@
+package klondike.model.hw02;
+
+/**
+ * A Klondike model that reports illegal moves as result codes instead of exceptions,
+ * for callers that probe many moves, such as bots and move generators. Each
+ * {@code canX} query returns {@link #OK} or the first rule the move breaks, changing
+ * nothing; each {@code tryX} makes the move when it is legal and returns the same
+ * code. Neither throws, whatever the arguments.
+ */
+public interface TryMovable {
+  /** The move is legal. */
+  int OK = 0;
+  /** The game has not been started. */
+  int NOT_STARTED = 1;
+  /** A cascade index is out of range. */
+  int NO_SUCH_PILE = 2;
+  /** A foundation index is out of range. */
+  int NO_SUCH_FOUNDATION = 3;
+  /** The source and destination cascades are the same. */
+  int SAME_PILE = 4;
+  /** The number of cards is not between 1 and the source cascade's height. */
+  int BAD_COUNT = 5;
+  /** The source cascade is empty. */
+  int EMPTY_PILE = 6;
+  /** The draw pile is empty. */
+  int NO_DRAW_CARD = 7;
+  /** Some of the cards to move are face down. */
+  int NOT_VISIBLE = 8;
+  /** The cards to move do not form a single run. */
+  int NOT_A_RUN = 9;
+  /** The destination cascade does not accept the card. */
+  int CANNOT_STACK = 10;
+  /** The foundation does not accept the card. */
+  int CANNOT_FOUND = 11;
+  /** Both the draw and the discard pile are empty. */
+  int NOTHING_TO_DISCARD = 12;
+
+  /**
+   * Describes a result code for players.
+   *
+   * @param result a result code
+   * @return a short sentence naming the broken rule, or {@code "OK"}
+   */
+  static String describe(int result) {
+    return switch (result) {
+      case OK -> "OK";
+      case NOT_STARTED -> "Game not started";
+      case NO_SUCH_PILE -> "No such pile";
+      case NO_SUCH_FOUNDATION -> "No such foundation";
+      case SAME_PILE -> "Cannot move to same pile";
+      case BAD_COUNT -> "Invalid number of cards";
+      case EMPTY_PILE -> "Source pile is empty";
+      case NO_DRAW_CARD -> "No draw cards available";
+      case NOT_VISIBLE -> "Cannot move face-down cards";
+      case NOT_A_RUN -> "Cards to move must form a run";
+      case CANNOT_STACK -> "Card cannot be placed on that pile";
+      case CANNOT_FOUND -> "Foundation needs an Ace or the next card of its suit";
+      case NOTHING_TO_DISCARD -> "No cards to discard or recycle";
+      default -> "Unknown result " + result;
+    };
+  }
+
+  /**
+   * Checks moving the top cards of one cascade onto another.
+   *
+   * @param srcPile the source cascade, 0-based
+   * @param numCards the number of cards to move
+   * @param destPile the destination cascade, 0-based
+   * @return {@link #OK} or the first rule the move breaks
+   */
+  int canMovePile(int srcPile, int numCards, int destPile);
+
+  /**
+   * Checks moving the first draw card onto a cascade.
+   *
+   * @param destPile the destination cascade, 0-based
+   * @return {@link #OK} or the first rule the move breaks
+   */
+  int canMoveDraw(int destPile);
+
+  /**
+   * Checks moving the top card of a cascade onto a foundation.
+   *
+   * @param srcPile the source cascade, 0-based
+   * @param foundationPile the destination foundation, 0-based
+   * @return {@link #OK} or the first rule the move breaks
+   */
+  int canMoveToFoundation(int srcPile, int foundationPile);
+
+  /**
+   * Checks moving the first draw card onto a foundation.
+   *
+   * @param foundationPile the destination foundation, 0-based
+   * @return {@link #OK} or the first rule the move breaks
+   */
+  int canMoveDrawToFoundation(int foundationPile);
+
+  /**
+   * Checks discarding the first draw card.
+   *
+   * @return {@link #OK} or the first rule the move breaks
+   */
+  int canDiscardDraw();
+
+  /**
+   * Moves the top cards of one cascade onto another if that is legal.
+   *
+   * @param srcPile the source cascade, 0-based
+   * @param numCards the number of cards to move
+   * @param destPile the destination cascade, 0-based
+   * @return {@link #OK} if the cards moved, otherwise the first rule the move breaks
+   */
+  int tryMovePile(int srcPile, int numCards, int destPile);
+
+  /**
+   * Moves the first draw card onto a cascade if that is legal.
+   *
+   * @param destPile the destination cascade, 0-based
+   * @return {@link #OK} if the card moved, otherwise the first rule the move breaks
+   */
+  int tryMoveDraw(int destPile);
+
+  /**
+   * Moves the top card of a cascade onto a foundation if that is legal.
+   *
+   * @param srcPile the source cascade, 0-based
+   * @param foundationPile the destination foundation, 0-based
+   * @return {@link #OK} if the card moved, otherwise the first rule the move breaks
+   */
+  int tryMoveToFoundation(int srcPile, int foundationPile);
+
+  /**
+   * Moves the first draw card onto a foundation if that is legal.
+   *
+   * @param foundationPile the destination foundation, 0-based
+   * @return {@link #OK} if the card moved, otherwise the first rule the move breaks
+   */
+  int tryMoveDrawToFoundation(int foundationPile);
+
+  /**
+   * Discards the first draw card, recycling the discard pile first if the draw pile
+   * is empty, if there is a card to discard.
+   *
+   * @return {@link #OK} if a card was discarded, otherwise the rule the move breaks
+   */
+  int tryDiscardDraw();
+}
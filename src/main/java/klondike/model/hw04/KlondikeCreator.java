@@ -1,13 +1,25 @@
 package klondike.model.hw04;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.CardImpl;
 import klondike.model.hw02.KlondikeCard;
 import klondike.model.hw02.KlondikeModel;
+import klondike.model.hw02.KlondikeRules;
+import klondike.model.hw02.Resettable;
 
 /**
- * Factory for creating different Klondike game variants.
+ * Factory for creating different Klondike game variants. Simulations can also borrow
+ * models from a per-thread pool and deal into them with {@link Resettable#reset},
+ * so worker threads reuse a few instances instead of creating one per game.
  */
 public final class KlondikeCreator {
+  private static final int POOL_LIMIT = 64;
+  private static final ThreadLocal<EnumMap<GameType, ArrayDeque<Resettable>>> POOLS =
+      ThreadLocal.withInitial(() -> new EnumMap<>(GameType.class));
 
   private KlondikeCreator() {
 
@@ -16,7 +28,25 @@ public final class KlondikeCreator {
   /**
    * preventing instantiation.
    */
-  public enum GameType { BASIC, WHITEHEAD }
+  public enum GameType {
+    BASIC(KlondikeRules.BASIC),
+    WHITEHEAD(KlondikeRules.WHITEHEAD);
+
+    private final KlondikeRules rules;
+
+    GameType(KlondikeRules rules) {
+      this.rules = rules;
+    }
+
+    /**
+     * Returns the rule descriptor the game type's model plays by.
+     *
+     * @return the rules
+     */
+    public KlondikeRules rules() {
+      return rules;
+    }
+  }
 
   /**
    * Checks which game type is entered and then calls the proper class.
@@ -26,6 +56,88 @@ public final class KlondikeCreator {
    * @return calls the proper class or throws Illegal argument exception.
    */
   public static KlondikeModel<KlondikeCard> create(GameType type) {
+    return newModel(type);
+  }
+
+  /**
+   * Builds a deck of whole suit runs: for each of the given number of decks, every
+   * suit from Ace up to the given rank. One deck up to King is the standard deck;
+   * fewer ranks give reduced decks for exhaustive analysis, and more decks give
+   * multi-deck games with one foundation per Ace.
+   *
+   * @param decks the number of copies of each run
+   * @param ranks the highest value in each run, from 1 to 13
+   * @return the deck, ordered by deck, then value, then suit
+   * @throws IllegalArgumentException if either count is out of range
+   */
+  public static List<KlondikeCard> createDeck(int decks, int ranks) {
+    if (decks < 1 || ranks < 1 || ranks > 13) {
+      throw new IllegalArgumentException("Need at least one deck and 1 to 13 ranks");
+    }
+    List<KlondikeCard> deck = new ArrayList<>(decks * ranks * 4);
+    for (int d = 0; d < decks; d++) {
+      for (int v = 1; v <= ranks; v++) {
+        for (KlondikeCard.Suit suit : KlondikeCard.Suit.values()) {
+          deck.add(new CardImpl(suit, v));
+        }
+      }
+    }
+    return deck;
+  }
+
+  /**
+   * Takes a model of the given type from the calling thread's pool, creating one if
+   * the pool is empty. The model may still hold the game it was released with, so
+   * deal a new one with {@link Resettable#reset}.
+   *
+   * @param type the game type
+   * @return a model of that type
+   */
+  public static Resettable acquire(GameType type) {
+    Resettable model = pool(type).pollLast();
+    return model != null ? model : newModel(type);
+  }
+
+  /**
+   * Returns a model to the calling thread's pool for a later {@link #acquire}.
+   * Models beyond the pool's limit are left to the garbage collector.
+   *
+   * @param type the game type the model was acquired as
+   * @param model the model, which the caller must no longer use
+   * @throws IllegalArgumentException if the model is null, is not the model class
+   *     of the given type or is already in the pool
+   */
+  public static void release(GameType type, Resettable model) {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    if (model.getClass() != modelClass(type)) {
+      throw new IllegalArgumentException("Not a " + type + " model: "
+          + model.getClass().getSimpleName());
+    }
+    ArrayDeque<Resettable> pool = pool(type);
+    for (Resettable pooled : pool) {
+      if (pooled == model) {
+        throw new IllegalArgumentException("Model has already been released");
+      }
+    }
+    if (pool.size() < POOL_LIMIT) {
+      pool.addLast(model);
+    }
+  }
+
+  private static ArrayDeque<Resettable> pool(GameType type) {
+    return POOLS.get().computeIfAbsent(type, t -> new ArrayDeque<>());
+  }
+
+  private static Class<? extends Resettable> modelClass(GameType type) {
+    return switch (type) {
+      case BASIC -> BasicKlondike.class;
+      case WHITEHEAD -> WhiteheadKlondike.class;
+    };
+  }
+
+  private static Resettable newModel(GameType type) {
     return switch (type) {
       case BASIC -> new BasicKlondike();
       case WHITEHEAD -> new WhiteheadKlondike();
@@ -1,31 +1,44 @@
 package klondike.model.hw04;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import klondike.model.hw02.AutoCompletable;
+import klondike.model.hw02.BatchMovable;
+import klondike.model.hw02.BoardSnapshot;
+import klondike.model.hw02.CardIdReadable;
 import klondike.model.hw02.CardImpl;
+import klondike.model.hw02.DealTemplate;
+import klondike.model.hw02.GameEventSource;
+import klondike.model.hw02.GameListener;
 import klondike.model.hw02.KlondikeCard;
-import klondike.model.hw02.KlondikeModel;
+import klondike.model.hw02.KlondikeEngine;
+import klondike.model.hw02.KlondikeRules;
+import klondike.model.hw02.Resettable;
+import klondike.model.hw02.SnapshotPublisher;
+import klondike.model.hw02.TryMovable;
 
 /**
  * Represents the Whitehead Klondike variant of Klondike Solitaire.
  * Differs from standard game by making all cards face-up and enforcing
  * the same-color builds instead of alternating colors.
  */
-public class WhiteheadKlondike implements KlondikeModel<KlondikeCard> {
+public class WhiteheadKlondike implements Resettable, AutoCompletable, BatchMovable,
+    TryMovable, CardIdReadable, SnapshotPublisher<KlondikeCard>, GameEventSource {
 
-  private List<List<KlondikeCard>> cascades;
-  private List<Integer> visibleFromIndices;
-  private List<List<KlondikeCard>> foundations;
-  private List<KlondikeCard> drawPile;
-  private List<KlondikeCard> discardPile;
+  private final KlondikeEngine engine;
+  private final Random random = new Random();
   private boolean started;
   private int numDraw;
+  private volatile BoardSnapshot<KlondikeCard> published;
+  private boolean publishing;
+  private long version;
 
   /**
    * Creates an empty Whitehead Klondike game.
    */
   public WhiteheadKlondike() {
+    this.engine = new KlondikeEngine(KlondikeRules.WHITEHEAD);
     this.started = false;
   }
 
@@ -45,6 +58,11 @@ public class WhiteheadKlondike implements KlondikeModel<KlondikeCard> {
     if (started) {
       throw new IllegalStateException("Game already started");
     }
+    reset(deck, shuffle, numPiles, numDraw);
+  }
+
+  @Override
+  public void reset(List<KlondikeCard> deck, boolean shuffle, int numPiles, int numDraw) {
     if (deck == null) {
       throw new IllegalArgumentException("Deck cannot be null");
     }
@@ -59,213 +77,196 @@ public class WhiteheadKlondike implements KlondikeModel<KlondikeCard> {
     if (cardsNeeded > deck.size()) {
       throw new IllegalArgumentException("Not enough cards for " + numPiles + " piles");
     }
-    List<KlondikeCard> workingDeck = new ArrayList<>(deck);
-    if (shuffle) {
-      Collections.shuffle(workingDeck);
-    }
-    cascades = new ArrayList<>();
-    visibleFromIndices = new ArrayList<>();
-    for (int i = 0; i < numPiles; i++) {
-      cascades.add(new ArrayList<>());
-      visibleFromIndices.add(0);
-    }
-    foundations = new ArrayList<>();
-    for (int i = 0; i < 4; i++) {
-      foundations.add(new ArrayList<>());
-    }
-
-    int index = 0;
-    for (int row = 0; row < numPiles; row++) {
-      for (int pile = row; pile < numPiles; pile++) {
-        if (index >= workingDeck.size()) {
-          throw new IllegalArgumentException("Not enough cards for cascade setup");
-        }
-        cascades.get(pile).add(workingDeck.get(index));
-        index++;
-      }
-    }
-
-    drawPile = new ArrayList<>();
-    while (index < workingDeck.size()) {
-      drawPile.add(workingDeck.get(index));
-      index++;
-    }
-
-    discardPile = new ArrayList<>();
+    engine.deal(deck, numPiles, shuffle ? random : null);
     started = true;
     this.numDraw = numDraw;
+    publish();
   }
 
   @Override
-  public void movePile(int srcPile, int numCards, int destPile) {
-    ensureStarted();
-    checkPileIndex(srcPile);
-    checkPileIndex(destPile);
+  public void reset(DealTemplate deal) {
+    engine.deal(deal);
+    numDraw = deal.numDraw();
+    started = true;
+    publish();
+  }
 
-    if (srcPile == destPile) {
-      throw new IllegalArgumentException("Cannot move to same pile");
-    }
+  @Override
+  public DealTemplate captureDeal() {
+    ensureStarted();
+    return DealTemplate.capture(engine, numDraw);
+  }
 
-    List<KlondikeCard> source = cascades.get(srcPile);
-    final List<KlondikeCard> dest = cascades.get(destPile);
+  @Override
+  public void movePile(int srcPile, int numCards, int destPile) {
+    check(tryMovePile(srcPile, numCards, destPile));
+  }
 
-    if (numCards < 1 || numCards > source.size()) {
-      throw new IllegalArgumentException("Invalid number of cards");
-    }
+  @Override
+  public void moveDraw(int destPile) {
+    check(tryMoveDraw(destPile));
+  }
 
-    int startIdx = source.size() - numCards;
-    if (startIdx < visibleFromIndices.get(srcPile)) {
-      throw new IllegalStateException("Cannot move invisible cards");
-    }
-    KlondikeCard firstCard = source.get(startIdx);
-
-    if (dest.isEmpty()) {
-      // Intentionally left empty in original code.
-    } else {
-      KlondikeCard topDest = dest.get(dest.size() - 1);
-      if (!isSameColor(firstCard, topDest)) {
-        throw new IllegalStateException("Must be same color in Whitehead");
-      }
-      if (firstCard.getValue() != topDest.getValue() - 1) {
-        throw new IllegalStateException("Must be one value lower");
-      }
-    }
+  @Override
+  public void moveToFoundation(int srcPile, int foundationPile) {
+    check(tryMoveToFoundation(srcPile, foundationPile));
+  }
 
-    if (numCards > 1) {
-      for (int i = startIdx + 1; i < source.size(); i++) {
-        KlondikeCard currentCard = source.get(i);
-        KlondikeCard previousCard = source.get(i - 1);
+  @Override
+  public void moveDrawToFoundation(int foundationPile) {
+    check(tryMoveDrawToFoundation(foundationPile));
+  }
 
-        if (currentCard.getSuit() != previousCard.getSuit()) {
-          throw new IllegalStateException("Cards must suit in Whitehead");
-        }
+  @Override
+  public void discardDraw() {
+    check(tryDiscardDraw());
+  }
 
-        if (currentCard.getValue() != previousCard.getValue() - 1) {
-          throw new IllegalStateException("Cards must be in descending order");
-        }
-      }
-    }
+  @Override
+  public int canMovePile(int srcPile, int numCards, int destPile) {
+    return started ? engine.checkMovePile(srcPile, numCards, destPile) : NOT_STARTED;
+  }
 
-    List<KlondikeCard> cardsToMove = new ArrayList<>(source.subList(startIdx, source.size()));
-    source.subList(startIdx, source.size()).clear();
-    dest.addAll(cardsToMove);
+  @Override
+  public int canMoveDraw(int destPile) {
+    return started ? engine.checkMoveDraw(destPile) : NOT_STARTED;
   }
 
   @Override
-  public void moveDraw(int destPile) {
-    ensureStarted();
-    checkPileIndex(destPile);
+  public int canMoveToFoundation(int srcPile, int foundationPile) {
+    return started ? engine.checkMoveToFoundation(srcPile, foundationPile) : NOT_STARTED;
+  }
 
-    if (drawPile.isEmpty()) {
-      throw new IllegalStateException("No draw cards available");
-    }
+  @Override
+  public int canMoveDrawToFoundation(int foundationPile) {
+    return started ? engine.checkMoveDrawToFoundation(foundationPile) : NOT_STARTED;
+  }
 
-    KlondikeCard drawCard = drawPile.get(0);
-    List<KlondikeCard> dest = cascades.get(destPile);
+  @Override
+  public int canDiscardDraw() {
+    return started ? engine.checkDiscardDraw() : NOT_STARTED;
+  }
 
-    if (dest.isEmpty()) {
-      // Intentionally left empty in original code.
-    } else {
-      KlondikeCard topDest = dest.get(dest.size() - 1);
-      if (!isSameColor(drawCard, topDest)) {
-        throw new IllegalStateException("Must be same color");
-      }
-      if (drawCard.getValue() != topDest.getValue() - 1) {
-        throw new IllegalStateException("Must be one value lower");
-      }
+  @Override
+  public int tryMovePile(int srcPile, int numCards, int destPile) {
+    int result = canMovePile(srcPile, numCards, destPile);
+    if (result == OK) {
+      engine.movePile(srcPile, numCards, destPile);
+      publish();
     }
-
-    dest.add(drawPile.remove(0));
+    return result;
   }
 
   @Override
-  public void moveToFoundation(int srcPile, int foundationPile) {
-    ensureStarted();
-    checkPileIndex(srcPile);
+  public int tryMoveDraw(int destPile) {
+    int result = canMoveDraw(destPile);
+    if (result == OK) {
+      engine.moveDraw(destPile);
+      publish();
+    }
+    return result;
+  }
 
-    if (foundationPile < 0 || foundationPile >= foundations.size()) {
-      throw new IllegalArgumentException("Invalid foundation pile");
+  @Override
+  public int tryMoveToFoundation(int srcPile, int foundationPile) {
+    int result = canMoveToFoundation(srcPile, foundationPile);
+    if (result == OK) {
+      engine.moveToFoundation(srcPile, foundationPile);
+      publish();
     }
+    return result;
+  }
 
-    List<KlondikeCard> source = cascades.get(srcPile);
-    if (source.isEmpty()) {
-      throw new IllegalStateException("Source pile is empty");
+  @Override
+  public int tryMoveDrawToFoundation(int foundationPile) {
+    int result = canMoveDrawToFoundation(foundationPile);
+    if (result == OK) {
+      engine.moveDrawToFoundation(foundationPile);
+      publish();
     }
-    KlondikeCard card = source.get(source.size() - 1);
-    List<KlondikeCard> foundation = foundations.get(foundationPile);
-    if (foundation.isEmpty()) {
-      if (card.getValue() != 1) { // Must be Ace
-        throw new IllegalStateException("Foundation must start with Ace");
-      }
-    } else {
-      KlondikeCard topFoundation = foundation.get(foundation.size() - 1);
-      if (card.getSuit() != topFoundation.getSuit()) {
-        throw new IllegalStateException("Must be same suit");
-      }
-      if (card.getValue() != topFoundation.getValue() + 1) {
-        throw new IllegalStateException("Must be one value higher");
-      }
+    return result;
+  }
+
+  @Override
+  public int tryDiscardDraw() {
+    int result = canDiscardDraw();
+    if (result == OK) {
+      engine.discardDraw();
+      publish();
     }
-    foundation.add(source.remove(source.size() - 1));
+    return result;
   }
 
   @Override
-  public void moveDrawToFoundation(int foundationPile) {
+  public int applyMoves(int[] encodedMoves) {
     ensureStarted();
-
-    if (foundationPile < 0 || foundationPile >= foundations.size()) {
-      throw new IllegalArgumentException("Invalid foundation pile");
+    if (encodedMoves == null) {
+      throw new IllegalArgumentException("Moves cannot be null");
     }
-
-    if (drawPile.isEmpty()) {
-      throw new IllegalStateException("No draw cards available");
+    int failed = engine.applyMoves(encodedMoves);
+    if (failed < 0) {
+      publish();
     }
+    return failed;
+  }
 
-    KlondikeCard card = drawPile.get(0);
-    List<KlondikeCard> foundation = foundations.get(foundationPile);
+  @Override
+  public void addListener(GameListener listener) {
+    engine.addListener(listener);
+  }
 
-    if (foundation.isEmpty()) {
-      if (card.getValue() != 1) {
-        throw new IllegalStateException("Foundation must start with Ace");
-      }
-    } else {
-      KlondikeCard topFoundation = foundation.get(foundation.size() - 1);
-      if (card.getSuit() != topFoundation.getSuit()) {
-        throw new IllegalStateException("Must be same suit");
-      }
-      if (card.getValue() != topFoundation.getValue() + 1) {
-        throw new IllegalStateException("Must be one value higher");
-      }
-    }
+  @Override
+  public void removeListener(GameListener listener) {
+    engine.removeListener(listener);
+  }
 
-    foundation.add(drawPile.remove(0));
+  @Override
+  public void setPublishing(boolean publishing) {
+    this.publishing = publishing;
+    publish();
   }
 
   @Override
-  public void discardDraw() {
-    ensureStarted();
+  public BoardSnapshot<KlondikeCard> snapshot() {
+    return published;
+  }
 
-    if (drawPile.isEmpty()) {
-      if (discardPile.isEmpty()) {
-        throw new IllegalStateException("No draw cards available");
-      }
-      drawPile.addAll(discardPile);
-      discardPile.clear();
+  /**
+   * Swaps in a snapshot of the current board if publishing is on.
+   */
+  private void publish() {
+    if (publishing && started) {
+      published = BoardSnapshot.capture(engine, numDraw, isGameOver(), ++version);
+    }
+  }
 
+  /**
+   * Moves every card that is safe to move onto the foundations. Whitehead builds
+   * on same-color cards, so a card is safe once the other suit of its color has
+   * reached one rank below it.
+   *
+   * @return the number of cards moved
+   */
+  @Override
+  public int autoComplete() {
+    ensureStarted();
+    int moved = engine.autoComplete();
+    if (moved > 0) {
+      publish();
     }
-    discardPile.add(drawPile.remove(0));
+    return moved;
   }
 
   @Override
   public int getNumRows() {
     ensureStarted();
-    return cascades.stream().mapToInt(List::size).max().orElse(0);
+    return engine.numRows();
   }
 
   @Override
   public int getNumPiles() {
     ensureStarted();
-    return cascades.size();
+    return engine.numPiles();
   }
 
   @Override
@@ -277,17 +278,17 @@ public class WhiteheadKlondike implements KlondikeModel<KlondikeCard> {
   @Override
   public boolean isGameOver() {
     ensureStarted();
-    int totalInFoundations = foundations.stream().mapToInt(List::size).sum();
-    return totalInFoundations == 52;
+    return engine.foundationCount() == engine.cardCount();
   }
 
   @Override
   public int getScore() {
     ensureStarted();
     int score = 0;
-    for (List<KlondikeCard> f : foundations) {
-      if (!f.isEmpty()) {
-        score += f.get(f.size() - 1).getValue();
+    for (int f = 0; f < engine.numFoundations(); f++) {
+      KlondikeCard top = engine.foundationTop(f);
+      if (top != null) {
+        score += top.getValue();
       }
     }
     return score;
@@ -297,52 +298,123 @@ public class WhiteheadKlondike implements KlondikeModel<KlondikeCard> {
   public int getPileHeight(int pileNum) {
     ensureStarted();
     checkPileIndex(pileNum);
-    return cascades.get(pileNum).size();
+    return engine.height(pileNum);
   }
 
   @Override
   public KlondikeCard getCardAt(int pileNum, int card) {
     ensureStarted();
     checkPileIndex(pileNum);
-    List<KlondikeCard> pile = cascades.get(pileNum);
-    if (card < 0 || card >= pile.size()) {
+    if (card < 0 || card >= engine.height(pileNum)) {
       throw new IllegalArgumentException("Invalid card index.");
     }
-    return pile.get(card);
+    return engine.card(pileNum, card);
   }
 
   @Override
   public KlondikeCard getCardAt(int foundationPile) {
     ensureStarted();
-    if (foundationPile < 0 || foundationPile >= foundations.size()) {
+    if (foundationPile < 0 || foundationPile >= engine.numFoundations()) {
       throw new IllegalArgumentException("Invalid foundation pile index.");
     }
-    List<KlondikeCard> f = foundations.get(foundationPile);
-    return f.isEmpty() ? null : f.get(f.size() - 1);
+    return engine.foundationTop(foundationPile);
   }
 
   @Override
   public boolean isCardVisible(int pileNum, int card) {
     ensureStarted();
     checkPileIndex(pileNum);
-    return card >= visibleFromIndices.get(pileNum);
+    return card >= engine.visibleFrom(pileNum);
   }
 
   @Override
   public List<KlondikeCard> getDrawCards() {
     ensureStarted();
-    int end = Math.min(numDraw, drawPile.size());
-    return new ArrayList<>(drawPile.subList(0, end));
+    return engine.drawCards(numDraw);
+  }
+
+  @Override
+  public int cardIdAt(int pileNum, int card) {
+    ensureStarted();
+    checkPileIndex(pileNum);
+    if (card < 0 || card >= engine.height(pileNum)) {
+      throw new IllegalArgumentException("Invalid card index.");
+    }
+    return card < engine.visibleFrom(pileNum) ? HIDDEN : engine.cardId(pileNum, card);
+  }
+
+  @Override
+  public int foundationTopId(int foundationPile) {
+    ensureStarted();
+    if (foundationPile < 0 || foundationPile >= engine.numFoundations()) {
+      throw new IllegalArgumentException("Invalid foundation pile index.");
+    }
+    return engine.foundationTopId(foundationPile);
+  }
+
+  @Override
+  public int drawCardId(int index) {
+    ensureStarted();
+    return engine.drawCardId(index, numDraw);
+  }
+
+  @Override
+  public int runLength(int pileNum) {
+    ensureStarted();
+    checkPileIndex(pileNum);
+    return engine.runLength(pileNum);
+  }
+
+  @Override
+  public int copyPile(int pileNum, byte[] out) {
+    ensureStarted();
+    checkPileIndex(pileNum);
+    if (out.length < engine.height(pileNum)) {
+      throw new IllegalArgumentException("Array too short for pile " + pileNum);
+    }
+    return engine.copyPile(pileNum, out, (byte) HIDDEN);
+  }
+
+  @Override
+  public int copyDrawCards(byte[] out) {
+    ensureStarted();
+    if (out.length < Math.min(numDraw, engine.drawSize())) {
+      throw new IllegalArgumentException("Array too short for the draw cards");
+    }
+    return engine.copyDrawCards(numDraw, out);
+  }
+
+  @Override
+  public int stockSize() {
+    ensureStarted();
+    return engine.drawSize() + engine.discardSize();
   }
 
   @Override
   public int getNumFoundations() {
     ensureStarted();
-    return foundations.size();
+    return engine.numFoundations();
   }
 
   //helper methods
 
+  /**
+   * Turns a failed move's result into the exception the throwing move methods
+   * report: bad indices and card counts are illegal arguments, broken rules are
+   * illegal states.
+   *
+   * @param result the move's result code
+   */
+  private static void check(int result) {
+    switch (result) {
+      case OK -> {
+      }
+      case NO_SUCH_PILE, NO_SUCH_FOUNDATION, SAME_PILE, BAD_COUNT ->
+          throw new IllegalArgumentException(TryMovable.describe(result));
+      default -> throw new IllegalStateException(TryMovable.describe(result));
+    }
+  }
+
   /**
    * Checks that game has started.
    */
@@ -358,20 +430,11 @@ public class WhiteheadKlondike implements KlondikeModel<KlondikeCard> {
    * @param pileNum index to be checked.
    */
   private void checkPileIndex(int pileNum) {
-    if (pileNum < 0 || pileNum >= cascades.size()) {
+    if (pileNum < 0 || pileNum >= engine.numPiles()) {
       throw new IllegalArgumentException("Invalid pile index.");
     }
   }
 
-  private boolean isSameColor(KlondikeCard card1, KlondikeCard card2) {
-    return isRed(card1) == isRed(card2);
-  }
-
-  private boolean isRed(KlondikeCard card) {
-    return card.getSuit() == KlondikeCard.Suit.DIAMONDS
-        || card.getSuit() == KlondikeCard.Suit.HEARTS;
-  }
-
   /**
    * Returns the number of draw cards remaining in the draw pile.
    *
@@ -379,6 +442,6 @@ public class WhiteheadKlondike implements KlondikeModel<KlondikeCard> {
    */
   public int getNumDrawCardsLeft() {
     ensureStarted();
-    return drawPile.size();
+    return engine.drawSize();
   }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package klondike.tournament;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The live standings of a tournament, updated without locks. Each player owns one
+ * slot holding a single packed {@code long}: the score, whether the player has
+ * finished, and the milliseconds the player took to reach that score. A slot has one
+ * writer, its player's session, and is written with one release store, so a reader
+ * always sees a score together with its own time and never holds a player up. A
+ * ranking reads every slot once and sorts packed primitive keys, so it allocates a
+ * few arrays and takes no lock however busy the players are.
+ *
+ * <p>Players rank by score, highest first, then by the time taken to reach it,
+ * fastest first, then by the order they joined.
+ */
+public final class Leaderboard {
+  /** The most players a leaderboard can hold. */
+  public static final int MAX_PLAYERS = 1 << 16;
+  /** The highest score a slot can hold. */
+  public static final int MAX_SCORE = 511;
+
+  private static final int TIME_BITS = 38;
+  private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+  private static final long FINISHED = 1L << TIME_BITS;
+  private static final int SCORE_SHIFT = TIME_BITS + 1;
+  private static final int SLOT_BITS = 16;
+
+  private final AtomicReferenceArray<String> names;
+  private final AtomicLongArray entries;
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong rankings = new AtomicLong();
+
+  /**
+   * Creates an empty leaderboard.
+   *
+   * @param capacity the most players that may join
+   * @throws IllegalArgumentException if the capacity is not between 1 and {@link
+   *     #MAX_PLAYERS}
+   */
+  public Leaderboard(int capacity) {
+    if (capacity < 1 || capacity > MAX_PLAYERS) {
+      throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_PLAYERS);
+    }
+    this.names = new AtomicReferenceArray<>(capacity);
+    this.entries = new AtomicLongArray(capacity);
+  }
+
+  /**
+   * Adds a player with a score of 0. Safe to call from any thread.
+   *
+   * @param name the player's name
+   * @return the player's slot
+   * @throws IllegalArgumentException if the name is null
+   * @throws IllegalStateException if the leaderboard is full
+   */
+  public int register(String name) {
+    if (name == null) {
+      throw new IllegalArgumentException("Name cannot be null");
+    }
+    int slot;
+    do {
+      slot = size.get();
+      if (slot == entries.length()) {
+        throw new IllegalStateException("Leaderboard is full");
+      }
+    } while (!size.compareAndSet(slot, slot + 1));
+    names.set(slot, name);
+    return slot;
+  }
+
+  /**
+   * Publishes a player's standing. Only the player's own session should call this,
+   * since a slot is not meant to have concurrent writers.
+   *
+   * @param slot the player's slot
+   * @param score the player's score
+   * @param elapsedNanos the time the player took to reach the score
+   * @param finished whether the player has stopped playing
+   * @throws IllegalArgumentException if the score is not between 0 and {@link
+   *     #MAX_SCORE} or the time is negative
+   */
+  public void update(int slot, int score, long elapsedNanos, boolean finished) {
+    if (score < 0 || score > MAX_SCORE || elapsedNanos < 0) {
+      throw new IllegalArgumentException("Invalid score or time");
+    }
+    long millis = Math.min(elapsedNanos / 1_000_000, TIME_MASK);
+    entries.setRelease(slot, (long) score << SCORE_SHIFT | (finished ? FINISHED : 0) | millis);
+  }
+
+  /**
+   * Returns the number of players who have joined.
+   *
+   * @return the number of players
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Returns a player's latest score.
+   *
+   * @param slot the player's slot
+   * @return the score
+   */
+  public int score(int slot) {
+    return (int) (entries.getAcquire(slot) >>> SCORE_SHIFT);
+  }
+
+  /**
+   * Ranks every player on their latest published standing. Safe to call from any
+   * thread while players are updating.
+   *
+   * <p>The ranking is numbered before any entry is read, so a ranking with a higher
+   * number never reads an older entry than one with a lower number, and publishing
+   * only the highest number never replaces newer scores with older ones.
+   *
+   * @return the ranking, numbered after all rankings taken before it
+   */
+  public Standings rank() {
+    long sequence = rankings.incrementAndGet();
+    int count = size.get();
+    long[] keys = new long[count];
+    long[] seen = new long[count];
+    int n = 0;
+    for (int slot = 0; slot < count; slot++) {
+      if (names.get(slot) == null) {
+        continue;
+      }
+      long entry = entries.getAcquire(slot);
+      seen[slot] = entry;
+      long score = entry >>> SCORE_SHIFT;
+      keys[n++] = (MAX_SCORE - score) << TIME_BITS + SLOT_BITS
+          | (entry & TIME_MASK) << SLOT_BITS | slot;
+    }
+    Arrays.sort(keys, 0, n);
+    String[] rankedNames = new String[n];
+    int[] scores = new int[n];
+    long[] millis = new long[n];
+    boolean[] finished = new boolean[n];
+    for (int rank = 0; rank < n; rank++) {
+      int slot = (int) (keys[rank] & (1 << SLOT_BITS) - 1);
+      long entry = seen[slot];
+      rankedNames[rank] = names.get(slot);
+      scores[rank] = (int) (entry >>> SCORE_SHIFT);
+      millis[rank] = entry & TIME_MASK;
+      finished[rank] = (entry & FINISHED) != 0;
+    }
+    return new Standings(sequence, rankedNames, scores, millis, finished);
+  }
+}
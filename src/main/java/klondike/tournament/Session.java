@@ -0,0 +1,99 @@
+package klondike.tournament;
+
+import klondike.model.hw02.GameListener;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeModel;
+
+/**
+ * One player's game in a {@link Tournament}. The session listens to its own model,
+ * so every card the player founds, by any move, batch or auto-complete, publishes
+ * the new score and the time taken to reach it to the leaderboard at once. The
+ * clock starts when the tournament starts the session, not when the player joins.
+ *
+ * <p>A session's model and clock belong to the thread the tournament plays it on.
+ */
+public final class Session implements GameListener {
+  private final Leaderboard leaderboard;
+  private final int slot;
+  private final String name;
+  private final KlondikeModel<KlondikeCard> model;
+  private boolean claimed;
+  private long startNanos;
+  private long scoredNanos;
+
+  Session(Leaderboard leaderboard, int slot, String name, KlondikeModel<KlondikeCard> model) {
+    this.leaderboard = leaderboard;
+    this.slot = slot;
+    this.name = name;
+    this.model = model;
+  }
+
+  /**
+   * Returns the player's name.
+   *
+   * @return the name
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * Returns the player's leaderboard slot, which is also the order of joining.
+   *
+   * @return the slot, from 0
+   */
+  public int slot() {
+    return slot;
+  }
+
+  /**
+   * Returns the player's game, already dealt.
+   *
+   * @return the model to play on
+   */
+  public KlondikeModel<KlondikeCard> model() {
+    return model;
+  }
+
+  /**
+   * Returns how long the player took to reach their current score.
+   *
+   * @return the time in nanoseconds, 0 before the first card is founded
+   */
+  public long elapsedNanos() {
+    return scoredNanos;
+  }
+
+  @Override
+  public void cardFounded(int src, int foundation, KlondikeCard card) {
+    scoredNanos = System.nanoTime() - startNanos;
+    leaderboard.update(slot, model.getScore(), scoredNanos, false);
+  }
+
+  /**
+   * Reserves the session for one run of the tournament.
+   *
+   * @throws IllegalStateException if the session has already been played
+   */
+  void claim() {
+    if (claimed) {
+      throw new IllegalStateException("Session " + name + " has already been played");
+    }
+    claimed = true;
+  }
+
+  /**
+   * Starts the clock and publishes the starting score, on the playing thread.
+   */
+  void start() {
+    startNanos = System.nanoTime();
+    leaderboard.update(slot, model.getScore(), 0, false);
+  }
+
+  /**
+   * Marks the player's score as final.
+   */
+  void finish() {
+    leaderboard.update(slot, model.getScore(), scoredNanos, true);
+  }
+}
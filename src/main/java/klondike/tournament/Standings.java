@@ -0,0 +1,101 @@
+package klondike.tournament;
+
+/**
+ * An immutable ranking of a tournament's players at one moment, as taken by {@link
+ * Leaderboard#rank()}. All fields are final and never change after construction, so
+ * standings may be read from any number of threads without locking.
+ */
+public final class Standings {
+  private final long sequence;
+  private final String[] names;
+  private final int[] scores;
+  private final long[] elapsedMillis;
+  private final boolean[] finished;
+
+  Standings(long sequence, String[] names, int[] scores, long[] elapsedMillis,
+            boolean[] finished) {
+    this.sequence = sequence;
+    this.names = names;
+    this.scores = scores;
+    this.elapsedMillis = elapsedMillis;
+    this.finished = finished;
+  }
+
+  /**
+   * Returns this ranking's number; later rankings of one leaderboard have higher
+   * numbers.
+   *
+   * @return the sequence number, from 1
+   */
+  public long sequence() {
+    return sequence;
+  }
+
+  /**
+   * Returns the number of ranked players.
+   *
+   * @return the number of players
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Returns the name of the player at a rank.
+   *
+   * @param rank the rank, 0 being the leader
+   * @return the player's name
+   * @throws IndexOutOfBoundsException if the rank is out of range
+   */
+  public String name(int rank) {
+    return names[rank];
+  }
+
+  /**
+   * Returns the score of the player at a rank.
+   *
+   * @param rank the rank, 0 being the leader
+   * @return the score
+   * @throws IndexOutOfBoundsException if the rank is out of range
+   */
+  public int score(int rank) {
+    return scores[rank];
+  }
+
+  /**
+   * Returns how long the player at a rank took to reach their score.
+   *
+   * @param rank the rank, 0 being the leader
+   * @return the time in milliseconds
+   * @throws IndexOutOfBoundsException if the rank is out of range
+   */
+  public long elapsedMillis(int rank) {
+    return elapsedMillis[rank];
+  }
+
+  /**
+   * Returns whether the player at a rank has stopped playing.
+   *
+   * @param rank the rank, 0 being the leader
+   * @return true if the player's score is final
+   * @throws IndexOutOfBoundsException if the rank is out of range
+   */
+  public boolean finished(int rank) {
+    return finished[rank];
+  }
+
+  /**
+   * Lists the ranking, one player per line.
+   *
+   * @return lines of rank, name, score, time and whether the player has finished
+   */
+  @Override
+  public String toString() {
+    StringBuilder out = new StringBuilder();
+    for (int rank = 0; rank < names.length; rank++) {
+      out.append(String.format("%3d. %-16s %2d %8.3f s%s%n", rank + 1, names[rank],
+          scores[rank], elapsedMillis[rank] / 1e3, finished[rank] ? " finished" : ""));
+    }
+    return out.toString();
+  }
+}
@@ -0,0 +1,214 @@
+package klondike.tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import klondike.model.hw02.DealTemplate;
+import klondike.model.hw02.GameEventSource;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.Resettable;
+import klondike.model.hw04.KlondikeCreator;
+import klondike.model.hw04.KlondikeCreator.GameType;
+
+/**
+ * A timed tournament in which every player plays the same deal. The deck is
+ * validated and dealt once, into a {@link DealTemplate}; each player who joins gets
+ * a model started from that template, which copies the board instead of dealing
+ * again. {@link #play} then runs every session on its own thread at once, and each
+ * founded card updates the {@link Leaderboard} without locks. A daemon thread ranks
+ * the players at a fixed interval and publishes the ranking through an atomic
+ * reference, which only ever moves to a newer ranking, so any number of threads can
+ * read {@link #standings()} while the games run.
+ *
+ * <p>Players may join from any thread. Close the tournament to stop the ranking
+ * thread.
+ */
+public final class Tournament implements AutoCloseable {
+  /** Default time between published rankings, in milliseconds. */
+  public static final long DEFAULT_SNAPSHOT_MILLIS = 1_000;
+
+  private final GameType type;
+  private final DealTemplate deal;
+  private final Leaderboard leaderboard;
+  private final AtomicReferenceArray<Session> sessions;
+  private final long snapshotMillis;
+  private final Thread ranker;
+  private final AtomicReference<Standings> latest;
+
+  /**
+   * Deals the tournament's game and starts publishing rankings.
+   *
+   * @param type the variant to play
+   * @param deck the cards in dealing order, for instance {@code Deals.deck(seed)}
+   * @param numPiles the number of cascades
+   * @param numDraw the number of visible draw cards
+   * @param capacity the most players that may join
+   * @param snapshotMillis the time between published rankings in milliseconds
+   * @throws IllegalArgumentException if the deal is invalid, the capacity is not
+   *     between 1 and {@link Leaderboard#MAX_PLAYERS}, the deck is too large to
+   *     score or the interval is not positive
+   */
+  public Tournament(GameType type, List<KlondikeCard> deck, int numPiles, int numDraw,
+                    int capacity, long snapshotMillis) {
+    if (type == null) {
+      throw new IllegalArgumentException("Game type cannot be null");
+    }
+    if (snapshotMillis < 1) {
+      throw new IllegalArgumentException("Interval must be positive");
+    }
+    Resettable dealer = (Resettable) KlondikeCreator.create(type);
+    dealer.reset(deck, false, numPiles, numDraw);
+    DealTemplate deal = dealer.captureDeal();
+    if (deal.cardCount() > Leaderboard.MAX_SCORE) {
+      throw new IllegalArgumentException("Deck is too large to score");
+    }
+    this.type = type;
+    this.deal = deal;
+    this.leaderboard = new Leaderboard(capacity);
+    this.sessions = new AtomicReferenceArray<>(capacity);
+    this.snapshotMillis = snapshotMillis;
+    this.latest = new AtomicReference<>(leaderboard.rank());
+    this.ranker = new Thread(this::publishRankings, "klondike-tournament-ranking");
+    ranker.setDaemon(true);
+    ranker.start();
+  }
+
+  /**
+   * Returns the shared starting position.
+   *
+   * @return the deal every player starts from
+   */
+  public DealTemplate deal() {
+    return deal;
+  }
+
+  /**
+   * Returns the live leaderboard.
+   *
+   * @return the leaderboard
+   */
+  public Leaderboard leaderboard() {
+    return leaderboard;
+  }
+
+  /**
+   * Adds a player with a freshly started copy of the tournament's deal. Safe to
+   * call from any thread.
+   *
+   * @param name the player's name
+   * @return the player's session
+   * @throws IllegalArgumentException if the name is null
+   * @throws IllegalStateException if the tournament is full
+   */
+  public Session join(String name) {
+    Resettable model = (Resettable) KlondikeCreator.create(type);
+    model.reset(deal);
+    int slot = leaderboard.register(name);
+    Session session = new Session(leaderboard, slot, name, model);
+    ((GameEventSource) model).addListener(session);
+    sessions.set(slot, session);
+    return session;
+  }
+
+  /**
+   * Plays every joined session at once, each on its own thread, and waits for all
+   * of them. Each session's clock starts on its thread just before the player is
+   * called, and its score is marked final when the player returns or fails.
+   *
+   * @param player plays one session, for instance by reading a player's commands
+   *     or running a bot
+   * @throws InterruptedException if interrupted while waiting for the sessions
+   * @throws IllegalStateException if a session has already been played
+   * @throws RuntimeException the first exception a player threw, after every
+   *     session has ended
+   */
+  public void play(Consumer<? super Session> player) throws InterruptedException {
+    List<Session> field = new ArrayList<>();
+    for (int slot = 0; slot < leaderboard.size(); slot++) {
+      Session session = sessions.get(slot);
+      if (session != null) {
+        session.claim();
+        field.add(session);
+      }
+    }
+    RuntimeException[] failures = new RuntimeException[field.size()];
+    Error[] errors = new Error[field.size()];
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < field.size(); i++) {
+      int index = i;
+      Session session = field.get(i);
+      Thread thread = new Thread(() -> {
+        session.start();
+        try {
+          player.accept(session);
+        } catch (RuntimeException e) {
+          failures[index] = e;
+        } catch (Error e) {
+          errors[index] = e;
+        } finally {
+          session.finish();
+        }
+      }, "klondike-tournament-" + session.slot());
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int i = 0; i < field.size(); i++) {
+      if (errors[i] != null) {
+        throw errors[i];
+      }
+      if (failures[i] != null) {
+        throw failures[i];
+      }
+    }
+  }
+
+  /**
+   * Returns the most recently published ranking. Safe to call from any thread.
+   *
+   * @return the latest ranking
+   */
+  public Standings standings() {
+    return latest.get();
+  }
+
+  /**
+   * Ranks the players now and publishes the ranking.
+   *
+   * @return the new ranking
+   */
+  public Standings rankNow() {
+    Standings standings = leaderboard.rank();
+    latest.accumulateAndGet(standings,
+        (current, next) -> next.sequence() > current.sequence() ? next : current);
+    return standings;
+  }
+
+  private void publishRankings() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        Thread.sleep(snapshotMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+      rankNow();
+    }
+  }
+
+  /**
+   * Stops publishing rankings and waits for the ranking thread to end.
+   */
+  @Override
+  public void close() {
+    ranker.interrupt();
+    try {
+      ranker.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
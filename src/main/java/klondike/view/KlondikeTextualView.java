@@ -2,16 +2,20 @@ package klondike.view;
 
 import java.io.IOException;
 import java.util.List;
+import klondike.model.hw02.BoardSnapshot;
 import klondike.model.hw02.KlondikeModel;
 
 /**
  * A textual view of the Klondike game model.
  * This class is responsible for rendering the current game state
- * into a human-readable form.
+ * into a human-readable form, either live from a model or from a fixed
+ * {@link BoardSnapshot} that may be rendered on any thread. A live model is read
+ * through its getters on each render, without copying its board.
  */
 public class KlondikeTextualView implements TextualView {
 
   private final KlondikeModel<?> model;
+  private final BoardSnapshot<?> snapshot;
   private final Appendable ap;
 
   /**
@@ -38,6 +42,24 @@ public class KlondikeTextualView implements TextualView {
       throw new IllegalArgumentException("Model or Appendable cannot be null");
     }
     this.model = model;
+    this.snapshot = null;
+    this.ap = ap;
+  }
+
+  /**
+   * Constructs a textual view of a board snapshot, sending rendered output to the
+   * specified {@link Appendable}. The view always shows the snapshot's board.
+   *
+   * @param snapshot the snapshot to be rendered
+   * @param ap the Appendable to which the view output is written
+   * @throws IllegalArgumentException if either argument is null
+   */
+  public KlondikeTextualView(BoardSnapshot<?> snapshot, Appendable ap) {
+    if (snapshot == null || ap == null) {
+      throw new IllegalArgumentException("Snapshot or Appendable cannot be null");
+    }
+    this.model = null;
+    this.snapshot = snapshot;
     this.ap = ap;
   }
 
@@ -56,7 +78,7 @@ public class KlondikeTextualView implements TextualView {
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    List<?> draw = model.getDrawCards();
+    List<?> draw = drawCards();
 
     sb.append("Draw: ");
     if (draw.isEmpty()) {
@@ -72,28 +94,28 @@ public class KlondikeTextualView implements TextualView {
     sb.append("\n");
 
     sb.append("Foundation: ");
-    for (int i = 0; i < model.getNumFoundations(); i++) {
-      var top = model.getCardAt(i);
+    for (int i = 0; i < numFoundations(); i++) {
+      var top = foundationTop(i);
       sb.append(top == null ? "<none>" : top);
-      if (i < model.getNumFoundations() - 1) {
+      if (i < numFoundations() - 1) {
         sb.append(", ");
       }
     }
     sb.append("\n");
 
-    for (int r = 0; r < model.getNumRows(); r++) {
-      for (int p = 0; p < model.getNumPiles(); p++) {
-        int h = model.getPileHeight(p);
+    for (int r = 0; r < numRows(); r++) {
+      for (int p = 0; p < numPiles(); p++) {
+        int h = pileHeight(p);
         if (h == 0 && r == 0) {
           sb.append(" X ");
         } else if (r < h) {
-          sb.append(model.isCardVisible(p, r)
-              ? " " + model.getCardAt(p, r)
+          sb.append(isVisible(p, r)
+              ? " " + cardAt(p, r)
               : " ?");
         } else {
           sb.append("   ");
         }
-        if (p < model.getNumPiles() - 1) {
+        if (p < numPiles() - 1) {
           sb.append(" ");
         }
       }
@@ -102,4 +124,37 @@ public class KlondikeTextualView implements TextualView {
 
     return sb.toString();
   }
+
+  private List<?> drawCards() {
+    return snapshot != null ? snapshot.getDrawCards() : model.getDrawCards();
+  }
+
+  private int numFoundations() {
+    return snapshot != null ? snapshot.getNumFoundations() : model.getNumFoundations();
+  }
+
+  private Object foundationTop(int foundation) {
+    return snapshot != null ? snapshot.getCardAt(foundation) : model.getCardAt(foundation);
+  }
+
+  private int numRows() {
+    return snapshot != null ? snapshot.getNumRows() : model.getNumRows();
+  }
+
+  private int numPiles() {
+    return snapshot != null ? snapshot.getNumPiles() : model.getNumPiles();
+  }
+
+  private int pileHeight(int pile) {
+    return snapshot != null ? snapshot.getPileHeight(pile) : model.getPileHeight(pile);
+  }
+
+  private boolean isVisible(int pile, int card) {
+    return snapshot != null ? snapshot.isCardVisible(pile, card)
+        : model.isCardVisible(pile, card);
+  }
+
+  private Object cardAt(int pile, int card) {
+    return snapshot != null ? snapshot.getCardAt(pile, card) : model.getCardAt(pile, card);
+  }
 }
@@ -0,0 +1,68 @@
+package klondike;
+
+import java.io.StringReader;
+import java.util.List;
+import klondike.controller.KlondikeTextualController;
+import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.KlondikeCard;
+
+/**
+ * Compares finishing a fully playable end-game with one {@code auto} command against
+ * typing the 52 individual {@code mpf}/{@code mdf} commands, through the controller
+ * and textual view. Run with {@code gradle bench -Pbench=AutoCompleteBenchmark}.
+ */
+public final class AutoCompleteBenchmark {
+  private static final int WARMUP = 2_000;
+  private static final int RUNS = 10_000;
+
+  private AutoCompleteBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark and prints the average time per game for both approaches.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    List<KlondikeCard> deck = new BasicKlondike().createNewDeck();
+    String individual = individualCommands(deck);
+    for (int i = 0; i < WARMUP; i++) {
+      play(individual, deck);
+      play("auto", deck);
+    }
+    long individualNanos = time(individual, deck);
+    long autoNanos = time("auto", deck);
+    System.out.printf("individual moves: %8.1f us/game%n", individualNanos / 1e3 / RUNS);
+    System.out.printf("auto command:     %8.1f us/game%n", autoNanos / 1e3 / RUNS);
+    System.out.printf("speedup:          %8.1fx%n", (double) individualNanos / autoNanos);
+  }
+
+  /**
+   * Builds the command sequence that plays the ordered deck dealt to one pile: the
+   * pile's Ace first, then every draw card onto its suit's foundation.
+   */
+  private static String individualCommands(List<KlondikeCard> deck) {
+    StringBuilder sb = new StringBuilder("mpf 1 1");
+    for (KlondikeCard card : deck.subList(1, deck.size())) {
+      sb.append(" mdf ").append(card.getSuit().ordinal() + 1);
+    }
+    return sb.toString();
+  }
+
+  private static long time(String input, List<KlondikeCard> deck) {
+    long start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      play(input, deck);
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static void play(String input, List<KlondikeCard> deck) {
+    StringBuilder out = new StringBuilder();
+    new KlondikeTextualController(new StringReader(input), out)
+        .playGame(new BasicKlondike(), deck, false, 1, 1);
+    if (!out.toString().contains("You win!")) {
+      throw new IllegalStateException("Benchmark game was not won");
+    }
+  }
+}
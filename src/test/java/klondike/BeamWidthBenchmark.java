@@ -0,0 +1,69 @@
+package klondike;
+
+import klondike.analysis.BeamSolver;
+import klondike.analysis.Board;
+import klondike.analysis.Deals;
+import klondike.analysis.SolveResult;
+import klondike.analysis.Solver;
+import klondike.analysis.Variant;
+
+/**
+ * Tunes the beam width of {@link BeamSolver} on a fixed corpus of seeded deals,
+ * printing the solve rate, time per deal and average line length for each width,
+ * next to the number of deals the exhaustive {@link Solver} solves, which no width
+ * can beat. Run with {@code gradle bench -Pbench=BeamWidthBenchmark}, optionally
+ * passing {@code -PbenchArgs="deals"}.
+ */
+public final class BeamWidthBenchmark {
+  private static final int DEALS = 200;
+  private static final int[] WIDTHS = {1, 4, 16, 64, 256, 1024};
+  private static final long TIME_LIMIT_MILLIS = 2_000;
+
+  private BeamWidthBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark for every variant and width.
+   *
+   * @param args optionally the number of deals in the corpus
+   */
+  public static void main(String[] args) {
+    int deals = args.length > 0 ? Integer.parseInt(args[0]) : DEALS;
+    for (Variant variant : Variant.values()) {
+      Board[] corpus = new Board[deals];
+      for (int seed = 0; seed < deals; seed++) {
+        corpus[seed] = Board.deal(variant, Deals.ids(seed), 7, 3);
+      }
+      Solver reference = new Solver(Solver.DEFAULT_NODE_LIMIT);
+      int winnable = 0;
+      for (Board deal : corpus) {
+        winnable += reference.solve(deal).status() == SolveResult.Status.SOLVED ? 1 : 0;
+      }
+      System.out.printf("%s: exhaustive solver solves %d of %d%n", variant, winnable, deals);
+      for (int width : WIDTHS) {
+        run(corpus, width);
+      }
+    }
+  }
+
+  private static void run(Board[] corpus, int width) {
+    BeamSolver solver = new BeamSolver(width, BeamSolver.DEFAULT_MAX_DEPTH,
+        TIME_LIMIT_MILLIS, null, null);
+    int solved = 0;
+    long moves = 0;
+    long nodes = 0;
+    long start = System.nanoTime();
+    for (Board deal : corpus) {
+      SolveResult result = solver.solve(deal);
+      nodes += result.nodes();
+      if (result.status() == SolveResult.Status.SOLVED) {
+        solved++;
+        moves += result.length();
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("  width %4d: solved %3d (%5.1f%%) %7.2f ms/deal %,11d nodes "
+            + "%6.1f moves/solution%n", width, solved, 100.0 * solved / corpus.length,
+        seconds * 1000 / corpus.length, nodes, solved == 0 ? 0 : (double) moves / solved);
+  }
+}
@@ -0,0 +1,54 @@
+package klondike;
+
+import klondike.analysis.Board;
+import klondike.analysis.Deals;
+import klondike.analysis.SolveResult;
+import klondike.analysis.Solver;
+import klondike.analysis.Variant;
+
+/**
+ * Measures how much remembering positions by {@link Board#canonicalHash64()} instead
+ * of {@link Board#hash64()} shrinks real solver searches, by solving the same deals
+ * both ways and comparing the positions expanded. Run with
+ * {@code gradle bench -Pbench=CanonicalKeyBenchmark}.
+ */
+public final class CanonicalKeyBenchmark {
+  private static final int DEALS = 200;
+  private static final long NODE_LIMIT = 50_000;
+
+  private CanonicalKeyBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark and prints node counts, outcomes and times for both keys.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    for (Variant variant : Variant.values()) {
+      run(variant, false);
+      long rawNodes = run(variant, false);
+      long canonicalNodes = run(variant, true);
+      System.out.printf("%s reduction: %.1f%% fewer positions expanded%n%n", variant,
+          100.0 * (rawNodes - canonicalNodes) / rawNodes);
+    }
+  }
+
+  private static long run(Variant variant, boolean canonical) {
+    Solver solver = new Solver(NODE_LIMIT, null, canonical);
+    long[] byStatus = new long[SolveResult.Status.values().length];
+    long nodes = 0;
+    long start = System.nanoTime();
+    for (int seed = 0; seed < DEALS; seed++) {
+      SolveResult result = solver.solve(Board.deal(variant, Deals.ids(seed), 7, 3));
+      byStatus[result.status().ordinal()]++;
+      nodes += result.nodes();
+    }
+    System.out.printf("%-9s %-9s nodes=%,11d solved=%3d unsolvable=%3d timeout=%3d %6.2f s%n",
+        variant, canonical ? "canonical" : "raw", nodes,
+        byStatus[SolveResult.Status.SOLVED.ordinal()],
+        byStatus[SolveResult.Status.UNSOLVABLE.ordinal()],
+        byStatus[SolveResult.Status.TIMEOUT.ordinal()], (System.nanoTime() - start) / 1e9);
+    return nodes;
+  }
+}
@@ -0,0 +1,67 @@
+package klondike;
+
+import java.util.List;
+import java.util.Random;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeEngine;
+import klondike.model.hw02.KlondikeRules;
+import klondike.model.hw04.KlondikeCreator;
+
+/**
+ * Measures the cost of engine operations as the deck grows, from a reduced A-5 deck
+ * to four decks. Each game is dealt shuffled and then played with a fixed policy for
+ * three deck lengths of steps: draw to a cascade if legal, otherwise discard, with an
+ * auto-complete before each recycle. Operations are cards moved plus discards.
+ * Run with {@code gradle bench -Pbench=DeckScalingBenchmark}.
+ */
+public final class DeckScalingBenchmark {
+  private static final int[][] SHAPES = {
+      {1, 5, 4}, {1, 13, 7}, {2, 13, 10}, {3, 13, 12}, {4, 13, 14}};
+  private static final int GAMES = 100_000;
+
+  private DeckScalingBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark and prints the average cost per operation for each deck.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    for (int[] shape : SHAPES) {
+      run(shape, GAMES / 4);
+    }
+    System.out.printf("%5s %6s %11s %9s %10s%n", "cards", "piles", "foundations",
+        "ops/game", "ns/op");
+    for (int[] shape : SHAPES) {
+      run(shape, GAMES);
+    }
+  }
+
+  private static void run(int[] shape, int games) {
+    List<KlondikeCard> deck = KlondikeCreator.createDeck(shape[0], shape[1]);
+    int numPiles = shape[2];
+    KlondikeEngine engine = new KlondikeEngine(KlondikeRules.BASIC);
+    Random random = new Random(1);
+    long ops = 0;
+    long start = System.nanoTime();
+    for (int g = 0; g < games; g++) {
+      engine.deal(deck, numPiles, random);
+      for (int step = 0; step < 3 * deck.size(); step++) {
+        if (engine.drawSize() == 0) {
+          ops += engine.autoComplete();
+        }
+        int dest = step % numPiles;
+        if (engine.canMoveDraw(dest)) {
+          engine.moveDraw(dest);
+        } else if (!engine.discardDraw()) {
+          break;
+        }
+        ops++;
+      }
+    }
+    long nanos = System.nanoTime() - start;
+    System.out.printf("%5d %6d %11d %9.1f %10.2f%n", deck.size(), numPiles,
+        engine.numFoundations(), (double) ops / games, (double) nanos / ops);
+  }
+}
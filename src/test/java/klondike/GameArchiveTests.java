@@ -0,0 +1,123 @@
+package klondike;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import klondike.analysis.ArchiveStats;
+import klondike.analysis.GameArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the game archive and its streaming, mergeable statistics.
+ */
+public class GameArchiveTests {
+  private static final String[] PLAYERS = {"ada", "bo", "cy"};
+
+  private Path archive;
+  private Path state;
+
+  @Before
+  public void setUp() throws IOException {
+    archive = Files.createTempFile("klondike", ".games");
+    state = Files.createTempFile("klondike", ".stats");
+    Files.delete(state);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(archive);
+    Files.deleteIfExists(state);
+  }
+
+  /**
+   * Appends random games to the archive and counts them directly into the given stats.
+   */
+  private void writeGames(int count, long seed, ArchiveStats expected) throws IOException {
+    Random random = new Random(seed);
+    StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      String player = PLAYERS[random.nextInt(PLAYERS.length)];
+      String variant = random.nextBoolean() ? "basic" : "whitehead";
+      int numDraw = 1 + random.nextInt(3);
+      int moves = 50 + random.nextInt(200);
+      int score = random.nextInt(3) == 0 ? 52 : random.nextInt(52);
+      lines.append(GameArchive.format(player, variant, 7, numDraw, moves, score, 52))
+          .append('\n');
+      expected.add(player, variant, 7, numDraw, moves, score, 52);
+    }
+    Files.writeString(archive, lines, StandardOpenOption.APPEND);
+  }
+
+  private static void assertSameStats(ArchiveStats expected, ArchiveStats actual) {
+    assertEquals(expected.games(), actual.games());
+    assertEquals(expected.wins(), actual.wins());
+    assertArrayEquals(expected.scoreHistogram(), actual.scoreHistogram());
+    assertEquals(expected.winRate("basic", 7, 3), actual.winRate("basic", 7, 3), 1e-12);
+    assertEquals(expected.averageMoves("whitehead", 7, 1),
+        actual.averageMoves("whitehead", 7, 1), 1e-9);
+    assertEquals(expected.leaderboard(3), actual.leaderboard(3));
+    for (String player : PLAYERS) {
+      assertEquals(expected.bestStreak(player), actual.bestStreak(player));
+      assertEquals(expected.currentStreak(player), actual.currentStreak(player));
+    }
+  }
+
+  @Test
+  public void testParallelChunksMatchSequentialCount() throws IOException {
+    ArchiveStats expected = new ArchiveStats();
+    writeGames(5000, 1, expected);
+    assertSameStats(expected, GameArchive.aggregate(archive, 0, 1));
+    ArchiveStats parallel = GameArchive.aggregate(archive, 0, 8);
+    assertSameStats(expected, parallel);
+    assertEquals(Files.size(archive), parallel.offset());
+  }
+
+  @Test
+  public void testStreaksJoinAcrossMerges() {
+    ArchiveStats first = new ArchiveStats();
+    first.add("ada", "basic", 7, 3, 90, 10, 52);
+    first.add("ada", "basic", 7, 3, 90, 52, 52);
+    first.add("ada", "basic", 7, 3, 90, 52, 52);
+    ArchiveStats second = new ArchiveStats();
+    second.add("ada", "basic", 7, 3, 90, 52, 52);
+    second.add("ada", "basic", 7, 3, 90, 52, 52);
+    second.add("ada", "basic", 7, 3, 90, 0, 52);
+    second.add("ada", "basic", 7, 3, 90, 52, 52);
+    first.merge(second);
+    assertEquals(4, first.bestStreak("ada"));
+    assertEquals(1, first.currentStreak("ada"));
+    assertEquals(5.0 / 7, first.winRate("basic", 7, 3), 1e-12);
+  }
+
+  @Test
+  public void testUpdateCountsOnlyAppendedGames() throws IOException {
+    ArchiveStats expected = new ArchiveStats();
+    writeGames(1000, 2, expected);
+    Files.writeString(archive, "ada basic 7 3 12", StandardOpenOption.APPEND);
+    ArchiveStats stats = GameArchive.update(archive, state, 4);
+    assertSameStats(expected, stats);
+    assertEquals(Files.size(archive) - "ada basic 7 3 12".length(), stats.offset());
+
+    Files.writeString(archive, " 52 52\n", StandardOpenOption.APPEND);
+    expected.add("ada", "basic", 7, 3, 12, 52, 52);
+    writeGames(500, 3, expected);
+    stats = GameArchive.update(archive, state, 4);
+    assertSameStats(expected, stats);
+    assertEquals(Files.size(archive), stats.offset());
+    assertEquals(List.copyOf(expected.leaderboard(2)), stats.leaderboard(2));
+  }
+
+  @Test(expected = IOException.class)
+  public void testMalformedLineFails() throws IOException {
+    Files.writeString(archive, "ada basic 7 three 90 52 52\n");
+    GameArchive.aggregate(archive, 0, 2);
+  }
+}
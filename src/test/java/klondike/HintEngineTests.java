@@ -0,0 +1,95 @@
+package klondike;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import klondike.analysis.HintEngine;
+import klondike.controller.KlondikeTextualController;
+import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeModel;
+import klondike.model.hw04.WhiteheadKlondike;
+import org.junit.Test;
+
+/**
+ * Tests for the hint engine and the controller's hint command.
+ */
+public class HintEngineTests {
+
+  @Test
+  public void testHintPlaysAceToFoundation() {
+    KlondikeModel<KlondikeCard> model = new BasicKlondike();
+    model.startGame(model.createNewDeck(), false, 1, 1);
+    try (HintEngine hints = new HintEngine()) {
+      assertEquals("mpf 1 1", hints.suggest(model));
+    }
+  }
+
+  @Test
+  public void testHintAnswersWithinDeadline() {
+    KlondikeModel<KlondikeCard> model = new WhiteheadKlondike();
+    model.startGame(model.createNewDeck(), true, 7, 3);
+    try (HintEngine hints = new HintEngine(50)) {
+      long start = System.nanoTime();
+      String hint = hints.suggest(model);
+      long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+      assertNotNull(hint);
+      assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 150);
+    }
+  }
+
+  @Test
+  public void testControllerPrintsHint() {
+    StringBuilder output = new StringBuilder();
+    KlondikeModel<KlondikeCard> model = new BasicKlondike();
+    try (HintEngine hints = new HintEngine()) {
+      new KlondikeTextualController(new StringReader("hint q"), output, hints)
+          .playGame(model, model.createNewDeck(), false, 1, 1);
+      assertEquals("mpf 1 1", hints.suggest(model));
+    }
+    assertTrue(output.toString().contains("Hint: mpf 1 1"));
+  }
+
+  @Test
+  public void testControllerStopsItsOwnHintEngine() throws InterruptedException {
+    Set<Thread> before = hintThreads();
+    StringBuilder output = new StringBuilder();
+    KlondikeModel<KlondikeCard> model = new BasicKlondike();
+    new KlondikeTextualController(new StringReader("hint q"), output)
+        .playGame(model, model.createNewDeck(), false, 1, 1);
+    assertTrue(output.toString().contains("Hint: mpf 1 1"));
+    for (Thread worker : hintThreads()) {
+      if (!before.contains(worker)) {
+        worker.join(1_000);
+        assertFalse(worker.isAlive());
+      }
+    }
+  }
+
+  @Test
+  public void testControllerHintWithoutAnalysableModel() {
+    StringBuilder output = new StringBuilder();
+    new KlondikeTextualController(new StringReader("hint q"), output)
+        .playGame(new MockKlondikeModel(new StringBuilder()), List.of(), false, 7, 3);
+    assertTrue(output.toString().contains("No hint available"));
+  }
+
+  /**
+   * Returns the live hint engine worker threads.
+   */
+  private static Set<Thread> hintThreads() {
+    Set<Thread> workers = new HashSet<>();
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("klondike-hint")) {
+        workers.add(thread);
+      }
+    }
+    return workers;
+  }
+}
@@ -1,11 +1,13 @@
 package klondike;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.StringReader;
 import java.util.List;
 import klondike.controller.KlondikeTextualController;
+import klondike.model.hw02.BasicKlondike;
 import org.junit.Test;
 
 /**
@@ -128,4 +130,73 @@ public class KlondikeControllerTests {
       // expected
     }
   }
+
+  @Test
+  public void testAutoCommandWinsOrderedGame() {
+    StringBuilder output = new StringBuilder();
+    BasicKlondike model = new BasicKlondike();
+    new KlondikeTextualController(new StringReader("auto"), output)
+        .playGame(model, model.createNewDeck(), false, 1, 1);
+    assertTrue(output.toString().contains("You win!"));
+  }
+
+  @Test
+  public void testAutoCommandRejectedByPlainModel() {
+    StringBuilder log = new StringBuilder();
+    StringBuilder output = new StringBuilder();
+    String result = run("auto q", log, output);
+    assertTrue(result.contains("Invalid move. Play again."));
+  }
+
+  @Test
+  public void testBatchCommandPlaysAllMoves() {
+    StringBuilder output = new StringBuilder();
+    BasicKlondike model = new BasicKlondike();
+    new KlondikeTextualController(new StringReader("batch mpf 1 1 mdf 2 mdf 3\nq"), output)
+        .playGame(model, model.createNewDeck(), false, 1, 1);
+    assertEquals(3, model.getScore());
+    assertTrue(output.toString().contains("Score: 3"));
+  }
+
+  @Test
+  public void testBatchCommandIsAllOrNothing() {
+    StringBuilder output = new StringBuilder();
+    BasicKlondike model = new BasicKlondike();
+    new KlondikeTextualController(new StringReader("batch mpf 1 1 md 1\nq"), output)
+        .playGame(model, model.createNewDeck(), false, 1, 1);
+    assertEquals(0, model.getScore());
+    assertTrue(output.toString().contains("Batch move 2 is illegal"));
+  }
+
+  @Test
+  public void testMalformedBatchIsReported() {
+    StringBuilder output = new StringBuilder();
+    BasicKlondike model = new BasicKlondike();
+    new KlondikeTextualController(
+        new StringReader("batch mpf 1 1 xx\nbatch mdf 0\nbatch mpf 1\nbatch\nq"), output)
+        .playGame(model, model.createNewDeck(), false, 1, 1);
+    assertEquals(0, model.getScore());
+    assertTrue(output.toString().contains("Invalid move. Play again. Unknown batch command xx"));
+    assertTrue(output.toString().contains("Batch argument out of range: 0"));
+    assertTrue(output.toString().contains("Batch commands need number arguments"));
+    assertTrue(output.toString().contains("Empty batch"));
+  }
+
+  @Test
+  public void testBatchCommandRejectedByPlainModel() {
+    StringBuilder log = new StringBuilder();
+    String result = run("batch dd\nq", log, new StringBuilder());
+    assertTrue(result.contains("Invalid move. Play again."));
+    assertTrue(!log.toString().contains("discardDraw"));
+  }
+
+  @Test
+  public void testRejectedMoveNamesTheRule() {
+    StringBuilder output = new StringBuilder();
+    BasicKlondike model = new BasicKlondike();
+    new KlondikeTextualController(new StringReader("mpp 2 1 2 mpf 1 9 q"), output)
+        .playGame(model, model.createNewDeck(), false, 7, 3);
+    assertTrue(output.toString().contains("Invalid move. Play again. Cannot move to same pile"));
+    assertTrue(output.toString().contains("Invalid move. Play again. No such foundation"));
+  }
 }
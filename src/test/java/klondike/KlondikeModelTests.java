@@ -2,12 +2,24 @@ package klondike;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.BatchMovable;
+import klondike.model.hw02.BoardSnapshot;
+import klondike.model.hw02.CardIdReadable;
+import klondike.model.hw02.CardImpl;
+import klondike.model.hw02.GameListener;
 import klondike.model.hw02.KlondikeCard;
 import klondike.model.hw02.KlondikeModel;
+import klondike.model.hw02.KlondikeRules;
+import klondike.model.hw02.TryMovable;
+import klondike.model.hw04.KlondikeCreator;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -80,4 +92,317 @@ public class KlondikeModelTests {
           model.getDrawCards().contains(first));
     }
   }
+
+  @Test
+  public void testAutoCompleteClearsOrderedDeck() {
+    BasicKlondike basic = new BasicKlondike();
+    basic.startGame(deck, false, 1, 1);
+    assertEquals(52, basic.autoComplete());
+    assertEquals(52, basic.getScore());
+    assertTrue(basic.isGameOver());
+  }
+
+  @Test
+  public void testAutoCompleteStopsAtUnsafeCard() {
+    List<KlondikeCard> custom = new ArrayList<>(deck);
+    custom.remove(new CardImpl(KlondikeCard.Suit.CLUBS, 2));
+    custom.remove(new CardImpl(KlondikeCard.Suit.CLUBS, 3));
+    custom.add(1, new CardImpl(KlondikeCard.Suit.CLUBS, 2));
+    custom.add(2, new CardImpl(KlondikeCard.Suit.CLUBS, 3));
+    BasicKlondike basic = new BasicKlondike();
+    basic.startGame(custom, false, 1, 1);
+    // the 3 of clubs may still be needed for a red 2, so it stays in the draw pile
+    assertEquals(2, basic.autoComplete());
+    assertEquals(new CardImpl(KlondikeCard.Suit.CLUBS, 3), basic.getDrawCards().get(0));
+  }
+
+  @Test
+  public void testReducedDeckHasFourFoundations() {
+    model.startGame(KlondikeCreator.createDeck(1, 5), false, 3, 1);
+    assertEquals(4, model.getNumFoundations());
+    assertEquals(20, ((BasicKlondike) model).autoComplete());
+    assertTrue(model.isGameOver());
+  }
+
+  @Test
+  public void testDoubleDeckHasEightFoundations() {
+    List<KlondikeCard> doubleDeck = KlondikeCreator.createDeck(2, 13);
+    model.startGame(doubleDeck, false, 1, 1);
+    assertEquals(8, model.getNumFoundations());
+    // the first Three waits for the second deck's red Twos, still in the stock
+    assertEquals(8, ((BasicKlondike) model).autoComplete());
+
+    doubleDeck.sort(Comparator.comparingInt(KlondikeCard::getValue));
+    model.startGame(doubleDeck, false, 1, 1);
+    assertEquals(104, ((BasicKlondike) model).autoComplete());
+    assertEquals(104, model.getScore());
+    assertTrue(model.isGameOver());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStartGameRejectsIncompleteRun() {
+    deck.remove(new CardImpl(KlondikeCard.Suit.HEARTS, 9));
+    model.startGame(deck, false, 7, 3);
+  }
+
+  @Test
+  public void testApplyMovesPlaysWholeBatch() {
+    model.startGame(deck, false, 1, 1);
+    int[] moves = {
+        BatchMovable.encode(BatchMovable.PILE_TO_FOUNDATION, 0, 0, 0),
+        BatchMovable.encode(BatchMovable.DRAW_TO_FOUNDATION, 0, 0, 1),
+        BatchMovable.encode(BatchMovable.DRAW_TO_FOUNDATION, 0, 0, 2)};
+    assertEquals(-1, ((BatchMovable) model).applyMoves(moves));
+    assertEquals(3, model.getScore());
+    assertEquals(0, model.getPileHeight(0));
+  }
+
+  @Test
+  public void testApplyMovesRollsBackOnIllegalMove() {
+    model.startGame(deck, false, 1, 1);
+    List<KlondikeCard> draw = model.getDrawCards();
+    int[] moves = {
+        BatchMovable.encode(BatchMovable.PILE_TO_FOUNDATION, 0, 0, 0),
+        BatchMovable.encode(BatchMovable.DISCARD, 0, 0, 0),
+        BatchMovable.encode(BatchMovable.DISCARD, 0, 0, 0),
+        BatchMovable.encode(BatchMovable.DRAW, 0, 0, 0)};
+    assertEquals(3, ((BatchMovable) model).applyMoves(moves));
+    assertEquals(0, model.getScore());
+    assertEquals(1, model.getPileHeight(0));
+    assertNull(model.getCardAt(0));
+    assertEquals(draw, model.getDrawCards());
+
+    assertEquals(-1, ((BatchMovable) model).applyMoves(new int[] {moves[0]}));
+    assertEquals(1, model.getScore());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testApplyMovesBeforeStartFails() {
+    ((BatchMovable) model).applyMoves(new int[0]);
+  }
+
+  @Test
+  public void testPublishedSnapshotsAreImmutableAndVersioned() {
+    BasicKlondike basic = (BasicKlondike) model;
+    assertNull(basic.snapshot());
+    basic.startGame(deck, false, 1, 1);
+    assertNull(basic.snapshot());
+    basic.setPublishing(true);
+    BoardSnapshot<KlondikeCard> first = basic.snapshot();
+    assertEquals(1, first.getPileHeight(0));
+    basic.moveToFoundation(0, 0);
+    BoardSnapshot<KlondikeCard> second = basic.snapshot();
+    assertTrue(second.version() > first.version());
+    assertEquals(1, first.getPileHeight(0));
+    assertNull(first.getCardAt(0));
+    assertEquals(0, second.getPileHeight(0));
+    assertEquals(1, second.getScore());
+    assertEquals(basic.getCardAt(0), second.getCardAt(0));
+  }
+
+  @Test
+  public void testSnapshotsReadSafelyFromAnotherThread() throws InterruptedException {
+    BasicKlondike basic = (BasicKlondike) model;
+    basic.startGame(deck, true, 7, 1);
+    basic.setPublishing(true);
+    long[] last = {0};
+    boolean[] consistent = {true};
+    Thread reader = new Thread(() -> {
+      for (int i = 0; i < 10_000; i++) {
+        BoardSnapshot<KlondikeCard> board = basic.snapshot();
+        int cards = 0;
+        for (int p = 0; p < board.getNumPiles(); p++) {
+          cards += board.getPileHeight(p);
+        }
+        consistent[0] &= cards <= 28 && board.version() >= last[0];
+        last[0] = board.version();
+      }
+    });
+    reader.start();
+    for (int i = 0; i < 5_000; i++) {
+      basic.discardDraw();
+    }
+    reader.join();
+    assertTrue(consistent[0]);
+  }
+
+  /**
+   * A listener that writes each event it receives on its own line.
+   */
+  private static final class EventLog implements GameListener {
+    private final StringBuilder log = new StringBuilder();
+
+    @Override
+    public void gameStarted() {
+      log.append("started\n");
+    }
+
+    @Override
+    public void pileMoved(int src, int numCards, int dest) {
+      log.append("pile ").append(src).append(" ").append(numCards).append(" ")
+          .append(dest).append("\n");
+    }
+
+    @Override
+    public void drawMoved(int dest) {
+      log.append("draw ").append(dest).append("\n");
+    }
+
+    @Override
+    public void cardFounded(int src, int foundation, KlondikeCard card) {
+      log.append("found ").append(src).append(" ").append(foundation).append(" ")
+          .append(card).append("\n");
+    }
+
+    @Override
+    public void cardFlipped(int pile, int index, KlondikeCard card) {
+      log.append("flip ").append(pile).append(" ").append(index).append(" ")
+          .append(card).append("\n");
+    }
+
+    @Override
+    public void drawDiscarded() {
+      log.append("discard\n");
+    }
+
+    @Override
+    public void stockRecycled() {
+      log.append("recycle\n");
+    }
+  }
+
+  @Test
+  public void testListenersReceiveDeltaEvents() {
+    BasicKlondike basic = (BasicKlondike) model;
+    EventLog events = new EventLog();
+    basic.addListener(events);
+    basic.startGame(deck, false, 2, 1);
+    basic.moveToFoundation(1, 0);
+    basic.discardDraw();
+    assertEquals("started\nfound 1 0 " + deck.get(2) + "\nflip 1 0 " + deck.get(1)
+        + "\ndiscard\n", events.log.toString());
+
+    events.log.setLength(0);
+    int[] bad = {BatchMovable.encode(BatchMovable.PILE_TO_FOUNDATION, 0, 0, 1),
+        BatchMovable.encode(BatchMovable.DRAW, 0, 0, 0)};
+    assertEquals(1, basic.applyMoves(bad));
+    assertEquals("", events.log.toString());
+    assertEquals(-1, basic.applyMoves(new int[] {bad[0]}));
+    assertEquals("found 0 1 " + deck.get(0) + "\n", events.log.toString());
+
+    basic.removeListener(events);
+    basic.discardDraw();
+    assertEquals("found 0 1 " + deck.get(0) + "\n", events.log.toString());
+  }
+
+  @Test
+  public void testAutoCompleteReportsEachCard() {
+    BasicKlondike basic = (BasicKlondike) model;
+    EventLog events = new EventLog();
+    basic.addListener(events);
+    basic.startGame(KlondikeCreator.createDeck(1, 1), false, 1, 1);
+    assertEquals(4, basic.autoComplete());
+    assertEquals(4, events.log.toString().split("found").length - 1);
+    assertTrue(events.log.toString().contains("found -1 3 "));
+  }
+
+  @Test
+  public void testRandomOperationsKeepInvariants() {
+    long[] counts = ModelStressBenchmark.stress(KlondikeCreator.GameType.BASIC, 7, 100_000);
+    assertTrue(counts[0] > 10_000);
+    assertTrue(counts[1] > 10_000);
+  }
+
+  @Test
+  public void testTryMovesReportTheBrokenRule() {
+    BasicKlondike basic = (BasicKlondike) model;
+    assertEquals(TryMovable.NOT_STARTED, basic.canMovePile(1, 1, 2));
+    basic.startGame(deck, false, 7, 3);
+    assertEquals(TryMovable.NO_SUCH_PILE, basic.tryMovePile(7, 1, 0));
+    assertEquals(TryMovable.SAME_PILE, basic.tryMovePile(1, 1, 1));
+    assertEquals(TryMovable.BAD_COUNT, basic.tryMovePile(1, 3, 2));
+    assertEquals(TryMovable.NOT_VISIBLE, basic.tryMovePile(1, 2, 2));
+    assertEquals(TryMovable.NO_SUCH_FOUNDATION, basic.tryMoveToFoundation(0, 4));
+    assertEquals(TryMovable.OK, basic.canMoveToFoundation(0, 0));
+    assertEquals(0, basic.getScore());
+    assertEquals(TryMovable.OK, basic.tryMoveToFoundation(0, 0));
+    assertEquals(1, basic.getScore());
+    assertEquals(TryMovable.EMPTY_PILE, basic.tryMoveToFoundation(0, 0));
+    assertEquals(TryMovable.CANNOT_FOUND, basic.tryMoveDrawToFoundation(0));
+    assertEquals(TryMovable.OK, basic.tryDiscardDraw());
+    assertEquals(1, basic.getScore());
+  }
+
+  @Test
+  public void testThrowingMoveNamesTheBrokenRule() {
+    model.startGame(deck, false, 7, 3);
+    try {
+      model.movePile(1, 2, 2);
+      fail("move should have been rejected");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().contains(TryMovable.describe(TryMovable.NOT_VISIBLE)));
+    }
+  }
+
+  @Test
+  public void testCardIdsMatchVisibleCards() {
+    BasicKlondike basic = (BasicKlondike) model;
+    basic.startGame(deck, true, 7, 3);
+    basic.discardDraw();
+    byte[] cells = new byte[52];
+    for (int p = 0; p < basic.getNumPiles(); p++) {
+      assertEquals(basic.getPileHeight(p), basic.copyPile(p, cells));
+      for (int c = 0; c < basic.getPileHeight(p); c++) {
+        int expected = basic.isCardVisible(p, c)
+            ? KlondikeRules.cardId(basic.getCardAt(p, c)) : CardIdReadable.HIDDEN;
+        assertEquals(expected, basic.cardIdAt(p, c));
+        assertEquals(expected, cells[c]);
+      }
+    }
+    List<KlondikeCard> draw = basic.getDrawCards();
+    assertEquals(draw.size(), basic.copyDrawCards(cells));
+    for (int i = 0; i < draw.size(); i++) {
+      assertEquals(KlondikeRules.cardId(draw.get(i)), basic.drawCardId(i));
+      assertEquals(KlondikeRules.cardId(draw.get(i)), cells[i]);
+    }
+    assertEquals(CardIdReadable.NO_CARD, basic.drawCardId(draw.size()));
+    assertEquals(CardIdReadable.NO_CARD, basic.foundationTopId(0));
+  }
+
+  /**
+   * Returns the deck's card of the given suit and value.
+   */
+  private KlondikeCard card(KlondikeCard.Suit suit, int value) {
+    return deck.stream().filter(c -> c.getSuit() == suit && c.getValue() == value)
+        .findFirst().orElseThrow();
+  }
+
+  @Test
+  public void testMovedRunsStayVisibleAndMoveTogether() {
+    BasicKlondike basic = (BasicKlondike) model;
+    List<KlondikeCard> order = new ArrayList<>(List.of(
+        card(KlondikeCard.Suit.SPADES, 8), card(KlondikeCard.Suit.CLUBS, 5),
+        card(KlondikeCard.Suit.HEARTS, 7), card(KlondikeCard.Suit.SPADES, 6)));
+    for (KlondikeCard c : deck) {
+      if (!order.contains(c)) {
+        order.add(c);
+      }
+    }
+    EventLog events = new EventLog();
+    basic.startGame(order, false, 2, 1);
+    basic.addListener(events);
+    basic.moveDraw(1);
+    assertTrue(basic.isCardVisible(1, 1));
+    assertFalse(basic.isCardVisible(1, 0));
+    assertEquals(2, basic.runLength(1));
+    assertEquals(TryMovable.NOT_VISIBLE, basic.canMovePile(1, 3, 0));
+
+    basic.movePile(1, 2, 0);
+    assertEquals(3, basic.runLength(0));
+    assertEquals(1, basic.runLength(1));
+    assertTrue(basic.isCardVisible(1, 0));
+    assertEquals("draw 1\npile 1 2 0\nflip 1 0 " + order.get(1) + "\n",
+        events.log.toString());
+    assertEquals(TryMovable.CANNOT_STACK, basic.canMovePile(0, 3, 1));
+  }
 }
@@ -0,0 +1,159 @@
+package klondike;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.CardImpl;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeCard.Suit;
+import klondike.model.hw02.KlondikeEngine;
+import klondike.model.hw02.KlondikeRules;
+import klondike.model.hw04.KlondikeCreator;
+import org.junit.Test;
+
+/**
+ * Tests for the rule descriptor tables and the shared engine behind the models.
+ */
+public class KlondikeRulesTests {
+
+  private static int id(Suit suit, int value) {
+    return KlondikeRules.cardId(new CardImpl(suit, value));
+  }
+
+  @Test
+  public void testBasicStacksAlternatingColorsAndKingsOnEmpty() {
+    KlondikeRules rules = KlondikeRules.BASIC;
+    assertTrue(rules.canStack(id(Suit.HEARTS, 6), id(Suit.SPADES, 7)));
+    assertFalse(rules.canStack(id(Suit.CLUBS, 6), id(Suit.SPADES, 7)));
+    assertFalse(rules.canStack(id(Suit.HEARTS, 5), id(Suit.SPADES, 7)));
+    assertTrue(rules.canStack(id(Suit.CLUBS, 13), KlondikeRules.EMPTY));
+    assertFalse(rules.canStack(id(Suit.CLUBS, 12), KlondikeRules.EMPTY));
+  }
+
+  @Test
+  public void testWhiteheadStacksSameColorAndRunsBySuit() {
+    KlondikeRules rules = KlondikeRules.WHITEHEAD;
+    assertTrue(rules.canStack(id(Suit.CLUBS, 6), id(Suit.SPADES, 7)));
+    assertFalse(rules.canStack(id(Suit.HEARTS, 6), id(Suit.SPADES, 7)));
+    assertTrue(rules.canStack(id(Suit.HEARTS, 4), KlondikeRules.EMPTY));
+    assertTrue(rules.continuesRun(id(Suit.SPADES, 7), id(Suit.SPADES, 6)));
+    assertFalse(rules.continuesRun(id(Suit.SPADES, 7), id(Suit.CLUBS, 6)));
+  }
+
+  @Test
+  public void testSafeToFoundNeedsEveryBuilderUp() {
+    KlondikeRules rules = KlondikeRules.BASIC;
+    int fiveOfHearts = id(Suit.HEARTS, 5);
+    long blackFours = 0;
+    for (Suit suit : new Suit[] {Suit.CLUBS, Suit.SPADES}) {
+      for (int value = 1; value <= 4; value++) {
+        blackFours |= 1L << id(suit, value);
+      }
+    }
+    assertTrue(rules.isSafeToFound(id(Suit.HEARTS, 2), 0));
+    assertFalse(rules.isSafeToFound(fiveOfHearts, blackFours & ~(1L << id(Suit.CLUBS, 4))));
+    assertTrue(rules.isSafeToFound(fiveOfHearts, blackFours));
+  }
+
+  @Test
+  public void testGameTypesCarryTheirModelsRules() {
+    assertSame(KlondikeRules.BASIC, KlondikeCreator.GameType.BASIC.rules());
+    assertSame(KlondikeRules.WHITEHEAD, KlondikeCreator.GameType.WHITEHEAD.rules());
+  }
+
+  @Test
+  public void testEngineRunsNewRuleSet() {
+    KlondikeRules faceUpBasic = new KlondikeRules(true, false, false, true);
+    KlondikeEngine engine = new KlondikeEngine(faceUpBasic);
+    List<KlondikeCard> deck = new BasicKlondike().createNewDeck();
+    engine.deal(deck, 2);
+    assertEquals(0, engine.visibleFrom(1));
+    assertSame(deck.get(2), engine.card(1, 1));
+    assertEquals(49, engine.drawSize());
+    assertTrue(engine.canMoveToFoundation(0, 0));
+    engine.moveToFoundation(0, 0);
+    assertFalse(engine.canMovePile(1, 2, 0));
+    assertTrue(engine.canMovePile(1, 1, 0));
+    assertTrue(engine.discardDraw());
+    assertEquals(1, engine.discardSize());
+  }
+
+  @Test
+  public void testPlaceableOnInvertsStackable() {
+    for (KlondikeRules rules : new KlondikeRules[] {KlondikeRules.BASIC,
+        KlondikeRules.WHITEHEAD}) {
+      for (int card = 0; card < KlondikeRules.DECK_SIZE; card++) {
+        for (int onto = 0; onto <= KlondikeRules.EMPTY; onto++) {
+          assertEquals(rules.canStack(card, onto),
+              (rules.placeableOn(card) >>> onto & 1) != 0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTopMasksFollowTheBoard() {
+    List<KlondikeCard> deck = new BasicKlondike().createNewDeck();
+    Random random = new Random(7);
+    for (KlondikeRules rules : new KlondikeRules[] {KlondikeRules.BASIC,
+        KlondikeRules.WHITEHEAD}) {
+      KlondikeEngine engine = new KlondikeEngine(rules);
+      for (int game = 0; game < 20; game++) {
+        Collections.shuffle(deck, random);
+        engine.deal(deck, 7);
+        for (int step = 0; step < 300; step++) {
+          for (int card = 0; card < KlondikeRules.DECK_SIZE; card++) {
+            assertEquals(expectedTargets(engine, rules, card), engine.placementTargets(card));
+          }
+          boolean anyTop = false;
+          for (int p = 0; p < engine.numPiles(); p++) {
+            boolean expected = false;
+            for (int f = 0; f < engine.numFoundations(); f++) {
+              expected |= engine.canMoveToFoundation(p, f);
+            }
+            assertEquals(expected, engine.canFoundAnywhere(p));
+            anyTop |= expected;
+          }
+          assertEquals(anyTop, engine.canFoundAnyTop());
+          playRandomMove(engine, random);
+        }
+      }
+    }
+  }
+
+  private static long expectedTargets(KlondikeEngine engine, KlondikeRules rules, int card) {
+    long targets = 0;
+    for (int p = 0; p < engine.numPiles(); p++) {
+      int h = engine.height(p);
+      int onto = h == 0 ? KlondikeRules.EMPTY : engine.cardId(p, h - 1);
+      if (rules.canStack(card, onto)) {
+        targets |= 1L << onto;
+      }
+    }
+    return targets;
+  }
+
+  private static void playRandomMove(KlondikeEngine engine, Random random) {
+    int piles = engine.numPiles();
+    int src = random.nextInt(piles);
+    int dest = random.nextInt(piles);
+    int foundation = random.nextInt(engine.numFoundations());
+    if (engine.canMoveToFoundation(src, foundation)) {
+      engine.moveToFoundation(src, foundation);
+    } else if (engine.canMovePile(src, engine.runLength(src), dest)) {
+      engine.movePile(src, engine.runLength(src), dest);
+    } else if (engine.canMoveDraw(dest)) {
+      engine.moveDraw(dest);
+    } else if (engine.canMoveDrawToFoundation(foundation)) {
+      engine.moveDrawToFoundation(foundation);
+    } else {
+      engine.discardDraw();
+    }
+  }
+}
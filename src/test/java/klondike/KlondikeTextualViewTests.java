@@ -1,9 +1,11 @@
 package klondike;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.BoardSnapshot;
 import klondike.model.hw02.KlondikeCard;
 import klondike.model.hw02.KlondikeModel;
 import klondike.view.KlondikeTextualView;
@@ -49,4 +51,21 @@ public class KlondikeTextualViewTests {
     String out = view.toString();
     assertTrue(out.contains("?") || out.contains("X"));
   }
+
+  @Test
+  public void testSnapshotViewMatchesModelView() {
+    BasicKlondike basic = new BasicKlondike();
+    basic.startGame(basic.createNewDeck(), true, 7, 3);
+    basic.setPublishing(true);
+    String live = new KlondikeTextualView(basic).toString();
+    BoardSnapshot<KlondikeCard> snapshot = basic.snapshot();
+    assertEquals(live, new KlondikeTextualView(snapshot, new StringBuilder()).toString());
+    basic.discardDraw();
+    assertEquals(live, new KlondikeTextualView(snapshot, new StringBuilder()).toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullSnapshotThrows() {
+    new KlondikeTextualView((BoardSnapshot<?>) null, new StringBuilder());
+  }
 }
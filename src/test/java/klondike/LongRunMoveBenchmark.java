@@ -0,0 +1,97 @@
+package klondike;
+
+import java.util.ArrayList;
+import java.util.List;
+import klondike.model.hw02.BatchMovable;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw04.WhiteheadKlondike;
+
+/**
+ * Measures moving a long run between cascades. A Whitehead game is set up with a
+ * full suited run of Spades, King to Ace, on one cascade and an empty cascade next
+ * to it, and the run is moved back and forth, first as single moves and then as
+ * two-move batches, whose checkpoint copies the whole board. Run with {@code gradle
+ * bench -Pbench=LongRunMoveBenchmark}.
+ */
+public final class LongRunMoveBenchmark {
+  private static final int WARMUP = 500_000;
+  private static final int MOVES = 10_000_000;
+  private static final int RUN = 13;
+
+  private LongRunMoveBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark and prints the time per move of the 13-card run.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    WhiteheadKlondike game = setUp();
+    shuttle(game, WARMUP);
+    batches(game, WARMUP / 2);
+    long start = System.nanoTime();
+    shuttle(game, MOVES);
+    long single = System.nanoTime() - start;
+    start = System.nanoTime();
+    batches(game, MOVES / 2);
+    long batched = System.nanoTime() - start;
+    System.out.printf("13-card movePile:       %6.1f ns/move%n", (double) single / MOVES);
+    System.out.printf("13-card move in batch:  %6.1f ns/move%n", (double) batched / MOVES);
+  }
+
+  /**
+   * Deals two cascades, the King of Spades alone and the two lowest Hearts, sends
+   * the Hearts up and builds the rest of the Spades onto the King from the stock.
+   */
+  private static WhiteheadKlondike setUp() {
+    WhiteheadKlondike game = new WhiteheadKlondike();
+    List<KlondikeCard> cards = game.createNewDeck();
+    List<KlondikeCard> deck = new ArrayList<>();
+    deck.add(find(cards, KlondikeCard.Suit.SPADES, RUN));
+    deck.add(find(cards, KlondikeCard.Suit.HEARTS, 2));
+    deck.add(find(cards, KlondikeCard.Suit.HEARTS, 1));
+    for (int v = RUN - 1; v >= 1; v--) {
+      deck.add(find(cards, KlondikeCard.Suit.SPADES, v));
+    }
+    for (KlondikeCard card : cards) {
+      if (!deck.contains(card)) {
+        deck.add(card);
+      }
+    }
+    game.startGame(deck, false, 2, 1);
+    game.moveToFoundation(1, 0);
+    game.moveToFoundation(1, 0);
+    for (int v = RUN - 1; v >= 1; v--) {
+      game.moveDraw(0);
+    }
+    return game;
+  }
+
+  private static KlondikeCard find(List<KlondikeCard> cards, KlondikeCard.Suit suit,
+                                   int value) {
+    for (KlondikeCard card : cards) {
+      if (card.getSuit() == suit && card.getValue() == value) {
+        return card;
+      }
+    }
+    throw new IllegalStateException("Deck has no " + value + " of " + suit);
+  }
+
+  private static void shuttle(WhiteheadKlondike game, int moves) {
+    for (int i = 0; i < moves; i += 2) {
+      game.movePile(0, RUN, 1);
+      game.movePile(1, RUN, 0);
+    }
+  }
+
+  private static void batches(WhiteheadKlondike game, int batches) {
+    int[] there = {BatchMovable.encode(BatchMovable.PILE, 0, RUN, 1),
+        BatchMovable.encode(BatchMovable.PILE, 1, RUN, 0)};
+    for (int i = 0; i < batches; i++) {
+      if (game.applyMoves(there) >= 0) {
+        throw new IllegalStateException("Benchmark batch was rejected");
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package klondike;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import klondike.model.hw02.AutoCompletable;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeModel;
+import klondike.model.hw02.Resettable;
+import klondike.model.hw04.KlondikeCreator;
+import klondike.model.hw04.KlondikeCreator.GameType;
+
+/**
+ * Measures the garbage produced by dealing many games, comparing a new model and
+ * deck per game against a pooled model re-dealt with {@link Resettable#reset}.
+ * Each game is dealt shuffled and then cycled through the stock with auto-complete.
+ * Run with {@code gradle bench -Pbench=ModelPoolBenchmark}.
+ */
+public final class ModelPoolBenchmark {
+  private static final int WARMUP = 200_000;
+  private static final int GAMES = 1_000_000;
+  private static final int DISCARDS = 30;
+
+  private ModelPoolBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark and prints time, bytes allocated and collections per approach.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    for (GameType type : GameType.values()) {
+      fresh(type, WARMUP);
+      pooled(type, WARMUP);
+      report(type + " new model per game", () -> fresh(type, GAMES));
+      report(type + " pooled + reset", () -> pooled(type, GAMES));
+    }
+  }
+
+  private static void fresh(GameType type, int games) {
+    for (int i = 0; i < games; i++) {
+      KlondikeModel<KlondikeCard> model = KlondikeCreator.create(type);
+      model.startGame(model.createNewDeck(), true, 7, 3);
+      play(model);
+    }
+  }
+
+  private static void pooled(GameType type, int games) {
+    List<KlondikeCard> deck = KlondikeCreator.create(type).createNewDeck();
+    for (int i = 0; i < games; i++) {
+      Resettable model = KlondikeCreator.acquire(type);
+      model.reset(deck, true, 7, 3);
+      play(model);
+      KlondikeCreator.release(type, model);
+    }
+  }
+
+  private static void play(KlondikeModel<KlondikeCard> model) {
+    AutoCompletable auto = (AutoCompletable) model;
+    for (int i = 0; i < DISCARDS; i++) {
+      auto.autoComplete();
+      model.discardDraw();
+    }
+  }
+
+  private static void report(String label, Runnable run) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().threadId();
+    long bytes = threads.getThreadAllocatedBytes(thread);
+    long collections = collections();
+    long start = System.nanoTime();
+    run.run();
+    long nanos = System.nanoTime() - start;
+    bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+    System.out.printf("%-32s %7.0f ns/game %8.1f bytes/game %6d GCs%n", label,
+        (double) nanos / GAMES, (double) bytes / GAMES, collections() - collections);
+  }
+
+  private static long collections() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, gc.getCollectionCount());
+    }
+    return total;
+  }
+}
@@ -0,0 +1,346 @@
+package klondike;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import klondike.model.hw02.AutoCompletable;
+import klondike.model.hw02.BatchMovable;
+import klondike.model.hw02.CardIdReadable;
+import klondike.model.hw02.GameEventSource;
+import klondike.model.hw02.GameListener;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.Resettable;
+import klondike.model.hw04.KlondikeCreator;
+import klondike.model.hw04.KlondikeCreator.GameType;
+
+/**
+ * Hammers the models with random operations from seeded deals and checks the game's
+ * invariants after every step: all cards are accounted for, no card appears twice,
+ * foundations hold one suit in rank order, the visible cards of a cascade are a
+ * suffix that includes its top and holds its movable run, and a rejected operation
+ * changes nothing. Most
+ * operations are aimed at valid indices, so many are legal; the rest probe the
+ * boundaries. A failure names the seed, game and step so it can be replayed.
+ *
+ * <p>Each thread plays its own model, so running several measures how the models
+ * scale. Run with {@code gradle bench -Pbench=ModelStressBenchmark}, optionally
+ * passing {@code -PbenchArgs="threads opsPerThread seed"}.
+ */
+public final class ModelStressBenchmark {
+  private static final int OPS_PER_THREAD = 2_000_000;
+  private static final int OPS_PER_GAME = 2_000;
+  private static final int NUM_PILES = 7;
+
+  private ModelStressBenchmark() {
+  }
+
+  /**
+   * Runs every variant on the given number of threads and prints the throughput.
+   *
+   * @param args optionally the thread count, the operations per thread and the seed
+   * @throws InterruptedException if interrupted while waiting for the threads
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int threads = args.length > 0 ? Integer.parseInt(args[0])
+        : Runtime.getRuntime().availableProcessors();
+    long ops = args.length > 1 ? Long.parseLong(args[1]) : OPS_PER_THREAD;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+    for (GameType type : GameType.values()) {
+      stress(type, seed, ops / 10);
+      long[][] counts = new long[threads][];
+      RuntimeException[] failures = new RuntimeException[threads];
+      Error[] errors = new Error[threads];
+      List<Thread> workers = new ArrayList<>();
+      long start = System.nanoTime();
+      for (int t = 0; t < threads; t++) {
+        int index = t;
+        Thread worker = new Thread(() -> {
+          try {
+            counts[index] = stress(type, seed + index, ops);
+          } catch (RuntimeException e) {
+            failures[index] = e;
+          } catch (Error e) {
+            errors[index] = e;
+          }
+        }, "klondike-stress-" + t);
+        workers.add(worker);
+        worker.start();
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      for (int t = 0; t < threads; t++) {
+        if (errors[t] != null) {
+          throw errors[t];
+        }
+        if (failures[t] != null) {
+          throw failures[t];
+        }
+      }
+      long legal = 0;
+      long rejected = 0;
+      long games = 0;
+      for (long[] c : counts) {
+        legal += c[0];
+        rejected += c[1];
+        games += c[2];
+      }
+      System.out.printf("%-9s %d threads: %,d ops (%,d legal, %,d rejected) in %,d games, "
+          + "%.2f s, %,.0f ops/s%n", type, threads, legal + rejected, legal, rejected, games,
+          seconds, (legal + rejected) / seconds);
+    }
+  }
+
+  /**
+   * Plays random operations on one model and checks the invariants after each.
+   *
+   * @param type the variant to play
+   * @param seed the seed of the deals and the operations
+   * @param ops the number of operations
+   * @return the number of legal operations, rejected operations and games played
+   * @throws AssertionError if an invariant breaks, naming the seed, game and step
+   */
+  static long[] stress(GameType type, long seed, long ops) {
+    Resettable model = (Resettable) KlondikeCreator.create(type);
+    Checker checker = new Checker(type == GameType.WHITEHEAD);
+    ((GameEventSource) model).addListener(checker);
+    Random random = new Random(seed);
+    List<KlondikeCard> deck = new ArrayList<>(model.createNewDeck());
+    long legal = 0;
+    long games = 0;
+    long step = OPS_PER_GAME;
+    for (long op = 0; op < ops; op++) {
+      if (step == OPS_PER_GAME || model.isGameOver()) {
+        Collections.shuffle(deck, random);
+        model.reset(deck, false, NUM_PILES, 1 + random.nextInt(3));
+        checker.started(model, deck.size());
+        games++;
+        step = 0;
+      }
+      step++;
+      long before = checker.fingerprint(model);
+      int events = checker.events;
+      boolean applied;
+      try {
+        applied = play(model, random);
+      } catch (IllegalArgumentException | IllegalStateException e) {
+        applied = false;
+      }
+      if (applied) {
+        legal++;
+      } else if (checker.events != events || checker.fingerprint(model) != before) {
+        throw failure(type, seed, games, step, "a rejected operation changed the game");
+      }
+      String broken = checker.check(model);
+      if (broken != null) {
+        throw failure(type, seed, games, step, broken);
+      }
+    }
+    return new long[] {legal, ops - legal, games};
+  }
+
+  private static AssertionError failure(GameType type, long seed, long game, long step,
+                                        String message) {
+    return new AssertionError(type + " seed " + seed + " game " + game + " step " + step
+        + ": " + message);
+  }
+
+  /**
+   * Plays one random operation, with indices usually in range and sometimes one
+   * past either end.
+   *
+   * @return whether the operation was applied, false if it was rejected without an
+   *     exception
+   */
+  private static boolean play(Resettable model, Random random) {
+    int piles = model.getNumPiles();
+    int roll = random.nextInt(100);
+    if (roll < 35) {
+      int src = index(random, piles);
+      int height = src >= 0 && src < piles ? model.getPileHeight(src) : 1;
+      model.movePile(src, random.nextInt(height + 2), index(random, piles));
+    } else if (roll < 50) {
+      model.moveDraw(index(random, piles));
+    } else if (roll < 65) {
+      model.moveToFoundation(index(random, piles), index(random, model.getNumFoundations()));
+    } else if (roll < 75) {
+      model.moveDrawToFoundation(index(random, model.getNumFoundations()));
+    } else if (roll < 95) {
+      model.discardDraw();
+    } else if (roll < 98) {
+      return ((AutoCompletable) model).autoComplete() > 0;
+    } else {
+      int[] moves = new int[1 + random.nextInt(3)];
+      for (int i = 0; i < moves.length; i++) {
+        moves[i] = BatchMovable.encode(1 + random.nextInt(5), random.nextInt(piles),
+            1 + random.nextInt(2), random.nextInt(piles));
+      }
+      return ((BatchMovable) model).applyMoves(moves) < 0;
+    }
+    return true;
+  }
+
+  /**
+   * Returns an index in {@code [-1, size]}, out of range about one time in ten.
+   */
+  private static int index(Random random, int size) {
+    return random.nextInt(10) == 0 ? (random.nextBoolean() ? -1 : size)
+        : random.nextInt(size);
+  }
+
+  /**
+   * Follows a game through its events to learn what the public getters hide: how
+   * many cards each foundation holds and how many are left in the stock. Checks the
+   * invariants against the getters.
+   */
+  private static final class Checker implements GameListener {
+    private final boolean allVisible;
+    private final boolean[] seen = new boolean[52];
+    private int[] foundationCounts = new int[0];
+    private KlondikeCard.Suit[] foundationSuits = new KlondikeCard.Suit[0];
+    private int stock;
+    private int total;
+    private int events;
+
+    private Checker(boolean allVisible) {
+      this.allVisible = allVisible;
+    }
+
+    private void started(Resettable model, int cards) {
+      int foundations = model.getNumFoundations();
+      foundationCounts = new int[foundations];
+      foundationSuits = new KlondikeCard.Suit[foundations];
+      total = cards;
+      stock = cards;
+      for (int p = 0; p < model.getNumPiles(); p++) {
+        stock -= model.getPileHeight(p);
+      }
+    }
+
+    @Override
+    public void pileMoved(int src, int numCards, int dest) {
+      events++;
+    }
+
+    @Override
+    public void drawMoved(int dest) {
+      events++;
+      stock--;
+    }
+
+    @Override
+    public void cardFounded(int src, int foundation, KlondikeCard card) {
+      events++;
+      if (src == DRAW) {
+        stock--;
+      }
+      foundationCounts[foundation]++;
+      if (foundationSuits[foundation] == null) {
+        foundationSuits[foundation] = card.getSuit();
+      }
+    }
+
+    @Override
+    public void drawDiscarded() {
+      events++;
+    }
+
+    @Override
+    public void stockRecycled() {
+      events++;
+    }
+
+    /**
+     * Summarises the observable board: pile heights, score and the first draw card.
+     */
+    private long fingerprint(Resettable model) {
+      long hash = model.getScore();
+      for (int p = 0; p < model.getNumPiles(); p++) {
+        hash = hash * 31 + model.getPileHeight(p);
+      }
+      List<KlondikeCard> draw = model.getDrawCards();
+      return hash * 31 + (draw.isEmpty() ? -1 : id(draw.get(0)));
+    }
+
+    /**
+     * Checks every invariant.
+     *
+     * @return a description of the first broken invariant, or null if all hold
+     */
+    private String check(Resettable model) {
+      int cards = stock;
+      for (int p = 0; p < model.getNumPiles(); p++) {
+        cards += model.getPileHeight(p);
+      }
+      int founded = 0;
+      for (int f = 0; f < foundationCounts.length; f++) {
+        founded += foundationCounts[f];
+      }
+      if (stock < 0 || cards + founded != total) {
+        return "cards not conserved: " + (cards + founded) + " of " + total;
+      }
+      if (model.getScore() != founded) {
+        return "score " + model.getScore() + " but " + founded + " cards founded";
+      }
+      Arrays.fill(seen, false);
+      for (int f = 0; f < foundationCounts.length; f++) {
+        KlondikeCard top = model.getCardAt(f);
+        if (top == null ? foundationCounts[f] != 0
+            : top.getValue() != foundationCounts[f] || top.getSuit() != foundationSuits[f]) {
+          return "foundation " + f + " is out of order";
+        }
+        for (int v = 1; top != null && v <= top.getValue(); v++) {
+          if (!mark(top.getSuit().ordinal() * 13 + v - 1)) {
+            return "card on foundation " + f + " appears twice";
+          }
+        }
+      }
+      for (int p = 0; p < model.getNumPiles(); p++) {
+        int height = model.getPileHeight(p);
+        boolean visible = false;
+        int shownCards = 0;
+        for (int c = 0; c < height; c++) {
+          boolean shown = model.isCardVisible(p, c);
+          if (visible && !shown || allVisible && !shown) {
+            return "pile " + p + " hides card " + c + " above a visible card";
+          }
+          visible = shown;
+          shownCards += shown ? 1 : 0;
+          if (shown && !mark(id(model.getCardAt(p, c)))) {
+            return "card " + model.getCardAt(p, c) + " in pile " + p + " appears twice";
+          }
+        }
+        if (height > 0 && !visible) {
+          return "pile " + p + " hides its top card";
+        }
+        int run = ((CardIdReadable) model).runLength(p);
+        if (height > 0 ? run < 1 || run > shownCards : run != 0) {
+          return "pile " + p + " reports a run of " + run + " with " + shownCards + " shown";
+        }
+      }
+      List<KlondikeCard> draw = model.getDrawCards();
+      if (draw.size() > Math.min(model.getNumDraw(), stock)) {
+        return "draw shows " + draw.size() + " cards of " + stock;
+      }
+      for (KlondikeCard card : draw) {
+        if (!mark(id(card))) {
+          return "draw card " + card + " appears twice";
+        }
+      }
+      return null;
+    }
+
+    private boolean mark(int id) {
+      boolean fresh = !seen[id];
+      seen[id] = true;
+      return fresh;
+    }
+
+    private static int id(KlondikeCard card) {
+      return card.getSuit().ordinal() * 13 + card.getValue() - 1;
+    }
+  }
+}
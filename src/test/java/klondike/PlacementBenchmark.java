@@ -0,0 +1,123 @@
+package klondike;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeEngine;
+import klondike.model.hw02.KlondikeRules;
+
+/**
+ * Compares two ways of finding every cascade a card may go on: checking each
+ * cascade's top with {@link KlondikeRules#canStack}, and one AND of the card's
+ * {@link KlondikeRules#placeableOn} mask with the engine's set of cascade tops. The
+ * query is asked for every card of the deck on a set of seeded, partly played deals,
+ * the mix a move generator sees, and both ways must count the same targets. Run
+ * with {@code gradle bench -Pbench=PlacementBenchmark}.
+ */
+public final class PlacementBenchmark {
+  private static final int BOARDS = 64;
+  private static final int WARMUP = 2_000;
+  private static final int ROUNDS = 40_000;
+
+  private PlacementBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark and prints the time per placement query for both ways.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    for (KlondikeRules rules : new KlondikeRules[] {KlondikeRules.BASIC,
+        KlondikeRules.WHITEHEAD}) {
+      KlondikeEngine[] boards = boards(rules);
+      scan(boards, rules, WARMUP);
+      masks(boards, WARMUP);
+      long start = System.nanoTime();
+      long scanned = scan(boards, rules, ROUNDS);
+      long scanNanos = System.nanoTime() - start;
+      start = System.nanoTime();
+      long masked = masks(boards, ROUNDS);
+      long maskNanos = System.nanoTime() - start;
+      if (scanned != masked) {
+        throw new IllegalStateException("Scan found " + scanned + " targets, masks "
+            + masked);
+      }
+      double queries = (double) ROUNDS * BOARDS * KlondikeRules.DECK_SIZE;
+      System.out.printf("%-9s per-cascade scan: %6.2f ns/query  mask AND: %6.2f ns/query  "
+          + "%5.1fx%n", rules == KlondikeRules.BASIC ? "BASIC" : "WHITEHEAD",
+          scanNanos / queries, maskNanos / queries, (double) scanNanos / maskNanos);
+    }
+  }
+
+  /**
+   * Deals seeded games and plays a few random legal moves on each, so that some
+   * cascades are empty and some tops are shared.
+   */
+  private static KlondikeEngine[] boards(KlondikeRules rules) {
+    List<KlondikeCard> deck = new BasicKlondike().createNewDeck();
+    Random random = new Random(1);
+    KlondikeEngine[] boards = new KlondikeEngine[BOARDS];
+    for (int b = 0; b < BOARDS; b++) {
+      Collections.shuffle(deck, random);
+      KlondikeEngine engine = new KlondikeEngine(rules);
+      engine.deal(deck, 7);
+      for (int step = 0; step < 200; step++) {
+        int src = random.nextInt(7);
+        int dest = random.nextInt(7);
+        int foundation = random.nextInt(engine.numFoundations());
+        if (engine.canMoveToFoundation(src, foundation)) {
+          engine.moveToFoundation(src, foundation);
+        } else if (engine.canMovePile(src, engine.runLength(src), dest)) {
+          engine.movePile(src, engine.runLength(src), dest);
+        } else if (engine.canMoveDraw(dest)) {
+          engine.moveDraw(dest);
+        } else {
+          engine.discardDraw();
+        }
+      }
+      boards[b] = engine;
+    }
+    return boards;
+  }
+
+  private static long scan(KlondikeEngine[] boards, KlondikeRules rules, int rounds) {
+    long targets = 0;
+    for (int r = 0; r < rounds; r++) {
+      for (KlondikeEngine engine : boards) {
+        int piles = engine.numPiles();
+        for (int card = 0; card < KlondikeRules.DECK_SIZE; card++) {
+          for (int p = 0; p < piles; p++) {
+            int h = engine.height(p);
+            if (rules.canStack(card, h == 0 ? KlondikeRules.EMPTY : engine.cardId(p, h - 1))) {
+              targets++;
+            }
+          }
+        }
+      }
+    }
+    return targets;
+  }
+
+  /**
+   * Counts each cascade a card may go on. A single deck has no two equal tops, so
+   * only the empty cascades share a bit, and each of them counts as in the scan.
+   */
+  private static long masks(KlondikeEngine[] boards, int rounds) {
+    long targets = 0;
+    for (int r = 0; r < rounds; r++) {
+      for (KlondikeEngine engine : boards) {
+        for (int card = 0; card < KlondikeRules.DECK_SIZE; card++) {
+          long mask = engine.placementTargets(card);
+          targets += Long.bitCount(mask);
+          if ((mask >>> KlondikeRules.EMPTY & 1) != 0) {
+            targets += engine.emptyPiles() - 1;
+          }
+        }
+      }
+    }
+    return targets;
+  }
+}
@@ -0,0 +1,95 @@
+package klondike;
+
+import java.util.Arrays;
+import java.util.List;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.Resettable;
+import klondike.model.hw02.TryMovable;
+import klondike.model.hw04.KlondikeCreator;
+import klondike.model.hw04.KlondikeCreator.GameType;
+
+/**
+ * Compares the cost of a rejected move probe reported by exception, catching what
+ * {@code movePile} throws, against the result code of {@link TryMovable#tryMovePile}.
+ * The probes are every illegal source, depth and destination on a fresh deal, the
+ * mix a bot sees when it tries each move in turn. Run with
+ * {@code gradle bench -Pbench=RejectedMoveBenchmark}.
+ */
+public final class RejectedMoveBenchmark {
+  private static final int WARMUP = 200_000;
+  private static final int PROBES = 5_000_000;
+
+  private RejectedMoveBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark and prints the time per rejected probe for both approaches.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    for (GameType type : GameType.values()) {
+      Resettable model = (Resettable) KlondikeCreator.create(type);
+      List<KlondikeCard> deck = model.createNewDeck();
+      model.reset(deck, false, 7, 3);
+      int[] probes = illegalProbes((TryMovable) model);
+      throwing(model, probes, WARMUP);
+      coded((TryMovable) model, probes, WARMUP);
+      long start = System.nanoTime();
+      long rejected = throwing(model, probes, PROBES);
+      long throwingNanos = System.nanoTime() - start;
+      start = System.nanoTime();
+      rejected += coded((TryMovable) model, probes, PROBES);
+      long codedNanos = System.nanoTime() - start;
+      if (rejected != 2L * PROBES) {
+        throw new IllegalStateException("A benchmark probe was legal");
+      }
+      System.out.printf("%-9s exception: %8.1f ns/probe  result code: %6.1f ns/probe  "
+          + "%6.1fx%n", type, (double) throwingNanos / PROBES, (double) codedNanos / PROBES,
+          (double) throwingNanos / codedNanos);
+    }
+  }
+
+  /**
+   * Lists every illegal pile move on the board, by source, depth and destination,
+   * including depths of 0 and one past the source's height.
+   */
+  private static int[] illegalProbes(TryMovable model) {
+    int[] probes = new int[7 * 7 * 10];
+    int count = 0;
+    for (int src = 0; src < 7; src++) {
+      for (int depth = 0; depth <= src + 2; depth++) {
+        for (int dest = 0; dest < 7; dest++) {
+          if (model.canMovePile(src, depth, dest) != TryMovable.OK) {
+            probes[count++] = src << 16 | depth << 8 | dest;
+          }
+        }
+      }
+    }
+    return Arrays.copyOf(probes, count);
+  }
+
+  private static long throwing(Resettable model, int[] probes, int count) {
+    long rejected = 0;
+    for (int i = 0; i < count; i++) {
+      int p = probes[i % probes.length];
+      try {
+        model.movePile(p >>> 16, p >>> 8 & 0xFF, p & 0xFF);
+      } catch (IllegalArgumentException | IllegalStateException e) {
+        rejected++;
+      }
+    }
+    return rejected;
+  }
+
+  private static long coded(TryMovable model, int[] probes, int count) {
+    long rejected = 0;
+    for (int i = 0; i < count; i++) {
+      int p = probes[i % probes.length];
+      if (model.tryMovePile(p >>> 16, p >>> 8 & 0xFF, p & 0xFF) != TryMovable.OK) {
+        rejected++;
+      }
+    }
+    return rejected;
+  }
+}
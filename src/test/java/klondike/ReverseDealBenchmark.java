@@ -0,0 +1,62 @@
+package klondike;
+
+import klondike.analysis.Board;
+import klondike.analysis.ReverseDealGenerator;
+import klondike.analysis.Variant;
+import klondike.analysis.WinnableDeal;
+
+/**
+ * Measures how fast {@link ReverseDealGenerator} builds winnable deals on one
+ * thread, printing the deals per second, the walks started per deal and the average
+ * length of the winning lines. The warmup deals are replayed on a board to check
+ * that their lines win. Run with {@code gradle bench -Pbench=ReverseDealBenchmark},
+ * optionally passing {@code -PbenchArgs="numPiles numDraw deals"}.
+ */
+public final class ReverseDealBenchmark {
+  private static final int WARMUP = 20_000;
+  private static final int DEALS = 100_000;
+
+  private ReverseDealBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark for every variant.
+   *
+   * @param args optionally the number of cascades, the draw count and the number of
+   *     deals
+   */
+  public static void main(String[] args) {
+    int numPiles = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+    int numDraw = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    int deals = args.length > 2 ? Integer.parseInt(args[2]) : DEALS;
+    for (Variant variant : Variant.values()) {
+      ReverseDealGenerator generator = new ReverseDealGenerator(variant, numPiles, numDraw, 1);
+      for (int i = 0; i < WARMUP; i++) {
+        check(generator.next());
+      }
+      long walks = generator.walks();
+      long moves = 0;
+      long start = System.nanoTime();
+      for (int i = 0; i < deals; i++) {
+        moves += generator.next().solution().length;
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%-9s %d piles, draw %d: %,.0f deals/s, %.2f walks/deal, "
+          + "%.1f moves/solution%n", variant, numPiles, numDraw, deals / seconds,
+          (double) (generator.walks() - walks) / deals, (double) moves / deals);
+    }
+  }
+
+  private static void check(WinnableDeal deal) {
+    Board board = deal.board();
+    for (int move : deal.solution()) {
+      if (!board.isLegal(move)) {
+        throw new IllegalStateException("Generated line is illegal: " + deal);
+      }
+      board.apply(move);
+    }
+    if (!board.isWon()) {
+      throw new IllegalStateException("Generated line does not win: " + deal);
+    }
+  }
+}
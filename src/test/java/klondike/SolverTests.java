@@ -0,0 +1,355 @@
+package klondike;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import klondike.analysis.BeamSolver;
+import klondike.analysis.Board;
+import klondike.analysis.Deals;
+import klondike.analysis.Moves;
+import klondike.analysis.OptimalSolver;
+import klondike.analysis.ReverseDealGenerator;
+import klondike.analysis.SolvabilityIndex;
+import klondike.analysis.SolvabilitySweep;
+import klondike.analysis.SolveResult;
+import klondike.analysis.Solver;
+import klondike.analysis.SolverProgress;
+import klondike.analysis.SolverStats;
+import klondike.analysis.Variant;
+import klondike.analysis.WinnableDeal;
+import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeModel;
+import klondike.model.hw04.WhiteheadKlondike;
+import org.junit.Test;
+
+/**
+ * Tests for the solver and the memory-mapped solvability index.
+ */
+public class SolverTests {
+  private static final long WINNABLE_WHITEHEAD_SEED = 71;
+
+  @Test
+  public void testSolvesOrderedDeckAndReplaysOnModel() {
+    KlondikeModel<KlondikeCard> model = new BasicKlondike();
+    int[] ids = new int[52];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = i % 4 * 13 + i / 4;
+    }
+    SolveResult result = new Solver().solve(Board.deal(Variant.BASIC, ids, 1, 1));
+    assertEquals(SolveResult.Status.SOLVED, result.status());
+    model.startGame(model.createNewDeck(), false, 1, 1);
+    for (int move : result.solution()) {
+      Moves.play(model, move);
+    }
+    assertEquals(52, model.getScore());
+  }
+
+  @Test
+  public void testSolutionWinsWhiteheadDeal() {
+    Board deal = Board.deal(Variant.WHITEHEAD, Deals.ids(WINNABLE_WHITEHEAD_SEED), 7, 3);
+    SolveResult result = new Solver().solve(deal);
+    assertEquals(SolveResult.Status.SOLVED, result.status());
+
+    KlondikeModel<KlondikeCard> model = new WhiteheadKlondike();
+    model.startGame(Deals.deck(WINNABLE_WHITEHEAD_SEED), false, 7, 3);
+    for (int move : result.solution()) {
+      Moves.play(model, move);
+    }
+    assertTrue(model.isGameOver());
+  }
+
+  @Test
+  public void testDiscardStrandsFirstStockCard() {
+    Board board = Board.deal(Variant.BASIC, Deals.ids(0), 7, 3);
+    assertFalse(board.hasStrandedStockCard());
+    board.apply(Moves.encode(Moves.DISCARD, 0, 0, 0));
+    assertTrue(board.hasStrandedStockCard());
+  }
+
+  @Test
+  public void testCanonicalHashIgnoresCascadeOrder() {
+    Board board = new Board(Variant.BASIC, 3, 1);
+    board.pushCard(0, 5, true);
+    board.pushCard(2, 7, false);
+    board.pushCard(2, 30, true);
+    board.pushStock(12);
+    Board swapped = new Board(Variant.BASIC, 3, 1);
+    swapped.pushCard(1, 7, false);
+    swapped.pushCard(1, 30, true);
+    swapped.pushCard(2, 5, true);
+    swapped.pushStock(12);
+    assertNotEquals(board.hash64(), swapped.hash64());
+    assertEquals(board.canonicalHash64(), swapped.canonicalHash64());
+
+    swapped.pushCard(0, 20, true);
+    assertNotEquals(board.canonicalHash64(), swapped.canonicalHash64());
+  }
+
+  @Test
+  public void testCanonicalKeysNeverExpandMorePositions() {
+    Board deal = Board.deal(Variant.WHITEHEAD, Deals.ids(WINNABLE_WHITEHEAD_SEED), 7, 3);
+    SolveResult raw = new Solver(Solver.DEFAULT_NODE_LIMIT, null, false).solve(deal);
+    SolveResult canonical = new Solver(Solver.DEFAULT_NODE_LIMIT, null, true).solve(deal);
+    assertEquals(SolveResult.Status.SOLVED, canonical.status());
+    assertTrue(canonical.nodes() <= raw.nodes());
+  }
+
+  @Test
+  public void testOptimalSolverMeetsBoundOnOrderedDeck() {
+    int[] ids = new int[52];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = i % 4 * 13 + i / 4;
+    }
+    Board deal = Board.deal(Variant.BASIC, ids, 1, 1);
+    SolveResult result = new OptimalSolver().solve(deal);
+    assertEquals(SolveResult.Status.SOLVED, result.status());
+    assertEquals(52, OptimalSolver.lowerBound(deal));
+    assertEquals(52, result.length());
+  }
+
+  @Test
+  public void testOptimalSolverFindsShortestLine() {
+    // Whitehead, twelve cards: A-3 of each suit. Breadth-first search over every
+    // move, safe or not, finds no line shorter than 13 moves.
+    int[] ids = {26, 2, 0, 28, 40, 15, 1, 27, 13, 41, 14, 39};
+    Board deal = Board.deal(Variant.WHITEHEAD, ids, 4, 3);
+    SolveResult result = new OptimalSolver().solve(deal);
+    assertEquals(SolveResult.Status.SOLVED, result.status());
+    assertEquals(13, result.length());
+  }
+
+  @Test
+  public void testOptimalSolutionWinsWhiteheadDeal() {
+    Board deal = Board.deal(Variant.WHITEHEAD, Deals.ids(WINNABLE_WHITEHEAD_SEED), 7, 3);
+    SolveResult optimal = new OptimalSolver().solve(deal);
+    assertEquals(SolveResult.Status.SOLVED, optimal.status());
+    assertTrue(optimal.length() <= new Solver().solve(deal).length());
+    assertTrue(optimal.length() >= OptimalSolver.lowerBound(deal));
+
+    KlondikeModel<KlondikeCard> model = new WhiteheadKlondike();
+    model.startGame(Deals.deck(WINNABLE_WHITEHEAD_SEED), false, 7, 3);
+    for (int move : optimal.solution()) {
+      Moves.play(model, move);
+    }
+    assertTrue(model.isGameOver());
+  }
+
+  @Test
+  public void testOptimalSolverProvesLossAndTimesOut() {
+    Board lost = Board.deal(Variant.BASIC, Deals.ids(0), 7, 3);
+    assertEquals(SolveResult.Status.UNSOLVABLE, new OptimalSolver().solve(lost).status());
+    Board deal = Board.deal(Variant.WHITEHEAD, Deals.ids(WINNABLE_WHITEHEAD_SEED), 7, 3);
+    assertEquals(SolveResult.Status.TIMEOUT,
+        new OptimalSolver(10, 1 << 10, null).solve(deal).status());
+  }
+
+  @Test
+  public void testBeamSolutionWinsWhiteheadDeal() {
+    Board deal = Board.deal(Variant.WHITEHEAD, Deals.ids(WINNABLE_WHITEHEAD_SEED), 7, 3);
+    BeamSolver solver = new BeamSolver(BeamSolver.DEFAULT_WIDTH);
+    SolveResult result = solver.solve(deal);
+    assertEquals(SolveResult.Status.SOLVED, result.status());
+    assertArrayEquals(result.solution(), solver.bestLine());
+
+    KlondikeModel<KlondikeCard> model = new WhiteheadKlondike();
+    model.startGame(Deals.deck(WINNABLE_WHITEHEAD_SEED), false, 7, 3);
+    for (int move : result.solution()) {
+      Moves.play(model, move);
+    }
+    assertTrue(model.isGameOver());
+  }
+
+  @Test
+  public void testBeamKeepsBestLineWhenItGivesUp() {
+    Board deal = Board.deal(Variant.BASIC, Deals.ids(0), 7, 3);
+    BeamSolver solver = new BeamSolver(8);
+    assertEquals(SolveResult.Status.TIMEOUT, solver.solve(deal).status());
+    int[] line = solver.bestLine();
+    assertNotEquals(0, line.length);
+    Board board = new Board(deal);
+    for (int move : line) {
+      assertTrue(board.isLegal(move));
+      board.apply(move);
+    }
+    assertTrue(BeamSolver.score(board) > BeamSolver.score(deal));
+  }
+
+  @Test
+  public void testReverseDealsWinOnModels() {
+    for (int numPiles : new int[] {1, 7, 9}) {
+      ReverseDealGenerator basic = new ReverseDealGenerator(Variant.BASIC, numPiles, 3, 1);
+      ReverseDealGenerator whitehead = new ReverseDealGenerator(Variant.WHITEHEAD, numPiles,
+          1, 1);
+      for (int i = 0; i < 20; i++) {
+        replay(basic.next(), new BasicKlondike());
+        replay(whitehead.next(), new WhiteheadKlondike());
+      }
+    }
+  }
+
+  @Test
+  public void testReverseDealsDiffer() {
+    ReverseDealGenerator generator = new ReverseDealGenerator(Variant.BASIC, 7, 3, 1);
+    WinnableDeal first = generator.next();
+    assertFalse(Arrays.equals(first.ids(), generator.next().ids()));
+    assertArrayEquals(first.ids(),
+        new ReverseDealGenerator(Variant.BASIC, 7, 3, 1).next().ids());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReverseDealsNeedPilesThatFit() {
+    new ReverseDealGenerator(Variant.BASIC, 10, 1, 1);
+  }
+
+  private static void replay(WinnableDeal deal, KlondikeModel<KlondikeCard> model) {
+    Board board = deal.board();
+    for (int move : deal.solution()) {
+      assertTrue(board.isLegal(move));
+      board.apply(move);
+    }
+    assertTrue(board.isWon());
+    model.startGame(deal.deck(), false, deal.numPiles(), deal.numDraw());
+    for (int move : deal.solution()) {
+      Moves.play(model, move);
+    }
+    assertEquals(52, model.getScore());
+  }
+
+  @Test
+  public void testStatsFollowSearches() {
+    SolverStats stats = new SolverStats();
+    SolveResult result = new Solver(Solver.DEFAULT_NODE_LIMIT, null, true, stats).solve(
+        Board.deal(Variant.WHITEHEAD, Deals.ids(WINNABLE_WHITEHEAD_SEED), 7, 3));
+    SolveResult timeout = new Solver(1, null, true, stats)
+        .solve(Board.deal(Variant.WHITEHEAD, Deals.ids(5), 7, 3));
+    assertEquals(result.nodes() + timeout.nodes(), stats.getNodesExpanded());
+    assertEquals(1, stats.getSolved());
+    assertEquals(1, stats.getTimeouts());
+    assertEquals(52, stats.getBestFoundationCount());
+    assertTrue(stats.getTranspositionLookups() >= stats.getNodesExpanded());
+    assertTrue(stats.getMaxDepth() > 0);
+    assertTrue(stats.getTableMemoryBytes() > 0);
+    assertTrue(stats.report().contains("nodesExpanded=" + stats.getNodesExpanded() + "\n"));
+  }
+
+  @Test
+  public void testStatsPublishedOverJmx() throws Exception {
+    SolverStats stats = new SolverStats();
+    new Solver(Solver.DEFAULT_NODE_LIMIT, null, true, stats)
+        .solve(Board.deal(Variant.WHITEHEAD, Deals.ids(WINNABLE_WHITEHEAD_SEED), 7, 3));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = stats.register("solver-tests");
+    try {
+      assertEquals(1L, server.getAttribute(name, "Solved"));
+      assertEquals(stats.getNodesExpanded(), server.getAttribute(name, "NodesExpanded"));
+    } finally {
+      SolverStats.unregister(name);
+    }
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  public void testProgressPrintsLines() throws InterruptedException {
+    SolverStats stats = new SolverStats();
+    StringBuilder out = new StringBuilder();
+    SolverProgress progress = new SolverProgress(stats, out, 5);
+    try {
+      for (int i = 0; i < 1000 && !out.toString().contains("\n"); i++) {
+        Thread.sleep(5);
+      }
+    } finally {
+      progress.close();
+    }
+    assertTrue(out.toString().startsWith("nodes 0 (0/s) depth 0/0 best 0"));
+  }
+
+  @Test
+  public void testNodeLimitReportsTimeout() {
+    SolveResult result = new Solver(1).solve(Board.deal(Variant.WHITEHEAD, Deals.ids(5), 7, 3));
+    assertEquals(SolveResult.Status.TIMEOUT, result.status());
+  }
+
+  @Test
+  public void testSweepFillsIndexAndResumes() throws IOException {
+    Path file = Files.createTempFile("solvability", ".idx");
+    Files.delete(file);
+    try {
+      try (SolvabilityIndex index = SolvabilityIndex.create(file, Variant.WHITEHEAD, 7, 3,
+          WINNABLE_WHITEHEAD_SEED - 5, 10)) {
+        assertNull(index.status(WINNABLE_WHITEHEAD_SEED));
+        assertEquals(10, SolvabilitySweep.run(index, 2, 2_000));
+      }
+      try (SolvabilityIndex index = SolvabilityIndex.create(file, Variant.WHITEHEAD, 7, 3,
+          WINNABLE_WHITEHEAD_SEED - 5, 10)) {
+        assertEquals(0, SolvabilitySweep.run(index, 2, 2_000));
+      }
+      try (SolvabilityIndex index = SolvabilityIndex.open(file)) {
+        assertEquals(SolveResult.Status.SOLVED, index.status(WINNABLE_WHITEHEAD_SEED));
+        assertNotEquals(0, index.solutionLength(WINNABLE_WHITEHEAD_SEED));
+        assertEquals(WINNABLE_WHITEHEAD_SEED,
+            index.randomSeed(SolveResult.Status.SOLVED, new Random(1)));
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testIndexRejectsDifferentSweep() throws IOException {
+    Path file = Files.createTempFile("solvability", ".idx");
+    Files.delete(file);
+    try {
+      SolvabilityIndex.create(file, Variant.BASIC, 7, 3, 0, 10).close();
+      SolvabilityIndex.create(file, Variant.BASIC, 7, 1, 0, 10).close();
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testIndexRejectsShortOrCorruptFile() throws IOException {
+    Path file = Files.createTempFile("solvability", ".idx");
+    try {
+      Files.write(file, new byte[10]);
+      try {
+        SolvabilityIndex.open(file).close();
+        fail("Opened a file shorter than the header");
+      } catch (IOException expected) {
+        assertEquals(10, Files.size(file));
+      }
+      try {
+        SolvabilityIndex.create(file, Variant.BASIC, 7, 3, 0, 10).close();
+        fail("Reused a file shorter than the header");
+      } catch (IOException expected) {
+        assertEquals(10, Files.size(file));
+      }
+      Files.delete(file);
+      SolvabilityIndex.create(file, Variant.BASIC, 7, 3, 0, 10).close();
+      byte[] bytes = Files.readAllBytes(file);
+      bytes[8] = 99;
+      Files.write(file, bytes);
+      try {
+        SolvabilityIndex.open(file).close();
+        fail("Opened an index with an unknown variant");
+      } catch (IOException expected) {
+        assertEquals(bytes.length, Files.size(file));
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package klondike;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures time-to-first-render, from launch until the first board's {@code Draw:}
+ * line is printed, for a cold {@link Klondike} launch, for a {@link KlondikeClient}
+ * JVM talking to a warm {@link KlondikeDaemon}, and for a bare socket connection to
+ * the daemon. Every run is a separate process except the bare connection. Run with
+ * {@code gradle bench -Pbench=StartupBenchmark}.
+ */
+public final class StartupBenchmark {
+  private static final int RUNS = 7;
+  private static final List<String> GAME = List.of("basic", "7", "3");
+
+  private StartupBenchmark() {
+  }
+
+  /**
+   * Starts a daemon, runs each launch mode several times and prints the median.
+   *
+   * @param args unused
+   * @throws Exception if a process cannot be started or the daemon cannot be reached
+   */
+  public static void main(String[] args) throws Exception {
+    String java = ProcessHandle.current().info().command().orElse("java");
+    String classpath = System.getProperty("java.class.path");
+    Path socket = Files.createTempDirectory("klondike").resolve("bench.sock");
+    Process daemon = new ProcessBuilder(java, "-cp", classpath, "klondike.KlondikeDaemon",
+        socket.toString()).redirectErrorStream(true).start();
+    try {
+      BufferedReader log = new BufferedReader(
+          new InputStreamReader(daemon.getInputStream(), StandardCharsets.UTF_8));
+      for (String line = log.readLine(); line != null && !line.startsWith("ready");
+           line = log.readLine()) {
+        System.out.println("daemon: " + line);
+      }
+      long[] cold = new long[RUNS];
+      long[] client = new long[RUNS];
+      long[] connect = new long[RUNS];
+      for (int r = 0; r < RUNS; r++) {
+        cold[r] = launch(java, "-cp", classpath, "klondike.Klondike");
+        client[r] = launch(java, "-cp", classpath, "-Dklondike.socket=" + socket,
+            "klondike.KlondikeClient");
+        connect[r] = connect(socket);
+      }
+      report("cold Klondike.main", cold);
+      report("client JVM + daemon", client);
+      report("socket connect + daemon", connect);
+    } finally {
+      daemon.destroy();
+      daemon.waitFor();
+      Files.deleteIfExists(socket);
+      Files.deleteIfExists(socket.getParent());
+    }
+  }
+
+  /**
+   * Launches a process playing the benchmark game and returns the nanoseconds until
+   * it renders the first board.
+   */
+  private static long launch(String... command) throws IOException, InterruptedException {
+    List<String> line = new ArrayList<>(List.of(command));
+    line.addAll(GAME);
+    long start = System.nanoTime();
+    Process process = new ProcessBuilder(line).redirectErrorStream(true).start();
+    long elapsed = untilRendered(process.getInputStream(), start);
+    process.getOutputStream().write("q\n".getBytes(StandardCharsets.UTF_8));
+    process.getOutputStream().close();
+    process.getInputStream().transferTo(OutputStream.nullOutputStream());
+    process.waitFor();
+    return elapsed;
+  }
+
+  /**
+   * Connects to the daemon from this JVM and returns the nanoseconds until it renders
+   * the first board.
+   */
+  private static long connect(Path socket) throws IOException {
+    long start = System.nanoTime();
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      channel.write(ByteBuffer.wrap(
+          (String.join(" ", GAME) + "\n").getBytes(StandardCharsets.UTF_8)));
+      long elapsed = untilRendered(Channels.newInputStream(channel), start);
+      channel.write(ByteBuffer.wrap("q\n".getBytes(StandardCharsets.UTF_8)));
+      return elapsed;
+    }
+  }
+
+  private static long untilRendered(InputStream in, long start) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      if (line.startsWith("Draw:")) {
+        return System.nanoTime() - start;
+      }
+    }
+    throw new IllegalStateException("The game ended before rendering a board");
+  }
+
+  private static void report(String name, long[] nanos) {
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    System.out.printf("%-26s median %8.1f ms  min %8.1f ms  max %8.1f ms%n", name,
+        sorted[sorted.length / 2] / 1e6, sorted[0] / 1e6, sorted[sorted.length - 1] / 1e6);
+  }
+}
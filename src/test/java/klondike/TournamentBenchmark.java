@@ -0,0 +1,98 @@
+package klondike;
+
+import java.util.List;
+import klondike.analysis.Moves;
+import klondike.analysis.ReverseDealGenerator;
+import klondike.analysis.Variant;
+import klondike.analysis.WinnableDeal;
+import klondike.model.hw02.DealTemplate;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.Resettable;
+import klondike.model.hw04.KlondikeCreator;
+import klondike.model.hw04.KlondikeCreator.GameType;
+import klondike.tournament.Standings;
+import klondike.tournament.Tournament;
+
+/**
+ * Measures the two costs a tournament adds to its games. First, starting a player's
+ * game by dealing the deck, as each player would without a shared deal, against
+ * starting it from a {@link DealTemplate}. Then a whole tournament: every player
+ * joins and plays a known winning line of one deal at once, while the rankings are
+ * published every millisecond. Run with {@code gradle bench -Pbench=TournamentBenchmark},
+ * optionally passing {@code -PbenchArgs="players"}.
+ */
+public final class TournamentBenchmark {
+  private static final int STARTS = 2_000_000;
+  private static final int PLAYERS = 500;
+
+  private TournamentBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark for every variant.
+   *
+   * @param args optionally the number of players
+   * @throws InterruptedException if interrupted while the players play
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int players = args.length > 0 ? Integer.parseInt(args[0]) : PLAYERS;
+    for (GameType type : GameType.values()) {
+      Variant variant = type == GameType.BASIC ? Variant.BASIC : Variant.WHITEHEAD;
+      WinnableDeal deal = new ReverseDealGenerator(variant, 7, 3, 1).next();
+      List<KlondikeCard> deck = deal.deck();
+      Resettable model = (Resettable) KlondikeCreator.create(type);
+      model.reset(deck, false, 7, 3);
+      DealTemplate template = model.captureDeal();
+      dealing(model, deck, STARTS / 10);
+      copying(model, template, STARTS / 10);
+      long start = System.nanoTime();
+      dealing(model, deck, STARTS);
+      long dealt = System.nanoTime() - start;
+      start = System.nanoTime();
+      copying(model, template, STARTS);
+      long copied = System.nanoTime() - start;
+      System.out.printf("%-9s start by dealing: %6.1f ns  from template: %6.1f ns  %5.1fx%n",
+          type, (double) dealt / STARTS, (double) copied / STARTS, (double) dealt / copied);
+      tournament(type, deal, players);
+    }
+  }
+
+  private static void dealing(Resettable model, List<KlondikeCard> deck, int starts) {
+    for (int i = 0; i < starts; i++) {
+      model.reset(deck, false, 7, 3);
+    }
+  }
+
+  private static void copying(Resettable model, DealTemplate template, int starts) {
+    for (int i = 0; i < starts; i++) {
+      model.reset(template);
+    }
+  }
+
+  private static void tournament(GameType type, WinnableDeal deal, int players)
+      throws InterruptedException {
+    int[] solution = deal.solution();
+    long start = System.nanoTime();
+    try (Tournament tournament = new Tournament(type, deal.deck(), 7, 3, players, 1)) {
+      for (int p = 0; p < players; p++) {
+        tournament.join("player" + p);
+      }
+      long joined = System.nanoTime();
+      tournament.play(session -> {
+        for (int move : solution) {
+          Moves.play(session.model(), move);
+        }
+      });
+      long played = System.nanoTime();
+      Standings standings = tournament.rankNow();
+      long ranked = System.nanoTime();
+      if (standings.size() != players || standings.score(players - 1) != 52) {
+        throw new IllegalStateException("A player did not finish the deal");
+      }
+      System.out.printf("%-9s %d players: joined in %.1f ms, played %,d moves in %.1f ms, "
+          + "%,d rankings published, last ranking %.1f us%n", type, players,
+          (joined - start) / 1e6, (long) players * solution.length, (played - joined) / 1e6,
+          standings.sequence() - 1, (ranked - played) / 1e3);
+    }
+  }
+}
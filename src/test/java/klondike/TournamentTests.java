@@ -0,0 +1,148 @@
+package klondike;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import klondike.analysis.Deals;
+import klondike.analysis.Moves;
+import klondike.analysis.ReverseDealGenerator;
+import klondike.analysis.Variant;
+import klondike.analysis.WinnableDeal;
+import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.CardIdReadable;
+import klondike.model.hw02.DealTemplate;
+import klondike.model.hw02.Resettable;
+import klondike.model.hw04.KlondikeCreator;
+import klondike.model.hw04.KlondikeCreator.GameType;
+import klondike.model.hw04.WhiteheadKlondike;
+import klondike.tournament.Leaderboard;
+import klondike.tournament.Session;
+import klondike.tournament.Standings;
+import klondike.tournament.Tournament;
+import org.junit.Test;
+
+/**
+ * Tests for deal templates, the lock-free leaderboard and concurrent tournaments.
+ */
+public class TournamentTests {
+
+  @Test
+  public void testTemplateStartsTheSameGame() {
+    for (GameType type : GameType.values()) {
+      Resettable dealer = (Resettable) KlondikeCreator.create(type);
+      dealer.reset(Deals.deck(3), false, 7, 3);
+      DealTemplate deal = dealer.captureDeal();
+      Resettable copy = (Resettable) KlondikeCreator.create(type);
+      copy.reset(deal);
+      assertArrayEquals(board(dealer), board(copy));
+      assertEquals(3, copy.getNumDraw());
+
+      copy.discardDraw();
+      int[] played = board(copy);
+      assertNotEquals(board(dealer)[7], played[7]);
+      dealer.reset(Deals.deck(4), false, 7, 3);
+      Resettable late = (Resettable) KlondikeCreator.create(type);
+      late.reset(deal);
+      late.discardDraw();
+      assertArrayEquals(played, board(late));
+      assertArrayEquals(played, board(copy));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTemplateKeepsItsVariant() {
+    BasicKlondike basic = new BasicKlondike();
+    basic.startGame(Deals.deck(1), false, 7, 1);
+    new WhiteheadKlondike().reset(basic.captureDeal());
+  }
+
+  @Test
+  public void testLeaderboardRanksByScoreThenTime() {
+    Leaderboard board = new Leaderboard(3);
+    int slow = board.register("slow");
+    int fast = board.register("fast");
+    int behind = board.register("behind");
+    board.update(slow, 10, 9_000_000_000L, false);
+    board.update(fast, 10, 4_000_000_000L, true);
+    board.update(behind, 3, 1_000_000_000L, false);
+    Standings standings = board.rank();
+    assertEquals("fast", standings.name(0));
+    assertEquals(4_000, standings.elapsedMillis(0));
+    assertTrue(standings.finished(0));
+    assertEquals("slow", standings.name(1));
+    assertEquals("behind", standings.name(2));
+    assertEquals(3, standings.score(2));
+    assertTrue(board.rank().sequence() > standings.sequence());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testLeaderboardRejectsExtraPlayers() {
+    Leaderboard board = new Leaderboard(1);
+    board.register("first");
+    board.register("second");
+  }
+
+  @Test
+  public void testPlayersShareOneDealConcurrently() throws InterruptedException {
+    WinnableDeal deal = new ReverseDealGenerator(Variant.BASIC, 7, 3, 5).next();
+    int[] solution = deal.solution();
+    int players = 16;
+    Map<String, Integer> expected = new HashMap<>();
+    try (Tournament tournament = new Tournament(GameType.BASIC, deal.deck(), 7, 3, players,
+        1)) {
+      for (int p = 0; p < players; p++) {
+        tournament.join("player" + p);
+      }
+      tournament.play(session -> {
+        int moves = solution.length * session.slot() / (players - 1);
+        for (int i = 0; i < moves; i++) {
+          Moves.play(session.model(), solution[i]);
+        }
+        synchronized (expected) {
+          expected.put(session.name(), session.model().getScore());
+        }
+      });
+      Standings standings = tournament.rankNow();
+      assertEquals(players, standings.size());
+      assertEquals("player" + (players - 1), standings.name(0));
+      assertEquals(52, standings.score(0));
+      for (int rank = 0; rank < players; rank++) {
+        assertTrue(standings.finished(rank));
+        assertEquals((int) expected.get(standings.name(rank)), standings.score(rank));
+        if (rank > 0) {
+          assertTrue(standings.score(rank) <= standings.score(rank - 1));
+        }
+      }
+      assertTrue(tournament.standings().sequence() >= standings.sequence());
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSessionsArePlayedOnce() throws InterruptedException {
+    try (Tournament tournament = new Tournament(GameType.WHITEHEAD, Deals.deck(2), 7, 1, 4,
+        Tournament.DEFAULT_SNAPSHOT_MILLIS)) {
+      Session session = tournament.join("only");
+      tournament.play(s -> s.model().discardDraw());
+      assertEquals(0, tournament.leaderboard().score(session.slot()));
+      tournament.play(s -> s.model().discardDraw());
+    }
+  }
+
+  /**
+   * Reads a started game's cascades and first draw card as ids.
+   */
+  private static int[] board(Resettable model) {
+    CardIdReadable ids = (CardIdReadable) model;
+    int[] out = new int[8];
+    for (int p = 0; p < 7; p++) {
+      int top = model.getPileHeight(p) - 1;
+      out[p] = top * 64 + ids.cardIdAt(p, top);
+    }
+    out[7] = ids.drawCardId(0);
+    return out;
+  }
+}
@@ -0,0 +1,108 @@
+package klondike;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import klondike.analysis.Board;
+import klondike.analysis.Deals;
+import klondike.analysis.SolveResult;
+import klondike.analysis.Solver;
+import klondike.analysis.TranspositionTable;
+import klondike.analysis.Variant;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the memory-mapped transposition table and its use by the solver.
+ */
+public class TranspositionTableTests {
+  private Path file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = Files.createTempFile("klondike", ".tt");
+    Files.delete(file);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void testStoreAndProbe() throws IOException {
+    try (TranspositionTable table = TranspositionTable.create(file, 1)) {
+      assertEquals(0, table.probe(42));
+      table.store(42, 0x05000000, -7, 12, TranspositionTable.LOWER);
+      long entry = table.probe(42);
+      assertEquals(0x05000000, TranspositionTable.move(entry));
+      assertEquals(-7, TranspositionTable.value(entry));
+      assertEquals(12, TranspositionTable.depth(entry));
+      assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+      assertEquals(0, table.probe(43));
+    }
+  }
+
+  @Test
+  public void testEntriesPersistAndOpenReadOnly() throws IOException {
+    try (TranspositionTable table = TranspositionTable.create(file, 1)) {
+      table.store(-1L, 3, 1, 4, TranspositionTable.EXACT);
+    }
+    try (TranspositionTable table = TranspositionTable.open(file)) {
+      assertTrue(table.isReadOnly());
+      assertEquals(3, TranspositionTable.move(table.probe(-1L)));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testOpenRejectsShortFile() throws IOException {
+    Files.write(file, new byte[10]);
+    TranspositionTable.open(file).close();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReadOnlyRejectsStore() throws IOException {
+    TranspositionTable.create(file, 1).close();
+    try (TranspositionTable table = TranspositionTable.open(file)) {
+      table.store(1, 0, 0, 0, TranspositionTable.EXACT);
+    }
+  }
+
+  @Test
+  public void testFullBucketReplacesShallowestEntry() throws IOException {
+    try (TranspositionTable table = TranspositionTable.create(file, 1)) {
+      long stride = table.capacity() / 4;
+      for (int i = 0; i < 4; i++) {
+        table.store(1 + i * stride, 0, 0, 10 + i, TranspositionTable.EXACT);
+      }
+      table.store(1 + 4 * stride, 0, 0, 50, TranspositionTable.EXACT);
+      assertEquals(0, table.probe(1));
+      assertEquals(11, TranspositionTable.depth(table.probe(1 + stride)));
+      assertEquals(50, TranspositionTable.depth(table.probe(1 + 4 * stride)));
+    }
+  }
+
+  @Test
+  public void testSolverReusesStoredResults() throws IOException {
+    Board won = Board.deal(Variant.WHITEHEAD, Deals.ids(71), 7, 3);
+    Board lost = Board.deal(Variant.WHITEHEAD, Deals.ids(0), 1, 1);
+    try (TranspositionTable table = TranspositionTable.create(file, 4)) {
+      Solver solver = new Solver(Solver.DEFAULT_NODE_LIMIT, table);
+      SolveResult first = solver.solve(won);
+      assertEquals(SolveResult.Status.UNSOLVABLE, solver.solve(lost).status());
+      SolveResult again = solver.solve(won);
+      assertEquals(SolveResult.Status.SOLVED, again.status());
+      assertEquals(first.length(), again.length());
+      assertEquals(0, again.nodes());
+    }
+    try (TranspositionTable table = TranspositionTable.open(file)) {
+      SolveResult result = new Solver(1, table).solve(lost);
+      assertEquals(SolveResult.Status.UNSOLVABLE, result.status());
+      assertEquals(0, result.nodes());
+    }
+  }
+}
@@ -2,12 +2,23 @@ package klondike;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.BatchMovable;
+import klondike.model.hw02.CardIdReadable;
 import klondike.model.hw02.CardImpl;
 import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeRules;
+import klondike.model.hw02.Resettable;
+import klondike.model.hw02.TryMovable;
+import klondike.model.hw04.KlondikeCreator;
 import klondike.model.hw04.WhiteheadKlondike;
 import org.junit.Before;
 import org.junit.Test;
@@ -177,4 +188,124 @@ public class WhiteheadKlondikeTests {
     assertEquals(52, unique);
   }
 
+  @Test
+  public void testAutoCompleteClearsOrderedDeck() {
+    game.startGame(deck, false, 1, 1);
+    assertEquals(52, game.autoComplete());
+    assertTrue(game.isGameOver());
+  }
+
+  @Test
+  public void testResetRedealsStartedGame() {
+    game.startGame(deck, false, 1, 1);
+    game.autoComplete();
+    List<KlondikeCard> before = new ArrayList<>(deck);
+    game.reset(deck, true, 7, 3);
+    assertEquals(deck, before);
+    assertEquals(0, game.getScore());
+    assertEquals(7, game.getNumPiles());
+    assertEquals(24, game.getNumDrawCardsLeft());
+    game.reset(deck, false, 7, 3);
+    assertEquals(deck.get(0), game.getCardAt(0, 0));
+  }
+
+  @Test
+  public void testTripleDeckCompletesOnTwelveFoundations() {
+    List<KlondikeCard> tripleDeck = KlondikeCreator.createDeck(3, 13);
+    tripleDeck.sort(Comparator.comparingInt(KlondikeCard::getValue));
+    game.startGame(tripleDeck, false, 1, 1);
+    assertEquals(12, game.getNumFoundations());
+    assertEquals(155, game.getNumDrawCardsLeft());
+    assertEquals(156, game.autoComplete());
+    assertEquals(12 * 13, game.getScore());
+    assertTrue(game.isGameOver());
+  }
+
+  @Test
+  public void testPoolReusesReleasedModels() {
+    Resettable model = KlondikeCreator.acquire(KlondikeCreator.GameType.WHITEHEAD);
+    assertTrue(model instanceof WhiteheadKlondike);
+    KlondikeCreator.release(KlondikeCreator.GameType.WHITEHEAD, model);
+    assertSame(model, KlondikeCreator.acquire(KlondikeCreator.GameType.WHITEHEAD));
+    assertNotSame(model, KlondikeCreator.acquire(KlondikeCreator.GameType.WHITEHEAD));
+  }
+
+  @Test
+  public void testPoolRejectsMismatchedOrRepeatedRelease() {
+    Resettable model = KlondikeCreator.acquire(KlondikeCreator.GameType.WHITEHEAD);
+    try {
+      KlondikeCreator.release(KlondikeCreator.GameType.BASIC, model);
+      fail("Pooled a Whitehead model as Basic");
+    } catch (IllegalArgumentException expected) {
+      assertTrue(KlondikeCreator.acquire(KlondikeCreator.GameType.BASIC)
+          instanceof BasicKlondike);
+    }
+    KlondikeCreator.release(KlondikeCreator.GameType.WHITEHEAD, model);
+    try {
+      KlondikeCreator.release(KlondikeCreator.GameType.WHITEHEAD, model);
+      fail("Pooled the same model twice");
+    } catch (IllegalArgumentException expected) {
+      assertSame(model, KlondikeCreator.acquire(KlondikeCreator.GameType.WHITEHEAD));
+      assertNotSame(model, KlondikeCreator.acquire(KlondikeCreator.GameType.WHITEHEAD));
+    }
+  }
+
+
+  @Test
+  public void testApplyMovesUndoesRecycle() {
+    game.startGame(deck, false, 7, 1);
+    List<KlondikeCard> draw = game.getDrawCards();
+    int[] moves = new int[40];
+    for (int i = 0; i < moves.length - 1; i++) {
+      moves[i] = BatchMovable.encode(BatchMovable.DISCARD, 0, 0, 0);
+    }
+    moves[moves.length - 1] = BatchMovable.encode(BatchMovable.PILE, 0, 2, 1);
+    assertEquals(39, game.applyMoves(moves));
+    assertEquals(draw, game.getDrawCards());
+    game.discardDraw();
+    assertNotSame(draw.get(0), game.getDrawCards().get(0));
+  }
+
+  @Test
+  public void testRandomOperationsKeepInvariants() {
+    long[] counts = ModelStressBenchmark.stress(KlondikeCreator.GameType.WHITEHEAD, 7, 100_000);
+    assertTrue(counts[0] > 10_000);
+    assertTrue(counts[1] > 10_000);
+  }
+
+  @Test
+  public void testTryMovesWithoutStock() {
+    assertEquals(TryMovable.NOT_STARTED, game.tryDiscardDraw());
+    game.startGame(KlondikeCreator.createDeck(1, 7), false, 7, 1);
+    assertEquals(TryMovable.NOTHING_TO_DISCARD, game.canDiscardDraw());
+    assertEquals(TryMovable.NO_DRAW_CARD, game.tryMoveDraw(0));
+    assertEquals(TryMovable.NO_DRAW_CARD, game.tryMoveDrawToFoundation(0));
+    assertEquals(TryMovable.NO_SUCH_PILE, game.tryMoveDraw(-1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMovePileToSamePileIsBadArgument() {
+    game.startGame(deck, false, 7, 1);
+    assertEquals(TryMovable.SAME_PILE, game.canMovePile(2, 1, 2));
+    game.movePile(2, 1, 2);
+  }
+
+  @Test
+  public void testCardIdsShowWholePiles() {
+    game.startGame(deck, false, 7, 1);
+    game.moveToFoundation(0, 2);
+    byte[] cells = new byte[7];
+    assertEquals(7, game.copyPile(6, cells));
+    for (int c = 0; c < 7; c++) {
+      assertEquals(KlondikeRules.cardId(game.getCardAt(6, c)), cells[c]);
+    }
+    assertEquals(KlondikeRules.cardId(game.getCardAt(2)), game.foundationTopId(2));
+    assertEquals(CardIdReadable.NO_CARD, game.foundationTopId(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCopyPileRejectsShortArray() {
+    game.startGame(deck, false, 7, 1);
+    game.copyPile(6, new byte[6]);
+  }
 }
@@ -0,0 +1,88 @@
+package klondike;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import klondike.analysis.Observation;
+import klondike.analysis.WinEstimate;
+import klondike.analysis.WinProbabilityEstimator;
+import klondike.model.hw02.BasicKlondike;
+import klondike.model.hw02.KlondikeCard;
+import klondike.model.hw02.KlondikeModel;
+import klondike.model.hw04.WhiteheadKlondike;
+import org.junit.Test;
+
+/**
+ * Tests for the observation and Monte Carlo win-probability estimator.
+ */
+public class WinProbabilityEstimatorTests {
+
+  @Test
+  public void testObservationHidesFaceDownAndStockCards() {
+    KlondikeModel<KlondikeCard> model = new BasicKlondike();
+    model.startGame(model.createNewDeck(), false, 7, 3);
+    Observation obs = Observation.of(model);
+    // 21 face-down cascade cards plus 24 stock cards minus 3 visible draw cards
+    assertEquals(42, obs.unknownCount());
+  }
+
+  @Test
+  public void testWhiteheadObservationOnlyHidesStock() {
+    KlondikeModel<KlondikeCard> model = new WhiteheadKlondike();
+    model.startGame(model.createNewDeck(), false, 7, 3);
+    assertEquals(21, Observation.of(model).unknownCount());
+  }
+
+  @Test
+  public void testTriviallyWinnableDealIsCertain() {
+    KlondikeModel<KlondikeCard> model = new BasicKlondike();
+    // in createNewDeck order every card can go straight to the foundations, and
+    // with 51 draw cards the whole stock is visible
+    model.startGame(model.createNewDeck(), false, 1, 51);
+    try (WinProbabilityEstimator estimator = new WinProbabilityEstimator(2, 42)) {
+      WinEstimate estimate = estimator.estimate(model, 2000);
+      assertTrue(estimate.playouts() > 0);
+      assertTrue(estimate.lower() > 0.9);
+    }
+  }
+
+  @Test
+  public void testReducedDeckIsObservedAtItsSize() {
+    KlondikeModel<KlondikeCard> model = new BasicKlondike();
+    // the Aces and Twos: one card in the cascade, one shown and six hidden in the stock
+    model.startGame(model.createNewDeck().subList(0, 8), false, 1, 1);
+    assertEquals(6, Observation.of(model).unknownCount());
+    // with seven draw cards the whole stock is shown, in an order that can be founded
+    model.startGame(model.createNewDeck().subList(0, 8), false, 1, 7);
+    assertEquals(0, Observation.of(model).unknownCount());
+    try (WinProbabilityEstimator estimator = new WinProbabilityEstimator(2, 42)) {
+      WinEstimate estimate = estimator.estimate(model, 2000);
+      assertTrue(estimate.playouts() > 0);
+      assertTrue(estimate.lower() > 0.9);
+    }
+  }
+
+  @Test
+  public void testEstimateRespectsBudgetAndCachesCounts() {
+    KlondikeModel<KlondikeCard> model = new BasicKlondike();
+    model.startGame(model.createNewDeck(), true, 7, 3);
+    try (WinProbabilityEstimator estimator = new WinProbabilityEstimator(2, 7)) {
+      long start = System.nanoTime();
+      WinEstimate first = estimator.estimate(model, 100, 0.0001);
+      long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+      assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 500);
+      assertTrue(first.lower() <= first.probability());
+      assertTrue(first.probability() <= first.upper());
+
+      WinEstimate second = estimator.estimate(model, 100, 0.0001);
+      assertTrue(second.playouts() > first.playouts());
+    }
+  }
+
+  @Test
+  public void testWilsonIntervalWithNoPlayoutsIsUninformative() {
+    WinEstimate estimate = new WinEstimate(0, 0);
+    assertEquals(0.0, estimate.lower(), 0.0);
+    assertEquals(1.0, estimate.upper(), 0.0);
+  }
+}